@@ -89,6 +89,7 @@ public class AbstractTableAction extends Action {
 		columns.add(new Column<Long>("Last", "last"));
 		columns.add(new Column<Long>("Max", "max"));
 		columns.add(new Column<Double>("Std Dev", "standardDeviation"));
+		columns.add(new Column<Long>("Self", "selfTotal"));
 		columns.add(new Column<Long>("First Use", "firstUsage"));
 		columns.add(new Column<Long>("Last Use", "lastUsage"));
 		columns.add(new Column<String>("Note", "note"));
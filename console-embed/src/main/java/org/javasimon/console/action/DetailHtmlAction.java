@@ -82,7 +82,8 @@ public class DetailHtmlAction extends Action {
 				htmlBuilder.beginSection("stopwatchPanel", "Stopwatch")
 					.beginRow()
 					.simonProperty(simon, "Counter", "counter")
-					.simonProperty(simon, "Total", "total", 3)
+					.simonProperty(simon, "Total", "total")
+					.simonProperty(simon, "Self Total", "selfTotal")
 					.endRow()
 					.beginRow()
 					.simonProperty(simon, "Min", "min", 3)
@@ -4,6 +4,8 @@ import java.io.IOException;
 
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
+import org.javasimon.callback.calltree.AggregatedCallTree;
+import org.javasimon.callback.calltree.AggregatedCallTreeNode;
 import org.javasimon.callback.calltree.CallTree;
 import org.javasimon.callback.calltree.CallTreeCallback;
 import org.javasimon.callback.calltree.CallTreeNode;
@@ -14,6 +16,7 @@ import org.javasimon.console.action.DetailPlugin;
 import org.javasimon.console.html.HtmlResourceType;
 import org.javasimon.console.json.ArrayJS;
 import org.javasimon.console.json.ObjectJS;
+import org.javasimon.console.text.Stringifier;
 import org.javasimon.console.text.StringifierFactory;
 
 /**
@@ -46,10 +49,10 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 	}
 
 	/**
-	 * Indicate whether {@link CallTreeCallback} was registered in manager
+	 * Get {@link CallTreeCallback} registered in manager, {@code null} if not registered
 	 */
-	private boolean isCallTreeCallbackRegistered(ActionContext context) {
-		return SimonCallbacks.getCallbackByType(context.getManager(), CallTreeCallback.class) != null;
+	private CallTreeCallback getCallback(ActionContext context) {
+		return SimonCallbacks.getCallbackByType(context.getManager(), CallTreeCallback.class);
 	}
 
 	/**
@@ -59,6 +62,13 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		return CallTreeCallback.getLastCallTree((Stopwatch) simon);
 	}
 
+	/**
+	 * Get AggregatedCallTree data from Simon
+	 */
+	private AggregatedCallTree getAggregatedData(Simon simon) {
+		return CallTreeCallback.getAggregatedCallTree((Stopwatch) simon);
+	}
+
 	/**
 	 * Generate an HTML message row
 	 */
@@ -91,13 +101,79 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		}
 		return htmlBuilder.end("li");
 	}
+	/**
+	 * Generate a HTML aggregated call tree node list
+	 */
+	private DetailHtmlBuilder htmlAggregatedTreeNode(AggregatedCallTreeNode node, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory) throws IOException {
+		htmlBuilder.begin("li")
+			.text(node.getName()).text(":&nbsp;");
+		if (node.getParent()!=null) {
+			htmlBuilder
+				.text(htmlStringifierFactory.toString(node.getPercent())).text("%")
+				.text(", ");
+		}
+		htmlBuilder
+			.text("total&nbsp;").text(htmlStringifierFactory.toString(node.getTotal(), "Time"))
+			.text(", ")
+			.text("self&nbsp;").text(htmlStringifierFactory.toString(node.getSelfTotal(), "Time"))
+			.text(", ")
+			.text("max&nbsp;").text(htmlStringifierFactory.toString(node.getMax(), "Time"))
+			.text(", ")
+			.text("count&nbsp;").text(htmlStringifierFactory.toString(node.getCount()));
+		if (!node.getChildren().isEmpty()) {
+			htmlBuilder.begin("ul");
+			for(AggregatedCallTreeNode childNode:node.getChildren()) {
+				htmlAggregatedTreeNode(childNode, htmlBuilder, htmlStringifierFactory);
+			}
+			htmlBuilder.end("ul");
+		}
+		return htmlBuilder.end("li");
+	}
+	/**
+	 * Generate HTML rows for aggregated call tree
+	 */
+	private void htmlAggregatedTree(AggregatedCallTree aggregatedCallTree, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory) throws IOException {
+		htmlBuilder
+			.beginRow()
+				.labelCell("Nodes")
+				.valueCell(htmlStringifierFactory.toString(aggregatedCallTree.getNodeCount())
+					+ "&nbsp;/&nbsp;" + htmlStringifierFactory.toString(aggregatedCallTree.getMaxNodes()))
+				.labelCell("Dropped")
+				.valueCell(htmlStringifierFactory.toString(aggregatedCallTree.getDroppedCount()))
+			.endRow()
+			.beginRow()
+				.labelCell("Aggregated tree")
+				.beginValueCell(" colspan=\"3\"").begin("ul");
+				htmlAggregatedTreeNode(aggregatedCallTree.getRootNode(), htmlBuilder, htmlStringifierFactory)
+				.end("ul").endValueCell()
+			.endRow();
+	}
+	/**
+	 * Generate HTML row for sampling counters
+	 */
+	private void htmlSampling(CallTreeCallback callback, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory) throws IOException {
+		htmlBuilder
+			.beginRow()
+				.labelCell("Sampling")
+				.valueCell("1&nbsp;/&nbsp;" + htmlStringifierFactory.toString(callback.getSampleRate()))
+				.labelCell("Sampled / Skipped")
+				.valueCell(htmlStringifierFactory.toString(callback.getSampledCount())
+					+ "&nbsp;/&nbsp;" + htmlStringifierFactory.toString(callback.getSkippedCount()))
+			.endRow();
+	}
 	@Override
 	public DetailHtmlBuilder executeHtml(ActionContext context, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory, Simon simon) throws IOException {
-		if (isCallTreeCallbackRegistered(context)) {
+		CallTreeCallback callback = getCallback(context);
+		if (callback != null) {
+			if (callback.getSampleRate() > 1) {
+				htmlSampling(callback, htmlBuilder, htmlStringifierFactory);
+			}
 			CallTree callTree = getData(simon);
-			if (callTree == null) {
+			AggregatedCallTree aggregatedCallTree = getAggregatedData(simon);
+			if (callTree == null && aggregatedCallTree == null) {
 				htmlMessage(htmlBuilder, NO_DATA_MESSAGE);
-			} else {
+			}
+			if (callTree != null) {
 				htmlBuilder
 					.beginRow()
 						.labelCell("Threshold")
@@ -110,6 +186,9 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 						.end("ul").endValueCell()
 					.endRow();
 			}
+			if (aggregatedCallTree != null) {
+				htmlAggregatedTree(aggregatedCallTree, htmlBuilder, htmlStringifierFactory);
+			}
 		} else {
 			htmlMessage(htmlBuilder, NO_CALLBACK_MESSAGE);
 		}
@@ -139,20 +218,50 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		return nodeJS;
 	}
 
+	/**
+	 * Generate a JSON aggregated call tree node object
+	 */
+	private ObjectJS jsonAggregatedTreeNode(AggregatedCallTreeNode node, StringifierFactory jsonStringifierFactory) {
+		final ObjectJS nodeJS = ObjectJS.create(node, jsonStringifierFactory);
+		if (!node.getChildren().isEmpty()) {
+			final ArrayJS childNodesJS=new ArrayJS(node.getChildren().size());
+			for(AggregatedCallTreeNode childNode:node.getChildren()) {
+				childNodesJS.addElement(jsonAggregatedTreeNode(childNode, jsonStringifierFactory));
+			}
+			nodeJS.setAttribute("children", childNodesJS);
+		}
+		return nodeJS;
+	}
+
 	/**
 	 * Generate a JSON call tree object or an error string if no call tree
 	 */
 	@Override
 	public ObjectJS executeJson(ActionContext context, StringifierFactory jsonStringifierFactory, Simon simon) {
 		ObjectJS callTreeJS;
-		if (isCallTreeCallbackRegistered(context)) {
+		CallTreeCallback callback = getCallback(context);
+		if (callback != null) {
 			CallTree callTree = getData(simon);
-			if (callTree == null) {
+			AggregatedCallTree aggregatedCallTree = getAggregatedData(simon);
+			if (callTree == null && aggregatedCallTree == null) {
 				callTreeJS = jsonMessage(NO_DATA_MESSAGE, jsonStringifierFactory);
+			} else if (callTree == null) {
+				callTreeJS = new ObjectJS();
 			} else {
 				callTreeJS = ObjectJS.create(callTree, jsonStringifierFactory);
 				callTreeJS.setAttribute("rootNode", jsonTreeNode(callTree.getRootNode(), jsonStringifierFactory));
 			}
+			if (aggregatedCallTree != null) {
+				ObjectJS aggregatedJS = ObjectJS.create(aggregatedCallTree, jsonStringifierFactory);
+				aggregatedJS.setAttribute("rootNode", jsonAggregatedTreeNode(aggregatedCallTree.getRootNode(), jsonStringifierFactory));
+				callTreeJS.setAttribute("aggregated", aggregatedJS);
+			}
+			if (callback.getSampleRate() > 1) {
+				Stringifier<Long> longStringifier = jsonStringifierFactory.getStringifier(Long.class);
+				callTreeJS.setSimpleAttribute("sampleRate", (long) callback.getSampleRate(), longStringifier);
+				callTreeJS.setSimpleAttribute("sampledCount", callback.getSampledCount(), longStringifier);
+				callTreeJS.setSimpleAttribute("skippedCount", callback.getSkippedCount(), longStringifier);
+			}
 		} else {
 			callTreeJS = jsonMessage(NO_CALLBACK_MESSAGE, jsonStringifierFactory);
 		}
@@ -1,12 +1,15 @@
 package org.javasimon.console.plugin;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
 import org.javasimon.callback.quantiles.BucketSample;
 import org.javasimon.callback.quantiles.BucketsSample;
 import org.javasimon.callback.quantiles.QuantilesCallback;
+import org.javasimon.callback.quantiles.SlidingWindowBuckets;
 import org.javasimon.console.ActionContext;
 import org.javasimon.console.SimonCallbacks;
 import org.javasimon.console.action.DetailHtmlBuilder;
@@ -14,6 +17,7 @@ import org.javasimon.console.action.DetailPlugin;
 import org.javasimon.console.html.HtmlResourceType;
 import org.javasimon.console.json.ArrayJS;
 import org.javasimon.console.json.ObjectJS;
+import org.javasimon.console.text.Stringifier;
 import org.javasimon.console.text.StringifierFactory;
 
 /**
@@ -29,6 +33,10 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 	 * Message: Data not found in Simon
 	 */
 	private static final String NO_DATA_MESSAGE = "No data available";
+	/**
+	 * Displayed sliding windows in minutes, longer than the configured window are skipped
+	 */
+	private static final long[] WINDOW_MINUTES = {1, 5, 15};
 
 	public QuantilesDetailPlugin() {
 		super("quantiles", "Distribution and Quantiles");
@@ -58,6 +66,30 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 		return QuantilesCallback.sampleBuckets((Stopwatch) simon);
 	}
 
+	/**
+	 * Get lengths of displayed sliding windows in ms
+	 */
+	private List<Long> getWindows(SlidingWindowBuckets buckets) {
+		List<Long> windows = new ArrayList<>();
+		for (long minutes : WINDOW_MINUTES) {
+			long window = minutes * 60000L;
+			if (window <= buckets.getWindow()) {
+				windows.add(window);
+			}
+		}
+		if (windows.isEmpty()) {
+			windows.add(buckets.getWindow());
+		}
+		return windows;
+	}
+
+	/**
+	 * Get sliding window label like "Last 5 min"
+	 */
+	private static String windowLabel(long window) {
+		return window % 60000L == 0 ? "Last " + window / 60000L + " min" : "Last " + window / 1000L + " s";
+	}
+
 	/**
 	 * Generate an HTML message row
 	 */
@@ -79,6 +111,12 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 					.labelCell("90%")
 					.valueCell(htmlStringifierFactory.toString(bucketsSample.getPercentile90(), "Time"))
 					.endRow();
+				htmlBuilder.beginRow()
+					.labelCell("99%")
+					.valueCell(htmlStringifierFactory.toString(bucketsSample.getPercentile99(), "Time"))
+					.labelCell("99.9%")
+					.valueCell(htmlStringifierFactory.toString(bucketsSample.getPercentile999(), "Time"))
+					.endRow();
 				htmlBuilder.beginRow().labelCell("Distribution").beginValueCell();
 				htmlBuilder.begin("table")
 					.beginRow().labelCell("Min").labelCell("Max").labelCell("Counter").endRow();
@@ -94,6 +132,25 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 				}
 				htmlBuilder.end("table");
 				htmlBuilder.endValueCell().endRow();
+				SlidingWindowBuckets windowBuckets = QuantilesCallback.getSlidingWindowBuckets((Stopwatch) simon);
+				if (windowBuckets != null) {
+					htmlBuilder.beginRow().labelCell("Sliding windows").beginValueCell(" colspan=\"3\"");
+					htmlBuilder.begin("table")
+						.beginRow().labelCell("Window").labelCell("Counter").labelCell("Median").labelCell("90%").labelCell("99%").labelCell("99.9%").endRow();
+					for (Long window : getWindows(windowBuckets)) {
+						BucketsSample windowSample = windowBuckets.sample(window);
+						htmlBuilder.beginRow()
+							.labelCell(windowLabel(window))
+							.beginValueCell().value(windowSample.getTotalCount(), null).endValueCell()
+							.beginValueCell().value(windowSample.getMedian(), "Time").endValueCell()
+							.beginValueCell().value(windowSample.getPercentile90(), "Time").endValueCell()
+							.beginValueCell().value(windowSample.getPercentile99(), "Time").endValueCell()
+							.beginValueCell().value(windowSample.getPercentile999(), "Time").endValueCell()
+							.endRow();
+					}
+					htmlBuilder.end("table");
+					htmlBuilder.endValueCell().endRow();
+				}
 			}
 		} else {
 			htmlMessage(htmlBuilder, NO_CALLBACK_MESSAGE);
@@ -110,6 +167,26 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 		return bucketsJS;
 	}
 
+	/**
+	 * Generate JSON array of sliding window quantiles
+	 */
+	private ArrayJS jsonWindows(SlidingWindowBuckets windowBuckets, StringifierFactory jsonStringifierFactory) {
+		ArrayJS windowsJS = new ArrayJS();
+		Stringifier<Double> timeStringifier = jsonStringifierFactory.getStringifier(Double.class, "Time");
+		for (Long window : getWindows(windowBuckets)) {
+			BucketsSample windowSample = windowBuckets.sample(window);
+			ObjectJS windowJS = new ObjectJS();
+			windowJS.setSimpleAttribute("label", windowLabel(window), jsonStringifierFactory.getStringifier(String.class));
+			windowJS.setSimpleAttribute("totalCount", windowSample.getTotalCount(), jsonStringifierFactory.getStringifier(Integer.class));
+			windowJS.setSimpleAttribute("median", windowSample.getMedian(), timeStringifier);
+			windowJS.setSimpleAttribute("percentile90", windowSample.getPercentile90(), timeStringifier);
+			windowJS.setSimpleAttribute("percentile99", windowSample.getPercentile99(), timeStringifier);
+			windowJS.setSimpleAttribute("percentile999", windowSample.getPercentile999(), timeStringifier);
+			windowsJS.addElement(windowJS);
+		}
+		return windowsJS;
+	}
+
 	@Override
 	public ObjectJS executeJson(ActionContext context, StringifierFactory jsonStringifierFactory, Simon simon) {
 		ObjectJS bucketsJS;
@@ -120,6 +197,10 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 			} else {
 				bucketsJS = ObjectJS.create(bucketsSample, jsonStringifierFactory);
 				bucketsJS.setAttribute("buckets", ArrayJS.create(bucketsSample.getBuckets(), jsonStringifierFactory));
+				SlidingWindowBuckets windowBuckets = QuantilesCallback.getSlidingWindowBuckets((Stopwatch) simon);
+				if (windowBuckets != null) {
+					bucketsJS.setAttribute("windows", jsonWindows(windowBuckets, jsonStringifierFactory));
+				}
 			}
 		} else {
 			bucketsJS = jsonMessage(NO_CALLBACK_MESSAGE, jsonStringifierFactory);
@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
+import org.javasimon.callback.timeline.LatencyMatrix;
 import org.javasimon.callback.timeline.StopwatchTimeRange;
 import org.javasimon.callback.timeline.TimeRange;
 import org.javasimon.callback.timeline.Timeline;
@@ -17,6 +18,8 @@ import org.javasimon.console.action.DetailPlugin;
 import org.javasimon.console.html.HtmlResourceType;
 import org.javasimon.console.json.ArrayJS;
 import org.javasimon.console.json.ObjectJS;
+import org.javasimon.console.json.SimpleJS;
+import org.javasimon.console.text.Stringifier;
 import org.javasimon.console.text.StringifierFactory;
 
 /**
@@ -88,11 +91,15 @@ public class TimelineDetailPlugin extends DetailPlugin {
 					.labelCell("Width")
 					.valueCell(htmlStringifierFactory.toString(timelineSample.getWidth()* SimonClock.NANOS_IN_MILLIS,"Time"))
 					.endRow();
+				LatencyMatrix latencyMatrix = timelineSample.getLatencyMatrix();
 				htmlBuilder.beginRow().labelCell("Evolution").beginValueCell(" colspan=\"3\"");
 				htmlBuilder.begin("table").begin("thead")
 					.beginRow().labelCell("Start").labelCell("End");
 				if (simon instanceof Stopwatch) {
 					htmlBuilder.labelCell("Counter").labelCell("Total").labelCell("Min").labelCell("Mean").labelCell("Last").labelCell("Max").labelCell("Std. Dev.");
+					if (latencyMatrix != null) {
+						htmlBuilder.labelCell("99%");
+					}
 				}
 				htmlBuilder.endRow().end("thead").begin("tbody");
 				for(TimeRange timeRange:timelineSample.getTimeRanges()) {
@@ -109,11 +116,17 @@ public class TimelineDetailPlugin extends DetailPlugin {
 							.valueCell(htmlStringifierFactory.toString(sTimeRange.getLast(),"Time"))
 							.valueCell(htmlStringifierFactory.toString(sTimeRange.getMax(),"Time"))
 							.valueCell(htmlStringifierFactory.toString(sTimeRange.getStandardDeviation(),"Time"));
+						if (latencyMatrix != null) {
+							htmlBuilder.valueCell(htmlStringifierFactory.toString(sTimeRange.getPercentile99(),"Time"));
+						}
 					}
 					htmlBuilder.endRow();
 				}
 				htmlBuilder.end("tbody").end("table");
 				htmlBuilder.endValueCell().endRow();
+				if (latencyMatrix != null) {
+					htmlHeatmap(htmlBuilder, htmlStringifierFactory, latencyMatrix);
+				}
 			}
 		} else {
 			htmlMessage(htmlBuilder, NO_CALLBACK_MESSAGE);
@@ -121,6 +134,61 @@ public class TimelineDetailPlugin extends DetailPlugin {
 		return htmlBuilder;
 	}
 
+	/**
+	 * Generate latency heatmap: one column per time range, one row per latency bucket (highest on top),
+	 * cell color intensity is given by the split count
+	 */
+	private void htmlHeatmap(DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory, LatencyMatrix latencyMatrix) throws IOException {
+		long[] timestamps = latencyMatrix.getTimestamps();
+		long[][] counts = latencyMatrix.getCounts();
+		htmlBuilder.beginRow().labelCell("Latency").beginValueCell(" colspan=\"3\"");
+		htmlBuilder.begin("table", null, "heatmap").begin("thead").beginRow().labelCell("Latency");
+		for (long timestamp : timestamps) {
+			htmlBuilder.labelCell(htmlStringifierFactory.toString(timestamp, "Date"));
+		}
+		htmlBuilder.endRow().end("thead").begin("tbody");
+		for (int b = latencyMatrix.getBucketMins().length - 1; b >= 0; b--) {
+			htmlBuilder.beginRow().labelCell(htmlStringifierFactory.toString(latencyMatrix.getBucketMins()[b], "Time"));
+			for (long[] timeRangeCounts : counts) {
+				long count = timeRangeCounts[b];
+				String opacity = count == 0 ? "0" : Double.toString(0.1D + 0.9D * count / latencyMatrix.getMaxCount());
+				htmlBuilder.beginValueCell(" style=\"background-color:rgba(201,59,59," + opacity + ")\"")
+					.value(count, null).endValueCell();
+			}
+			htmlBuilder.endRow();
+		}
+		htmlBuilder.end("tbody").end("table");
+		htmlBuilder.endValueCell().endRow();
+	}
+
+	/**
+	 * Generate JSON latency matrix: timestamps, bucket bounds and counts indexed by time range and bucket
+	 */
+	private ObjectJS jsonLatencyMatrix(LatencyMatrix latencyMatrix, StringifierFactory jsonStringifierFactory) {
+		Stringifier<Long> dateStringifier = jsonStringifierFactory.getStringifier(Long.class, "Date");
+		Stringifier<Long> timeStringifier = jsonStringifierFactory.getStringifier(Long.class, "Time");
+		Stringifier<Long> countStringifier = jsonStringifierFactory.getStringifier(Long.class);
+		ObjectJS matrixJS = new ObjectJS();
+		matrixJS.setAttribute("timestamps", jsonArray(latencyMatrix.getTimestamps(), dateStringifier));
+		matrixJS.setAttribute("bucketMins", jsonArray(latencyMatrix.getBucketMins(), timeStringifier));
+		matrixJS.setAttribute("bucketMaxs", jsonArray(latencyMatrix.getBucketMaxs(), timeStringifier));
+		ArrayJS countsJS = new ArrayJS();
+		for (long[] timeRangeCounts : latencyMatrix.getCounts()) {
+			countsJS.addElement(jsonArray(timeRangeCounts, countStringifier));
+		}
+		matrixJS.setAttribute("counts", countsJS);
+		matrixJS.setSimpleAttribute("maxCount", latencyMatrix.getMaxCount(), countStringifier);
+		return matrixJS;
+	}
+
+	private static ArrayJS jsonArray(long[] values, Stringifier<Long> stringifier) {
+		ArrayJS arrayJS = new ArrayJS(values.length);
+		for (long value : values) {
+			arrayJS.addElement(new SimpleJS<>(value, stringifier));
+		}
+		return arrayJS;
+	}
+
 	/**
 	 * Generate a JSON message attribute
 	 */
@@ -140,6 +208,10 @@ public class TimelineDetailPlugin extends DetailPlugin {
 			} else {
 				timelineJS = ObjectJS.create(timelineSample, jsonStringifierFactory);
 				timelineJS.setAttribute("timeRanges", ArrayJS.create(timelineSample.getTimeRanges(), jsonStringifierFactory));
+				LatencyMatrix latencyMatrix = timelineSample.getLatencyMatrix();
+				if (latencyMatrix != null) {
+					timelineJS.setAttribute("latencyMatrix", jsonLatencyMatrix(latencyMatrix, jsonStringifierFactory));
+				}
 			}
 		} else {
 			timelineJS = jsonMessage(NO_CALLBACK_MESSAGE, jsonStringifierFactory);
@@ -8,6 +8,11 @@ if (javasimon) {
 				row=this.fnAppendRow(eTableBody);
 				this.fnAppendLabelValueCell(row,"Message", oCallTree.message, 3);
 			}
+			if (oCallTree.sampleRate) {
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelValueCell(row, "Sampling", "1 / "+oCallTree.sampleRate);
+				this.fnAppendLabelValueCell(row, "Sampled / Skipped", oCallTree.sampledCount+" / "+oCallTree.skippedCount);
+			}
 			if (oCallTree.logThreshold) {
 				row=this.fnAppendRow(eTableBody);
 				this.fnAppendLabelValueCell(row, "Threshold", oCallTree.logThreshold);
@@ -34,6 +39,33 @@ if (javasimon) {
 				oDataTreeTable.fnDrawHeader();
 				oDataTreeTable.fnDraw();
 			}
+			if (oCallTree.aggregated) {
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelValueCell(row, "Nodes", oCallTree.aggregated.nodeCount+" / "+oCallTree.aggregated.maxNodes);
+				this.fnAppendLabelValueCell(row, "Dropped", oCallTree.aggregated.droppedCount);
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelCell(row,"Aggregated tree");
+				eTreeTable=domUtil.fnAppendChildElement(
+					this.fnAppendValueCell(row, null, 3),
+					"table",
+					{id:"aggregatedCallDataTreeTable", style:"width:auto","class":"dataTreeTable"}
+				);
+				oDataTreeTable=new javasimon.DataTreeTable(
+					eTreeTable,{
+						aoColumns:[
+							{sTitle:"Name",		sField:"name", 		sClass:'string headCell'},
+							{sTitle:"Percent",	sField:"percent",	sClass:"number"},
+							{sTitle:"Total",	sField:"total",		sClass:"number"},
+							{sTitle:"Self",		sField:"selfTotal",	sClass:"number"},
+							{sTitle:"Max",		sField:"max",		sClass:"number"},
+							{sTitle:"Count",	sField:"count",		sClass:"number"}
+						]
+					}
+				);
+				oDataTreeTable.fnSetRootData(oCallTree.aggregated.rootNode);
+				oDataTreeTable.fnDrawHeader();
+				oDataTreeTable.fnDraw();
+			}
 		});
 	}(javasimon.DOMUtil, javasimon.ViewPluginManager));
 }
@@ -85,7 +85,8 @@ window.javasimon=javasimon;
 			// Table
 			row=this.fnAppendRow(section.eTableBody);
 			this.fnAppendSimonLabelValueCell(row, "Counter", "counter");
-			this.fnAppendSimonLabelValueCell(row, "Total", "total", 3);
+			this.fnAppendSimonLabelValueCell(row, "Total", "total");
+			this.fnAppendSimonLabelValueCell(row, "Self Total", "selfTotal");
 			row=this.fnAppendRow(section.eTableBody);
 			this.fnAppendSimonLabelValueCell(row, "Min", "min", 3);
 			this.fnAppendSimonLabelValueCell(row, "Min Timestamp", "minTimestamp");
@@ -4,7 +4,7 @@ if (javasimon) {
 	(function(domUtil, viewPluginMgr) {
 		viewPluginMgr.fnAddPluginRenderer("quantiles",function(eTableBody, oQuantiles) {
 			var row=this.fnAppendRow(eTableBody),
-				i,subTable,subRow, subTableSection, oBucket,
+				i,subTable,subRow, subTableSection, oBucket, oWindow,
 				eBucketCell,nBucketWidth;
 			if (oQuantiles.message) {
 				this.fnAppendLabelValueCell(row,"Message", oQuantiles.message, 3);
@@ -14,6 +14,10 @@ if (javasimon) {
 			this.fnAppendLabelValueCell(row, "Median", oQuantiles.median);
 			this.fnAppendLabelValueCell(row, "90%", oQuantiles.percentile90);
 
+			row=this.fnAppendRow(eTableBody);
+			this.fnAppendLabelValueCell(row, "99%", oQuantiles.percentile99);
+			this.fnAppendLabelValueCell(row, "99.9%", oQuantiles.percentile999);
+
 			row=this.fnAppendRow(eTableBody);
 			this.fnAppendLabelCell(row,"Distribution");
 			subTable=domUtil.fnAppendChildElement(this.fnAppendValueCell(row, " ", 3),"table");
@@ -40,6 +44,30 @@ if (javasimon) {
 				}
 			}
 
+			if (oQuantiles.windows && oQuantiles.windows.length>0) {
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelCell(row,"Sliding windows");
+				subTable=domUtil.fnAppendChildElement(this.fnAppendValueCell(row, " ", 3),"table");
+				subTableSection=domUtil.fnAppendChildElement(subTable, "thead");
+				subRow=this.fnAppendRow(subTableSection);
+				this.fnAppendLabelCell(subRow, "Window");
+				this.fnAppendLabelCell(subRow, "Count");
+				this.fnAppendLabelCell(subRow, "Median");
+				this.fnAppendLabelCell(subRow, "90%");
+				this.fnAppendLabelCell(subRow, "99%");
+				this.fnAppendLabelCell(subRow, "99.9%");
+				subTableSection=domUtil.fnAppendChildElement(subTable, "tbody");
+				for(i=0; i<oQuantiles.windows.length; i++) {
+					oWindow=oQuantiles.windows[i];
+					subRow=this.fnAppendRow(subTableSection);
+					this.fnAppendLabelCell(subRow, oWindow.label);
+					this.fnAppendCell(subRow, null, oWindow.totalCount === 0 ? "0" : oWindow.totalCount);
+					this.fnAppendCell(subRow, null, oWindow.median);
+					this.fnAppendCell(subRow, null, oWindow.percentile90);
+					this.fnAppendCell(subRow, null, oWindow.percentile99);
+					this.fnAppendCell(subRow, null, oWindow.percentile999);
+				}
+			}
 		});
 	}(javasimon.DOMUtil, javasimon.ViewPluginManager));
 }
@@ -4,7 +4,8 @@ if (javasimon) {
 	(function (domUtil, viewPluginMgr) {
 		viewPluginMgr.fnAddPluginRenderer("timeline", function (eTableBody, oTimeline) {
 			var row = this.fnAppendRow(eTableBody), cell,
-				subTable, oDataTable, googleChartDiv;
+				subTable, oDataTable, googleChartDiv, aoColumns,
+				oMatrix = oTimeline.latencyMatrix, subRow, subTableSection, i, j, nCount;
 			if (oTimeline.message) {
 				this.fnAppendLabelValueCell(row, "Message", oTimeline.message, 3);
 			}
@@ -16,12 +17,7 @@ if (javasimon) {
 			row = this.fnAppendRow(eTableBody);
 			this.fnAppendLabelCell(row, "Table");
 			subTable = domUtil.fnAppendChildElement(this.fnAppendValueCell(row, " ", 3), "table");
-			oDataTable = $(subTable).dataTable({
-				bJQueryUI: true,
-				bProcessing: true,
-				bPaginate: false, bLengthChange: false,
-				bFilter: false, bInfo: false,
-				aoColumns: [
+			aoColumns = [
 					{sTitle: "Start", mDataProp: "startTimestamp", bSearchable: false, sWidth: "10%", sClass: "numeric" },
 					{sTitle: "End", mDataProp: "endTimestamp", bSearchable: false, sWidth: "10%", sClass: "numeric", asSorting: ["desc", "asc" ] },
 					{sTitle: "Count", mDataProp: "counter", bSearchable: false, sType: "numeric", sWidth: "5%", sClass: "numeric", asSorting: ["desc", "asc" ] },
@@ -31,7 +27,16 @@ if (javasimon) {
 					{sTitle: "Last", mDataProp: "last", bSearchable: false, sType: "numeric", sWidth: "5%", sClass: "numeric", asSorting: ["desc", "asc" ] },
 					{sTitle: "Max", mDataProp: "max", bSearchable: false, sType: "numeric", sWidth: "5%", sClass: "numeric", asSorting: ["desc", "asc" ] },
 					{sTitle: "StdDev", mDataProp: "standardDeviation", bSearchable: false, sType: "numeric", sWidth: "5%", sClass: "numeric", asSorting: ["desc", "asc" ] }
-				],
+				];
+			if (oMatrix) {
+				aoColumns.push({sTitle: "99%", mDataProp: "percentile99", bSearchable: false, sType: "numeric", sWidth: "5%", sClass: "numeric", asSorting: ["desc", "asc" ] });
+			}
+			oDataTable = $(subTable).dataTable({
+				bJQueryUI: true,
+				bProcessing: true,
+				bPaginate: false, bLengthChange: false,
+				bFilter: false, bInfo: false,
+				aoColumns: aoColumns,
 				aaSorting: [
 					[ 0, "asc" ]
 				]
@@ -68,6 +73,31 @@ if (javasimon) {
 					cell = this.fnAppendValueCell(row, "No data available in chart", 3)
 				}
 			}
+
+			if (oMatrix) {
+				// Latency heatmap: one column per time range, highest latency bucket on top
+				row = this.fnAppendRow(eTableBody);
+				this.fnAppendLabelCell(row, "Latency");
+				subTable = domUtil.fnAppendChildElement(this.fnAppendValueCell(row, " ", 3), "table", {"class": "heatmap"});
+				subTableSection = domUtil.fnAppendChildElement(subTable, "thead");
+				subRow = this.fnAppendRow(subTableSection);
+				this.fnAppendLabelCell(subRow, "Latency");
+				for (j = 0; j < oMatrix.timestamps.length; j++) {
+					this.fnAppendLabelCell(subRow, oMatrix.timestamps[j]);
+				}
+				subTableSection = domUtil.fnAppendChildElement(subTable, "tbody");
+				for (i = oMatrix.bucketMins.length - 1; i >= 0; i--) {
+					subRow = this.fnAppendRow(subTableSection);
+					this.fnAppendLabelCell(subRow, oMatrix.bucketMins[i]);
+					for (j = 0; j < oMatrix.counts.length; j++) {
+						nCount = oMatrix.counts[j][i];
+						cell = this.fnAppendCell(subRow, "numeric", nCount === 0 ? "0" : nCount);
+						if (nCount > 0 && oMatrix.maxCount > 0) {
+							cell.style.backgroundColor = "rgba(201,59,59," + (0.1 + 0.9 * nCount / oMatrix.maxCount) + ")";
+						}
+					}
+				}
+			}
 		});
 	}(javasimon.DOMUtil, javasimon.ViewPluginManager));
 }
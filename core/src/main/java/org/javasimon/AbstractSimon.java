@@ -1,10 +1,13 @@
 package org.javasimon;
 
-import java.util.Collection;
+import org.javasimon.utils.SimonUtils;
+
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -31,15 +34,27 @@ abstract class AbstractSimon implements Simon {
 
 	private SimonState state = SimonState.INHERIT;
 
-	private Simon parent;
+	private volatile Simon parent;
 
 	private final List<Simon> children = new CopyOnWriteArrayList<>();
 
+	/** Resolved child Simons by their local names, created with the first {@link #childSimon(String, Class)} call. */
+	private volatile ConcurrentMap<String, Simon> childHandles;
+
 	private String note;
 
 	private AttributesSupport attributesSupport = new AttributesSupport();
 
-	private Map<Object, Simon> incrementalSimons;
+	/** Previous cumulative samples of the incremental sampling keys, created with the first incremental sample. */
+	private Map<Object, IncrementState> incrementStates;
+
+	private volatile EpochCells epochCells;
+
+	/** Timestamp when the creation of this Simon was announced to the callbacks. */
+	private volatile long announcedMillis;
+
+	/** Whether the creation of this Simon was announced to the callbacks already. */
+	private volatile boolean announced;
 
 	/**
 	 * Constructor of the abstract Simon is used internally by subclasses.
@@ -75,6 +90,16 @@ abstract class AbstractSimon implements Simon {
 		this.parent = parent;
 	}
 
+	/**
+	 * Returns the lock guarding changes of the children list - used only internally by the Manager
+	 * when it links new Simons into the hierarchy.
+	 *
+	 * @return lock object for the hierarchy changes under this Simon
+	 */
+	final Object hierarchyLock() {
+		return children;
+	}
+
 	/**
 	 * Adds child to this Simon with setting the parent of the child.
 	 *
@@ -171,6 +196,35 @@ abstract class AbstractSimon implements Simon {
 		return lastUsage;
 	}
 
+	/**
+	 * Marks the Simon as announced to the callbacks ({@link org.javasimon.callback.Callback#onSimonCreated(Simon)}
+	 * has been called) - called by the manager.
+	 *
+	 * @param millis current timestamp in millis
+	 */
+	final void markAnnounced(long millis) {
+		announcedMillis = millis;
+		announced = true;
+	}
+
+	/**
+	 * Returns true if the creation of this Simon was announced to the callbacks already.
+	 *
+	 * @return true if {@link org.javasimon.callback.Callback#onSimonCreated(Simon)} has been called
+	 */
+	final boolean isAnnounced() {
+		return announced;
+	}
+
+	/**
+	 * Returns timestamp when the creation of this Simon was announced to the callbacks.
+	 *
+	 * @return timestamp in millis, 0 if the callbacks were not notified yet
+	 */
+	final long getAnnouncedMillis() {
+		return announcedMillis;
+	}
+
 	/**
 	 * Replaces one of the children for a new one (unknown to concrete). Used only internally.
 	 *
@@ -179,12 +233,68 @@ abstract class AbstractSimon implements Simon {
 	 */
 	void replaceChild(Simon simon, AbstractSimon newSimon) {
 		children.remove(simon);
+		ConcurrentMap<String, Simon> handles = childHandles;
+		if (handles != null) {
+			handles.remove(SimonUtils.localName(simon.getName()), simon);
+		}
 		if (newSimon != null) {
 			children.add(newSimon);
 			newSimon.setParent(this);
 		}
 	}
 
+	/**
+	 * Drops all resolved child handles - used when the Manager is cleared and this Simon is not part
+	 * of the hierarchy anymore.
+	 */
+	final void clearChildHandles() {
+		childHandles = null;
+	}
+
+	/**
+	 * Returns the child Simon of the requested type with the specified local name. Child is resolved via the Manager
+	 * the first time and it is kept in this Simon afterwards, so subsequent calls do not concatenate the name
+	 * nor look it up in the Manager. Handle is dropped when the child is destroyed (or evicted) - also when it happens
+	 * between the lookup in the Manager and storing the handle.
+	 *
+	 * @param localName local name of the child (without hierarchy delimiter)
+	 * @param simonClass requested type of the child
+	 * @return child Simon
+	 */
+	final Simon childSimon(String localName, Class<? extends Simon> simonClass) {
+		ConcurrentMap<String, Simon> handles = childHandles;
+		if (handles != null) {
+			Simon child = handles.get(localName);
+			if (child != null && simonClass.isInstance(child)) {
+				return child;
+			}
+		}
+		if (name == null) {
+			// anonymous Simon has no hierarchy, its children are anonymous too
+			return simonClass == Counter.class ? manager.getCounter(null) : manager.getStopwatch(null);
+		}
+		String childName = name + Manager.HIERARCHY_DELIMITER + localName;
+		Simon child = simonClass == Counter.class ? manager.getCounter(childName) : manager.getStopwatch(childName);
+		// only real children are kept (not the Null Simons of disabled manager or overflow Simons)
+		if (child.getParent() == this && childName.equals(child.getName())) {
+			if (handles == null) {
+				synchronized (hierarchyLock()) {
+					handles = childHandles;
+					if (handles == null) {
+						handles = new ConcurrentHashMap<>();
+						childHandles = handles;
+					}
+				}
+			}
+			handles.put(localName, child);
+			// child destroyed or evicted before the handle was stored must not stay cached
+			if (manager.getSimon(childName) != child) {
+				handles.remove(localName, child);
+			}
+		}
+		return child;
+	}
+
 	/**
 	 * Stores an attribute in this Simon. Attributes can be used to store any custom objects.
 	 *
@@ -258,60 +368,128 @@ abstract class AbstractSimon implements Simon {
 		sample.setLastUsage(lastUsage);
 	}
 
-	// incremental Simons methods
-	Collection<Simon> incrementalSimons() {
-		return incrementalSimons != null ? incrementalSimons.values() : null;
+	// incremental sampling methods
+
+	/**
+	 * Returns the cell of the current epoch or {@code null} if there is no incremental sampling going on.
+	 * Called on every update of the Simon, hence it must be cheap.
+	 *
+	 * @return current epoch cell or {@code null}
+	 */
+	final EpochCells.Cell epochCell() {
+		EpochCells cells = epochCells;
+		return cells != null ? cells.current() : null;
 	}
 
-	Sample sampleIncrementHelper(Object key, Simon newSimon) {
-		Simon simon = getAndResetSampleKey(key, newSimon);
-		if (simon != null) {
-			return simon.sample();
-		} else {
-			return sample();
+	/**
+	 * Updates the current epoch cell with the new value of the Counter if incremental sampling is used.
+	 *
+	 * @param value counter value after the change
+	 * @param now ms timestamp of the change
+	 * @param max true if max should be updated
+	 * @param min true if min should be updated
+	 */
+	final void updateEpochCell(long value, long now, boolean max, boolean min) {
+		EpochCells.Cell cell = epochCell();
+		if (cell != null) {
+			cell.updateUsage(now);
+			if (max) {
+				cell.updateMax(value, now);
+			}
+			if (min) {
+				cell.updateMin(value, now);
+			}
 		}
 	}
 
-	private Simon getAndResetSampleKey(Object key, Simon newSimon) {
-		if (incrementalSimons == null) {
-			incrementalSimons = new HashMap<>();
+	/**
+	 * Samples the increment since the previous sampling with the same key. Current cumulative sample is stored
+	 * for the key (unless {@code reset} is false) and the current epoch is closed.
+	 *
+	 * @param key sampling key
+	 * @param reset true if the next increment for the key should start now
+	 * @return increment sample or the current sample if the key was not used before
+	 */
+	synchronized Sample sampleIncrementHelper(Object key, boolean reset) {
+		Sample current = sample();
+		IncrementState previous = incrementStates != null ? incrementStates.get(key) : null;
+		Sample result = previous != null ? incrementOf(previous, current) : current;
+		if (reset) {
+			if (incrementStates == null) {
+				incrementStates = new HashMap<>();
+				epochCells = new EpochCells();
+			}
+			long epoch = epochCells.advance();
+			incrementStates.put(key, new IncrementState(current, epoch, manager.milliTime()));
 		}
-		Simon simon = incrementalSimons.get(key);
-		incrementalSimons.put(key, newSimon);
-		return simon;
+		return result;
 	}
 
-	Sample sampleIncrementNoResetHelper(Object key) {
-		Simon simon = null;
-		if (incrementalSimons != null) {
-			simon = incrementalSimons.get(key);
-		}
+	/**
+	 * Computes the increment from the previous and current cumulative sample - overridden by Simons supporting
+	 * incremental sampling. Must be called while holding the lock of this Simon.
+	 *
+	 * @param previous state of the key with the previous cumulative sample
+	 * @param current current cumulative sample
+	 * @return sample with the increment
+	 */
+	Sample incrementOf(IncrementState previous, Sample current) {
+		return current;
+	}
 
-		if (simon != null) {
-			return simon.sample();
-		} else {
-			return sample();
-		}
+	/**
+	 * Merges epoch cells of the interval that started with the previous sample - must be called while holding
+	 * the lock of this Simon. Cumulative extremes are used only if the interval is longer than retained epochs.
+	 *
+	 * @param previous state of the key with the previous cumulative sample
+	 * @param max cumulative max
+	 * @param maxTimestamp cumulative max timestamp
+	 * @param min cumulative min
+	 * @param minTimestamp cumulative min timestamp
+	 * @return merged cell of the interval
+	 */
+	final EpochCells.Cell intervalCell(IncrementState previous, long max, long maxTimestamp, long min, long minTimestamp) {
+		return epochCells.merge(previous.epoch, previous.timestamp, max, maxTimestamp, min, minTimestamp);
 	}
 
 	@Override
 	public synchronized boolean stopIncrementalSampling(Object key) {
-		return incrementalSimons != null && incrementalSimons.remove(key) != null;
+		boolean removed = incrementStates != null && incrementStates.remove(key) != null;
+		stopEpochsIfUnused();
+		return removed;
 	}
 
 	synchronized void purgeIncrementalSimonsOlderThan(long thresholdMs) {
-		if (incrementalSimons == null) {
+		if (incrementStates == null) {
 			return;
 		}
-		Iterator<Map.Entry<Object, Simon>> iterator = incrementalSimons.entrySet().iterator();
+		Iterator<IncrementState> iterator = incrementStates.values().iterator();
 		while (iterator.hasNext()) {
-			Map.Entry<Object, Simon> entry = iterator.next();
-			if (entry.getValue().getLastUsage() < thresholdMs) {
+			if (iterator.next().timestamp < thresholdMs) {
 				iterator.remove();
 			}
 		}
-		if (incrementalSimons.isEmpty()) {
-			incrementalSimons = null;
+		stopEpochsIfUnused();
+	}
+
+	// without any key the Simon does not update epoch cells at all
+	private void stopEpochsIfUnused() {
+		if (incrementStates != null && incrementStates.isEmpty()) {
+			incrementStates = null;
+			epochCells = null;
+		}
+	}
+
+	/** Incremental sampling state of one key - previous cumulative sample and the epoch when it was taken. */
+	static final class IncrementState {
+		final Sample sample;
+		final long epoch;
+		final long timestamp;
+
+		IncrementState(Sample sample, long epoch, long timestamp) {
+			this.sample = sample;
+			this.epoch = epoch;
+			this.timestamp = timestamp;
 		}
 	}
 
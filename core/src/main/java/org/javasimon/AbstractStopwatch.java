@@ -0,0 +1,283 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.javasimon.callback.Callback;
+import org.javasimon.callback.CompositeCallbackImpl;
+
+/**
+ * AbstractStopwatch holds functionality common to all {@link Stopwatch} implementations regardless of the way
+ * how they store their statistics - stopping the split for the sub-stopwatch, usage updates from nano-time,
+ * self time and incremental sampling.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see StopwatchImpl
+ * @see StripedStopwatchImpl
+ * @since 4.2
+ */
+abstract class AbstractStopwatch extends AbstractSimon implements Stopwatch {
+
+	private static final AtomicLongFieldUpdater<AbstractStopwatch> SELF_TOTAL =
+		AtomicLongFieldUpdater.newUpdater(AbstractStopwatch.class, "selfTotal");
+
+	/** Total self time in ns, updated without locking. */
+	private volatile long selfTotal;
+
+	/**
+	 * Constructor of the abstract Stopwatch is used internally by subclasses.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning Manager
+	 */
+	AbstractStopwatch(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	/**
+	 * Package-private method doing the stop work based on provided start nano-time - called by {@link Split}.
+	 *
+	 * @param split Split object that has been stopped, {@code null} if {@link #stopNanos(long)} was used
+	 * @param start start nano-time of the split
+	 * @param nowNanos current nano time
+	 * @param subSimon name of the sub-stopwatch (hierarchy delimiter is added automatically), may be {@code null}
+	 */
+	abstract void stop(Split split, long start, long nowNanos, String subSimon);
+
+	@Override
+	public final long stopNanos(long startNanos) {
+		if (startNanos == 0) {
+			return 0;
+		}
+		long nowNanos = manager.nanoTime();
+		stop(null, startNanos, nowNanos, null);
+		return nowNanos - startNanos;
+	}
+
+	/**
+	 * Returns detached Split for the start callback of the measurement done without Split object - created
+	 * only if any callback handles the start event.
+	 *
+	 * @param start start nano-time of the split
+	 * @return detached split for the callbacks or {@code null} if there is no callback for the start
+	 */
+	final Split startSplitForCallbacks(long start) {
+		if (!CompositeCallbackImpl.handlesEvent(manager.callback(), Callback.Event.STOPWATCH_START)) {
+			return null;
+		}
+		return new Split(this, manager, start, 0);
+	}
+
+	/**
+	 * Returns the split for the callbacks - if the measurement was done without Split object, detached stopped Split
+	 * is created only if any callback handles the stop event.
+	 *
+	 * @param split split provided to the stop method, may be {@code null} when {@link #stopNanos(long)} was used
+	 * @param start start nano-time of the split
+	 * @param nowNanos current nano time
+	 * @return split for the callbacks or {@code null} if there is no callback for the stop
+	 */
+	final Split splitForCallbacks(Split split, long start, long nowNanos) {
+		if (split != null) {
+			return split;
+		}
+		if (!CompositeCallbackImpl.handlesEvent(manager.callback(), Callback.Event.STOPWATCH_STOP)) {
+			return null;
+		}
+		return new Split(this, manager, start, nowNanos - start);
+	}
+
+	/**
+	 * Adds the split to the sub-stopwatch instead of this one and stores the effective stopwatch
+	 * as the {@link Split#ATTR_EFFECTIVE_STOPWATCH} attribute of the split.
+	 *
+	 * @param split stopped split
+	 * @param subSimon name of the sub-stopwatch (hierarchy delimiter is added automatically)
+	 * @param selfNs self time of the split added to the sub-stopwatch, -1 if self time is not tracked
+	 */
+	final void stopForSubSimon(Split split, String subSimon, long selfNs) {
+		Stopwatch effectiveStopwatch = child(subSimon);
+		split.setAttribute(Split.ATTR_EFFECTIVE_STOPWATCH, effectiveStopwatch);
+		effectiveStopwatch.addSplit(split);
+		if (effectiveStopwatch instanceof AbstractStopwatch) {
+			((AbstractStopwatch) effectiveStopwatch).addSelfTime(selfNs);
+		}
+	}
+
+	/**
+	 * Pushes the started split on the stack of the current thread if self time is tracked.
+	 *
+	 * @param start start nano-time of the split
+	 */
+	final void selfTimeStart(long start) {
+		SelfTimeTracker tracker = manager.configuration().selfTimeTracker();
+		if (tracker != null) {
+			tracker.start(this, start);
+		}
+	}
+
+	/**
+	 * Pushes the started split on the stack of the current thread if self time is tracked, the split remembers
+	 * the stack so that it can be removed from it even when the split is stopped on another thread.
+	 *
+	 * @param split started split
+	 */
+	final void selfTimeStart(Split split) {
+		SelfTimeTracker tracker = manager.configuration().selfTimeTracker();
+		if (tracker != null) {
+			split.selfTimeStack = tracker.start(this, split.getStart());
+		}
+	}
+
+	/**
+	 * Pops the stopped split from the stack of the current thread if self time is tracked.
+	 *
+	 * @param split stopped split, {@code null} if {@link #stopNanos(long)} was used
+	 * @param start start nano-time of the split
+	 * @param splitNs split time in ns
+	 * @return self time of the split in ns or -1 if self time is not tracked
+	 */
+	final long selfTimeStop(Split split, long start, long splitNs) {
+		SelfTimeTracker tracker = manager.configuration().selfTimeTracker();
+		if (tracker == null) {
+			return -1;
+		}
+		return tracker.stop(this, start, splitNs, split != null ? split.selfTimeStack : null);
+	}
+
+	/**
+	 * Adds self time of the split to this Stopwatch.
+	 *
+	 * @param selfNs self time in ns, ignored if negative (not tracked)
+	 */
+	final void addSelfTime(long selfNs) {
+		if (selfNs >= 0) {
+			SELF_TOTAL.addAndGet(this, selfNs);
+		}
+	}
+
+	@Override
+	public final long getSelfTotal() {
+		return selfTotal;
+	}
+
+	final long nanoTimeFromSplit(Split split, long splitNs) {
+		if (split.getStopwatch() != null) {
+			return split.getStart() + splitNs;
+		} else {
+			return manager.nanoTime();
+		}
+	}
+
+	/**
+	 * Updates the current epoch cell with the new split if incremental sampling is used.
+	 *
+	 * @param splitNs split time in ns
+	 * @param now ms timestamp of the split stop
+	 */
+	final void updateEpochCellSplit(long splitNs, long now) {
+		EpochCells.Cell cell = epochCell();
+		if (cell != null) {
+			cell.addSplit(splitNs, now);
+		}
+	}
+
+	/**
+	 * Updates max active of the current epoch cell if incremental sampling is used.
+	 *
+	 * @param active current active count
+	 * @param now ms timestamp of the start
+	 */
+	final void updateEpochCellActive(long active, long now) {
+		EpochCells.Cell cell = epochCell();
+		if (cell != null) {
+			cell.updateUsage(now);
+			cell.updateMaxActive(active, now);
+		}
+	}
+
+	/**
+	 * Updates usage statistics without using {@link System#currentTimeMillis()} if client code already has
+	 * current nano timer value.
+	 *
+	 * @param nowNanos current value of nano timer
+	 */
+	final void updateUsagesNanos(long nowNanos) {
+		updateUsages(manager.millisForNano(nowNanos));
+	}
+
+	@Override
+	public final Stopwatch child(String localName) {
+		return (Stopwatch) childSimon(localName, Stopwatch.class);
+	}
+
+	@Override
+	public final Stopwatch tagged(Tags tags) {
+		return tags.size() == 0 ? this : child(tags.getLocalName());
+	}
+
+	@Override
+	public StopwatchSample sampleIncrement(Object key) {
+		return (StopwatchSample) sampleIncrementHelper(key, true);
+	}
+
+	@Override
+	public StopwatchSample sampleIncrementNoReset(Object key) {
+		return (StopwatchSample) sampleIncrementHelper(key, false);
+	}
+
+	/**
+	 * Computes the increment of the Stopwatch - total and counter are subtracted, mean and variance
+	 * of the interval are derived from the cumulative values (reversed Chan's parallel formula), min/max
+	 * come from the epoch cells of the interval.
+	 */
+	@Override
+	final Sample incrementOf(IncrementState previousState, Sample currentSample) {
+		StopwatchSample previous = (StopwatchSample) previousState.sample;
+		StopwatchSample current = (StopwatchSample) currentSample;
+		EpochCells.Cell interval = intervalCell(previousState,
+			current.getMax(), current.getMaxTimestamp(), current.getMin(), current.getMinTimestamp());
+
+		StopwatchSample sample = new StopwatchSample();
+		long counter = current.getCounter() - previous.getCounter();
+		long total = current.getTotal() - previous.getTotal();
+		sample.setCounter(counter);
+		sample.setTotal(total);
+		sample.setSelfTotal(current.getSelfTotal() - previous.getSelfTotal());
+		sample.setMax(interval.max != Long.MIN_VALUE ? interval.max : 0);
+		sample.setMaxTimestamp(interval.maxTimestamp);
+		sample.setMin(interval.min);
+		sample.setMinTimestamp(interval.minTimestamp);
+		sample.setActive(current.getActive());
+		sample.setMaxActive(interval.maxActive);
+		sample.setMaxActiveTimestamp(interval.maxActiveTimestamp);
+		if (counter > 0) {
+			double mean = (double) total / counter;
+			double delta = mean - previous.getMean();
+			double mean2 = sumOfSquares(current) - sumOfSquares(previous)
+				- delta * delta * ((double) previous.getCounter() * counter / current.getCounter());
+			mean2 = Math.max(mean2, 0d);
+			sample.setMean(mean);
+			sample.setLast(current.getLast());
+			sample.setVarianceN(counter > 1 ? mean2 / counter : 0d);
+			sample.setVariance(counter > 1 ? mean2 / (counter - 1) : 0d);
+		} else {
+			sample.setVarianceN(Double.NaN);
+			sample.setVariance(Double.NaN);
+		}
+		sample.setStandardDeviation(Math.sqrt(sample.getVariance()));
+		sampleCommon(sample);
+		if (interval.firstUsage != 0 || current.getLastUsage() != previous.getLastUsage()) {
+			sample.setFirstUsage(interval.firstUsage);
+			sample.setLastUsage(current.getLastUsage());
+		} else {
+			sample.setFirstUsage(0);
+			sample.setLastUsage(0);
+		}
+		return sample;
+	}
+
+	/** Returns sum of squared differences from the mean (M2 in Welford's algorithm) of the sample. */
+	private static double sumOfSquares(StopwatchSample sample) {
+		return sample.getCounter() > 1 ? sample.getVarianceN() * sample.getCounter() : 0d;
+	}
+}
@@ -129,6 +129,31 @@ public interface Counter extends Simon {
 	 */
 	long getDecrementSum();
 
+	/**
+	 * Returns the child Counter with the specified local name, the Counter is created if necessary.
+	 * This is equivalent to {@code manager.getCounter(getName() + "." + localName)}, but the child is
+	 * resolved only once and kept in this Counter, hence repeated calls neither concatenate the name
+	 * nor look it up in the Manager. Anonymous Counter returns new anonymous Counter.
+	 *
+	 * @param localName local name of the child Counter (hierarchy delimiter is added automatically)
+	 * @return child Counter
+	 * @since 4.2
+	 */
+	Counter child(String localName);
+
+	/**
+	 * Returns the tagged Counter - that is the child Counter with the local name derived from the tags
+	 * (see {@link Tags#getLocalName()}), the Counter is created if necessary. Tagged Counter is resolved only once
+	 * for the same tags, the same instance of the tags should be used for repeated lookups that do not allocate.
+	 * Empty tags return this Counter.
+	 *
+	 * @param tags tags of the Counter
+	 * @return tagged Counter
+	 * @see Tags
+	 * @since 4.2
+	 */
+	Counter tagged(Tags tags);
+
 	@Override
 	CounterSample sample();
 
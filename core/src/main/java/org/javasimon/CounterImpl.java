@@ -1,9 +1,8 @@
 package org.javasimon;
 
+import org.javasimon.callback.CompositeCallbackImpl;
 import org.javasimon.utils.SimonUtils;
 
-import java.util.Collection;
-
 /**
  * Class implements {@link org.javasimon.Counter} interface - see there for how to use Counter.
  *
@@ -41,6 +40,16 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		super(name, manager);
 	}
 
+	@Override
+	public Counter child(String localName) {
+		return (Counter) childSimon(localName, Counter.class);
+	}
+
+	@Override
+	public Counter tagged(Tags tags) {
+		return tags.size() == 0 ? this : child(tags.getLocalName());
+	}
+
 	@Override
 	public Counter set(long val) {
 		if (!enabled) {
@@ -51,8 +60,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		CounterSample sample;
 		synchronized (this) {
 			setPrivate(val, now);
-			updateIncrementalSimonsSet(val, now);
-			sample = sampleIfCallbacksNotEmpty();
+			sample = sampleIfRequired();
 		}
 		manager.callback().onCounterSet(this, val, sample);
 		return this;
@@ -63,15 +71,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		counter = val;
 		updateMax();
 		updateMin();
-	}
-
-	private void updateIncrementalSimonsSet(long val, long now) {
-		Collection<Simon> simons = incrementalSimons();
-		if (simons != null) {
-			for (Simon simon : simons) {
-				((CounterImpl) simon).setPrivate(val, now);
-			}
-		}
+		updateEpochCell(counter, now, true, true);
 	}
 
 	private void updateMin() {
@@ -103,8 +103,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		CounterSample sample;
 		synchronized (this) {
 			increasePrivate(inc, now);
-			updateIncrementalSimonsIncrease(inc, now);
-			sample = sampleIfCallbacksNotEmpty();
+			sample = sampleIfRequired();
 		}
 		manager.callback().onCounterIncrease(this, inc, sample);
 		return this;
@@ -119,15 +118,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		} else {
 			updateMin();
 		}
-	}
-
-	private void updateIncrementalSimonsIncrease(long inc, long now) {
-		Collection<Simon> simons = incrementalSimons();
-		if (simons != null) {
-			for (Simon simon : simons) {
-				((CounterImpl) simon).increasePrivate(inc, now);
-			}
-		}
+		updateEpochCell(counter, now, inc > 0, inc <= 0);
 	}
 
 	@Override
@@ -136,7 +127,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	}
 
 	@Override
-	public synchronized Counter decrease(long dec) {
+	public Counter decrease(long dec) {
 		if (!enabled) {
 			return this;
 		}
@@ -145,8 +136,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		CounterSample sample;
 		synchronized (this) {
 			decreasePrivate(dec, now);
-			sample = sampleIfCallbacksNotEmpty();
-			updateIncrementalSimonsDecrease(dec, now);
+			sample = sampleIfRequired();
 		}
 		manager.callback().onCounterDecrease(this, dec, sample);
 		return this;
@@ -161,19 +151,11 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		} else {
 			updateMax();
 		}
+		updateEpochCell(counter, now, dec <= 0, dec > 0);
 	}
 
-	private void updateIncrementalSimonsDecrease(long dec, long now) {
-		Collection<Simon> simons = incrementalSimons();
-		if (simons != null) {
-			for (Simon simon : simons) {
-				((CounterImpl) simon).decreasePrivate(dec, now);
-			}
-		}
-	}
-
-	private CounterSample sampleIfCallbacksNotEmpty() {
-		if (!manager.callback().callbacks().isEmpty()) {
+	private CounterSample sampleIfRequired() {
+		if (CompositeCallbackImpl.isSampleRequired(manager.callback())) {
 			return sample();
 		}
 		return null;
@@ -230,12 +212,45 @@ final class CounterImpl extends AbstractSimon implements Counter {
 
 	@Override
 	public CounterSample sampleIncrement(Object key) {
-		return (CounterSample) sampleIncrementHelper(key, new CounterImpl(null, manager));
+		return (CounterSample) sampleIncrementHelper(key, true);
 	}
 
 	@Override
 	public CounterSample sampleIncrementNoReset(Object key) {
-		return (CounterSample) sampleIncrementNoResetHelper(key);
+		return (CounterSample) sampleIncrementHelper(key, false);
+	}
+
+	@Override
+	Sample incrementOf(IncrementState previous, Sample current) {
+		return counterIncrement(this, previous, (CounterSample) current);
+	}
+
+	/**
+	 * Computes the increment of the Counter - counter and sums are subtracted, min/max come from the epoch
+	 * cells of the interval and are relative to the counter value at the start of the interval.
+	 */
+	static CounterSample counterIncrement(AbstractSimon simon, IncrementState previousState, CounterSample current) {
+		CounterSample previous = (CounterSample) previousState.sample;
+		EpochCells.Cell interval = simon.intervalCell(previousState,
+			current.getMax(), current.getMaxTimestamp(), current.getMin(), current.getMinTimestamp());
+
+		CounterSample sample = new CounterSample();
+		sample.setCounter(current.getCounter() - previous.getCounter());
+		sample.setIncrementSum(current.getIncrementSum() - previous.getIncrementSum());
+		sample.setDecrementSum(current.getDecrementSum() - previous.getDecrementSum());
+		sample.setMax(interval.max != Long.MIN_VALUE ? interval.max - previous.getCounter() : Long.MIN_VALUE);
+		sample.setMaxTimestamp(interval.maxTimestamp);
+		sample.setMin(interval.min != Long.MAX_VALUE ? interval.min - previous.getCounter() : Long.MAX_VALUE);
+		sample.setMinTimestamp(interval.minTimestamp);
+		simon.sampleCommon(sample);
+		if (interval.firstUsage != 0 || current.getLastUsage() != previous.getLastUsage()) {
+			sample.setFirstUsage(interval.firstUsage);
+			sample.setLastUsage(current.getLastUsage());
+		} else {
+			sample.setFirstUsage(0);
+			sample.setLastUsage(0);
+		}
+		return sample;
 	}
 
 	/**
@@ -1,31 +1,63 @@
 package org.javasimon;
 
-import org.javasimon.callback.Callback;
 import org.javasimon.callback.CompositeCallback;
 import org.javasimon.callback.CompositeCallbackImpl;
 import org.javasimon.clock.SimonClock;
 import org.javasimon.utils.SimonUtils;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Implements fully functional {@link Manager} in the enabled state. Does not support
  * {@link #enable()}/{@link #disable()} - for this use {@link SwitchingManager}.
+ * <p/>
+ * Simons are created without any Manager-wide lock - only the parent Simon is locked while the new Simon
+ * is linked into the hierarchy and callbacks are notified after that with no lock held. Structural changes
+ * that remove Simons ({@link #destroySimon(String)}, {@link #clear()} and eviction of Simons over
+ * {@link SimonLimit}) exclude the creation for their short duration.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class EnabledManager implements Manager {
 
-	private UnknownSimon rootSimon;
+	/** When the limit with {@link SimonLimit.Policy#EVICT} is reached, this fraction of its Simons is evicted at once. */
+	private static final int EVICTION_BATCH_DIVISOR = 10;
+
+	/** Orders Simons by their last usage, Simon that was not used yet counts as used when it was created. */
+	private static final Comparator<AbstractSimon> LAST_USAGE_COMPARATOR = new Comparator<AbstractSimon>() {
+		@Override
+		public int compare(AbstractSimon simon1, AbstractSimon simon2) {
+			return Long.compare(recentUsage(simon1), recentUsage(simon2));
+		}
+
+		private long recentUsage(AbstractSimon simon) {
+			return Math.max(simon.getLastUsage(), simon.getAnnouncedMillis());
+		}
+	};
+
+	private volatile UnknownSimon rootSimon;
 
 	private final Map<String, AbstractSimon> allSimons = new ConcurrentHashMap<>();
 
+	/** Number of Stopwatches and Counters in the limited subtrees (key is the subtree name). */
+	private final Map<String, AtomicInteger> limitCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * Creation of Simons holds the read lock (any number of Simons can be created concurrently),
+	 * removal of Simons holds the write lock.
+	 */
+	private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+
 	private final CompositeCallback callback = new CompositeCallbackImpl();
 
 	private final ManagerConfiguration configuration;
@@ -51,35 +83,52 @@ public final class EnabledManager implements Manager {
 	}
 
 	@Override
-	public synchronized void destroySimon(String name) {
+	public void destroySimon(String name) {
 		if (name.equals(ROOT_SIMON_NAME)) {
 			throw new SimonException("Root Simon cannot be destroyed!");
 		}
-		AbstractSimon simon = allSimons.remove(name);
-		if (simon.getChildren().size() > 0) {
-			replaceUnknownSimon(simon, UnknownSimon.class);
-		} else {
-			((AbstractSimon) simon.getParent()).replaceChild(simon, null);
+		AbstractSimon simon;
+		structureLock.writeLock().lock();
+		try {
+			simon = allSimons.remove(name);
+			uncountLimited(simon);
+			if (simon.getChildren().size() > 0) {
+				replaceUnknownSimon(simon, new UnknownSimon(name, this));
+			} else {
+				((AbstractSimon) simon.getParent()).replaceChild(simon, null);
+			}
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 		callback.onSimonDestroyed(simon);
 	}
 
 	@Override
-	public synchronized void clear() {
-		allSimons.clear();
-		rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
-		allSimons.put(ROOT_SIMON_NAME, rootSimon);
+	public void clear() {
+		structureLock.writeLock().lock();
+		try {
+			for (AbstractSimon simon : allSimons.values()) {
+				// handles held by the application must not resolve to the old Simons
+				simon.clearChildHandles();
+			}
+			allSimons.clear();
+			limitCounts.clear();
+			rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
+			allSimons.put(ROOT_SIMON_NAME, rootSimon);
+		} finally {
+			structureLock.writeLock().unlock();
+		}
 		callback.onManagerClear();
 	}
 
 	@Override
 	public Counter getCounter(String name) {
-		return (Counter) getOrCreateSimon(name, CounterImpl.class);
+		return (Counter) getOrCreateSimon(name, Counter.class);
 	}
 
 	@Override
 	public Stopwatch getStopwatch(String name) {
-		return (Stopwatch) getOrCreateSimon(name, StopwatchImpl.class);
+		return (Stopwatch) getOrCreateSimon(name, Stopwatch.class);
 	}
 
 	@Override
@@ -107,45 +156,251 @@ public final class EnabledManager implements Manager {
 		return simons;
 	}
 
-	private Simon getOrCreateSimon(String name, Class<? extends AbstractSimon> simonClass) {
+	private Simon getOrCreateSimon(String name, Class<? extends Simon> simonClass) {
 		if (name == null) {
 			// create an "anonymous" Simon - Manager does not care about it anymore
-			return instantiateSimon(null, simonClass);
+			return SimonFactory.forType(simonClass, null).create(null, this);
 		}
 		if (name.equals(ROOT_SIMON_NAME)) {
 			throw new SimonException("Root Simon cannot be replaced or recreated!");
 		}
 		AbstractSimon simon = allSimons.get(name);
-		if (simon != null && simonClass.isInstance(simon)) {
-			return simon;
-		} else if (simon != null && !(simon instanceof UnknownSimon)) {
-			throw new SimonException("Simon named '" + name + "' already exists and its type is '" +
+		if (simon == null || simon instanceof UnknownSimon) {
+			simon = createSimon(name, simonClass);
+		}
+		checkType(simon, simonClass);
+		return simon;
+	}
+
+	private void checkType(AbstractSimon simon, Class<? extends Simon> simonClass) {
+		if (!simonClass.isInstance(simon)) {
+			throw new SimonException("Simon named '" + simon.getName() + "' already exists and its type is '" +
 				simon.getClass().getName() + "' while requested type is '" + simonClass.getName() + "'.");
-		} else {
-			return createSimon(name, simonClass);
 		}
 	}
 
 	/**
-	 * Even with ConcurrentHashMap we want to synchronize here, so newly created Simons can be fully
-	 * set up with {@link Callback#onSimonCreated(Simon)}. ConcurrentHashMap still works fine for
-	 * listing Simons, etc.
+	 * Creates the Simon and inserts it into the hierarchy. If other thread creates the Simon with the same name
+	 * concurrently, only one of them wins and the other one gets the winner's Simon. Callbacks are notified
+	 * with no lock held.
 	 */
-	private synchronized Simon createSimon(String name, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon simon = allSimons.get(name);
-		if (simon == null) {
-			SimonUtils.validateSimonName(name);
-			simon = newSimon(name, simonClass);
-		} else if (simon instanceof UnknownSimon) {
-			simon = replaceUnknownSimon(simon, simonClass);
+	private AbstractSimon createSimon(String name, Class<? extends Simon> simonClass) {
+		SimonUtils.validateSimonName(name);
+		SimonLimit limit = configuration.getLimit(name);
+		if (limit != null && limit.isOverflowName(name)) {
+			limit = null;
+		}
+		if (limit != null && !reserveLimitedSimon(limit)) {
+			return (AbstractSimon) getOrCreateSimon(limit.overflowName(simonClass), simonClass);
+		}
+
+		SimonConfiguration config = configuration.getConfig(name);
+		AbstractSimon newSimon = SimonFactory.forType(simonClass, config).create(name, this);
+		AbstractSimon simon;
+		structureLock.readLock().lock();
+		try {
+			simon = insertSimon(newSimon);
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		if (simon != newSimon) {
+			// other thread was faster
+			if (limit != null) {
+				limitCounts.get(limit.getSubtree()).decrementAndGet();
+			}
+			return simon;
+		}
+		if (config.getState() != null) {
+			simon.setState(config.getState(), false);
 		}
 		callback.onSimonCreated(simon);
+		simon.markAnnounced(clock.milliTime());
 		return simon;
 	}
 
-	// called from synchronized method
-	private AbstractSimon replaceUnknownSimon(AbstractSimon simon, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon newSimon = instantiateSimon(simon.getName(), simonClass);
+	/**
+	 * Inserts the Simon into the hierarchy (creating unknown ancestors if necessary) or replaces the unknown
+	 * Simon of the same name. Only the parent Simon is locked during the insertion (and the replaced unknown Simon,
+	 * always after its parent). Must be called with the read lock held.
+	 *
+	 * @param simon new Simon
+	 * @return inserted Simon or the Simon that already exists with the same name (existing unknown Simon is
+	 * returned when unknown Simon is inserted)
+	 */
+	private AbstractSimon insertSimon(AbstractSimon simon) {
+		String name = simon.getName();
+		while (true) {
+			AbstractSimon parent = parentFor(name);
+			synchronized (parent.hierarchyLock()) {
+				if (allSimons.get(parent.getName()) != parent) {
+					// parent was replaced by other thread meanwhile
+					continue;
+				}
+				AbstractSimon existing = allSimons.get(name);
+				if (existing == null) {
+					parent.addChild(simon);
+					allSimons.put(name, simon);
+					return simon;
+				}
+				if (simon instanceof UnknownSimon || !(existing instanceof UnknownSimon)) {
+					return existing;
+				}
+				synchronized (existing.hierarchyLock()) {
+					replaceUnknownSimon(existing, simon);
+				}
+				return simon;
+			}
+		}
+	}
+
+	/** Returns the parent for the Simon name, unknown parent is created if it does not exist yet. */
+	private AbstractSimon parentFor(String name) {
+		int ix = name.lastIndexOf(HIERARCHY_DELIMITER);
+		if (ix == -1) {
+			return rootSimon;
+		}
+		String parentName = name.substring(0, ix);
+		AbstractSimon parent = allSimons.get(parentName);
+		if (parent == null) {
+			parent = insertSimon(new UnknownSimon(parentName, this));
+		}
+		return parent;
+	}
+
+	/**
+	 * Counts new Simon in the limited subtree, evicting least recently used Simons if necessary and allowed
+	 * by the policy of the limit.
+	 *
+	 * @param limit limit of the subtree
+	 * @return true if the Simon can be created, false if the overflow Simon must be used instead
+	 */
+	private boolean reserveLimitedSimon(SimonLimit limit) {
+		AtomicInteger count = limitCount(limit);
+		int maxSimons = limit.getMaxSimons();
+		while (true) {
+			int current = count.get();
+			if (current < maxSimons) {
+				if (count.compareAndSet(current, current + 1)) {
+					return true;
+				}
+				continue;
+			}
+			if (limit.getPolicy() != SimonLimit.Policy.EVICT) {
+				return false;
+			}
+			List<AbstractSimon> evicted;
+			structureLock.writeLock().lock();
+			try {
+				current = count.get();
+				evicted = current >= maxSimons
+					? evictLeastRecentlyUsed(limit, current - maxSimons + Math.max(1, maxSimons / EVICTION_BATCH_DIVISOR))
+					: Collections.<AbstractSimon>emptyList();
+			} finally {
+				structureLock.writeLock().unlock();
+			}
+			for (AbstractSimon simon : evicted) {
+				callback.onSimonDestroyed(simon);
+			}
+			if (evicted.isEmpty() && count.get() >= maxSimons) {
+				// nothing to evict
+				return false;
+			}
+		}
+	}
+
+	private AtomicInteger limitCount(SimonLimit limit) {
+		AtomicInteger count = limitCounts.get(limit.getSubtree());
+		if (count == null) {
+			structureLock.writeLock().lock();
+			try {
+				count = limitCounts.get(limit.getSubtree());
+				if (count == null) {
+					// limit might have been set when some Simons already existed
+					List<AbstractSimon> simons = new ArrayList<>();
+					collectLimitedSimons(limit, allSimons.get(limit.getSubtree()), simons, false);
+					count = new AtomicInteger(simons.size());
+					limitCounts.put(limit.getSubtree(), count);
+				}
+			} finally {
+				structureLock.writeLock().unlock();
+			}
+		}
+		return count;
+	}
+
+	// called with the write lock held
+	private List<AbstractSimon> evictLeastRecentlyUsed(SimonLimit limit, int evictCount) {
+		List<AbstractSimon> leaves = new ArrayList<>();
+		collectLimitedSimons(limit, allSimons.get(limit.getSubtree()), leaves, true);
+		// Simons being created right now are not evicted before the callbacks know about them
+		Iterator<AbstractSimon> iterator = leaves.iterator();
+		while (iterator.hasNext()) {
+			if (!iterator.next().isAnnounced()) {
+				iterator.remove();
+			}
+		}
+		Collections.sort(leaves, LAST_USAGE_COMPARATOR);
+		List<AbstractSimon> evicted = leaves.subList(0, Math.min(evictCount, leaves.size()));
+		for (AbstractSimon simon : evicted) {
+			allSimons.remove(simon.getName());
+			uncountLimited(simon);
+			removeFromHierarchy(simon);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Collects Stopwatches and Counters under the node that are counted for the limit (overflow Simons
+	 * and Simons of the deeper limited subtrees are skipped).
+	 */
+	private void collectLimitedSimons(SimonLimit limit, Simon node, List<AbstractSimon> result, boolean leavesOnly) {
+		if (node == null) {
+			return;
+		}
+		for (Simon child : node.getChildren()) {
+			SimonLimit childLimit = configuration.getLimit(child.getName());
+			if (childLimit == null || !childLimit.getSubtree().equals(limit.getSubtree())) {
+				continue;
+			}
+			boolean leaf = child.getChildren().isEmpty();
+			if (!(child instanceof UnknownSimon) && !limit.isOverflowName(child.getName()) && (leaf || !leavesOnly)) {
+				result.add((AbstractSimon) child);
+			}
+			if (!leaf) {
+				collectLimitedSimons(limit, child, result, leavesOnly);
+			}
+		}
+	}
+
+	// called with the write lock held
+	private void uncountLimited(AbstractSimon simon) {
+		if (simon instanceof UnknownSimon) {
+			return;
+		}
+		SimonLimit limit = configuration.getLimit(simon.getName());
+		if (limit != null && !limit.isOverflowName(simon.getName())) {
+			AtomicInteger count = limitCounts.get(limit.getSubtree());
+			if (count != null) {
+				count.decrementAndGet();
+			}
+		}
+	}
+
+	/** Removes leaf Simon from the hierarchy together with its unknown ancestors that have no other children. */
+	// called with the write lock held
+	private void removeFromHierarchy(AbstractSimon simon) {
+		AbstractSimon parent = (AbstractSimon) simon.getParent();
+		parent.replaceChild(simon, null);
+		while (parent != rootSimon && parent instanceof UnknownSimon && parent.getChildren().isEmpty()) {
+			allSimons.remove(parent.getName());
+			AbstractSimon grandParent = (AbstractSimon) parent.getParent();
+			grandParent.replaceChild(parent, null);
+			parent = grandParent;
+		}
+	}
+
+	// called with the write lock or with the locks of the old Simon and its parent held
+	private void replaceUnknownSimon(AbstractSimon simon, AbstractSimon newSimon) {
 		newSimon.enabled = simon.enabled;
 
 		// fixes parent link and parent's children list
@@ -158,47 +413,52 @@ public final class EnabledManager implements Manager {
 		}
 
 		allSimons.put(simon.getName(), newSimon);
-		return newSimon;
 	}
 
-	// called from synchronized method
-	private AbstractSimon newSimon(String name, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon simon = instantiateSimon(name, simonClass);
-		if (name != null) {
-			addToHierarchy(simon, name);
-			SimonConfiguration config = configuration.getConfig(name);
-			if (config.getState() != null) {
-				simon.setState(config.getState(), false);
+	/** Pre-resolved factories of Simon implementations used instead of the reflection. */
+	private enum SimonFactory {
+		STOPWATCH {
+			@Override
+			AbstractSimon create(String name, Manager manager) {
+				return new StopwatchImpl(name, manager);
 			}
-			allSimons.put(name, simon);
-		}
-		return simon;
-	}
-
-	private AbstractSimon instantiateSimon(String name, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon simon;
-		try {
-			Constructor<? extends AbstractSimon> constructor = simonClass.getDeclaredConstructor(String.class, Manager.class);
-			simon = constructor.newInstance(name, this);
-		} catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | InstantiationException e) {
-			throw new SimonException(e);
-		}
-		return simon;
-	}
-
-	private void addToHierarchy(AbstractSimon simon, String name) {
-		int ix = name.lastIndexOf(HIERARCHY_DELIMITER);
-		AbstractSimon parent = rootSimon;
-		if (ix != -1) {
-			String parentName = name.substring(0, ix);
-			parent = allSimons.get(parentName);
-			if (parent == null) {
-				parent = new UnknownSimon(parentName, this);
-				addToHierarchy(parent, parentName);
-				allSimons.put(parentName, parent);
+		},
+		STRIPED_STOPWATCH {
+			@Override
+			AbstractSimon create(String name, Manager manager) {
+				return new StripedStopwatchImpl(name, manager);
+			}
+		},
+		COUNTER {
+			@Override
+			AbstractSimon create(String name, Manager manager) {
+				return new CounterImpl(name, manager);
+			}
+		},
+		STRIPED_COUNTER {
+			@Override
+			AbstractSimon create(String name, Manager manager) {
+				return new StripedCounterImpl(name, manager);
+			}
+		};
+
+		abstract AbstractSimon create(String name, Manager manager);
+
+		/**
+		 * Resolves factory for the requested Simon type - striped implementation is used
+		 * if the configuration says so.
+		 *
+		 * @param simonClass requested Simon type (interface)
+		 * @param config configuration for the Simon, {@code null} for anonymous Simons
+		 * @return factory for the implementation
+		 */
+		static SimonFactory forType(Class<? extends Simon> simonClass, SimonConfiguration config) {
+			boolean striped = config != null && config.isStriped();
+			if (simonClass == Counter.class) {
+				return striped ? STRIPED_COUNTER : COUNTER;
 			}
+			return striped ? STRIPED_STOPWATCH : STOPWATCH;
 		}
-		parent.addChild(simon);
 	}
 
 	@Override
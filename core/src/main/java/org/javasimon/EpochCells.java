@@ -0,0 +1,174 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Per-epoch rollover cells used for incremental sampling (see {@link Simon#sampleIncrement(Object)}). Cumulative
+ * values (totals, counters, sums) of the interval are computed by the reader as a difference of two cumulative
+ * samples, but min/max values cannot be subtracted. Hence the Simon updates min/max (and first usage) of the
+ * current epoch cell and every incremental sample closes the current epoch and starts a new one. Reader knows
+ * the epoch in which its interval started and merges the cells of all epochs since then.
+ * <p/>
+ * Cost of the update is constant regardless of the number of sampling keys - only the current cell is updated,
+ * using CAS only when the cell extreme changes. Last {@value #SIZE} epochs are retained. If the interval of the
+ * key spans more epochs (other keys are sampled much more often) the cumulative extremes are merged in
+ * if they happened in the interval - extremes of such an interval may be underestimated.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+final class EpochCells {
+
+	/** Number of retained epochs, must be a power of two. */
+	static final int SIZE = 64;
+
+	private static final int MASK = SIZE - 1;
+
+	private final Cell[] ring = new Cell[SIZE];
+
+	private volatile Cell current;
+
+	EpochCells() {
+		current = new Cell(0);
+		ring[0] = current;
+	}
+
+	/**
+	 * Returns the cell of the current epoch - this is the cell updated by the Simon.
+	 *
+	 * @return current epoch cell
+	 */
+	Cell current() {
+		return current;
+	}
+
+	/**
+	 * Closes the current epoch and starts a new one - must be called while holding the lock of the Simon.
+	 *
+	 * @return number of the new epoch
+	 */
+	long advance() {
+		long epoch = current.epoch + 1;
+		Cell cell = new Cell(epoch);
+		ring[(int) (epoch & MASK)] = cell;
+		current = cell;
+		return epoch;
+	}
+
+	/**
+	 * Merges cells from the specified epoch up to the current one - must be called while holding the lock
+	 * of the Simon. If some epochs are not retained anymore the provided cumulative extremes are merged in
+	 * if their timestamp is not older than the start of the interval.
+	 *
+	 * @param fromEpoch first epoch of the interval
+	 * @param since ms timestamp of the interval start
+	 * @param max cumulative max value of the Simon
+	 * @param maxTimestamp timestamp of the cumulative max
+	 * @param min cumulative min value of the Simon
+	 * @param minTimestamp timestamp of the cumulative min
+	 * @return new cell with merged values of the interval
+	 */
+	Cell merge(long fromEpoch, long since, long max, long maxTimestamp, long min, long minTimestamp) {
+		long toEpoch = current.epoch;
+		Cell result = new Cell(fromEpoch);
+		for (long epoch = Math.max(fromEpoch, toEpoch - MASK); epoch <= toEpoch; epoch++) {
+			Cell cell = ring[(int) (epoch & MASK)];
+			if (cell != null && cell.epoch == epoch) {
+				result.merge(cell);
+			}
+		}
+		if (toEpoch - fromEpoch > MASK) {
+			if (maxTimestamp >= since && maxTimestamp != 0) {
+				result.updateMax(max, maxTimestamp);
+			}
+			if (minTimestamp >= since && minTimestamp != 0) {
+				result.updateMin(min, minTimestamp);
+			}
+		}
+		return result;
+	}
+
+	/** Extremes and first usage of one epoch. */
+	static final class Cell {
+
+		private static final AtomicLongFieldUpdater<Cell> MAX =
+			AtomicLongFieldUpdater.newUpdater(Cell.class, "max");
+		private static final AtomicLongFieldUpdater<Cell> MIN =
+			AtomicLongFieldUpdater.newUpdater(Cell.class, "min");
+		private static final AtomicLongFieldUpdater<Cell> MAX_ACTIVE =
+			AtomicLongFieldUpdater.newUpdater(Cell.class, "maxActive");
+		private static final AtomicLongFieldUpdater<Cell> FIRST_USAGE =
+			AtomicLongFieldUpdater.newUpdater(Cell.class, "firstUsage");
+
+		private final long epoch;
+
+		volatile long max = Long.MIN_VALUE;
+		volatile long maxTimestamp;
+		volatile long min = Long.MAX_VALUE;
+		volatile long minTimestamp;
+		volatile long maxActive;
+		volatile long maxActiveTimestamp;
+		volatile long firstUsage;
+
+		Cell(long epoch) {
+			this.epoch = epoch;
+		}
+
+		void updateUsage(long now) {
+			if (firstUsage == 0) {
+				FIRST_USAGE.compareAndSet(this, 0, now);
+			}
+		}
+
+		void updateMax(long value, long now) {
+			long current;
+			while (value > (current = max)) {
+				if (MAX.compareAndSet(this, current, value)) {
+					maxTimestamp = now;
+					return;
+				}
+			}
+		}
+
+		void updateMin(long value, long now) {
+			long current;
+			while (value < (current = min)) {
+				if (MIN.compareAndSet(this, current, value)) {
+					minTimestamp = now;
+					return;
+				}
+			}
+		}
+
+		void updateMaxActive(long active, long now) {
+			long current;
+			while (active > (current = maxActive)) {
+				if (MAX_ACTIVE.compareAndSet(this, current, active)) {
+					maxActiveTimestamp = now;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Updates the cell with the stopped split.
+		 *
+		 * @param splitNs split time in ns
+		 * @param now ms timestamp of the split stop
+		 */
+		void addSplit(long splitNs, long now) {
+			updateUsage(now);
+			updateMax(splitNs, now);
+			updateMin(splitNs, now);
+		}
+
+		private void merge(Cell other) {
+			if (other.firstUsage != 0 && (firstUsage == 0 || other.firstUsage < firstUsage)) {
+				firstUsage = other.firstUsage;
+			}
+			updateMax(other.max, other.maxTimestamp);
+			updateMin(other.min, other.minTimestamp);
+			updateMaxActive(other.maxActive, other.maxActiveTimestamp);
+		}
+	}
+}
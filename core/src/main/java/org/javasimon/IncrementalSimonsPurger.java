@@ -6,8 +6,11 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
 
 /**
- * This class implements periodical removing of old incremental Simons for specified Manager.
- * Unused incremental samples can cause memory leaks and performance degradation and should be purged regularly.
+ * This class implements periodical removing of old incremental sampling keys for specified Manager.
+ * Since 4.2 incremental sampling keeps only the previous sample per key and Simon updates do not depend on the
+ * number of keys, so abandoned keys do not cause performance degradation anymore. Purging is necessary only
+ * when many sampling keys are abandoned without {@link Simon#stopIncrementalSampling(Object)} - key that was not
+ * sampled since the purge threshold is removed.
  *
  * Purger can be in one of two states: stopped or started. When an instance of the class is create it is in the
  * stopped stated. Method {@link IncrementalSimonsPurger#start(long, java.util.concurrent.TimeUnit)}
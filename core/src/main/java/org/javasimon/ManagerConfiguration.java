@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -46,6 +47,17 @@ public final class ManagerConfiguration {
 
 	private Map<SimonPattern, SimonConfiguration> configs;
 
+	/** Index of {@link #configs}, built lazily when needed after the configs were changed. */
+	private volatile SimonPatternIndex<SimonConfiguration> configIndex;
+
+	private boolean stripedByDefault;
+
+	/** Tracker of nested splits, {@code null} if self time is not tracked. */
+	private volatile SelfTimeTracker selfTimeTracker;
+
+	/** Limits of the Simon counts per subtree (key is the subtree name). */
+	private Map<String, SimonLimit> limits;
+
 	private final Manager manager;
 
 	/**
@@ -61,6 +73,105 @@ public final class ManagerConfiguration {
 	/** Clears any previously loaded configuration. */
 	public void clear() {
 		configs = new LinkedHashMap<>();
+		configIndex = null;
+		stripedByDefault = false;
+		selfTimeTracker = null;
+		limits = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns true if striped (contention-free) implementation of Stopwatches and Counters is used for all Simons
+	 * of this manager unless {@code striped} attribute of the matching {@code simon} element says otherwise.
+	 *
+	 * @return true if striped Simons are used by default
+	 * @since 4.2
+	 */
+	public boolean isStripedByDefault() {
+		return stripedByDefault;
+	}
+
+	/**
+	 * Sets whether striped (contention-free) implementation of Stopwatches and Counters is used for all newly
+	 * created Simons of this manager. The same can be set with {@code striped} attribute of the top
+	 * {@code simon-configuration} element. Existing Simons are not affected.
+	 *
+	 * @param stripedByDefault true if striped Simons should be used by default
+	 * @since 4.2
+	 */
+	public void setStripedByDefault(boolean stripedByDefault) {
+		this.stripedByDefault = stripedByDefault;
+	}
+
+	/**
+	 * Returns true if self (exclusive) time of Stopwatches is tracked.
+	 *
+	 * @return true if self time is tracked
+	 * @see Stopwatch#getSelfTotal()
+	 * @since 4.2
+	 */
+	public boolean isSelfTimeTracking() {
+		return selfTimeTracker != null;
+	}
+
+	/**
+	 * Sets whether self (exclusive) time of Stopwatches is tracked - each thread keeps the stack of its running
+	 * splits and the time of nested splits is subtracted from the time of the enclosing split. The same can be set
+	 * with {@code self-time} attribute of the top {@code simon-configuration} element. Splits started before
+	 * the tracking was enabled count without nested splits.
+	 *
+	 * @param selfTimeTracking true if self time should be tracked
+	 * @since 4.2
+	 */
+	public void setSelfTimeTracking(boolean selfTimeTracking) {
+		if (selfTimeTracking != isSelfTimeTracking()) {
+			selfTimeTracker = selfTimeTracking ? new SelfTimeTracker() : null;
+		}
+	}
+
+	/**
+	 * Returns tracker of nested splits.
+	 *
+	 * @return tracker or {@code null} if self time is not tracked
+	 */
+	SelfTimeTracker selfTimeTracker() {
+		return selfTimeTracker;
+	}
+
+	/**
+	 * Sets the limit of the number of Stopwatches and Counters under the specified subtree. The same can be set
+	 * with {@code limit} element. Limit should be set before the Simons of the subtree are created, existing
+	 * Simons are counted, but not evicted until another Simon of the subtree is created.
+	 *
+	 * @param subtree name of the subtree root Simon
+	 * @param maxSimons maximal number of Simons under the subtree root
+	 * @param policy what to do when the limit is reached, {@code null} means {@link SimonLimit.Policy#EVICT}
+	 * @see SimonLimit
+	 * @since 4.2
+	 */
+	public void setLimit(String subtree, int maxSimons, SimonLimit.Policy policy) {
+		limits.put(subtree, new SimonLimit(subtree, maxSimons, policy));
+	}
+
+	/**
+	 * Returns the limit that applies to the Simon with the specified name - that is the limit of the deepest
+	 * subtree containing the Simon.
+	 *
+	 * @param name Simon name
+	 * @return limit for the Simon or {@code null} if the Simon is not limited
+	 */
+	SimonLimit getLimit(String name) {
+		if (limits.isEmpty()) {
+			return null;
+		}
+		int ix = name.lastIndexOf(Manager.HIERARCHY_DELIMITER);
+		while (ix > 0) {
+			SimonLimit limit = limits.get(name.substring(0, ix));
+			if (limit != null) {
+				return limit;
+			}
+			ix = name.lastIndexOf(Manager.HIERARCHY_DELIMITER, ix - 1);
+		}
+		return null;
 	}
 
 	/**
@@ -76,7 +187,13 @@ public final class ManagerConfiguration {
 				while (!xr.isStartElement()) {
 					xr.next();
 				}
-				processStartElement(xr, "simon-configuration");
+				Map<String, String> rootAttrs = processStartElement(xr, "simon-configuration");
+				if (rootAttrs.get("striped") != null) {
+					stripedByDefault = Boolean.valueOf(rootAttrs.get("striped").trim());
+				}
+				if (rootAttrs.get("self-time") != null) {
+					setSelfTimeTracking(Boolean.valueOf(rootAttrs.get("self-time").trim()));
+				}
 				while (true) {
 					if (isStartTag(xr, "callback")) {
 						manager.callback().addCallback(processCallback(xr));
@@ -84,6 +201,8 @@ public final class ManagerConfiguration {
 						manager.callback().addCallback(processFilterCallback(xr));
 					} else if (isStartTag(xr, "simon")) {
 						processSimon(xr);
+					} else if (isStartTag(xr, "limit")) {
+						processLimit(xr);
 					} else {
 						break;
 					}
@@ -217,10 +336,23 @@ public final class ManagerConfiguration {
 		Map<String, String> attrs = processStartElement(xr, "simon", "pattern");
 		String pattern = attrs.get("pattern");
 		SimonState state = attrs.get("state") != null ? SimonState.valueOf(toEnum(attrs.get("state"))) : null;
-		configs.put(new SimonPattern(pattern), new SimonConfiguration(state));
+		Boolean striped = attrs.get("striped") != null ? Boolean.valueOf(attrs.get("striped").trim()) : null;
+		configs.put(new SimonPattern(pattern), new SimonConfiguration(state, striped));
+		configIndex = null;
 		processEndElement(xr, "simon");
 	}
 
+	private void processLimit(XMLStreamReader xr) throws XMLStreamException {
+		Map<String, String> attrs = processStartElement(xr, "limit", "subtree", "max");
+		SimonLimit.Policy policy = attrs.get("policy") != null ? SimonLimit.Policy.valueOf(toEnum(attrs.get("policy"))) : null;
+		try {
+			setLimit(attrs.get("subtree").trim(), Integer.parseInt(attrs.get("max").trim()), policy);
+		} catch (NumberFormatException e) {
+			throw new SimonException(e);
+		}
+		processEndElement(xr, "limit");
+	}
+
 	/**
 	 * Returns configuration for the Simon with the specified name.
 	 *
@@ -229,16 +361,29 @@ public final class ManagerConfiguration {
 	 */
 	SimonConfiguration getConfig(String name) {
 		SimonState state = null;
+		Boolean striped = stripedByDefault;
 
-		for (SimonPattern pattern : configs.keySet()) {
-			if (pattern.matches(name)) {
-				SimonConfiguration config = configs.get(pattern);
-				if (config.getState() != null) {
-					state = config.getState();
-				}
+		for (SimonConfiguration config : configIndex().get(name)) {
+			if (config.getState() != null) {
+				state = config.getState();
+			}
+			if (config.getStriped() != null) {
+				striped = config.getStriped();
+			}
+		}
+		return new SimonConfiguration(state, striped);
+	}
+
+	private SimonPatternIndex<SimonConfiguration> configIndex() {
+		SimonPatternIndex<SimonConfiguration> index = configIndex;
+		if (index == null) {
+			index = new SimonPatternIndex<>();
+			for (Map.Entry<SimonPattern, SimonConfiguration> entry : configs.entrySet()) {
+				index.add(entry.getKey(), entry.getValue());
 			}
+			configIndex = index;
 		}
-		return new SimonConfiguration(state);
+		return index;
 	}
 
 	private String toEnum(String enumVal) {
@@ -232,16 +232,41 @@ final class NullStopwatch extends NullSimon implements Stopwatch {
 		return this;
 	}
 
+	@Override
+	public Stopwatch child(String localName) {
+		return this;
+	}
+
+	@Override
+	public Stopwatch tagged(Tags tags) {
+		return this;
+	}
+
 	@Override
 	public Split start() {
 		return NULL_SPLIT;
 	}
 
+	@Override
+	public long startNanos() {
+		return 0;
+	}
+
+	@Override
+	public long stopNanos(long startNanos) {
+		return 0;
+	}
+
 	@Override
 	public long getTotal() {
 		return 0;
 	}
 
+	@Override
+	public long getSelfTotal() {
+		return 0;
+	}
+
 	@Override
 	public long getLast() {
 		return 0;
@@ -340,6 +365,16 @@ final class NullCounter extends NullSimon implements Counter {
 		return this;
 	}
 
+	@Override
+	public Counter child(String localName) {
+		return this;
+	}
+
+	@Override
+	public Counter tagged(Tags tags) {
+		return this;
+	}
+
 	@Override
 	public Counter increase() {
 		return this;
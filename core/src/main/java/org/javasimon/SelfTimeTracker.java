@@ -0,0 +1,179 @@
+package org.javasimon;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks nested splits of each thread to compute self (exclusive) time of Stopwatches - split time minus
+ * time of the splits started and stopped on the same thread while the split was running. Each thread has
+ * its own stack of running splits made of preallocated arrays, pushing and popping does not allocate nor lock.
+ * <p/>
+ * Splits stopped on another thread than they were started on (or started before the tracking was enabled) have
+ * no children - their self time is their split time. {@link Split} remembers the stack it was started on and when
+ * stopped on another thread, the stack removes it with the next push or pop of its own thread. Splits that were
+ * never stopped are dropped when any split started before them is stopped, their nested splits are then counted
+ * as nested splits of that split. Stack depth is limited to {@value #MAX_DEPTH} - when the stack is full (only
+ * splits that were never stopped can pile up like this) it is cleared and the tracking starts over.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see ManagerConfiguration#setSelfTimeTracking(boolean)
+ * @since 4.2
+ */
+final class SelfTimeTracker {
+
+	/** Maximal depth of the stack. */
+	static final int MAX_DEPTH = 1024;
+
+	private final ThreadLocal<SplitStack> stacks = new ThreadLocal<SplitStack>() {
+		@Override
+		protected SplitStack initialValue() {
+			return new SplitStack();
+		}
+	};
+
+	/**
+	 * Pushes the started split on the stack of the current thread.
+	 *
+	 * @param stopwatch Stopwatch of the split
+	 * @param start start nano-time of the split
+	 * @return stack of the current thread, the split was pushed on
+	 */
+	SplitStack start(Stopwatch stopwatch, long start) {
+		SplitStack stack = stacks.get();
+		stack.push(stopwatch, start);
+		return stack;
+	}
+
+	/**
+	 * Pops the stopped split from the stack of the current thread and adds its time to the parent split.
+	 * If the split was started on another stack, it is only removed from that stack.
+	 *
+	 * @param stopwatch Stopwatch of the split
+	 * @param start start nano-time of the split
+	 * @param splitNs split time in ns
+	 * @param owner stack the split was started on, {@code null} if not known
+	 * @return self time of the split in ns
+	 */
+	long stop(Stopwatch stopwatch, long start, long splitNs, SplitStack owner) {
+		SplitStack stack = stacks.get();
+		if (owner != null && owner != stack) {
+			owner.stoppedElsewhere(stopwatch, start);
+			return splitNs;
+		}
+		return stack.pop(stopwatch, start, splitNs);
+	}
+
+	/**
+	 * Returns number of running splits on the stack of the current thread.
+	 *
+	 * @return depth of the stack
+	 */
+	int depth() {
+		return stacks.get().depth();
+	}
+
+	/** Running splits of one thread - Stopwatch and start identify the split, child time is accumulated. */
+	static final class SplitStack {
+
+		private Stopwatch[] stopwatches = new Stopwatch[16];
+		private long[] starts = new long[16];
+		private long[] childTotals = new long[16];
+		private int depth;
+
+		/** Splits started on this stack and stopped on another thread, removed by the owning thread. */
+		private final Queue<StoppedSplit> stoppedElsewhere = new ConcurrentLinkedQueue<>();
+
+		void push(Stopwatch stopwatch, long start) {
+			removeStoppedElsewhere();
+			if (depth == stopwatches.length) {
+				if (depth == MAX_DEPTH) {
+					Arrays.fill(stopwatches, null);
+					depth = 0;
+				} else {
+					stopwatches = Arrays.copyOf(stopwatches, depth * 2);
+					starts = Arrays.copyOf(starts, depth * 2);
+					childTotals = Arrays.copyOf(childTotals, depth * 2);
+				}
+			}
+			stopwatches[depth] = stopwatch;
+			starts[depth] = start;
+			childTotals[depth] = 0;
+			depth++;
+		}
+
+		long pop(Stopwatch stopwatch, long start, long splitNs) {
+			removeStoppedElsewhere();
+			// usually the split is on the top, splits above it were never stopped
+			int index = indexOf(stopwatch, start);
+			if (index < 0) {
+				return splitNs;
+			}
+			while (depth > index + 1) {
+				// split that was never stopped is transparent, its nested splits belong to the split below
+				depth--;
+				childTotals[depth - 1] += childTotals[depth];
+				stopwatches[depth] = null;
+			}
+			depth = index;
+			stopwatches[index] = null;
+			long selfNs = splitNs - childTotals[index];
+			if (index > 0) {
+				childTotals[index - 1] += splitNs;
+			}
+			return selfNs;
+		}
+
+		int depth() {
+			return depth;
+		}
+
+		/** Called by other thread that stopped the split started on this stack. */
+		void stoppedElsewhere(Stopwatch stopwatch, long start) {
+			stoppedElsewhere.add(new StoppedSplit(stopwatch, start));
+		}
+
+		private void removeStoppedElsewhere() {
+			StoppedSplit stopped;
+			while ((stopped = stoppedElsewhere.poll()) != null) {
+				int index = indexOf(stopped.stopwatch, stopped.start);
+				if (index >= 0) {
+					remove(index);
+				}
+			}
+		}
+
+		private int indexOf(Stopwatch stopwatch, long start) {
+			int index = depth - 1;
+			while (index >= 0 && (stopwatches[index] != stopwatch || starts[index] != start)) {
+				index--;
+			}
+			return index;
+		}
+
+		/** Removes the split from the middle of the stack, its nested splits belong to the split below. */
+		private void remove(int index) {
+			if (index > 0) {
+				childTotals[index - 1] += childTotals[index];
+			}
+			int above = depth - index - 1;
+			System.arraycopy(stopwatches, index + 1, stopwatches, index, above);
+			System.arraycopy(starts, index + 1, starts, index, above);
+			System.arraycopy(childTotals, index + 1, childTotals, index, above);
+			depth--;
+			stopwatches[depth] = null;
+		}
+	}
+
+	/** Split stopped on another thread than it was started on. */
+	private static final class StoppedSplit {
+
+		private final Stopwatch stopwatch;
+		private final long start;
+
+		StoppedSplit(Stopwatch stopwatch, long start) {
+			this.stopwatch = stopwatch;
+			this.start = start;
+		}
+	}
+}
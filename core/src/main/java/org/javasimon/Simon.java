@@ -118,6 +118,11 @@ public interface Simon extends HasAttributes {
 	 * are returned (same like from {@link #sample()}. Any subsequent calls with the key
 	 * provide increments.
 	 * <p/>
+	 * Increment is computed from the previous cumulative sample stored for the key, hence the cost of Simon
+	 * updates does not depend on the number of keys. Min/max values of the increment cover the interval
+	 * since the previous sampling with the key (for Counter they are relative to the counter value at the start
+	 * of the interval).
+	 * <p/>
 	 * Clients can use any sampling key (any Object) which enables safe access to their own increments.
 	 * Using String does not guarantee this as any client can potentially guess the key. This
 	 * may or may not be an issue.
@@ -2,12 +2,13 @@ package org.javasimon;
 
 /**
  * Stores configuration for the particular Simon or the set of Simons.
- * Currently it holds only the state of the Simon.
+ * Currently it holds the state of the Simon and the choice of the striped implementation.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class SimonConfiguration {
 	private SimonState state;
+	private Boolean striped;
 
 	/**
 	 * Creates SimonConfiguration item.
@@ -15,7 +16,19 @@ public final class SimonConfiguration {
 	 * @param state preferred state - SimonManager sets inherit if null is specified here
 	 */
 	SimonConfiguration(SimonState state) {
+		this(state, null);
+	}
+
+	/**
+	 * Creates SimonConfiguration item.
+	 *
+	 * @param state preferred state - SimonManager sets inherit if null is specified here
+	 * @param striped whether striped (contention-free) implementation should be used, {@code null} if not specified
+	 * @since 4.2
+	 */
+	SimonConfiguration(SimonState state, Boolean striped) {
 		this.state = state;
+		this.striped = striped;
 	}
 
 	/**
@@ -27,6 +40,21 @@ public final class SimonConfiguration {
 		return state;
 	}
 
+	/**
+	 * Returns true if the Simon should use striped implementation that avoids the lock on the Simon
+	 * in exchange for more memory and slower sampling. Not specified value means false.
+	 *
+	 * @return true if striped implementation should be used
+	 * @since 4.2
+	 */
+	public boolean isStriped() {
+		return striped != null && striped;
+	}
+
+	Boolean getStriped() {
+		return striped;
+	}
+
 	/**
 	 * Returns configuration information about Simon (stat processor type and state) as a human readable string.
 	 *
@@ -36,6 +64,7 @@ public final class SimonConfiguration {
 	public String toString() {
 		return "SimonConfiguration {\n" +
 			"  state=" + state + "\n" +
+			"  striped=" + striped + "\n" +
 			"}";
 	}
 }
@@ -0,0 +1,112 @@
+package org.javasimon;
+
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Limit of the number of Simons (Stopwatches and Counters) in the subtree of the Simon hierarchy. Limit guards
+ * the Manager against high-cardinality names (SQL hashes, URLs with IDs...) that would otherwise make the number
+ * of Simons grow without bounds. What happens when the limit is reached is determined by the {@link Policy}.
+ * <p/>
+ * Limits are set via {@link ManagerConfiguration#setLimit(String, int, Policy)} or with {@code limit} element
+ * of the configuration XML. If more limits cover the name, the one for the deepest subtree applies.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class SimonLimit {
+
+	/** Local name of the overflow Stopwatch under the limited subtree. */
+	public static final String OVERFLOW_STOPWATCH_NAME = "_other";
+
+	/** Local name of the overflow Counter under the limited subtree. */
+	public static final String OVERFLOW_COUNTER_NAME = "_other-counter";
+
+	/** Determines what happens with the new Simon when the limit is reached. */
+	public enum Policy {
+		/**
+		 * Least recently used leaf Simons of the subtree (according to {@link Simon#getLastUsage()}) are destroyed
+		 * to make room for the new Simon. Callbacks are notified via {@link org.javasimon.callback.Callback#onSimonDestroyed(Simon)}.
+		 */
+		EVICT,
+
+		/**
+		 * New Simons are not created, overflow Simon ({@code subtree._other} for Stopwatches,
+		 * {@code subtree._other-counter} for Counters) is returned instead.
+		 */
+		OVERFLOW
+	}
+
+	private final String subtree;
+	private final int maxSimons;
+	private final Policy policy;
+
+	/**
+	 * Creates the limit.
+	 *
+	 * @param subtree name of the subtree root Simon, limit applies to all Simons under it (not to the root itself)
+	 * @param maxSimons maximal number of Stopwatches and Counters in the subtree
+	 * @param policy what to do when the limit is reached
+	 */
+	SimonLimit(String subtree, int maxSimons, Policy policy) {
+		if (maxSimons < 1) {
+			throw new SimonException("Maximal number of Simons must be positive, used: " + maxSimons);
+		}
+		SimonUtils.validateSimonName(subtree);
+		this.subtree = subtree;
+		this.maxSimons = maxSimons;
+		this.policy = policy != null ? policy : Policy.EVICT;
+	}
+
+	/**
+	 * Returns the name of the subtree root Simon.
+	 *
+	 * @return name of the subtree
+	 */
+	public String getSubtree() {
+		return subtree;
+	}
+
+	/**
+	 * Returns maximal number of Stopwatches and Counters in the subtree (overflow Simons are not counted).
+	 *
+	 * @return maximal number of Simons
+	 */
+	public int getMaxSimons() {
+		return maxSimons;
+	}
+
+	/**
+	 * Returns policy applied when the limit is reached.
+	 *
+	 * @return limit policy
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the full name of the overflow Simon of the required type.
+	 *
+	 * @param simonClass requested Simon type
+	 * @return name of the overflow Simon
+	 */
+	String overflowName(Class<? extends Simon> simonClass) {
+		return subtree + Manager.HIERARCHY_DELIMITER
+			+ (simonClass == Counter.class ? OVERFLOW_COUNTER_NAME : OVERFLOW_STOPWATCH_NAME);
+	}
+
+	/**
+	 * Returns true if the name is one of the overflow Simons of this limit - these are not counted.
+	 *
+	 * @param name Simon name
+	 * @return true for the overflow Simon names
+	 */
+	boolean isOverflowName(String name) {
+		return name.equals(overflowName(Stopwatch.class)) || name.equals(overflowName(Counter.class));
+	}
+
+	@Override
+	public String toString() {
+		return "SimonLimit{subtree='" + subtree + "', maxSimons=" + maxSimons + ", policy=" + policy + '}';
+	}
+}
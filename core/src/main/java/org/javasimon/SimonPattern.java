@@ -155,10 +155,32 @@ public final class SimonPattern implements SimonFilter {
 		return isCorrectType(simon) && matches(simon.getName());
 	}
 
-	private boolean isCorrectType(Simon simon) {
+	boolean isCorrectType(Simon simon) {
 		return expectedType.isInstance(simon);
 	}
 
+	// package-private getters of the parsed pattern parts used by SimonPatternIndex
+
+	Class<? extends Simon> getExpectedType() {
+		return expectedType;
+	}
+
+	String getAll() {
+		return all;
+	}
+
+	String getStart() {
+		return start;
+	}
+
+	String getEnd() {
+		return end;
+	}
+
+	String getMiddle() {
+		return middle;
+	}
+
 	/**
 	 * Checks if Simon name matches this pattern.
 	 *
@@ -0,0 +1,433 @@
+package org.javasimon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of values (configurations, filter rules...) registered for {@link SimonPattern}s that finds all values
+ * matching the Simon name in one pass instead of testing each pattern separately. Patterns are indexed by their
+ * wildcard form:
+ * <ul>
+ * <li>exact patterns ({@code something}) are kept in a hash map;</li>
+ * <li>prefix patterns ({@code something*} and {@code something*else}) in a trie walked along the name;</li>
+ * <li>suffix patterns ({@code *something}) in a trie walked along the reversed name;</li>
+ * <li>infix patterns ({@code *something*}) in an Aho-Corasick automaton walked once along the name;</li>
+ * <li>pattern {@code *} matches every name, values without pattern match also {@code null} name.</li>
+ * </ul>
+ * Matching values are always returned in the order they were added. Results can be cached per Simon name
+ * (see {@link #SimonPatternIndex(boolean)}), the cache is dropped when a value is added.
+ * <p/>
+ * Index is thread-safe - adding creates new immutable version of the index ({@link Snapshot}), lookups are lock-free.
+ * Consecutive lookups that must see the same values should use one {@link #snapshot()}.
+ *
+ * @param <T> type of the indexed values
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see SimonPattern
+ * @since 4.2
+ */
+public final class SimonPatternIndex<T> {
+
+	/** Maximal number of cached names, cache is cleared when exceeded. */
+	private static final int MAX_CACHED_NAMES = 10000;
+
+	/** Whether matches are cached per Simon name. */
+	private final boolean cacheNames;
+
+	private volatile Snapshot<T> index;
+
+	/** Creates the index without the cache of matches, suitable when each name is looked up once. */
+	public SimonPatternIndex() {
+		this(false);
+	}
+
+	/**
+	 * Creates the index.
+	 *
+	 * @param cacheNames whether matches are cached per Simon name, useful when the same names are looked up
+	 * repeatedly (e.g. on each event)
+	 */
+	public SimonPatternIndex(boolean cacheNames) {
+		this.cacheNames = cacheNames;
+		this.index = new Snapshot<>(Collections.<Entry<T>>emptyList(), cacheNames);
+	}
+
+	/**
+	 * Adds the value for the pattern.
+	 *
+	 * @param pattern Simon pattern, {@code null} means that value matches everything
+	 * @param value indexed value
+	 */
+	public synchronized void add(SimonPattern pattern, T value) {
+		List<Entry<T>> entries = new ArrayList<>(index.entries);
+		entries.add(new Entry<>(entries.size(), pattern, value));
+		index = new Snapshot<>(entries, cacheNames);
+	}
+
+	/** Removes all values from the index. */
+	public synchronized void clear() {
+		index = new Snapshot<>(Collections.<Entry<T>>emptyList(), cacheNames);
+	}
+
+	/**
+	 * Returns the current version of the index, it is not affected by values added later.
+	 *
+	 * @return current immutable version of the index
+	 */
+	public Snapshot<T> snapshot() {
+		return index;
+	}
+
+	/**
+	 * Returns true if there is no value in the index.
+	 *
+	 * @return true if the index is empty
+	 */
+	public boolean isEmpty() {
+		return index.isEmpty();
+	}
+
+	/**
+	 * Returns all values of the index in the order they were added.
+	 *
+	 * @return unmodifiable list of all values
+	 */
+	public List<T> values() {
+		return index.values();
+	}
+
+	/**
+	 * Returns values with patterns matching the name (ignoring the Simon type of the pattern)
+	 * in the order they were added.
+	 *
+	 * @param name Simon name
+	 * @return unmodifiable list of matching values
+	 * @see SimonPattern#matches(String)
+	 */
+	public List<T> get(String name) {
+		return index.get(name);
+	}
+
+	/**
+	 * Returns values with patterns accepting the Simon (name and type) in the order they were added.
+	 *
+	 * @param simon Simon
+	 * @return unmodifiable list of matching values
+	 * @see SimonPattern#accept(Simon)
+	 */
+	public List<T> get(Simon simon) {
+		return index.get(simon);
+	}
+
+	/** Indexed value with its order and pattern. */
+	private static final class Entry<T> {
+		private final int order;
+		private final SimonPattern pattern;
+		private final T value;
+
+		Entry(int order, SimonPattern pattern, T value) {
+			this.order = order;
+			this.pattern = pattern;
+			this.value = value;
+		}
+	}
+
+	/** Cached result of the lookup. */
+	private static final class Match<T> {
+		private final List<Entry<T>> entries;
+		private final List<T> values;
+
+		Match(List<Entry<T>> entries) {
+			this.entries = entries;
+			List<T> values = new ArrayList<>(entries.size());
+			for (Entry<T> entry : entries) {
+				values.add(entry.value);
+			}
+			this.values = Collections.unmodifiableList(values);
+		}
+	}
+
+	/**
+	 * Immutable version of the index with its cache.
+	 *
+	 * @param <T> type of the indexed values
+	 */
+	public static final class Snapshot<T> {
+
+		private final List<Entry<T>> entries;
+		private final List<T> values;
+		/** True if any pattern expects other type than {@link Simon}. */
+		private final boolean typed;
+
+		private final List<Entry<T>> everything = new ArrayList<>();
+		private final List<Entry<T>> anyName = new ArrayList<>();
+		private final Map<String, List<Entry<T>>> exact = new HashMap<>();
+		private final TrieNode<T> prefixes = new TrieNode<>();
+		private final TrieNode<T> suffixes = new TrieNode<>();
+		private final TrieNode<T> infixes = new TrieNode<>();
+
+		/** Matches per Simon name, {@code null} if not cached. */
+		private final ConcurrentHashMap<String, Match<T>> cache;
+		private volatile Match<T> nullNameMatch;
+
+		private Snapshot(List<Entry<T>> entries, boolean cacheNames) {
+			this.entries = entries;
+			this.cache = cacheNames ? new ConcurrentHashMap<String, Match<T>>() : null;
+			boolean typed = false;
+			for (Entry<T> entry : entries) {
+				SimonPattern pattern = entry.pattern;
+				if (pattern == null) {
+					everything.add(entry);
+					continue;
+				}
+				typed |= pattern.getExpectedType() != Simon.class;
+				if (pattern.getAll() != null) {
+					List<Entry<T>> list = exact.get(pattern.getAll());
+					if (list == null) {
+						list = new ArrayList<>(1);
+						exact.put(pattern.getAll(), list);
+					}
+					list.add(entry);
+				} else if (pattern.getMiddle() != null) {
+					if (pattern.getMiddle().isEmpty()) {
+						anyName.add(entry);
+					} else {
+						infixes.add(pattern.getMiddle(), false).entries.add(entry);
+					}
+				} else if (pattern.getStart() != null) {
+					prefixes.add(pattern.getStart(), false).entries.add(entry);
+				} else {
+					suffixes.add(pattern.getEnd(), true).entries.add(entry);
+				}
+			}
+			this.typed = typed;
+			buildFailureLinks();
+			Match<T> all = new Match<>(entries);
+			this.values = all.values;
+		}
+
+		/**
+		 * Returns true if there is no value in this version of the index.
+		 *
+		 * @return true if the index is empty
+		 */
+		public boolean isEmpty() {
+			return entries.isEmpty();
+		}
+
+		/**
+		 * Returns all values of this version of the index in the order they were added.
+		 *
+		 * @return unmodifiable list of all values
+		 */
+		public List<T> values() {
+			return values;
+		}
+
+		/**
+		 * Returns values with patterns matching the name (ignoring the Simon type of the pattern)
+		 * in the order they were added.
+		 *
+		 * @param name Simon name
+		 * @return unmodifiable list of matching values
+		 * @see SimonPattern#matches(String)
+		 */
+		public List<T> get(String name) {
+			return match(name).values;
+		}
+
+		/**
+		 * Returns values with patterns accepting the Simon (name and type) in the order they were added.
+		 *
+		 * @param simon Simon
+		 * @return unmodifiable list of matching values
+		 * @see SimonPattern#accept(Simon)
+		 */
+		public List<T> get(Simon simon) {
+			Match<T> match = match(simon.getName());
+			if (!typed) {
+				return match.values;
+			}
+			List<T> result = new ArrayList<>(match.entries.size());
+			for (Entry<T> entry : match.entries) {
+				if (entry.pattern == null || entry.pattern.isCorrectType(simon)) {
+					result.add(entry.value);
+				}
+			}
+			return result;
+		}
+
+		/** Builds Aho-Corasick failure and output links of the infix trie (breadth-first). */
+		private void buildFailureLinks() {
+			Queue<TrieNode<T>> queue = new LinkedList<>();
+			for (TrieNode<T> child : infixes.children) {
+				child.failure = infixes;
+				queue.add(child);
+			}
+			while (!queue.isEmpty()) {
+				TrieNode<T> node = queue.remove();
+				for (int i = 0; i < node.keys.length; i++) {
+					char c = node.keys[i];
+					TrieNode<T> child = node.children[i];
+					TrieNode<T> failure = node.failure;
+					while (failure != null && failure.child(c) == null) {
+						failure = failure.failure;
+					}
+					child.failure = failure != null ? failure.child(c) : infixes;
+					child.output = child.failure.entries.isEmpty() ? child.failure.output : child.failure;
+					queue.add(child);
+				}
+			}
+		}
+
+		private Match<T> match(String name) {
+			if (name == null) {
+				Match<T> match = nullNameMatch;
+				if (match == null) {
+					match = computeMatch(null);
+					nullNameMatch = match;
+				}
+				return match;
+			}
+			if (cache == null) {
+				return computeMatch(name);
+			}
+			Match<T> match = cache.get(name);
+			if (match == null) {
+				match = computeMatch(name);
+				if (cache.size() >= MAX_CACHED_NAMES) {
+					cache.clear();
+				}
+				cache.put(name, match);
+			}
+			return match;
+		}
+
+		private Match<T> computeMatch(String name) {
+			if (entries.isEmpty()) {
+				return new Match<>(Collections.<Entry<T>>emptyList());
+			}
+			boolean[] matched = new boolean[entries.size()];
+			mark(matched, everything, null);
+			if (name == null) {
+				// only the empty pattern matches null name (see SimonPattern.matches)
+				mark(matched, exact.get(""), null);
+				return collect(matched);
+			}
+			mark(matched, anyName, null);
+			mark(matched, exact.get(name), null);
+
+			TrieNode<T> node = prefixes;
+			mark(matched, node.entries, name);
+			for (int i = 0; i < name.length() && node != null; i++) {
+				node = node.child(name.charAt(i));
+				if (node != null) {
+					mark(matched, node.entries, name);
+				}
+			}
+
+			node = suffixes;
+			for (int i = name.length() - 1; i >= 0 && node != null; i--) {
+				node = node.child(name.charAt(i));
+				if (node != null) {
+					mark(matched, node.entries, null);
+				}
+			}
+
+			if (infixes.children.length > 0) {
+				node = infixes;
+				for (int i = 0; i < name.length(); i++) {
+					char c = name.charAt(i);
+					while (node != infixes && node.child(c) == null) {
+						node = node.failure;
+					}
+					TrieNode<T> next = node.child(c);
+					node = next != null ? next : infixes;
+					for (TrieNode<T> output = node; output != null; output = output.output) {
+						mark(matched, output.entries, null);
+					}
+				}
+			}
+			return collect(matched);
+		}
+
+		/**
+		 * Marks entries as matched - if the name is provided, patterns are verified (used for prefix patterns
+		 * that may require the suffix too).
+		 */
+		private void mark(boolean[] matched, List<Entry<T>> list, String name) {
+			if (list == null) {
+				return;
+			}
+			for (Entry<T> entry : list) {
+				if (name == null || entry.pattern.getEnd() == null || entry.pattern.matches(name)) {
+					matched[entry.order] = true;
+				}
+			}
+		}
+
+		private Match<T> collect(boolean[] matched) {
+			List<Entry<T>> result = new ArrayList<>();
+			for (int i = 0; i < matched.length; i++) {
+				if (matched[i]) {
+					result.add(entries.get(i));
+				}
+			}
+			return new Match<>(result);
+		}
+	}
+
+	/** Node of the character trie, used also as Aho-Corasick automaton state. */
+	private static final class TrieNode<T> {
+
+		private char[] keys = new char[0];
+		private TrieNode<T>[] children = newArray(0);
+		private final List<Entry<T>> entries = new ArrayList<>(0);
+
+		/** Aho-Corasick failure link. */
+		private TrieNode<T> failure;
+		/** Nearest node on the failure chain with some entries. */
+		private TrieNode<T> output;
+
+		TrieNode<T> child(char c) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		TrieNode<T> add(String key, boolean reversed) {
+			TrieNode<T> node = this;
+			for (int i = 0; i < key.length(); i++) {
+				char c = key.charAt(reversed ? key.length() - 1 - i : i);
+				TrieNode<T> child = node.child(c);
+				if (child == null) {
+					child = new TrieNode<>();
+					int length = node.keys.length;
+					char[] keys = new char[length + 1];
+					System.arraycopy(node.keys, 0, keys, 0, length);
+					keys[length] = c;
+					TrieNode<T>[] children = newArray(length + 1);
+					System.arraycopy(node.children, 0, children, 0, length);
+					children[length] = child;
+					node.keys = keys;
+					node.children = children;
+				}
+				node = child;
+			}
+			return node;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> TrieNode<T>[] newArray(int length) {
+			return (TrieNode<T>[]) new TrieNode<?>[length];
+		}
+	}
+}
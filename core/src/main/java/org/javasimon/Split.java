@@ -1,7 +1,9 @@
 package org.javasimon;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.javasimon.clock.SimonClock;
 import org.javasimon.utils.SimonUtils;
@@ -32,21 +34,28 @@ public final class Split implements HasAttributes, AutoCloseable {
 
 	private volatile Stopwatch stopwatch;
 	private final boolean enabled;
+	private final boolean detached;
 	private final SimonClock clock;
 	private volatile boolean running;
 
 	private volatile long start;
 	private volatile long total;
 
-	private AttributesSupport attributesSupport = new AttributesSupport();
+	/** Self time stack of the thread that started the split, {@code null} if self time is not tracked. */
+	volatile SelfTimeTracker.SplitStack selfTimeStack;
+
+	/** Created lazily with the first attribute, most Splits never have any attributes. */
+	private volatile AttributesSupport attributesSupport;
 
 	private Split() {
 		enabled = false;
+		detached = false;
 		clock = null;
 	}
 
 	private Split(boolean enabled, SimonClock clock) {
 		this.enabled = enabled;
+		this.detached = false;
 		this.clock = clock;
 		start = clock.nanoTime();
 	}
@@ -65,9 +74,29 @@ public final class Split implements HasAttributes, AutoCloseable {
 		this.start = start;
 		this.clock = clock;
 		enabled = true;
+		detached = false;
 		running = true;
 	}
 
+	/**
+	 * Creates a new detached (not running) Split for an enabled Stopwatch - <b>called internally only</b>.
+	 * Used when the measurement is done without the Split object ({@link Stopwatch#startNanos()}), but callbacks
+	 * need one - for the start event total is 0, for the stop event it is the split time.
+	 *
+	 * @param stopwatch owning Stopwatch (enabled)
+	 * @param clock Clock for this Split
+	 * @param start start timestamp in nanoseconds
+	 * @param total split time in nanoseconds
+	 */
+	Split(Stopwatch stopwatch, SimonClock clock, long start, long total) {
+		this.stopwatch = stopwatch;
+		this.start = start;
+		this.total = total;
+		this.clock = clock;
+		enabled = true;
+		detached = true;
+	}
+
 	/**
 	 * Creates a new Split for a disabled Stopwatch - <b>called internally only</b>.
 	 *
@@ -77,6 +106,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 	Split(Stopwatch stopwatch, SimonClock clock) {
 		assert !(stopwatch.isEnabled()) : "stopwatch must be disabled in this constructor!";
 		this.enabled = false;
+		this.detached = false;
 		this.stopwatch = stopwatch;
 		this.clock = clock;
 	}
@@ -190,7 +220,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 		long nowNanos = clock.nanoTime();
 		total = nowNanos - start; // we update total before calling the stop so that callbacks can use it
 		if (stopwatch != null) {
-			((StopwatchImpl) stopwatch).stop(this, start, nowNanos, subSimon);
+			((AbstractStopwatch) stopwatch).stop(this, start, nowNanos, subSimon);
 		}
 		return this;
 	}
@@ -241,6 +271,19 @@ public final class Split implements HasAttributes, AutoCloseable {
 		return running;
 	}
 
+	/**
+	 * Returns true if this Split was created only for the callbacks of the measurement done with
+	 * {@link Stopwatch#startNanos()} and {@link Stopwatch#stopNanos(long)}. Detached Split is never running
+	 * and can't be stopped, Splits provided on start and stop are different objects, hence attributes set
+	 * on start are not available on stop. Callbacks pairing start and stop by Split identity should ignore it.
+	 *
+	 * @return true if this split is detached from the measurement
+	 * @since 4.2
+	 */
+	public boolean isDetached() {
+		return detached;
+	}
+
 	/**
 	 * Returns start nano timer value or 0 if the Split is not enabled (started for disabled Stopwatch).
 	 *
@@ -270,7 +313,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public void setAttribute(String name, Object value) {
-		attributesSupport.setAttribute(name, value);
+		attributesSupport().setAttribute(name, value);
 	}
 
 	/**
@@ -283,7 +326,8 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public Object getAttribute(String name) {
-		return attributesSupport.getAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttribute(name) : null;
 	}
 
 	/**
@@ -297,7 +341,8 @@ public final class Split implements HasAttributes, AutoCloseable {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T getAttribute(String name, Class<T> clazz) {
-		return attributesSupport.getAttribute(name, clazz);
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttribute(name, clazz) : null;
 	}
 
 	/**
@@ -308,7 +353,10 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public void removeAttribute(String name) {
-		attributesSupport.removeAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		if (attributes != null) {
+			attributes.removeAttribute(name);
+		}
 	}
 
 	/**
@@ -320,12 +368,28 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public Iterator<String> getAttributeNames() {
-		return attributesSupport.getAttributeNames();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttributeNames() : Collections.<String>emptySet().iterator();
 	}
 
 	@Override
 	public Map<String, Object> getCopyAsSortedMap() {
-		return attributesSupport.getCopyAsSortedMap();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getCopyAsSortedMap() : new TreeMap<String, Object>();
+	}
+
+	private AttributesSupport attributesSupport() {
+		AttributesSupport attributes = attributesSupport;
+		if (attributes == null) {
+			synchronized (this) {
+				attributes = attributesSupport;
+				if (attributes == null) {
+					attributes = new AttributesSupport();
+					attributesSupport = attributes;
+				}
+			}
+		}
+		return attributes;
 	}
 
 	/**
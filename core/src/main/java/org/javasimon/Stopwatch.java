@@ -35,6 +35,37 @@ public interface Stopwatch extends Simon {
 	 */
 	Split start();
 
+	/**
+	 * Starts the measurement without creating {@link Split} object - returned nano-time value is used as a token
+	 * for {@link #stopNanos(long)}. Statistics are updated the same way like with {@link #start()}. Split object
+	 * is created only if there is any callback registered (callback method
+	 * {@link org.javasimon.callback.Callback#onStopwatchStart(Split)} requires it). Such Splits are
+	 * {@link Split#isDetached() detached} - different objects are provided on start and stop and the start one
+	 * is not running, hence callbacks can't pair them by identity or attributes.
+	 * <p/>
+	 * Usage:
+	 * <pre>
+	 * long start = stopwatch.startNanos();
+	 * ... measured code
+	 * stopwatch.stopNanos(start);</pre>
+	 *
+	 * @return nano-time of the start or 0 if the stopwatch is disabled
+	 * @see #stopNanos(long)
+	 * @since 4.2
+	 */
+	long startNanos();
+
+	/**
+	 * Stops the measurement started with {@link #startNanos()} - equivalent of {@link Split#stop()}. If the start
+	 * value is 0 (disabled stopwatch) nothing happens. Stopwatch is updated even if it was disabled in the meantime,
+	 * just like in case of the running Split.
+	 *
+	 * @param startNanos value returned by {@link #startNanos()}
+	 * @return split time in nanoseconds, 0 if the stopwatch was disabled on start
+	 * @since 4.2
+	 */
+	long stopNanos(long startNanos);
+
 	/**
 	 * Adds {@link Split} to the stopwatch which is useful for aggregation of splits created for other stopwatch.
 	 * Split object should be stopped. Main difference is the callback method called as
@@ -58,6 +89,17 @@ public interface Stopwatch extends Simon {
 	 */
 	long getTotal();
 
+	/**
+	 * Returns total sum of self (exclusive) split times in nanoseconds - time of the splits minus time of the splits
+	 * of any Stopwatch started and stopped within them on the same thread. Self time is tracked only when enabled
+	 * with {@link ManagerConfiguration#setSelfTimeTracking(boolean)}, splits added with {@link #addSplit(Split)}
+	 * are not counted.
+	 *
+	 * @return self time of the stopwatch in nanoseconds, 0 if self time is not tracked
+	 * @since 4.2
+	 */
+	long getSelfTotal();
+
 	/**
 	 * Returns value of the last added split - whether it was added directly or with stop method.
 	 *
@@ -158,6 +200,31 @@ public interface Stopwatch extends Simon {
 	 */
 	double getVarianceN();
 
+	/**
+	 * Returns the child Stopwatch with the specified local name, the Stopwatch is created if necessary.
+	 * This is equivalent to {@code manager.getStopwatch(getName() + "." + localName)}, but the child is
+	 * resolved only once and kept in this Stopwatch, hence repeated calls neither concatenate the name
+	 * nor look it up in the Manager. Anonymous Stopwatch returns new anonymous Stopwatch.
+	 *
+	 * @param localName local name of the child Stopwatch (hierarchy delimiter is added automatically)
+	 * @return child Stopwatch
+	 * @since 4.2
+	 */
+	Stopwatch child(String localName);
+
+	/**
+	 * Returns the tagged Stopwatch - that is the child Stopwatch with the local name derived from the tags
+	 * (see {@link Tags#getLocalName()}), the Stopwatch is created if necessary. Tagged Stopwatch is resolved only once
+	 * for the same tags, the same instance of the tags should be used for repeated lookups that do not allocate.
+	 * Empty tags return this Stopwatch.
+	 *
+	 * @param tags tags of the Stopwatch
+	 * @return tagged Stopwatch
+	 * @see Tags
+	 * @since 4.2
+	 */
+	Stopwatch tagged(Tags tags);
+
 	@Override
 	StopwatchSample sample();
 
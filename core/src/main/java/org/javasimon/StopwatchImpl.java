@@ -1,16 +1,15 @@
 package org.javasimon;
 
+import org.javasimon.callback.CompositeCallbackImpl;
 import org.javasimon.utils.SimonUtils;
 
-import java.util.Collection;
-
 /**
  * Class implements {@link org.javasimon.Stopwatch} interface - see there for how to use Stopwatch.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @see org.javasimon.Stopwatch
  */
-final class StopwatchImpl extends AbstractSimon implements Stopwatch {
+final class StopwatchImpl extends AbstractStopwatch {
 
 	private long total;
 	private long counter;
@@ -49,34 +48,15 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 			// using parameter version saves one currentTimeMillis call
 			updateUsagesNanos(nowNanos);
 			addSplit(splitNs);
-			if (!manager.callback().callbacks().isEmpty()) {
+			if (CompositeCallbackImpl.isSampleRequired(manager.callback())) {
 				sample = sample();
 			}
-			updateIncrementalSimons(splitNs, nowNanos);
+			updateEpochCellSplit(splitNs, lastUsage);
 		}
 		manager.callback().onStopwatchAdd(this, split, sample);
 		return this;
 	}
 
-	private long nanoTimeFromSplit(Split split, long splitNs) {
-		if (split.getStopwatch() != null) {
-			return split.getStart() + splitNs;
-		} else {
-			return manager.nanoTime();
-		}
-	}
-
-	private void updateIncrementalSimons(long splitNs, long nowNanos) {
-		Collection<Simon> simons = incrementalSimons();
-		if (simons != null) {
-			for (Simon simon : simons) {
-				StopwatchImpl stopwatch = (StopwatchImpl) simon;
-				stopwatch.addSplit(splitNs);
-				stopwatch.updateUsagesNanos(nowNanos);
-			}
-		}
-	}
-
 	@Override
 	public Split start() {
 		if (!enabled) {
@@ -88,19 +68,36 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 			activeStart();
 		}
 		Split split = new Split(this, manager, manager.nanoTime());
+		selfTimeStart(split);
 		manager.callback().onStopwatchStart(split);
 		return split;
 	}
 
-	/**
-	 * Protected method doing the stop work based on provided start nano-time.
-	 *
-	 * @param split Split object that has been stopped
-	 * @param start start nano-time of the split @return split time in ns
-	 * @param nowNanos current nano time
-	 * @param subSimon name of the sub-stopwatch (hierarchy delimiter is added automatically), may be {@code null}
-	 */
+	@Override
+	public long startNanos() {
+		if (!enabled) {
+			return 0;
+		}
+
+		synchronized (this) {
+			updateUsages(manager.milliTime());
+			activeStart();
+		}
+		long start = manager.nanoTime();
+		selfTimeStart(start);
+		Split callbackSplit = startSplitForCallbacks(start);
+		if (callbackSplit != null) {
+			manager.callback().onStopwatchStart(callbackSplit);
+		}
+		return start;
+	}
+
+	@Override
 	void stop(final Split split, final long start, final long nowNanos, final String subSimon) {
+		long selfNs = selfTimeStop(split, start, nowNanos - start);
+		if (subSimon == null) {
+			addSelfTime(selfNs);
+		}
 		StopwatchSample sample = null;
 		synchronized (this) {
 			active--;
@@ -108,19 +105,20 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 			if (subSimon == null) {
 				long splitNs = nowNanos - start;
 				addSplit(splitNs);
-				if (!manager.callback().callbacks().isEmpty()) {
+				if (CompositeCallbackImpl.isSampleRequired(manager.callback())) {
 					sample = sample();
 				}
-				updateIncrementalSimons(splitNs, nowNanos);
+				updateEpochCellSplit(splitNs, lastUsage);
 			}
 		}
 		if (subSimon != null) {
-			Stopwatch effectiveStopwatch = manager.getStopwatch(getName() + Manager.HIERARCHY_DELIMITER + subSimon);
-			split.setAttribute(Split.ATTR_EFFECTIVE_STOPWATCH, effectiveStopwatch);
-			effectiveStopwatch.addSplit(split);
+			stopForSubSimon(split, subSimon, selfNs);
 			return;
 		}
-		manager.callback().onStopwatchStop(split, sample);
+		Split callbackSplit = splitForCallbacks(split, start, nowNanos);
+		if (callbackSplit != null) {
+			manager.callback().onStopwatchStop(callbackSplit, sample);
+		}
 	}
 	// Uses last usage, hence it must be placed after usages update
 
@@ -130,9 +128,10 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 			maxActive = active;
 			maxActiveTimestamp = getLastUsage();
 		}
+		updateEpochCellActive(active, lastUsage);
 	}
 
-	private long addSplit(long split) {
+	long addSplit(long split) {
 		last = split;
 		total += split;
 		counter++;
@@ -238,6 +237,7 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	public synchronized StopwatchSample sample() {
 		StopwatchSample sample = new StopwatchSample();
 		sample.setTotal(total);
+		sample.setSelfTotal(getSelfTotal());
 		sample.setCounter(counter);
 		sample.setMin(min);
 		sample.setMax(max);
@@ -255,26 +255,6 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		return sample;
 	}
 
-	@Override
-	public synchronized StopwatchSample sampleIncrement(Object key) {
-		return (StopwatchSample) sampleIncrementHelper(key, new StopwatchImpl(null, manager));
-	}
-
-	@Override
-	public StopwatchSample sampleIncrementNoReset(Object key) {
-		return (StopwatchSample) sampleIncrementNoResetHelper(key);
-	}
-
-	/**
-	 * Updates usage statistics without using {@link System#currentTimeMillis()} if client code already has
-	 * current nano timer value.
-	 *
-	 * @param nowNanos current value of nano timer
-	 */
-	private void updateUsagesNanos(long nowNanos) {
-		updateUsages(manager.millisForNano(nowNanos));
-	}
-
 	/**
 	 * Returns Simon basic information, total time, counter, max value and min value as a human readable string.
 	 *
@@ -12,6 +12,7 @@ import org.javasimon.utils.SimonUtils;
 public class StopwatchSample extends Sample {
 
 	private long total;
+	private long selfTotal;
 	private long counter;
 	private long min;
 	private long max;
@@ -44,6 +45,27 @@ public class StopwatchSample extends Sample {
 		this.total = total;
 	}
 
+	/**
+	 * Returns the total sum of self (exclusive) split times in nanoseconds.
+	 *
+	 * @return self time of the stopwatch in nanoseconds
+	 * @see Stopwatch#getSelfTotal()
+	 * @since 4.2
+	 */
+	public final long getSelfTotal() {
+		return selfTotal;
+	}
+
+	/**
+	 * Sets the total sum of self (exclusive) split times in nanoseconds.
+	 *
+	 * @param selfTotal self time of the stopwatch in nanoseconds
+	 * @since 4.2
+	 */
+	public final void setSelfTotal(long selfTotal) {
+		this.selfTotal = selfTotal;
+	}
+
 	/**
 	 * Returns usage count of the stopwatch. Counter is increased by {@code addTime} and
 	 * {@code stop} - that means that it's updated every time the next time split is added.
@@ -292,6 +314,7 @@ public class StopwatchSample extends Sample {
 			sb.append("name=").append(getName()).append(", ");
 		}
 		sb.append("total=").append(SimonUtils.presentNanoTime(total));
+		sb.append(", selfTotal=").append(SimonUtils.presentNanoTime(selfTotal));
 		sb.append(", counter=").append(counter);
 		sb.append(", max=").append(SimonUtils.presentNanoTime(max));
 		sb.append(", min=").append(SimonUtils.presentNanoTime(min));
@@ -0,0 +1,33 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base of one stripe of statistics of the striped Simons. Cell is locked by CAS on the inherited int value
+ * (1 means locked) - lock is held only for the update of a few fields, hence spinning is sufficient. Fields
+ * of the cell are padded to avoid false sharing between cells used by different threads, subclasses should
+ * add the padding after their own fields too.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see StripedCells
+ * @since 4.2
+ */
+@SuppressWarnings({"unused", "serial"})
+abstract class StripedCell extends AtomicInteger {
+
+	private long p0, p1, p2, p3, p4, p5, p6;
+
+	final boolean tryLock() {
+		return get() == 0 && compareAndSet(0, 1);
+	}
+
+	final void lock() {
+		while (!tryLock()) {
+			Thread.yield();
+		}
+	}
+
+	final void unlock() {
+		set(0);
+	}
+}
@@ -0,0 +1,88 @@
+package org.javasimon;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the cells of the striped Simon. There is only one cell at the beginning, number of cells
+ * is doubled whenever a thread finds its cell locked by another thread - up to the number
+ * of available processors.
+ *
+ * @param <C> type of the cell
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+abstract class StripedCells<C extends StripedCell> {
+
+	/** Maximal number of cells - the least power of two greater or equal to the number of processors. */
+	private static final int MAX_CELLS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	private volatile StripedCell[] cells = {newCell()};
+	private final AtomicBoolean cellsBusy = new AtomicBoolean();
+
+	/**
+	 * Creates new empty cell.
+	 *
+	 * @return new cell
+	 */
+	abstract C newCell();
+
+	/**
+	 * Locks and returns the cell of the current thread. If the cell is locked by another thread, number of cells
+	 * is increased (up to the limit) and other cells are tried. Returned cell must be unlocked by the caller.
+	 *
+	 * @return locked cell
+	 */
+	@SuppressWarnings("unchecked")
+	final C lockCell() {
+		int hash = threadHash();
+		StripedCell[] cs = cells;
+		StripedCell cell = cs[hash & (cs.length - 1)];
+		if (cell.tryLock()) {
+			return (C) cell;
+		}
+		if (cs.length < MAX_CELLS) {
+			expandCells(cs);
+		}
+		while (true) {
+			cs = cells;
+			for (int i = 0; i < cs.length; i++) {
+				cell = cs[(hash + i) & (cs.length - 1)];
+				if (cell.tryLock()) {
+					return (C) cell;
+				}
+			}
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Returns current cells, cells must be locked before they are read.
+	 *
+	 * @return array of the current cells
+	 */
+	final StripedCell[] cells() {
+		return cells;
+	}
+
+	private static int threadHash() {
+		long id = Thread.currentThread().getId();
+		return (int) (id ^ (id >>> 16));
+	}
+
+	private void expandCells(StripedCell[] current) {
+		if (cellsBusy.compareAndSet(false, true)) {
+			try {
+				if (cells == current) {
+					StripedCell[] expanded = Arrays.copyOf(current, current.length << 1);
+					for (int i = current.length; i < expanded.length; i++) {
+						expanded[i] = newCell();
+					}
+					cells = expanded;
+				}
+			} finally {
+				cellsBusy.set(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package org.javasimon;
+
+import org.javasimon.callback.CompositeCallbackImpl;
+import org.javasimon.utils.SimonUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alternative implementation of {@link org.javasimon.Counter} for heavily contended Counters. Increase/decrease
+ * only updates the cell of the current thread - changes of the counter value, increment/decrement sums and
+ * last usage are spread across striped cells and merged when the Counter is sampled or any getter is called.
+ * No value is shared by all threads on increase/decrease, {@link #set(long)} locks all the cells.
+ * <p/>
+ * As the value after each change is not known, min/max (and their timestamps) are not exact - they are updated
+ * with the value set by {@link #set(long)} (and the value it replaces) and with the merged value whenever it is
+ * read (getters, sampling, callbacks requiring the sample). Timestamp of such a min/max is the last usage
+ * of the Counter. Values obtained from {@link #sample()} are not atomic snapshot when the Counter is changed
+ * concurrently.
+ * <p/>
+ * This implementation is used for Counters configured with {@code striped="true"} in {@link ManagerConfiguration}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see org.javasimon.Counter
+ * @since 4.2
+ */
+final class StripedCounterImpl extends AbstractSimon implements Counter {
+
+	private final StripedCells<Cell> cells = new StripedCells<Cell>() {
+		@Override
+		Cell newCell() {
+			return new Cell();
+		}
+	};
+
+	/** Value set by the last {@link #set(long)}, changes since then are summed in the cells. */
+	private volatile long base;
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+	private volatile long maxTimestamp;
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private volatile long minTimestamp;
+	private final AtomicLong firstUsageMs = new AtomicLong();
+
+	/**
+	 * Constructs striped Counter Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 */
+	StripedCounterImpl(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	public Counter child(String localName) {
+		return (Counter) childSimon(localName, Counter.class);
+	}
+
+	@Override
+	public Counter tagged(Tags tags) {
+		return tags.size() == 0 ? this : child(tags.getLocalName());
+	}
+
+	@Override
+	public Counter set(long val) {
+		if (!enabled) {
+			return this;
+		}
+
+		long now = manager.milliTime();
+		updateFirstUsage(now);
+		StripedCell[] locked = cells.cells();
+		for (StripedCell cell : locked) {
+			cell.lock();
+		}
+		long previous = base;
+		long previousUsage = 0;
+		try {
+			for (StripedCell stripedCell : locked) {
+				Cell cell = (Cell) stripedCell;
+				previous += cell.value;
+				previousUsage = Math.max(previousUsage, cell.lastUsage);
+				cell.value = 0;
+				cell.updateUsage(now);
+			}
+			base = val;
+		} finally {
+			for (StripedCell cell : locked) {
+				cell.unlock();
+			}
+		}
+		if (previousUsage != 0) {
+			observe(previous, previousUsage);
+		}
+		observe(val, now);
+		updateEpochCell(val, now, true, true);
+		manager.callback().onCounterSet(this, val, sampleIfRequired());
+		return this;
+	}
+
+	@Override
+	public Counter increase() {
+		return increase(1);
+	}
+
+	@Override
+	public Counter increase(long inc) {
+		if (!enabled) {
+			return this;
+		}
+
+		long now = manager.milliTime();
+		record(inc, inc, 0, now);
+		manager.callback().onCounterIncrease(this, inc, sampleIfRequired());
+		return this;
+	}
+
+	@Override
+	public Counter decrease() {
+		return decrease(1);
+	}
+
+	@Override
+	public Counter decrease(long dec) {
+		if (!enabled) {
+			return this;
+		}
+
+		long now = manager.milliTime();
+		record(-dec, 0, dec, now);
+		manager.callback().onCounterDecrease(this, dec, sampleIfRequired());
+		return this;
+	}
+
+	private void record(long change, long inc, long dec, long now) {
+		updateFirstUsage(now);
+		Cell cell = cells.lockCell();
+		try {
+			cell.value += change;
+			cell.incrementSum += inc;
+			cell.decrementSum += dec;
+			cell.updateUsage(now);
+		} finally {
+			cell.unlock();
+		}
+		updateEpochCell(0, now, false, false);
+	}
+
+	private void updateFirstUsage(long now) {
+		if (firstUsageMs.get() == 0) {
+			firstUsageMs.compareAndSet(0, now);
+		}
+	}
+
+	/** Updates min/max (also of the current epoch) with the value of the Counter known at the time. */
+	private void observe(long value, long timestamp) {
+		updateMax(value, timestamp);
+		updateMin(value, timestamp);
+		EpochCells.Cell epochCell = epochCell();
+		if (epochCell != null) {
+			epochCell.updateMax(value, timestamp);
+			epochCell.updateMin(value, timestamp);
+		}
+	}
+
+	private void updateMax(long value, long now) {
+		long current;
+		while (value >= (current = max.get())) {
+			if (max.compareAndSet(current, value)) {
+				maxTimestamp = now;
+				return;
+			}
+		}
+	}
+
+	private void updateMin(long value, long now) {
+		long current;
+		while (value <= (current = min.get())) {
+			if (min.compareAndSet(current, value)) {
+				minTimestamp = now;
+				return;
+			}
+		}
+	}
+
+	private CounterSample sampleIfRequired() {
+		if (CompositeCallbackImpl.isSampleRequired(manager.callback())) {
+			return sample();
+		}
+		return null;
+	}
+
+	/**
+	 * Merges all cells into a new (unlocked) cell that is not part of this Counter, its value is the value
+	 * of the Counter. Min/max are updated with the merged value.
+	 */
+	private Cell mergeCells() {
+		Cell result = new Cell();
+		result.value = base;
+		for (StripedCell stripedCell : cells.cells()) {
+			Cell cell = (Cell) stripedCell;
+			cell.lock();
+			try {
+				result.value += cell.value;
+				result.incrementSum += cell.incrementSum;
+				result.decrementSum += cell.decrementSum;
+				result.lastUsage = Math.max(result.lastUsage, cell.lastUsage);
+			} finally {
+				cell.unlock();
+			}
+		}
+		if (result.lastUsage != 0) {
+			observe(result.value, result.lastUsage);
+		}
+		return result;
+	}
+
+	@Override
+	public long getCounter() {
+		return mergeCells().value;
+	}
+
+	@Override
+	public long getMin() {
+		mergeCells();
+		return min.get();
+	}
+
+	@Override
+	public long getMinTimestamp() {
+		return minTimestamp;
+	}
+
+	@Override
+	public long getMax() {
+		mergeCells();
+		return max.get();
+	}
+
+	@Override
+	public long getMaxTimestamp() {
+		return maxTimestamp;
+	}
+
+	@Override
+	public long getIncrementSum() {
+		return mergeCells().incrementSum;
+	}
+
+	@Override
+	public long getDecrementSum() {
+		return mergeCells().decrementSum;
+	}
+
+	@Override
+	public long getFirstUsage() {
+		return firstUsageMs.get();
+	}
+
+	@Override
+	public long getLastUsage() {
+		return mergeCells().lastUsage;
+	}
+
+	@Override
+	public CounterSample sample() {
+		Cell merged = mergeCells();
+		CounterSample sample = new CounterSample();
+		sample.setCounter(merged.value);
+		sample.setMin(min.get());
+		sample.setMax(max.get());
+		sample.setMinTimestamp(minTimestamp);
+		sample.setMaxTimestamp(maxTimestamp);
+		sample.setIncrementSum(merged.incrementSum);
+		sample.setDecrementSum(merged.decrementSum);
+		sampleCommon(sample);
+		sample.setFirstUsage(firstUsageMs.get());
+		sample.setLastUsage(merged.lastUsage);
+		return sample;
+	}
+
+	@Override
+	public CounterSample sampleIncrement(Object key) {
+		return (CounterSample) sampleIncrementHelper(key, true);
+	}
+
+	@Override
+	public CounterSample sampleIncrementNoReset(Object key) {
+		return (CounterSample) sampleIncrementHelper(key, false);
+	}
+
+	@Override
+	Sample incrementOf(IncrementState previous, Sample current) {
+		return CounterImpl.counterIncrement(this, previous, (CounterSample) current);
+	}
+
+	/**
+	 * Returns Simon basic information, counter, max value and min value as a human readable string.
+	 *
+	 * @return basic information, counter, max and min values
+	 * @see AbstractSimon#toString()
+	 */
+	@Override
+	public String toString() {
+		long value = mergeCells().value;
+		return "Simon Counter: counter=" + value +
+			", max=" + SimonUtils.presentMinMaxCount(max.get()) +
+			", min=" + SimonUtils.presentMinMaxCount(min.get()) +
+			super.toString();
+	}
+
+	/** One stripe of the Counter value changes and sums. */
+	@SuppressWarnings({"unused", "serial"})
+	private static final class Cell extends StripedCell {
+
+		private long value;
+		private long incrementSum;
+		private long decrementSum;
+		private long lastUsage;
+
+		private long q0, q1, q2, q3, q4, q5, q6;
+
+		void updateUsage(long now) {
+			if (now > lastUsage) {
+				lastUsage = now;
+			}
+		}
+	}
+}
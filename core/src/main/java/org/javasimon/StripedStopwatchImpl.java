@@ -0,0 +1,394 @@
+package org.javasimon;
+
+import org.javasimon.callback.CompositeCallbackImpl;
+import org.javasimon.utils.SimonUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alternative implementation of {@link org.javasimon.Stopwatch} for heavily contended Stopwatches. Instead
+ * of locking the whole Stopwatch on every start/stop the statistics are spread across striped cells - each
+ * thread updates its own cell and cells are merged when the Stopwatch is sampled or any getter is called.
+ * Variance is kept per cell (Welford) and merged using Chan's parallel formula. Min/max and their timestamps
+ * are updated using CAS. Start locks the thread's cell to record the last usage and stop locks it to add
+ * the split, the only value updated by all threads on every start/stop is the active counter (with its peak).
+ * <p/>
+ * Number of cells starts at one and grows on contention up to the number of available processors
+ * (see {@link StripedCells}). Values obtained from getters or {@link #sample()} are consistent per cell, but not
+ * necessarily across all cells when splits are stopped concurrently. Callbacks get the sample taken right after
+ * the split was added, not atomically with it.
+ * <p/>
+ * This implementation is used for Stopwatches configured with {@code striped="true"}
+ * in {@link ManagerConfiguration}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see org.javasimon.Stopwatch
+ * @since 4.2
+ */
+final class StripedStopwatchImpl extends AbstractStopwatch {
+
+	private final StripedCells<Cell> cells = new StripedCells<Cell>() {
+		@Override
+		Cell newCell() {
+			return new Cell();
+		}
+	};
+
+	private final AtomicLong active = new AtomicLong();
+	private final AtomicLong maxActive = new AtomicLong();
+	private volatile long maxActiveTimestamp;
+	private final AtomicLong max = new AtomicLong();
+	private volatile long maxTimestamp;
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private volatile long minTimestamp;
+	private final AtomicLong firstUsageMs = new AtomicLong();
+
+	/**
+	 * Constructs striped Stopwatch Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 */
+	StripedStopwatchImpl(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	public Stopwatch addSplit(Split split) {
+		if (!enabled) {
+			return this;
+		}
+
+		long splitNs = split.runningFor();
+		long nowNanos = nanoTimeFromSplit(split, splitNs);
+		recordSplit(splitNs, nowNanos);
+		manager.callback().onStopwatchAdd(this, split, sampleIfRequired());
+		return this;
+	}
+
+	@Override
+	public Split start() {
+		if (!enabled) {
+			return new Split(this, manager);
+		}
+
+		long now = manager.milliTime();
+		recordUsage(now);
+		activeStart(now);
+		Split split = new Split(this, manager, manager.nanoTime());
+		selfTimeStart(split);
+		manager.callback().onStopwatchStart(split);
+		return split;
+	}
+
+	@Override
+	public long startNanos() {
+		if (!enabled) {
+			return 0;
+		}
+
+		long now = manager.milliTime();
+		recordUsage(now);
+		activeStart(now);
+		long start = manager.nanoTime();
+		selfTimeStart(start);
+		Split callbackSplit = startSplitForCallbacks(start);
+		if (callbackSplit != null) {
+			manager.callback().onStopwatchStart(callbackSplit);
+		}
+		return start;
+	}
+
+	@Override
+	void stop(final Split split, final long start, final long nowNanos, final String subSimon) {
+		active.decrementAndGet();
+		long selfNs = selfTimeStop(split, start, nowNanos - start);
+		if (subSimon != null) {
+			recordUsage(manager.millisForNano(nowNanos));
+			stopForSubSimon(split, subSimon, selfNs);
+			return;
+		}
+		addSelfTime(selfNs);
+		recordSplit(nowNanos - start, nowNanos);
+		Split callbackSplit = splitForCallbacks(split, start, nowNanos);
+		if (callbackSplit != null) {
+			manager.callback().onStopwatchStop(callbackSplit, sampleIfRequired());
+		}
+	}
+
+	private StopwatchSample sampleIfRequired() {
+		if (CompositeCallbackImpl.isSampleRequired(manager.callback())) {
+			return sample();
+		}
+		return null;
+	}
+
+	private void activeStart(long now) {
+		long current = active.incrementAndGet();
+		long peak;
+		while (current >= (peak = maxActive.get())) {
+			if (maxActive.compareAndSet(peak, current)) {
+				maxActiveTimestamp = now;
+				break;
+			}
+		}
+		updateEpochCellActive(current, now);
+	}
+
+	private void recordSplit(long splitNs, long nowNanos) {
+		long now = manager.millisForNano(nowNanos);
+		updateFirstUsage(now);
+		Cell cell = cells.lockCell();
+		try {
+			cell.addSplit(splitNs, nowNanos, now);
+		} finally {
+			cell.unlock();
+		}
+		updateMax(splitNs, now);
+		updateMin(splitNs, now);
+		updateEpochCellSplit(splitNs, now);
+	}
+
+	private void recordUsage(long now) {
+		updateFirstUsage(now);
+		Cell cell = cells.lockCell();
+		try {
+			cell.updateUsage(now);
+		} finally {
+			cell.unlock();
+		}
+	}
+
+	private void updateFirstUsage(long now) {
+		if (firstUsageMs.get() == 0) {
+			firstUsageMs.compareAndSet(0, now);
+		}
+	}
+
+	private void updateMax(long splitNs, long now) {
+		long current;
+		while (splitNs > (current = max.get())) {
+			if (max.compareAndSet(current, splitNs)) {
+				maxTimestamp = now;
+				return;
+			}
+		}
+	}
+
+	private void updateMin(long splitNs, long now) {
+		long current;
+		while (splitNs < (current = min.get())) {
+			if (min.compareAndSet(current, splitNs)) {
+				minTimestamp = now;
+				return;
+			}
+		}
+	}
+
+	/** Merges all cells into a new (unlocked) cell that is not part of this Stopwatch. */
+	private Cell mergeCells() {
+		Cell result = new Cell();
+		for (StripedCell cell : cells.cells()) {
+			cell.lock();
+			try {
+				result.merge((Cell) cell);
+			} finally {
+				cell.unlock();
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double getMean() {
+		return mergeCells().mean;
+	}
+
+	@Override
+	public double getVarianceN() {
+		return mergeCells().varianceN();
+	}
+
+	@Override
+	public double getVariance() {
+		return mergeCells().variance();
+	}
+
+	@Override
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	@Override
+	public long getTotal() {
+		return mergeCells().total;
+	}
+
+	@Override
+	public long getLast() {
+		return mergeCells().last;
+	}
+
+	@Override
+	public long getCounter() {
+		return mergeCells().counter;
+	}
+
+	@Override
+	public long getMax() {
+		return max.get();
+	}
+
+	@Override
+	public long getMin() {
+		return min.get();
+	}
+
+	@Override
+	public long getMaxTimestamp() {
+		return maxTimestamp;
+	}
+
+	@Override
+	public long getMinTimestamp() {
+		return minTimestamp;
+	}
+
+	@Override
+	public long getActive() {
+		return active.get();
+	}
+
+	@Override
+	public long getMaxActive() {
+		return maxActive.get();
+	}
+
+	@Override
+	public long getMaxActiveTimestamp() {
+		return maxActiveTimestamp;
+	}
+
+	@Override
+	public long getFirstUsage() {
+		return firstUsageMs.get();
+	}
+
+	@Override
+	public long getLastUsage() {
+		return mergeCells().lastUsage;
+	}
+
+	@Override
+	public StopwatchSample sample() {
+		Cell merged = mergeCells();
+		StopwatchSample sample = new StopwatchSample();
+		sample.setTotal(merged.total);
+		sample.setSelfTotal(getSelfTotal());
+		sample.setCounter(merged.counter);
+		sample.setMin(min.get());
+		sample.setMax(max.get());
+		sample.setMinTimestamp(minTimestamp);
+		sample.setMaxTimestamp(maxTimestamp);
+		sample.setActive(active.get());
+		sample.setMaxActive(maxActive.get());
+		sample.setMaxActiveTimestamp(maxActiveTimestamp);
+		sample.setMean(merged.mean);
+		double variance = merged.variance();
+		sample.setVariance(variance);
+		sample.setVarianceN(merged.varianceN());
+		sample.setStandardDeviation(Math.sqrt(variance));
+		sample.setLast(merged.last);
+		sampleCommon(sample);
+		sample.setFirstUsage(firstUsageMs.get());
+		sample.setLastUsage(merged.lastUsage);
+		return sample;
+	}
+
+	/**
+	 * Returns Simon basic information, total time, counter, max value and min value as a human readable string.
+	 *
+	 * @return basic information, total time, counter, max and min values
+	 * @see AbstractSimon#toString()
+	 */
+	@Override
+	public String toString() {
+		Cell merged = mergeCells();
+		return "Simon Stopwatch: total " + SimonUtils.presentNanoTime(merged.total) +
+			", counter " + merged.counter +
+			", max " + SimonUtils.presentNanoTime(max.get()) +
+			", min " + SimonUtils.presentNanoTime(min.get()) +
+			", mean " + SimonUtils.presentNanoTime((long) merged.mean) +
+			super.toString();
+	}
+
+	/** One stripe of the Stopwatch statistics. */
+	@SuppressWarnings({"unused", "serial"})
+	private static final class Cell extends StripedCell {
+
+		private long counter;
+		private long total;
+		private double mean;
+		private double mean2;
+		private long last;
+		private long lastNanos;
+		private long lastUsage;
+
+		private long q0, q1, q2, q3, q4, q5, q6;
+
+		void updateUsage(long now) {
+			if (now > lastUsage) {
+				lastUsage = now;
+			}
+		}
+
+		void addSplit(long split, long nowNanos, long now) {
+			updateUsage(now);
+			last = split;
+			lastNanos = nowNanos;
+			total += split;
+			counter++;
+			double delta = split - mean;
+			mean = ((double) total) / counter;
+			mean2 += delta * (split - mean);
+		}
+
+		/** Merges other cell into this one, variance is combined using Chan's parallel algorithm. */
+		void merge(Cell other) {
+			updateUsage(other.lastUsage);
+			if (other.counter == 0) {
+				return;
+			}
+			if (counter == 0 || other.lastNanos - lastNanos > 0) {
+				last = other.last;
+				lastNanos = other.lastNanos;
+			}
+			long newCounter = counter + other.counter;
+			double delta = other.mean - mean;
+			mean2 += other.mean2 + delta * delta * ((double) counter * other.counter / newCounter);
+			counter = newCounter;
+			total += other.total;
+			mean = ((double) total) / counter;
+		}
+
+		double variance() {
+			if (counter == 0) {
+				return Double.NaN;
+			}
+			if (counter == 1) {
+				return 0d;
+			}
+			return mean2 / (counter - 1);
+		}
+
+		double varianceN() {
+			if (counter == 0) {
+				return Double.NaN;
+			}
+			if (counter == 1) {
+				return 0d;
+			}
+			return mean2 / counter;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package org.javasimon;
+
+import org.javasimon.utils.SimonUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable set of tags (key-value pairs) identifying the tagged Stopwatch or Counter. Tagged Simon is
+ * a child of the base Simon (see {@link Stopwatch#tagged(Tags)} and {@link Counter#tagged(Tags)}) with
+ * the local name derived from the tags, e.g. {@code [method-GET][status-200]} - hence tagged Simons are part
+ * of the hierarchy and they are visible in JMX or Simon Console like any other Simons.
+ * <p/>
+ * Tags are sorted by the key, so the order in which they are specified does not matter. Characters
+ * not allowed in Simon names are replaced by {@code _} (in keys also {@code -}, in values also the hierarchy
+ * delimiter). Tag sets are interned - the same instance is returned for the same tags (up to {@value #MAX_INTERNED}
+ * different tag sets). Tags should be created once and reused, lookup of the tagged Simon with the same
+ * instance of the tags does not allocate anything.
+ * <p/>
+ * Tagged Simons can be aggregated by the tag value via
+ * {@link org.javasimon.utils.SimonUtils#calculateStopwatchAggregateByTag(Simon, String)} and similar methods.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class Tags {
+
+	/** Maximal number of interned tag sets, further tag sets are still equal, but not the same instances. */
+	public static final int MAX_INTERNED = 10000;
+
+	/** Empty tag set, tagged Simon with empty tags is the base Simon itself. */
+	public static final Tags EMPTY = new Tags(new String[0], new String[0]);
+
+	private static final ConcurrentMap<String, Tags> INTERNED = new ConcurrentHashMap<>();
+
+	private final String[] keys;
+	private final String[] values;
+	private final String localName;
+
+	private Tags(String[] keys, String[] values) {
+		this.keys = keys;
+		this.values = values;
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			sb.append('[').append(keys[i]).append('-').append(values[i]).append(']');
+		}
+		this.localName = sb.toString();
+	}
+
+	/**
+	 * Returns tag set for the specified keys and values.
+	 *
+	 * @param keysAndValues keys and values alternating (key1, value1, key2, value2...)
+	 * @return interned tag set
+	 * @throws SimonException if odd number of arguments is provided or keys are duplicated
+	 */
+	public static Tags of(String... keysAndValues) {
+		if (keysAndValues.length % 2 != 0) {
+			throw new SimonException("Tags must be specified as key-value pairs: " + Arrays.toString(keysAndValues));
+		}
+		int size = keysAndValues.length / 2;
+		if (size == 0) {
+			return EMPTY;
+		}
+		String[] keys = new String[size];
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			String key = sanitize(keysAndValues[2 * i], true);
+			String value = sanitize(keysAndValues[2 * i + 1], false);
+			// insertion sort, tag sets are small
+			int j = i;
+			while (j > 0 && keys[j - 1].compareTo(key) > 0) {
+				keys[j] = keys[j - 1];
+				values[j] = values[j - 1];
+				j--;
+			}
+			if (j > 0 && keys[j - 1].equals(key)) {
+				throw new SimonException("Duplicate tag key: " + key);
+			}
+			keys[j] = key;
+			values[j] = value;
+		}
+		return intern(new Tags(keys, values));
+	}
+
+	/**
+	 * Returns tag set represented by the local name of the tagged Simon.
+	 *
+	 * @param localName local name of the Simon (part after the last hierarchy delimiter)
+	 * @return tag set or {@code null} if the name does not represent tags
+	 */
+	public static Tags fromLocalName(String localName) {
+		Tags tags = INTERNED.get(localName);
+		if (tags != null) {
+			return tags;
+		}
+		if (localName.isEmpty() || localName.charAt(0) != '[' || localName.charAt(localName.length() - 1) != ']') {
+			return null;
+		}
+		List<String> keysAndValues = new ArrayList<>();
+		for (String tag : localName.substring(1, localName.length() - 1).split("\\]\\[", -1)) {
+			int ix = tag.indexOf('-');
+			if (ix <= 0 || tag.indexOf('[') != -1 || tag.indexOf(']') != -1) {
+				return null;
+			}
+			keysAndValues.add(tag.substring(0, ix));
+			keysAndValues.add(tag.substring(ix + 1));
+		}
+		try {
+			tags = of(keysAndValues.toArray(new String[keysAndValues.size()]));
+		} catch (SimonException e) {
+			return null;
+		}
+		return tags.localName.equals(localName) ? tags : null;
+	}
+
+	private static Tags intern(Tags tags) {
+		Tags interned = INTERNED.get(tags.localName);
+		if (interned != null) {
+			return interned;
+		}
+		if (INTERNED.size() >= MAX_INTERNED) {
+			return tags;
+		}
+		interned = INTERNED.putIfAbsent(tags.localName, tags);
+		return interned != null ? interned : tags;
+	}
+
+	private static String sanitize(String s, boolean key) {
+		if (s == null || s.isEmpty()) {
+			throw new SimonException("Tag keys and values must not be empty");
+		}
+		char[] chars = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '.' || c == '[' || c == ']' || (key && c == '-') || SimonUtils.ALLOWED_CHARS.indexOf(c) == -1) {
+				if (chars == null) {
+					chars = s.toCharArray();
+				}
+				chars[i] = '_';
+			}
+		}
+		return chars != null ? new String(chars) : s;
+	}
+
+	/**
+	 * Returns tag set with added (or replaced) tag.
+	 *
+	 * @param key tag key
+	 * @param value tag value
+	 * @return new interned tag set
+	 */
+	public Tags with(String key, String value) {
+		String sanitizedKey = sanitize(key, true);
+		List<String> keysAndValues = new ArrayList<>();
+		for (int i = 0; i < keys.length; i++) {
+			if (!keys[i].equals(sanitizedKey)) {
+				keysAndValues.add(keys[i]);
+				keysAndValues.add(values[i]);
+			}
+		}
+		keysAndValues.add(sanitizedKey);
+		keysAndValues.add(value);
+		return of(keysAndValues.toArray(new String[keysAndValues.size()]));
+	}
+
+	/**
+	 * Returns value of the tag.
+	 *
+	 * @param key tag key
+	 * @return tag value or {@code null} if there is no such tag
+	 */
+	public String get(String key) {
+		int ix = Arrays.binarySearch(keys, key);
+		return ix >= 0 ? values[ix] : null;
+	}
+
+	/**
+	 * Returns sorted keys of the tags.
+	 *
+	 * @return unmodifiable list of keys
+	 */
+	public List<String> getKeys() {
+		return Collections.unmodifiableList(Arrays.asList(keys));
+	}
+
+	/**
+	 * Returns number of tags.
+	 *
+	 * @return number of tags
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns true if this tag set contains all the tags of the other tag set.
+	 *
+	 * @param other other tag set
+	 * @return true if all other tags are contained in this tag set
+	 */
+	public boolean containsAll(Tags other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if (!other.values[i].equals(get(other.keys[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns local name of the tagged Simon with these tags.
+	 *
+	 * @return local name of the tagged Simon
+	 */
+	public String getLocalName() {
+		return localName;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || o instanceof Tags && localName.equals(((Tags) o).localName);
+	}
+
+	@Override
+	public int hashCode() {
+		return localName.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return localName;
+	}
+}
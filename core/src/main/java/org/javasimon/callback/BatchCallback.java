@@ -0,0 +1,30 @@
+package org.javasimon.callback;
+
+import org.javasimon.Stopwatch;
+
+/**
+ * Batch callback receives durations of the stopped (or added) splits in batches instead of one call per split.
+ * Batch callback is not registered with the manager directly - it is wrapped into {@link BatchCallbackAdapter}
+ * that buffers the splits and flushes them by size or time, for example:
+ * <pre>
+ * manager.callback().addCallback(new BatchCallbackAdapter(myBatchCallback));</pre>
+ * Batch contains splits of a single Stopwatch. Batches of the same Stopwatch may be delivered concurrently
+ * from different threads (see {@link BatchCallbackAdapter.Buffering}), order of the splits across batches
+ * is not guaranteed.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see BatchCallbackAdapter
+ * @since 4.2
+ */
+public interface BatchCallback {
+
+	/**
+	 * Processes batch of the split durations of the Stopwatch. Array is reused by the adapter after this
+	 * method returns, hence implementations must not keep the reference to it.
+	 *
+	 * @param stopwatch Stopwatch of the splits
+	 * @param durations split durations in ns, only first {@code count} values are valid
+	 * @param count number of the splits in the batch, always at least 1
+	 */
+	void onStopwatchStops(Stopwatch stopwatch, long[] durations, int count);
+}
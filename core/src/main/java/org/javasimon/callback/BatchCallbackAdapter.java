@@ -0,0 +1,353 @@
+package org.javasimon.callback;
+
+import org.javasimon.Manager;
+import org.javasimon.Simon;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Callback adapting {@link BatchCallback} to the standard {@link Callback} contract. Durations of the stopped
+ * and added splits are buffered per Stopwatch and delivered to the batch callback when the batch is full,
+ * when the oldest split in the batch is older than the maximal delay or when {@link #flush()} is called.
+ * Buffers can be kept per thread (default, no contention between threads) or shared by all threads per Stopwatch
+ * (fewer and bigger batches) - see {@link Buffering}.
+ * <p/>
+ * Age of the batch is checked when the split is added into it and also periodically by a daemon thread started
+ * on {@link #initialize(Manager)}, so batches of idle Stopwatches are delivered at most twice the maximal delay late.
+ * All batches are flushed on {@link #cleanup()}, on {@link #onManagerClear()} and batch of the destroyed Stopwatch
+ * is flushed on {@link #onSimonDestroyed(Simon)}. Batch found empty by two subsequent flushes is removed, so batches
+ * of finished threads and unused Stopwatches do not stay in the adapter forever - with no maximal delay this happens
+ * only on explicit {@link #flush()}.
+ * <p/>
+ * Batch callback is called while the batch is locked, hence with {@link Buffering#PER_STOPWATCH} slow batch callback
+ * delays other threads stopping the same Stopwatch only when the batch is flushed.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class BatchCallbackAdapter extends CallbackSkeleton implements SampleIgnoringCallback {
+
+	/** Default number of splits in the batch. */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	/** Default maximal delay of the split delivery in ms. */
+	public static final long DEFAULT_MAX_DELAY_MS = 1000;
+
+	/** The way how the splits are buffered. */
+	public enum Buffering {
+		/** Each thread has its own batch for each Stopwatch. */
+		PER_THREAD,
+		/** All threads share one batch per Stopwatch. */
+		PER_STOPWATCH
+	}
+
+	private final BatchCallback batchCallback;
+	private final Buffering buffering;
+	private final int batchSize;
+	private final long maxDelayNanos;
+
+	/** All batches regardless of the buffering, used for flushing. */
+	private final Queue<Batch> batches = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<ThreadBatches> threadBatches = new ThreadLocal<ThreadBatches>() {
+		@Override
+		protected ThreadBatches initialValue() {
+			return new ThreadBatches();
+		}
+	};
+
+	/** Incremented when any batch is removed, per-thread maps of older generation drop their removed batches. */
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private final ConcurrentHashMap<Stopwatch, Batch> stopwatchBatches = new ConcurrentHashMap<>();
+
+	private Manager manager;
+	private ScheduledExecutorService flushService;
+
+	/**
+	 * Creates adapter with per-thread buffering, default batch size and maximal delay.
+	 *
+	 * @param batchCallback wrapped batch callback
+	 */
+	public BatchCallbackAdapter(BatchCallback batchCallback) {
+		this(batchCallback, Buffering.PER_THREAD, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MS);
+	}
+
+	/**
+	 * Creates adapter with specified buffering, batch size and maximal delay.
+	 *
+	 * @param batchCallback wrapped batch callback
+	 * @param buffering buffering of the splits
+	 * @param batchSize maximal number of splits in the batch
+	 * @param maxDelayMs maximal delay of the split delivery in ms, 0 means that batches are flushed only when full
+	 * (or explicitly)
+	 */
+	public BatchCallbackAdapter(BatchCallback batchCallback, Buffering buffering, int batchSize, long maxDelayMs) {
+		if (batchCallback == null || buffering == null) {
+			throw new IllegalArgumentException("Batch callback and buffering must not be null");
+		}
+		if (batchSize <= 0 || maxDelayMs < 0) {
+			throw new IllegalArgumentException("Batch size must be positive and max delay must not be negative");
+		}
+		this.batchCallback = batchCallback;
+		this.buffering = buffering;
+		this.batchSize = batchSize;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+	}
+
+	/**
+	 * Returns wrapped batch callback.
+	 *
+	 * @return batch callback
+	 */
+	public BatchCallback getBatchCallback() {
+		return batchCallback;
+	}
+
+	/**
+	 * Returns buffering of the splits.
+	 *
+	 * @return buffering
+	 */
+	public Buffering getBuffering() {
+		return buffering;
+	}
+
+	/**
+	 * Returns maximal number of splits in the batch.
+	 *
+	 * @return batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Returns number of batches currently held by the adapter.
+	 *
+	 * @return number of batches
+	 */
+	int getBatchCount() {
+		return batches.size();
+	}
+
+	@Override
+	public synchronized void initialize(Manager manager) {
+		this.manager = manager;
+		if (maxDelayNanos > 0 && flushService == null) {
+			flushService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "javasimon-batchFlush");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			flushService.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					flushOlderThan(maxDelayNanos);
+				}
+			}, maxDelayNanos, maxDelayNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void cleanup() {
+		if (flushService != null) {
+			flushService.shutdown();
+			flushService = null;
+		}
+		flush();
+	}
+
+	@Override
+	public void onStopwatchStop(Split split, StopwatchSample sample) {
+		add(split.getStopwatch(), split.runningFor());
+	}
+
+	@Override
+	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
+		add(stopwatch, split.runningFor());
+	}
+
+	@Override
+	public void onSimonDestroyed(Simon simon) {
+		if (simon instanceof Stopwatch) {
+			for (Batch batch : batches) {
+				if (batch.stopwatch == simon) {
+					batch.remove();
+					unlink(batch);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onManagerClear() {
+		for (Batch batch : batches) {
+			batch.remove();
+			unlink(batch);
+		}
+	}
+
+	/** Delivers all buffered splits to the batch callback. */
+	public void flush() {
+		flushOlderThan(0);
+	}
+
+	private void flushOlderThan(long ageNanos) {
+		long now = nanoTime();
+		for (Batch batch : batches) {
+			if (batch.flushOlderThan(now, ageNanos)) {
+				unlink(batch);
+			}
+		}
+	}
+
+	/** Forgets the removed batch, per-thread maps drop it lazily when they notice the new generation. */
+	private void unlink(Batch batch) {
+		batches.remove(batch);
+		if (buffering == Buffering.PER_STOPWATCH) {
+			stopwatchBatches.remove(batch.stopwatch, batch);
+		}
+		generation.incrementAndGet();
+	}
+
+	private void add(Stopwatch stopwatch, long duration) {
+		long now = nanoTime();
+		while (!batch(stopwatch).add(duration, now)) {
+			// batch was removed concurrently, the split goes into a new one
+		}
+	}
+
+	private Batch batch(Stopwatch stopwatch) {
+		Batch batch;
+		if (buffering == Buffering.PER_THREAD) {
+			ThreadBatches thread = threadBatches.get();
+			int currentGeneration = generation.get();
+			if (thread.generation != currentGeneration) {
+				thread.dropRemoved(currentGeneration);
+			}
+			batch = thread.map.get(stopwatch);
+			if (batch == null || batch.removed) {
+				batch = new Batch(stopwatch);
+				thread.map.put(stopwatch, batch);
+				batches.add(batch);
+			}
+		} else {
+			batch = stopwatchBatches.get(stopwatch);
+			if (batch != null && batch.removed) {
+				stopwatchBatches.remove(stopwatch, batch);
+				batch = null;
+			}
+			if (batch == null) {
+				Batch newBatch = new Batch(stopwatch);
+				batch = stopwatchBatches.putIfAbsent(stopwatch, newBatch);
+				if (batch == null) {
+					batch = newBatch;
+					batches.add(batch);
+				}
+			}
+		}
+		return batch;
+	}
+
+	private long nanoTime() {
+		Manager manager = this.manager;
+		return manager != null ? manager.nanoTime() : System.nanoTime();
+	}
+
+	/** Batches of one thread. */
+	private final class ThreadBatches {
+
+		private final Map<Stopwatch, Batch> map = new IdentityHashMap<>();
+		private int generation = BatchCallbackAdapter.this.generation.get();
+
+		/** Drops removed batches, they would otherwise keep destroyed Stopwatches reachable. */
+		void dropRemoved(int newGeneration) {
+			Iterator<Batch> iterator = map.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().removed) {
+					iterator.remove();
+				}
+			}
+			generation = newGeneration;
+		}
+	}
+
+	/** Buffer of the split durations of one Stopwatch. */
+	private final class Batch {
+
+		private final Stopwatch stopwatch;
+		private final long[] durations = new long[batchSize];
+		private int count;
+		private long firstNanos;
+
+		/** Set when the batch is found empty by the flush, batch empty on two subsequent flushes is removed. */
+		private boolean idle;
+
+		/** Removed batch does not accept splits anymore, they are added to a new batch instead. */
+		private volatile boolean removed;
+
+		Batch(Stopwatch stopwatch) {
+			this.stopwatch = stopwatch;
+		}
+
+		/** Adds the split duration, returns false if the batch was removed in the meantime. */
+		synchronized boolean add(long duration, long nowNanos) {
+			if (removed) {
+				return false;
+			}
+			idle = false;
+			if (count == 0) {
+				firstNanos = nowNanos;
+			}
+			durations[count++] = duration;
+			if (count == durations.length || (maxDelayNanos > 0 && nowNanos - firstNanos >= maxDelayNanos)) {
+				flush();
+			}
+			return true;
+		}
+
+		/** Flushes the batch if it is old enough, returns true if the batch was removed because it stayed empty. */
+		synchronized boolean flushOlderThan(long nowNanos, long ageNanos) {
+			if (count == 0) {
+				if (idle) {
+					removed = true;
+					return true;
+				}
+				idle = true;
+			} else if (nowNanos - firstNanos >= ageNanos) {
+				flush();
+			}
+			return false;
+		}
+
+		synchronized void remove() {
+			removed = true;
+			flush();
+		}
+
+		synchronized void flush() {
+			if (count > 0) {
+				int batchCount = count;
+				count = 0;
+				batchCallback.onStopwatchStops(stopwatch, durations, batchCount);
+			}
+		}
+	}
+}
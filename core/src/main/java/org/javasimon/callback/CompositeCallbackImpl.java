@@ -7,20 +7,45 @@ import org.javasimon.Simon;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
+import org.javasimon.callback.async.AsyncCallback;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Composite callbacks holds child-callbacks and delegates any operations to all of them.
  * It implements {@link #callbacks()}, {@link #addCallback(Callback)} and {@link #removeCallback(Callback)}.
+ * <p/>
+ * Events are dispatched using per-event tables rebuilt whenever a child-callback is added or removed. Callback
+ * extending {@link CallbackSkeleton} is put only into tables of the events it overrides, so the no-op methods
+ * are never called - this is checked once, when the callback is added. {@link AsyncCallback} gets the events
+ * its wrapped callback handles, composite callbacks provided by Java Simon get the events handled by any of their
+ * children. Other callbacks (including other composite ones) get all the events.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class CompositeCallbackImpl implements CompositeCallback {
 
+	private static final Callback[] NO_CALLBACKS = new Callback[0];
+
+	/** Events providing the sample of the Simon to the callback. */
+	private static final Event[] SAMPLE_EVENTS = {
+		Event.STOPWATCH_STOP, Event.STOPWATCH_ADD, Event.COUNTER_INCREASE, Event.COUNTER_DECREASE, Event.COUNTER_SET};
+
 	private List<Callback> callbacks = new CopyOnWriteArrayList<>();
 
+	/** Callbacks handling the event indexed by {@link Event#ordinal()}, replaced as a whole on every change. */
+	private volatile Callback[][] dispatchTable = createDispatchTable(Collections.<Callback>emptyList());
+
+	/** Whether any callback (recursively) requires samples, recomputed with the dispatch table. */
+	private volatile boolean sampleRequired;
+
+	/** Composite callbacks having this one as a child, notified when the children of this one change. */
+	private final List<CompositeCallbackImpl> parents = new CopyOnWriteArrayList<>();
+
 	private Manager manager; // not null indicates, that this callback is initialized (joined to manager)
 
 	/** Calls initialize on all children. */
@@ -40,13 +65,14 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 	}
 
 	/**
-	 * Returns the list of all child-callbacks.
+	 * Returns the unmodifiable list of all child-callbacks - use {@link #addCallback(Callback)}
+	 * and {@link #removeCallback(Callback)} to change it.
 	 *
 	 * @return children list
 	 */
 	@Override
 	public List<Callback> callbacks() {
-		return callbacks;
+		return Collections.unmodifiableList(callbacks);
 	}
 
 	/**
@@ -59,7 +85,14 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 		if (manager != null) {
 			callback.initialize(manager);
 		}
-		callbacks.add(callback);
+		synchronized (callbacks) {
+			callbacks.add(callback);
+			CompositeCallbackImpl composite = innerComposite(callback);
+			if (composite != null) {
+				composite.parents.add(this);
+			}
+			rebuildDispatchTable();
+		}
 	}
 
 	/**
@@ -69,12 +102,135 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 	 */
 	@Override
 	public void removeCallback(Callback callback) {
-		callbacks.remove(callback);
+		synchronized (callbacks) {
+			callbacks.remove(callback);
+			CompositeCallbackImpl composite = innerComposite(callback);
+			if (composite != null) {
+				composite.parents.remove(this);
+			}
+			rebuildDispatchTable();
+		}
 		if (manager != null) {
 			callback.cleanup();
 		}
 	}
 
+	/** Rebuilds the dispatch table and the sample requirement, then does the same for the parents. */
+	private void rebuildDispatchTable() {
+		synchronized (callbacks) {
+			dispatchTable = createDispatchTable(callbacks);
+			boolean required = false;
+			for (Callback callback : callbacks) {
+				required |= isSampleRequired(callback);
+			}
+			sampleRequired = required;
+		}
+		for (CompositeCallbackImpl parent : parents) {
+			parent.rebuildDispatchTable();
+		}
+	}
+
+	private static Callback[][] createDispatchTable(List<Callback> callbacks) {
+		Event[] events = Event.values();
+		Callback[][] table = new Callback[events.length][];
+		for (Event event : events) {
+			List<Callback> eventCallbacks = new ArrayList<>();
+			for (Callback callback : callbacks) {
+				if (handlesEvent(callback, event)) {
+					eventCallbacks.add(callback);
+				}
+			}
+			table[event.ordinal()] = eventCallbacks.isEmpty() ? NO_CALLBACKS : eventCallbacks.toArray(NO_CALLBACKS);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns true if the callback may do something for the event - that is always the case unless the callback
+	 * extends {@link CallbackSkeleton} and does not override the method for the event or it is a composite callback
+	 * provided by Java Simon without any child handling the event. Simons use this to avoid creating objects
+	 * only for callbacks (e.g. Split for {@link org.javasimon.Stopwatch#startNanos()}).
+	 *
+	 * @param callback tested callback (typically {@link org.javasimon.Manager#callback()})
+	 * @param event callback event
+	 * @return false if the callback method for the event is surely a no-op
+	 * @since 4.2
+	 */
+	public static boolean handlesEvent(Callback callback, Event event) {
+		if (callback instanceof AsyncCallback) {
+			return handlesEvent(((AsyncCallback) callback).getDelegate(), event);
+		}
+		CompositeCallbackImpl composite = innerComposite(callback);
+		if (composite != null) {
+			return composite.dispatchTable[event.ordinal()].length > 0;
+		}
+		if (!(callback instanceof CallbackSkeleton)) {
+			return true;
+		}
+		Method method = eventMethod(callback.getClass(), event);
+		return method == null || method.getDeclaringClass() != CallbackSkeleton.class;
+	}
+
+	private static Method eventMethod(Class<?> callbackClass, Event event) {
+		try {
+			switch (event) {
+				case STOPWATCH_START:
+					return callbackClass.getMethod("onStopwatchStart", Split.class);
+				case STOPWATCH_STOP:
+					return callbackClass.getMethod("onStopwatchStop", Split.class, StopwatchSample.class);
+				case STOPWATCH_ADD:
+					return callbackClass.getMethod("onStopwatchAdd", Stopwatch.class, Split.class, StopwatchSample.class);
+				case COUNTER_INCREASE:
+					return callbackClass.getMethod("onCounterIncrease", Counter.class, long.class, CounterSample.class);
+				case COUNTER_DECREASE:
+					return callbackClass.getMethod("onCounterDecrease", Counter.class, long.class, CounterSample.class);
+				case COUNTER_SET:
+					return callbackClass.getMethod("onCounterSet", Counter.class, long.class, CounterSample.class);
+				case CREATED:
+					return callbackClass.getMethod("onSimonCreated", Simon.class);
+				case DESTROYED:
+					return callbackClass.getMethod("onSimonDestroyed", Simon.class);
+				case MANAGER_CLEAR:
+					return callbackClass.getMethod("onManagerClear");
+				case MESSAGE:
+					return callbackClass.getMethod("onManagerMessage", String.class);
+				case WARNING:
+					return callbackClass.getMethod("onManagerWarning", String.class, Exception.class);
+				default:
+					return null;
+			}
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/** Non-composite callback needs samples if it handles any event with a sample that is not sample ignoring. */
+	private static boolean requiresSample(Callback callback) {
+		for (Event event : SAMPLE_EVENTS) {
+			if (handlesEvent(callback, event) && !ignoresSample(callback.getClass(), event)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Event method ignores the sample if it is declared in the class implementing {@link SampleIgnoringCallback}
+	 * directly - subclass overriding the method gets the sample again unless it declares the interface as well.
+	 */
+	private static boolean ignoresSample(Class<?> callbackClass, Event event) {
+		Method method = eventMethod(callbackClass, event);
+		if (method == null) {
+			return false;
+		}
+		for (Class<?> implementedInterface : method.getDeclaringClass().getInterfaces()) {
+			if (SampleIgnoringCallback.class.isAssignableFrom(implementedInterface)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/** Removes specified callback from this callback, properly cleans up all the removed callbacks. */
 	@Override
 	public void removeAllCallbacks() {
@@ -83,6 +239,54 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 		}
 	}
 
+	/**
+	 * Returns true if any of the child-callbacks (recursively) requires samples in event methods.
+	 *
+	 * @return true if sample must be created for the event methods
+	 * @see #isSampleRequired(Callback)
+	 * @since 4.2
+	 */
+	public boolean isSampleRequired() {
+		return sampleRequired;
+	}
+
+	/**
+	 * Returns true if the callback requires samples in event methods - that is it handles any event with a sample
+	 * and the method for the event is not declared by a {@link SampleIgnoringCallback}. Composite callbacks
+	 * provided by Java Simon are checked recursively, other composite callbacks always require samples.
+	 * Simons use this to decide whether to create the sample for the callback at all.
+	 *
+	 * @param callback checked callback (typically {@link org.javasimon.Manager#callback()})
+	 * @return true if sample must be created for the event methods
+	 * @since 4.2
+	 */
+	public static boolean isSampleRequired(Callback callback) {
+		if (callback instanceof CompositeCallbackImpl) {
+			return ((CompositeCallbackImpl) callback).isSampleRequired();
+		}
+		if (callback instanceof CompositeFilterCallback) {
+			return ((CompositeFilterCallback) callback).isSampleRequired();
+		}
+		if (callback instanceof AsyncCallback) {
+			return isSampleRequired(((AsyncCallback) callback).getDelegate());
+		}
+		return callback instanceof CompositeCallback || requiresSample(callback);
+	}
+
+	/**
+	 * Returns the composite callback provided by Java Simon (even when wrapped) that must notify this callback when
+	 * its children change, or {@code null} for other callbacks.
+	 */
+	private static CompositeCallbackImpl innerComposite(Callback callback) {
+		if (callback instanceof AsyncCallback) {
+			return innerComposite(((AsyncCallback) callback).getDelegate());
+		}
+		if (callback instanceof CompositeFilterCallback) {
+			return ((CompositeFilterCallback) callback).composite();
+		}
+		return callback instanceof CompositeCallbackImpl ? (CompositeCallbackImpl) callback : null;
+	}
+
 	/** Calls deactivate on all children. */
 	@Override
 	public void cleanup() {
@@ -98,77 +302,77 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 
 	@Override
 	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.STOPWATCH_ADD.ordinal()]) {
 			callback.onStopwatchAdd(stopwatch, split, sample);
 		}
 	}
 
 	@Override
 	public void onStopwatchStart(Split split) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.STOPWATCH_START.ordinal()]) {
 			callback.onStopwatchStart(split);
 		}
 	}
 
 	@Override
 	public void onStopwatchStop(Split split, StopwatchSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.STOPWATCH_STOP.ordinal()]) {
 			callback.onStopwatchStop(split, sample);
 		}
 	}
 
 	@Override
 	public void onCounterDecrease(Counter counter, long dec, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.COUNTER_DECREASE.ordinal()]) {
 			callback.onCounterDecrease(counter, dec, sample);
 		}
 	}
 
 	@Override
 	public void onCounterIncrease(Counter counter, long inc, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.COUNTER_INCREASE.ordinal()]) {
 			callback.onCounterIncrease(counter, inc, sample);
 		}
 	}
 
 	@Override
 	public void onCounterSet(Counter counter, long val, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.COUNTER_SET.ordinal()]) {
 			callback.onCounterSet(counter, val, sample);
 		}
 	}
 
 	@Override
 	public void onSimonCreated(Simon simon) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.CREATED.ordinal()]) {
 			callback.onSimonCreated(simon);
 		}
 	}
 
 	@Override
 	public void onSimonDestroyed(Simon simon) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.DESTROYED.ordinal()]) {
 			callback.onSimonDestroyed(simon);
 		}
 	}
 
 	@Override
 	public void onManagerClear() {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.MANAGER_CLEAR.ordinal()]) {
 			callback.onManagerClear();
 		}
 	}
 
 	@Override
 	public void onManagerMessage(String message) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.MESSAGE.ordinal()]) {
 			callback.onManagerMessage(message);
 		}
 	}
 
 	@Override
 	public void onManagerWarning(String warning, Exception cause) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatchTable[Event.WARNING.ordinal()]) {
 			callback.onManagerWarning(warning, cause);
 		}
 	}
@@ -5,6 +5,7 @@ import org.javasimon.CounterSample;
 import org.javasimon.Manager;
 import org.javasimon.Simon;
 import org.javasimon.SimonPattern;
+import org.javasimon.SimonPatternIndex;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
@@ -12,9 +13,6 @@ import org.javasimon.StopwatchSample;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
-
-import javax.script.ScriptException;
 
 /**
  * This callback combines Composite and Filter behavior. Filter can be configured
@@ -35,13 +33,14 @@ public final class CompositeFilterCallback implements FilterCallback, CompositeC
 
 	private CompositeCallbackImpl callback = new CompositeCallbackImpl();
 
-	private Map<Event, List<FilterRule>> rules;
+	/** Rules for each event indexed by their patterns, rules without pattern match all Simons. */
+	private Map<Event, SimonPatternIndex<FilterRule>> rules;
 
 	/** Constructs composite filter callback. */
 	public CompositeFilterCallback() {
 		rules = new EnumMap<>(Event.class);
 		for (Event event : Event.values()) {
-			rules.put(event, new CopyOnWriteArrayList<FilterRule>());
+			rules.put(event, new SimonPatternIndex<FilterRule>(true));
 		}
 	}
 
@@ -65,6 +64,22 @@ public final class CompositeFilterCallback implements FilterCallback, CompositeC
 		this.callback.removeAllCallbacks();
 	}
 
+	/**
+	 * Returns true if any of the child-callbacks (recursively) requires samples in event methods.
+	 *
+	 * @return true if sample must be created for the event methods
+	 * @see CompositeCallbackImpl#isSampleRequired(Callback)
+	 * @since 4.2
+	 */
+	public boolean isSampleRequired() {
+		return callback.isSampleRequired();
+	}
+
+	/** Returns the composite callback holding the children of this filter. */
+	CompositeCallbackImpl composite() {
+		return callback;
+	}
+
 	@Override
 	public void initialize(Manager manager) {
 		callback.initialize(manager);
@@ -160,34 +175,38 @@ public final class CompositeFilterCallback implements FilterCallback, CompositeC
 		FilterRule rule = new FilterRule(type, condition, simonPattern);
 		for (Event event : events) {
 			if (event != null) {
-				rules.get(event).add(rule);
+				rules.get(event).add(simonPattern, rule);
 			}
 		}
 		if (events.length == 0) {
-			rules.get(Event.ALL).add(rule);
+			rules.get(Event.ALL).add(simonPattern, rule);
 		}
 	}
 
 	private boolean rulesApplyTo(Simon simon, Event checkedEvent, Object... params) {
+		SimonPatternIndex.Snapshot<FilterRule> index = rules.get(checkedEvent).snapshot();
 		// only if event rules are empty, check rules for ALL as a fallback
-		if (rules.get(checkedEvent).size() == 0) {
-			return checkRules(simon, Event.ALL, params);
+		if (index.isEmpty()) {
+			index = rules.get(Event.ALL).snapshot();
 		}
-		return checkRules(simon, checkedEvent, params);
+		return checkRules(simon, index, params);
 	}
 
-	private boolean checkRules(Simon simon, Event event, Object... params) {
-		List<FilterRule> rulesForEvent = rules.get(event);
+	/** Rules and matching rules are read from the same version of the index, so concurrently added rules are not mixed in. */
+	private boolean checkRules(Simon simon, SimonPatternIndex.Snapshot<FilterRule> index, Object... params) {
+		List<FilterRule> rulesForEvent = index.values();
 		if (rulesForEvent.size() == 0) { // empty rule list => DENY
 			return false;
 		}
+		// rules with pattern matching the Simon - in the same order as all rules, pattern is not relevant without Simon
+		List<FilterRule> matchingRules = simon != null ? index.get(simon) : rulesForEvent;
+		int matchingIndex = 0;
 		boolean allMustSatisfied = false;
 		for (FilterRule rule : rulesForEvent) {
 			boolean result = false;
-			try {
-				result = patternAndConditionCheck(simon, rule, params);
-			} catch (ScriptException e) {
-				onManagerWarning("Script exception while evaluating rule expression", e);
+			if (matchingIndex < matchingRules.size() && matchingRules.get(matchingIndex) == rule) {
+				matchingIndex++;
+				result = rule.isConditionSatisfied(simon, params);
 			}
 
 			if (!result && rule.getType().equals(FilterRule.Type.MUST)) { // fast fail on MUST condition
@@ -204,12 +223,4 @@ public final class CompositeFilterCallback implements FilterCallback, CompositeC
 		}
 		return allMustSatisfied;
 	}
-
-	private boolean patternAndConditionCheck(Simon simon, FilterRule rule, Object... params) throws ScriptException {
-		//noinspection SimplifiableIfStatement
-		if (simon != null && rule.getPattern() != null && !rule.getPattern().accept(simon)) {
-			return false;
-		}
-		return rule.checkCondition(simon, params);
-	}
 }
\ No newline at end of file
@@ -0,0 +1,583 @@
+package org.javasimon.callback;
+
+import org.javasimon.Counter;
+import org.javasimon.Simon;
+import org.javasimon.SimonException;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+
+/**
+ * Compiled condition of the {@link FilterRule}. Condition is parsed once into an immutable tree of nodes
+ * that can be evaluated by any number of threads concurrently without any locking or allocation.
+ * <p/>
+ * Supported syntax (case is ignored):
+ * <ul>
+ * <li>variables {@code split, active, maxactive, counter, max, min, total, value} (see {@code FilterRule.VAR_*}),
+ * variable not relevant for the Simon (or event) evaluates to 0;</li>
+ * <li>numbers (also decimal) with optional time unit suffix {@code s}, {@code ms}, {@code us} or {@code ns}
+ * converting the number to nanoseconds, e.g. {@code 10ms};</li>
+ * <li>arithmetic operators {@code + - * / %} and unary minus;</li>
+ * <li>comparisons {@code < <= > >= == !=} or their XML friendly variants {@code lt le gt ge eq ne};</li>
+ * <li>logical operators {@code && || !} or {@code and or not}, boolean literals {@code true} and {@code false};</li>
+ * <li>parentheses.</li>
+ * </ul>
+ * Numeric values are evaluated as doubles - precise for all practical values of the nanosecond times.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+final class FilterExpression {
+
+	private final String source;
+	private final BooleanNode root;
+
+	private FilterExpression(String source, BooleanNode root) {
+		this.source = source;
+		this.root = root;
+	}
+
+	/**
+	 * Compiles the condition.
+	 *
+	 * @param condition condition source
+	 * @return compiled condition
+	 * @throws SimonException if the condition is not valid or does not return boolean
+	 */
+	static FilterExpression compile(String condition) {
+		Node root = new Parser(condition).parse();
+		if (!root.isBoolean()) {
+			throw new SimonException("Expression '" + condition + "' does not return boolean.");
+		}
+		return new FilterExpression(condition, (BooleanNode) root);
+	}
+
+	/**
+	 * Evaluates the condition for the Simon and event values.
+	 *
+	 * @param simon related Simon, may be {@code null}
+	 * @param split split of the event, may be {@code null}
+	 * @param value increment, decrement or set value of the counter event
+	 * @return result of the condition
+	 */
+	boolean test(Simon simon, Split split, long value) {
+		return root.test(simon, split, value);
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	/** Node of the expression tree - either {@link NumericNode} or {@link BooleanNode}. */
+	private abstract static class Node {
+
+		abstract boolean isBoolean();
+	}
+
+	/** Node evaluated to a number. */
+	private abstract static class NumericNode extends Node {
+		@Override
+		final boolean isBoolean() {
+			return false;
+		}
+
+		abstract double value(Simon simon, Split split, long value);
+	}
+
+	/** Node evaluated to a boolean. */
+	private abstract static class BooleanNode extends Node {
+		@Override
+		final boolean isBoolean() {
+			return true;
+		}
+
+		abstract boolean test(Simon simon, Split split, long value);
+	}
+
+	private static final class Constant extends NumericNode {
+		private final double constant;
+
+		Constant(double constant) {
+			this.constant = constant;
+		}
+
+		@Override
+		double value(Simon simon, Split split, long value) {
+			return constant;
+		}
+	}
+
+	private static final class BooleanConstant extends BooleanNode {
+		private final boolean constant;
+
+		BooleanConstant(boolean constant) {
+			this.constant = constant;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			return constant;
+		}
+	}
+
+	private enum Variable {
+		SPLIT(FilterRule.VAR_SPLIT),
+		ACTIVE(FilterRule.VAR_ACTIVE),
+		MAX_ACTIVE(FilterRule.VAR_MAX_ACTIVE),
+		COUNTER(FilterRule.VAR_COUNTER),
+		MAX(FilterRule.VAR_MAX),
+		MIN(FilterRule.VAR_MIN),
+		TOTAL(FilterRule.VAR_TOTAL),
+		VALUE(FilterRule.VAR_VALUE);
+
+		private final String name;
+
+		Variable(String name) {
+			this.name = name;
+		}
+
+		static Variable forName(String name) {
+			for (Variable variable : values()) {
+				if (variable.name.equals(name)) {
+					return variable;
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final class VariableNode extends NumericNode {
+		private final Variable variable;
+
+		VariableNode(Variable variable) {
+			this.variable = variable;
+		}
+
+		@Override
+		double value(Simon simon, Split split, long value) {
+			switch (variable) {
+				case SPLIT:
+					return split != null ? split.runningFor() : 0;
+				case VALUE:
+					return value;
+				default:
+					if (simon instanceof Stopwatch) {
+						return stopwatchValue((Stopwatch) simon);
+					}
+					if (simon instanceof Counter) {
+						return counterValue((Counter) simon);
+					}
+					return 0;
+			}
+		}
+
+		private double stopwatchValue(Stopwatch stopwatch) {
+			switch (variable) {
+				case ACTIVE:
+					return stopwatch.getActive();
+				case MAX_ACTIVE:
+					return stopwatch.getMaxActive();
+				case COUNTER:
+					return stopwatch.getCounter();
+				case MAX:
+					return stopwatch.getMax();
+				case MIN:
+					return stopwatch.getMin();
+				case TOTAL:
+					return stopwatch.getTotal();
+				default:
+					return 0;
+			}
+		}
+
+		private double counterValue(Counter counter) {
+			switch (variable) {
+				case COUNTER:
+					return counter.getCounter();
+				case MAX:
+					return counter.getMax();
+				case MIN:
+					return counter.getMin();
+				default:
+					return 0;
+			}
+		}
+	}
+
+	private static final class Negation extends NumericNode {
+		private final NumericNode operand;
+
+		Negation(NumericNode operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		double value(Simon simon, Split split, long value) {
+			return -operand.value(simon, split, value);
+		}
+	}
+
+	private static final class Arithmetic extends NumericNode {
+		private final char operator;
+		private final NumericNode left;
+		private final NumericNode right;
+
+		Arithmetic(char operator, NumericNode left, NumericNode right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double value(Simon simon, Split split, long value) {
+			double l = left.value(simon, split, value);
+			double r = right.value(simon, split, value);
+			switch (operator) {
+				case '+':
+					return l + r;
+				case '-':
+					return l - r;
+				case '*':
+					return l * r;
+				case '/':
+					return l / r;
+				default:
+					return l % r;
+			}
+		}
+	}
+
+	private enum Comparison {
+		LT, LE, GT, GE, EQ, NE
+	}
+
+	private static final class ComparisonNode extends BooleanNode {
+		private final Comparison comparison;
+		private final NumericNode left;
+		private final NumericNode right;
+
+		ComparisonNode(Comparison comparison, NumericNode left, NumericNode right) {
+			this.comparison = comparison;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			double l = left.value(simon, split, value);
+			double r = right.value(simon, split, value);
+			switch (comparison) {
+				case LT:
+					return l < r;
+				case LE:
+					return l <= r;
+				case GT:
+					return l > r;
+				case GE:
+					return l >= r;
+				case EQ:
+					return l == r;
+				default:
+					return l != r;
+			}
+		}
+	}
+
+	private static final class BooleanEquality extends BooleanNode {
+		private final boolean equal;
+		private final BooleanNode left;
+		private final BooleanNode right;
+
+		BooleanEquality(boolean equal, BooleanNode left, BooleanNode right) {
+			this.equal = equal;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			return (left.test(simon, split, value) == right.test(simon, split, value)) == equal;
+		}
+	}
+
+	private static final class Not extends BooleanNode {
+		private final BooleanNode operand;
+
+		Not(BooleanNode operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			return !operand.test(simon, split, value);
+		}
+	}
+
+	private static final class And extends BooleanNode {
+		private final BooleanNode left;
+		private final BooleanNode right;
+
+		And(BooleanNode left, BooleanNode right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			return left.test(simon, split, value) && right.test(simon, split, value);
+		}
+	}
+
+	private static final class Or extends BooleanNode {
+		private final BooleanNode left;
+		private final BooleanNode right;
+
+		Or(BooleanNode left, BooleanNode right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		boolean test(Simon simon, Split split, long value) {
+			return left.test(simon, split, value) || right.test(simon, split, value);
+		}
+	}
+
+	/** Recursive descent parser of the condition, not thread-safe (used only during compilation). */
+	private static final class Parser {
+
+		private final String source;
+		private final String text;
+		private int pos;
+
+		Parser(String source) {
+			this.source = source;
+			this.text = source.toLowerCase();
+		}
+
+		Node parse() {
+			Node node = or();
+			skipWhitespace();
+			if (pos < text.length()) {
+				throw error("unexpected '" + text.charAt(pos) + "'");
+			}
+			return node;
+		}
+
+		private Node or() {
+			Node node = and();
+			while (acceptSymbol("||") || acceptWord("or")) {
+				node = new Or(requireBoolean(node), requireBoolean(and()));
+			}
+			return node;
+		}
+
+		private Node and() {
+			Node node = not();
+			while (acceptSymbol("&&") || acceptWord("and")) {
+				node = new And(requireBoolean(node), requireBoolean(not()));
+			}
+			return node;
+		}
+
+		private Node not() {
+			if (acceptWord("not") || (!lookingAt("!=") && acceptSymbol("!"))) {
+				return new Not(requireBoolean(not()));
+			}
+			return comparison();
+		}
+
+		private Node comparison() {
+			Node left = additive();
+			Comparison comparison = comparisonOperator();
+			if (comparison == null) {
+				return left;
+			}
+			Node right = additive();
+			if (left.isBoolean() || right.isBoolean()) {
+				if (left.isBoolean() && right.isBoolean() && (comparison == Comparison.EQ || comparison == Comparison.NE)) {
+					return new BooleanEquality(comparison == Comparison.EQ, (BooleanNode) left, (BooleanNode) right);
+				}
+				throw error("numeric operands expected for comparison");
+			}
+			return new ComparisonNode(comparison, (NumericNode) left, (NumericNode) right);
+		}
+
+		private Comparison comparisonOperator() {
+			if (acceptSymbol("<=") || acceptWord("le")) {
+				return Comparison.LE;
+			}
+			if (acceptSymbol(">=") || acceptWord("ge")) {
+				return Comparison.GE;
+			}
+			if (acceptSymbol("==") || acceptWord("eq")) {
+				return Comparison.EQ;
+			}
+			if (acceptSymbol("!=") || acceptWord("ne")) {
+				return Comparison.NE;
+			}
+			if (acceptSymbol("<") || acceptWord("lt")) {
+				return Comparison.LT;
+			}
+			if (acceptSymbol(">") || acceptWord("gt")) {
+				return Comparison.GT;
+			}
+			return null;
+		}
+
+		private Node additive() {
+			Node node = multiplicative();
+			while (true) {
+				if (acceptSymbol("+")) {
+					node = new Arithmetic('+', requireNumeric(node), requireNumeric(multiplicative()));
+				} else if (acceptSymbol("-")) {
+					node = new Arithmetic('-', requireNumeric(node), requireNumeric(multiplicative()));
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node multiplicative() {
+			Node node = unary();
+			while (true) {
+				skipWhitespace();
+				char operator = pos < text.length() ? text.charAt(pos) : 0;
+				if (operator == '*' || operator == '/' || operator == '%') {
+					pos++;
+					node = new Arithmetic(operator, requireNumeric(node), requireNumeric(unary()));
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node unary() {
+			if (acceptSymbol("-")) {
+				return new Negation(requireNumeric(unary()));
+			}
+			if (acceptSymbol("+")) {
+				return requireNumeric(unary());
+			}
+			return primary();
+		}
+
+		private Node primary() {
+			skipWhitespace();
+			if (pos >= text.length()) {
+				throw error("unexpected end of expression");
+			}
+			char c = text.charAt(pos);
+			if (c == '(') {
+				pos++;
+				Node node = or();
+				if (!acceptSymbol(")")) {
+					throw error("')' expected");
+				}
+				return node;
+			}
+			if (Character.isDigit(c) || c == '.') {
+				return number();
+			}
+			if (Character.isLetter(c)) {
+				String word = word();
+				if (word.equals("true") || word.equals("false")) {
+					return new BooleanConstant(Boolean.parseBoolean(word));
+				}
+				Variable variable = Variable.forName(word);
+				if (variable == null) {
+					throw error("unknown variable '" + word + "'");
+				}
+				return new VariableNode(variable);
+			}
+			throw error("unexpected '" + c + "'");
+		}
+
+		private Node number() {
+			int start = pos;
+			while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+				pos++;
+			}
+			double number;
+			try {
+				number = Double.parseDouble(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw error("invalid number '" + text.substring(start, pos) + "'");
+			}
+			if (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+				String unit = word();
+				switch (unit) {
+					case "s":
+						number *= 1000000000d;
+						break;
+					case "ms":
+						number *= 1000000d;
+						break;
+					case "us":
+						number *= 1000d;
+						break;
+					case "ns":
+						break;
+					default:
+						throw error("unknown time unit '" + unit + "'");
+				}
+			}
+			return new Constant(number);
+		}
+
+		private String word() {
+			int start = pos;
+			while (pos < text.length() && Character.isLetterOrDigit(text.charAt(pos))) {
+				pos++;
+			}
+			return text.substring(start, pos);
+		}
+
+		private boolean lookingAt(String symbol) {
+			skipWhitespace();
+			return text.startsWith(symbol, pos);
+		}
+
+		private boolean acceptSymbol(String symbol) {
+			if (lookingAt(symbol)) {
+				pos += symbol.length();
+				return true;
+			}
+			return false;
+		}
+
+		private boolean acceptWord(String word) {
+			skipWhitespace();
+			int end = pos + word.length();
+			if (text.startsWith(word, pos) && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+				pos = end;
+				return true;
+			}
+			return false;
+		}
+
+		private void skipWhitespace() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private BooleanNode requireBoolean(Node node) {
+			if (!node.isBoolean()) {
+				throw error("boolean operand expected");
+			}
+			return (BooleanNode) node;
+		}
+
+		private NumericNode requireNumeric(Node node) {
+			if (node.isBoolean()) {
+				throw error("numeric operand expected");
+			}
+			return (NumericNode) node;
+		}
+
+		private SimonException error(String message) {
+			return new SimonException("Invalid expression '" + source + "': " + message + " at position " + pos);
+		}
+	}
+}
@@ -2,20 +2,10 @@ package org.javasimon.callback;
 
 import org.javasimon.Counter;
 import org.javasimon.Simon;
-import org.javasimon.SimonException;
 import org.javasimon.SimonPattern;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
-import org.javasimon.utils.Replacer;
 
-import java.math.BigDecimal;
-
-import javax.script.Bindings;
-import javax.script.Compilable;
-import javax.script.CompiledScript;
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 /**
@@ -29,6 +19,9 @@ import javax.script.ScriptException;
  * next rules are checked
  * </ul>
  * As the order is important not all MUST rules must pass if there is any satisfied SUFFICE rule before.
+ * <p/>
+ * Condition is compiled when the rule is created and can be checked by many threads concurrently - see
+ * {@link FilterExpression} for the supported syntax.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @since 3.1 (previously was {@code FilterCallback.Rule})
@@ -77,26 +70,9 @@ public class FilterRule {
 	/** Name of the rule variable for increment or decrement value (value). */
 	public static final String VAR_VALUE = "value";
 
-	private static final ScriptEngine ECMA_SCRIPT_ENGINE = new ScriptEngineManager().getEngineByName("ecmascript");
-
-	private static final Replacer[] CONDITION_REPLACERS = new Replacer[]{
-		new Replacer(" lt ", " < "),
-		new Replacer(" le ", " <= "),
-		new Replacer(" eq ", " == "),
-		new Replacer(" ne ", " != "),
-		new Replacer(" gt ", " > "),
-		new Replacer(" ge ", " >= "),
-		new Replacer(" and ", " && "),
-		new Replacer(" or ", " || "),
-		new Replacer(" not ", " ! "),
-		new Replacer("(\\d)s", "$1000000000"),
-		new Replacer("(\\d)ms", "$1000000"),
-		new Replacer("(\\d)us", "$1000"),
-	};
-
 	private Type type;
 	private String condition;
-	private CompiledScript expression;
+	private FilterExpression expression;
 	private SimonPattern pattern;
 
 	/**
@@ -107,32 +83,13 @@ public class FilterRule {
 	 * @param type rule type determining the role of the rule in the chain of the filter
 	 * @param condition additional conditional expression that must be true
 	 * @param pattern Simon pattern that must match
+	 * @throws org.javasimon.SimonException if the condition is not valid or does not return boolean
 	 */
 	public FilterRule(Type type, String condition, SimonPattern pattern) {
 		this.type = type;
 		this.condition = condition;
 		if (condition != null) {
-			condition = condition.toLowerCase();
-			for (Replacer conditionReplacer : CONDITION_REPLACERS) {
-				condition = conditionReplacer.process(condition);
-			}
-			try {
-				expression = ((Compilable) ECMA_SCRIPT_ENGINE).compile(condition);
-				Bindings bindings = ECMA_SCRIPT_ENGINE.getBindings(ScriptContext.ENGINE_SCOPE);
-				bindings.put(VAR_ACTIVE, 0);
-				bindings.put(VAR_COUNTER, 0);
-				bindings.put(VAR_MAX, 0);
-				bindings.put(VAR_MAX_ACTIVE, 0);
-				bindings.put(VAR_MIN, 0);
-				bindings.put(VAR_SPLIT, 0);
-				bindings.put(VAR_TOTAL, 0);
-				bindings.put(VAR_VALUE, 0);
-				if (!(expression.eval(bindings) instanceof Boolean)) {
-					throw new SimonException("Expression '" + condition + "' does not return boolean.");
-				}
-			} catch (ScriptException e) {
-				throw new SimonException(e);
-			}
+			expression = FilterExpression.compile(condition);
 		}
 		this.pattern = pattern;
 	}
@@ -170,53 +127,36 @@ public class FilterRule {
 	 * @param simon related Simon
 	 * @param params optional parameters, e.g. value that is added to a Counter
 	 * @return true if no condition is specified or the condition is satisfied, otherwise false
-	 * @throws javax.script.ScriptException possible exception raised by the expression evaluation
+	 * @throws javax.script.ScriptException never thrown since conditions are not evaluated by the script engine
+	 * @deprecated use {@link #isConditionSatisfied(Simon, Object...)} that does not declare {@link ScriptException}
 	 */
-	public synchronized boolean checkCondition(Simon simon, Object... params) throws ScriptException {
-		if (condition == null) {
-			return true;
-		}
-		if (simon instanceof Stopwatch) {
-			return checkStopwtach((Stopwatch) simon, params);
-		}
-		if (simon instanceof Counter) {
-			return checkCounter((Counter) simon, params);
-		}
-		return true;
-	}
-
-	private boolean checkCounter(Counter counter, Object... params) throws ScriptException {
-		Bindings bindings = ECMA_SCRIPT_ENGINE.getBindings(ScriptContext.ENGINE_SCOPE);
-		processParams(bindings, params);
-		bindings.put(VAR_COUNTER, counter.getCounter());
-		bindings.put(VAR_MAX, counter.getMax());
-		bindings.put(VAR_MIN, counter.getMin());
-		return eval(bindings);
-	}
-
-	private boolean checkStopwtach(Stopwatch stopwatch, Object... params) throws ScriptException {
-		Bindings bindings = ECMA_SCRIPT_ENGINE.getBindings(ScriptContext.ENGINE_SCOPE);
-		processParams(bindings, params);
-		bindings.put(VAR_ACTIVE, stopwatch.getActive());
-		bindings.put(VAR_COUNTER, stopwatch.getCounter());
-		bindings.put(VAR_MAX, stopwatch.getMax());
-		bindings.put(VAR_MIN, stopwatch.getMin());
-		bindings.put(VAR_MAX_ACTIVE, stopwatch.getMaxActive());
-		bindings.put(VAR_TOTAL, stopwatch.getTotal());
-		return eval(bindings);
+	@Deprecated
+	public boolean checkCondition(Simon simon, Object... params) throws ScriptException {
+		return isConditionSatisfied(simon, params);
 	}
 
-	private void processParams(Bindings bindings, Object... params) {
+	/**
+	 * Checks the Simon and optional parameters against the condition specified for a rule.
+	 *
+	 * @param simon related Simon
+	 * @param params optional parameters, e.g. value that is added to a Counter
+	 * @return true if no condition is specified, Simon is neither Stopwatch nor Counter or the condition is satisfied,
+	 * otherwise false
+	 * @since 4.2
+	 */
+	public boolean isConditionSatisfied(Simon simon, Object... params) {
+		if (expression == null || !(simon instanceof Stopwatch || simon instanceof Counter)) {
+			return true;
+		}
+		Split split = null;
+		long value = 0;
 		for (Object param : params) {
 			if (param instanceof Split) {
-				bindings.put(VAR_SPLIT, BigDecimal.valueOf(((Split) param).runningFor()));
+				split = (Split) param;
 			} else if (param instanceof Long) {
-				bindings.put(VAR_VALUE, BigDecimal.valueOf((Long) param));
+				value = (Long) param;
 			}
 		}
-	}
-
-	private boolean eval(Bindings bindings) throws ScriptException {
-		return (Boolean) expression.eval(bindings);
+		return expression.test(simon, split, value);
 	}
 }
@@ -0,0 +1,24 @@
+package org.javasimon.callback;
+
+/**
+ * Marker interface for {@link Callback}s that do not use samples provided to the event methods
+ * ({@link Callback#onStopwatchStop(org.javasimon.Split, org.javasimon.StopwatchSample)},
+ * {@link Callback#onStopwatchAdd(org.javasimon.Stopwatch, org.javasimon.Split, org.javasimon.StopwatchSample)} and
+ * counter events). Creating the sample on every stop is relatively expensive (Simon is locked, sample object is
+ * allocated and standard deviation is calculated) - if all callbacks registered in the manager implement this
+ * interface the sample is not created at all and {@code null} is provided instead.
+ * <p/>
+ * If at least one callback requires the sample, sample is created and the same instance is passed to all callbacks,
+ * hence implementations of this interface may get the sample, but they must not rely on it.
+ * Callback that needs the state of the Simon only occasionally can still call {@link org.javasimon.Simon#sample()}
+ * on its own.
+ * <p/>
+ * Only event methods declared in the class implementing this interface directly are considered sample ignoring.
+ * Subclass overriding any of these methods gets the sample again - unless it declares this interface as well.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see CompositeCallbackImpl#isSampleRequired(Callback)
+ * @since 4.2
+ */
+public interface SampleIgnoringCallback extends Callback {
+}
@@ -0,0 +1,501 @@
+package org.javasimon.callback.async;
+
+import org.javasimon.Counter;
+import org.javasimon.CounterSample;
+import org.javasimon.Manager;
+import org.javasimon.Sample;
+import org.javasimon.Simon;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.javasimon.callback.Callback;
+import org.javasimon.proxy.Delegating;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Callback wrapper that makes any callback asynchronous - events are stored into a pre-allocated ring buffer
+ * and dispatched to the wrapped callback in batches by a single daemon thread.
+ * <p/>
+ * Example: {@code manager.callback().addCallback(new AsyncCallback(myCallback));}
+ * <p/>
+ * Any number of threads can publish events, no object is allocated per event and no reflection is used.
+ * When the buffer is full the event is dropped, the publishing thread waits for a free slot or it waits only
+ * for every n-th event - see {@link OverflowPolicy}. Dropped events are counted per event type.
+ * <p/>
+ * Dispatching thread is started when the callback is initialized (added to the manager) and stopped after
+ * all pending events are dispatched when the callback is cleaned up (removed from the manager). Wrapped
+ * callback is initialized and cleaned up synchronously. Events published while the dispatching thread
+ * is not running are dropped.
+ * <p/>
+ * Splits and samples are passed to the wrapped callback as they are, callbacks that require values
+ * of the Split at the moment of the event (like {@link org.javasimon.callback.calltree.CallTreeCallback})
+ * can't be used asynchronously.
+ * <p/>
+ * Composite callback dispatches to this callback only events handled by the wrapped callback and creates samples
+ * only if the wrapped callback requires them. Exceptions thrown by the wrapped callback are logged as warnings
+ * (not propagated as manager warnings to avoid the dispatching thread waiting for itself) and dispatching goes on.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class AsyncCallback implements Callback, Delegating<Callback> {
+
+	/** Default number of event slots in the ring buffer. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** Default sample rate for the {@link OverflowPolicy#SAMPLE} policy. */
+	public static final int DEFAULT_SAMPLE_RATE = 16;
+
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncCallback.class);
+
+	/** Policy used when the ring buffer is full. */
+	public enum OverflowPolicy {
+		/** Event is dropped. */
+		DROP,
+		/** Publishing thread waits until there is a free slot for the event. */
+		BLOCK,
+		/** Publishing thread waits for the free slot only for every n-th event (see sample rate), other events are dropped. */
+		SAMPLE
+	}
+
+	private final Callback delegate;
+	private final OverflowPolicy overflowPolicy;
+	private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+	private final Slot[] slots;
+	private final int mask;
+
+	/** Next sequence to be claimed by the producers. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Next sequence to be dispatched, slots before it are free. */
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicLongArray dropped = new AtomicLongArray(Event.values().length);
+	private final AtomicLong overflows = new AtomicLong();
+
+	private volatile Thread dispatcher;
+	private volatile boolean running;
+	private volatile boolean dispatcherWaiting;
+
+	/**
+	 * Wraps the callback with the ring buffer of default capacity dropping the events when full.
+	 *
+	 * @param delegate wrapped callback
+	 */
+	public AsyncCallback(Callback delegate) {
+		this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP);
+	}
+
+	/**
+	 * Wraps the callback with the ring buffer of specified capacity and overflow policy.
+	 *
+	 * @param delegate wrapped callback
+	 * @param capacity number of event slots, rounded up to the power of two
+	 * @param overflowPolicy policy used when the ring buffer is full
+	 */
+	public AsyncCallback(Callback delegate, int capacity, OverflowPolicy overflowPolicy) {
+		if (delegate == null || overflowPolicy == null) {
+			throw new IllegalArgumentException("Delegate callback and overflow policy must not be null");
+		}
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be positive and at most 2^30: " + capacity);
+		}
+		this.delegate = delegate;
+		this.overflowPolicy = overflowPolicy;
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+		}
+		mask = size - 1;
+	}
+
+	@Override
+	public Callback getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Returns number of event slots of the ring buffer.
+	 *
+	 * @return capacity of the ring buffer
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns policy used when the ring buffer is full.
+	 *
+	 * @return overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Returns sample rate used by the {@link OverflowPolicy#SAMPLE} policy - one of this many events
+	 * waits for the free slot when the buffer is full.
+	 *
+	 * @return sample rate
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Sets sample rate used by the {@link OverflowPolicy#SAMPLE} policy.
+	 *
+	 * @param sampleRate one of this many events waits for the free slot when the buffer is full
+	 */
+	public void setSampleRate(int sampleRate) {
+		if (sampleRate <= 0) {
+			throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+		}
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Returns number of events published but not yet dispatched.
+	 *
+	 * @return number of pending events
+	 */
+	public long getPendingCount() {
+		return tail.get() - head.get();
+	}
+
+	/**
+	 * Returns number of all dropped events.
+	 *
+	 * @return number of dropped events
+	 */
+	public long getDroppedCount() {
+		long count = 0;
+		for (int i = 0; i < dropped.length(); i++) {
+			count += dropped.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of dropped events of the specified type.
+	 *
+	 * @param event type of the event
+	 * @return number of dropped events of the type
+	 */
+	public long getDroppedCount(Event event) {
+		if (event == Event.ALL) {
+			return getDroppedCount();
+		}
+		return dropped.get(event.ordinal());
+	}
+
+	/**
+	 * Waits until all events published before this call are dispatched to the wrapped callback.
+	 * Returns immediately if the dispatching thread is not running.
+	 */
+	public void flush() {
+		long target = tail.get();
+		while (running && head.get() < target) {
+			LockSupport.unpark(dispatcher);
+			LockSupport.parkNanos(this, PARK_NANOS);
+		}
+	}
+
+	/** Initializes the wrapped callback and starts the dispatching thread. */
+	@Override
+	public synchronized void initialize(Manager manager) {
+		delegate.initialize(manager);
+		if (dispatcher == null) {
+			running = true;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			}, "javasimon-async");
+			thread.setDaemon(true);
+			dispatcher = thread;
+			thread.start();
+		}
+	}
+
+	/** Stops the dispatching thread after pending events are dispatched and cleans up the wrapped callback. */
+	@Override
+	public synchronized void cleanup() {
+		Thread thread = dispatcher;
+		if (thread != null) {
+			running = false;
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			dispatcher = null;
+		}
+		delegate.cleanup();
+	}
+
+	@Override
+	public void onStopwatchStart(Split split) {
+		Slot slot = claim(Event.STOPWATCH_START);
+		if (slot != null) {
+			slot.split = split;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onStopwatchStop(Split split, StopwatchSample sample) {
+		Slot slot = claim(Event.STOPWATCH_STOP);
+		if (slot != null) {
+			slot.split = split;
+			slot.sample = sample;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
+		Slot slot = claim(Event.STOPWATCH_ADD);
+		if (slot != null) {
+			slot.simon = stopwatch;
+			slot.split = split;
+			slot.sample = sample;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onCounterDecrease(Counter counter, long dec, CounterSample sample) {
+		publishCounterEvent(Event.COUNTER_DECREASE, counter, dec, sample);
+	}
+
+	@Override
+	public void onCounterIncrease(Counter counter, long inc, CounterSample sample) {
+		publishCounterEvent(Event.COUNTER_INCREASE, counter, inc, sample);
+	}
+
+	@Override
+	public void onCounterSet(Counter counter, long val, CounterSample sample) {
+		publishCounterEvent(Event.COUNTER_SET, counter, val, sample);
+	}
+
+	private void publishCounterEvent(Event event, Counter counter, long value, CounterSample sample) {
+		Slot slot = claim(event);
+		if (slot != null) {
+			slot.simon = counter;
+			slot.value = value;
+			slot.sample = sample;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onSimonCreated(Simon simon) {
+		Slot slot = claim(Event.CREATED);
+		if (slot != null) {
+			slot.simon = simon;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onSimonDestroyed(Simon simon) {
+		Slot slot = claim(Event.DESTROYED);
+		if (slot != null) {
+			slot.simon = simon;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onManagerClear() {
+		Slot slot = claim(Event.MANAGER_CLEAR);
+		if (slot != null) {
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onManagerMessage(String message) {
+		Slot slot = claim(Event.MESSAGE);
+		if (slot != null) {
+			slot.message = message;
+			publish(slot);
+		}
+	}
+
+	@Override
+	public void onManagerWarning(String warning, Exception cause) {
+		Slot slot = claim(Event.WARNING);
+		if (slot != null) {
+			slot.message = warning;
+			slot.cause = cause;
+			publish(slot);
+		}
+	}
+
+	/**
+	 * Claims the next free slot for the event according to the overflow policy.
+	 *
+	 * @param event type of the event
+	 * @return claimed slot or {@code null} if the event is dropped
+	 */
+	private Slot claim(Event event) {
+		boolean waiting = false;
+		while (running) {
+			long sequence = tail.get();
+			if (sequence - head.get() < slots.length) {
+				if (tail.compareAndSet(sequence, sequence + 1)) {
+					Slot slot = slots[(int) sequence & mask];
+					slot.sequence = sequence;
+					if (!running) {
+						// dispatcher may have finished before the claim, the slot is published empty and skipped
+						slot.event = null;
+						publish(slot);
+						break;
+					}
+					slot.event = event;
+					return slot;
+				}
+			} else {
+				if (!waiting && !waitsForSlot()) {
+					break;
+				}
+				waiting = true;
+				LockSupport.unpark(dispatcher);
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+		}
+		dropped.incrementAndGet(event.ordinal());
+		return null;
+	}
+
+	private boolean waitsForSlot() {
+		switch (overflowPolicy) {
+			case BLOCK:
+				return true;
+			case SAMPLE:
+				return overflows.incrementAndGet() % sampleRate == 0;
+			default:
+				return false;
+		}
+	}
+
+	private void publish(Slot slot) {
+		slot.published = slot.sequence;
+		if (dispatcherWaiting) {
+			LockSupport.unpark(dispatcher);
+		}
+	}
+
+	/** Main loop of the dispatching thread - dispatches all published events and frees their slots in batches. */
+	private void dispatch() {
+		long next = head.get();
+		while (true) {
+			long batchEnd = next;
+			Slot slot;
+			while ((slot = slots[(int) batchEnd & mask]).published == batchEnd) {
+				if (slot.event != null) {
+					dispatchEvent(slot);
+				}
+				slot.clear();
+				batchEnd++;
+			}
+			if (batchEnd != next) {
+				next = batchEnd;
+				head.set(next);
+				continue;
+			}
+			if (!running && tail.get() == next) {
+				return;
+			}
+			dispatcherWaiting = true;
+			if (slot.published != next) {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			dispatcherWaiting = false;
+		}
+	}
+
+	private void dispatchEvent(Slot slot) {
+		try {
+			switch (slot.event) {
+				case STOPWATCH_START:
+					delegate.onStopwatchStart(slot.split);
+					break;
+				case STOPWATCH_STOP:
+					delegate.onStopwatchStop(slot.split, (StopwatchSample) slot.sample);
+					break;
+				case STOPWATCH_ADD:
+					delegate.onStopwatchAdd((Stopwatch) slot.simon, slot.split, (StopwatchSample) slot.sample);
+					break;
+				case COUNTER_INCREASE:
+					delegate.onCounterIncrease((Counter) slot.simon, slot.value, (CounterSample) slot.sample);
+					break;
+				case COUNTER_DECREASE:
+					delegate.onCounterDecrease((Counter) slot.simon, slot.value, (CounterSample) slot.sample);
+					break;
+				case COUNTER_SET:
+					delegate.onCounterSet((Counter) slot.simon, slot.value, (CounterSample) slot.sample);
+					break;
+				case CREATED:
+					delegate.onSimonCreated(slot.simon);
+					break;
+				case DESTROYED:
+					delegate.onSimonDestroyed(slot.simon);
+					break;
+				case MANAGER_CLEAR:
+					delegate.onManagerClear();
+					break;
+				case MESSAGE:
+					delegate.onManagerMessage(slot.message);
+					break;
+				case WARNING:
+					delegate.onManagerWarning(slot.message, slot.cause);
+					break;
+			}
+		} catch (RuntimeException e) {
+			// failure of the wrapped callback must not stop the dispatching of other events
+			logger.warn("Callback " + delegate + " failed on event " + slot.event, e);
+		}
+	}
+
+	/** Pre-allocated event slot, fields are written by the producer before the volatile publish. */
+	private static final class Slot {
+
+		/** Sequence of the event stored in this slot, -1 when nothing was published yet. */
+		private volatile long published = -1;
+
+		private long sequence;
+		private Event event;
+		private Simon simon;
+		private Split split;
+		private Sample sample;
+		private long value;
+		private String message;
+		private Exception cause;
+
+		void clear() {
+			event = null;
+			simon = null;
+			split = null;
+			sample = null;
+			message = null;
+			cause = null;
+		}
+	}
+}
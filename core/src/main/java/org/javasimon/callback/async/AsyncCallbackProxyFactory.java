@@ -20,7 +20,10 @@ import java.lang.reflect.Method;
  * the {@link SimonManager}: {@code asyncCallbackProxy.setExecutor(Executors.disabled);}
  *
  * @author gerald
+ * @deprecated every event is a reflective invocation submitted to an unbounded queue,
+ * use {@link AsyncCallback} with pre-allocated bounded ring buffer instead
  */
+@Deprecated
 public final class AsyncCallbackProxyFactory extends ExecutorProxyFactory<Callback> {
 
 	/** Interfaces implemented by callback proxy. */
@@ -0,0 +1,86 @@
+package org.javasimon.callback.calltree;
+
+import java.util.Arrays;
+
+/**
+ * Call stack of the current thread used in aggregating mode. Arrays are allocated once per root call
+ * (the stack is released with the thread state when the root call finishes), pushing and popping does
+ * not allocate unless the stack is deeper than before. For each level, the stack keeps the tree node
+ * ({@code null} if the call was dropped) and the time spent in child calls to compute self time.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+final class AggregatedCallStack {
+
+	/** Tree of the current root call. */
+	private AggregatedCallTree tree;
+
+	/** Tree nodes, {@code null} for dropped calls. */
+	private AggregatedCallTreeNode[] nodes = new AggregatedCallTreeNode[16];
+
+	/** Time spent in child calls in ns. */
+	private long[] childTotals = new long[16];
+
+	/** Number of calls on the stack. */
+	private int depth;
+
+	boolean isEmpty() {
+		return depth == 0;
+	}
+
+	/**
+	 * Pushes the root node of the tree.
+	 *
+	 * @param tree aggregated call tree of the root stopwatch
+	 */
+	void pushRoot(AggregatedCallTree tree) {
+		this.tree = tree;
+		push(tree.getRootNode());
+	}
+
+	/**
+	 * Pushes the child node of the current node, call is dropped if the tree is full.
+	 *
+	 * @param name Simon name
+	 */
+	void pushChild(String name) {
+		AggregatedCallTreeNode parent = nodes[depth - 1];
+		AggregatedCallTreeNode child = parent == null ? null : parent.getOrAddChild(name);
+		if (child == null) {
+			tree.onDroppedCall();
+		}
+		push(child);
+	}
+
+	private void push(AggregatedCallTreeNode node) {
+		if (depth == nodes.length) {
+			nodes = Arrays.copyOf(nodes, depth * 2);
+			childTotals = Arrays.copyOf(childTotals, depth * 2);
+		}
+		nodes[depth] = node;
+		childTotals[depth] = 0L;
+		depth++;
+	}
+
+	/**
+	 * Pops the current node and adds the call to it. Duration of the call is subtracted from the self time
+	 * of the parent call even if the call itself was dropped.
+	 *
+	 * @param duration call duration in ns
+	 */
+	void pop(long duration) {
+		depth--;
+		AggregatedCallTreeNode node = nodes[depth];
+		nodes[depth] = null;
+		if (node != null) {
+			node.addCall(duration, duration - childTotals[depth]);
+		}
+		if (depth > 0) {
+			childTotals[depth - 1] += duration;
+		}
+		if (depth == 0) {
+			tree = null;
+		}
+	}
+}
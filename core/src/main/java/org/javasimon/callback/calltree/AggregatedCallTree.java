@@ -0,0 +1,128 @@
+package org.javasimon.callback.calltree;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call tree merging all calls started by the same root stopwatch, whatever the thread.
+ * Tree is stored in the root stopwatch attribute {@link CallTreeCallback#ATTR_NAME_AGGREGATED}
+ * and updated concurrently by {@link CallTreeCallback} in aggregating mode. Memory is bounded: when
+ * the tree reaches its maximum number of nodes, calls on new call paths are not recorded and are only counted
+ * as dropped. Their time is not added to the self time of their parent, hence total of the parent is greater
+ * than its self time plus totals of its children by the time spent in dropped calls.
+ * <p/>
+ * Tree can be exported in collapsed stack format (see {@link #printFolded(PrintWriter)}), the format used by
+ * flame graph tools:
+ * <pre>
+ * org.javasimon.web.Controller.execute 12000000
+ * org.javasimon.web.Controller.execute;org.javasimon.business.FirstService.work 25000000
+ * org.javasimon.web.Controller.execute;org.javasimon.business.FirstService.work;org.javasimon.data.FirstDAO.findAll 50000000
+ * </pre>
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public class AggregatedCallTree {
+
+	/** Default maximum number of nodes. */
+	public static final int DEFAULT_MAX_NODES = 1000;
+
+	/** Root tree node. */
+	private final AggregatedCallTreeNode rootNode;
+
+	/** Maximum number of nodes including root node. */
+	private final int maxNodes;
+
+	/** Number of nodes. */
+	private final AtomicInteger nodeCount = new AtomicInteger(1);
+
+	/** Number of calls not recorded because the tree was full. */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param rootName root Simon name
+	 * @param maxNodes maximum number of nodes including root node
+	 */
+	public AggregatedCallTree(String rootName, int maxNodes) {
+		if (maxNodes < 1) {
+			throw new IllegalArgumentException("Max nodes must be positive: " + maxNodes);
+		}
+		this.maxNodes = maxNodes;
+		this.rootNode = new AggregatedCallTreeNode(this, null, rootName);
+	}
+
+	/** Reserves place for new node, returns {@code false} if the tree is full. */
+	boolean reserveNode() {
+		int current;
+		do {
+			current = nodeCount.get();
+			if (current >= maxNodes) {
+				return false;
+			}
+		} while (!nodeCount.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	/** Releases place reserved for a node that was not added. */
+	void releaseNode() {
+		nodeCount.decrementAndGet();
+	}
+
+	/** Counts call not recorded because the tree was full. */
+	void onDroppedCall() {
+		droppedCount.incrementAndGet();
+	}
+
+	public AggregatedCallTreeNode getRootNode() {
+		return rootNode;
+	}
+
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	public int getNodeCount() {
+		return nodeCount.get();
+	}
+
+	/**
+	 * Returns number of calls not recorded because the tree was full.
+	 *
+	 * @return dropped call count
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Prints the tree in collapsed stack format: one line per call path, Simon names separated
+	 * by semicolons, followed by the self time in ns. Call paths without self time are omitted.
+	 *
+	 * @param printWriter Output print writer
+	 */
+	public void printFolded(PrintWriter printWriter) {
+		rootNode.printFolded(printWriter, null);
+		printWriter.flush();
+	}
+
+	/**
+	 * Returns the tree in collapsed stack format.
+	 *
+	 * @return folded stacks
+	 * @see #printFolded(PrintWriter)
+	 */
+	public String toFoldedString() {
+		StringWriter stringWriter = new StringWriter();
+		printFolded(new PrintWriter(stringWriter));
+		return stringWriter.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "Aggregated Call Tree:\r\n" + rootNode.toString();
+	}
+}
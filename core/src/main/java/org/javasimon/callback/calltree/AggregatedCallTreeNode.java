@@ -0,0 +1,274 @@
+package org.javasimon.callback.calltree;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Node of the {@link AggregatedCallTree}: one Simon at one call path, merged for all calls of all threads.
+ * Unlike {@link CallTreeNode} splits are not kept, only counters (count, total, self time and max) are
+ * updated atomically. Child nodes are created lazily and concurrently, their number is bounded
+ * by the tree.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public class AggregatedCallTreeNode {
+
+	private static final AtomicLongFieldUpdater<AggregatedCallTreeNode> COUNT =
+		AtomicLongFieldUpdater.newUpdater(AggregatedCallTreeNode.class, "count");
+	private static final AtomicLongFieldUpdater<AggregatedCallTreeNode> TOTAL =
+		AtomicLongFieldUpdater.newUpdater(AggregatedCallTreeNode.class, "total");
+	private static final AtomicLongFieldUpdater<AggregatedCallTreeNode> SELF_TOTAL =
+		AtomicLongFieldUpdater.newUpdater(AggregatedCallTreeNode.class, "selfTotal");
+	private static final AtomicLongFieldUpdater<AggregatedCallTreeNode> MAX =
+		AtomicLongFieldUpdater.newUpdater(AggregatedCallTreeNode.class, "max");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<AggregatedCallTreeNode, ConcurrentMap> CHILDREN =
+		AtomicReferenceFieldUpdater.newUpdater(AggregatedCallTreeNode.class, ConcurrentMap.class, "children");
+
+	/** Simon name, used as a key. */
+	private final String name;
+
+	/** Tree owning this node, it bounds the number of nodes. */
+	private final AggregatedCallTree tree;
+
+	/** Parent tree node, {@code null} for root tree node. */
+	private final AggregatedCallTreeNode parent;
+
+	/** Child tree nodes, created lazily. */
+	private volatile ConcurrentMap<String, AggregatedCallTreeNode> children;
+
+	/** Number of calls. */
+	private volatile long count;
+
+	/** Total time of the calls in ns. */
+	private volatile long total;
+
+	/** Total time of the calls in ns without the time spent in child nodes. */
+	private volatile long selfTotal;
+
+	/** Longest call in ns. */
+	private volatile long max;
+
+	AggregatedCallTreeNode(AggregatedCallTree tree, AggregatedCallTreeNode parent, String name) {
+		this.tree = tree;
+		this.parent = parent;
+		this.name = name;
+	}
+
+	/**
+	 * Returns Simon name.
+	 *
+	 * @return Name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Adds a call to this tree node.
+	 *
+	 * @param duration call duration in ns
+	 * @param selfDuration call duration in ns without the time spent in child calls
+	 */
+	public void addCall(long duration, long selfDuration) {
+		COUNT.incrementAndGet(this);
+		TOTAL.addAndGet(this, duration);
+		SELF_TOTAL.addAndGet(this, selfDuration);
+		long current;
+		while (duration > (current = max)) {
+			if (MAX.compareAndSet(this, current, duration)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns a child node with given name or creates it if it does not exist.
+	 *
+	 * @param name Simon name
+	 * @return Child node or {@code null} if the tree is full and the child does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public AggregatedCallTreeNode getOrAddChild(String name) {
+		ConcurrentMap<String, AggregatedCallTreeNode> childMap = children;
+		if (childMap == null) {
+			CHILDREN.compareAndSet(this, null, new ConcurrentHashMap<String, AggregatedCallTreeNode>(4, 0.75F, 1));
+			childMap = children;
+		}
+		AggregatedCallTreeNode child = childMap.get(name);
+		if (child == null) {
+			if (!tree.reserveNode()) {
+				return null;
+			}
+			AggregatedCallTreeNode newChild = new AggregatedCallTreeNode(tree, this, name);
+			child = childMap.putIfAbsent(name, newChild);
+			if (child == null) {
+				child = newChild;
+			} else {
+				tree.releaseNode();
+			}
+		}
+		return child;
+	}
+
+	/**
+	 * Returns the child node by Simon name.
+	 *
+	 * @param name Simon name
+	 * @return Child corresponding to given name, or null if any
+	 */
+	public AggregatedCallTreeNode getChild(String name) {
+		ConcurrentMap<String, AggregatedCallTreeNode> childMap = children;
+		return childMap == null ? null : childMap.get(name);
+	}
+
+	/**
+	 * Returns all child nodes.
+	 *
+	 * @return children
+	 */
+	public Collection<AggregatedCallTreeNode> getChildren() {
+		ConcurrentMap<String, AggregatedCallTreeNode> childMap = children;
+		return childMap == null ? Collections.<AggregatedCallTreeNode>emptyList() : childMap.values();
+	}
+
+	/**
+	 * Returns parent tree node.
+	 *
+	 * @return Parent tree node, {@code null} for root tree node
+	 */
+	public AggregatedCallTreeNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns the number of calls.
+	 *
+	 * @return call count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the total time of the calls.
+	 *
+	 * @return total time in ns
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the total time of the calls minus the time spent in child nodes. Calls that were not
+	 * recorded because the tree was full are part of the self time of their parent.
+	 *
+	 * @return self time in ns
+	 */
+	public long getSelfTotal() {
+		return selfTotal;
+	}
+
+	/**
+	 * Returns the longest call.
+	 *
+	 * @return max time in ns
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the part of time spent in this node compared to parent.
+	 *
+	 * @return Percent time, {@code null} for root node
+	 */
+	public Integer getPercent() {
+		if (parent == null) {
+			return null;
+		}
+		long parentTotal = parent.getTotal();
+		return parentTotal == 0L ? 0 : (int) (getTotal() * 100L / parentTotal);
+	}
+
+	/**
+	 * Recursively prints this tree node to given print writer.
+	 *
+	 * @param printWriter Output print writer
+	 * @param prefix Line prefix (used internally for indentation)
+	 * @param parentTotal Duration of parent node (used to compute duration ratio for child nodes), null for root nodes
+	 */
+	private void print(PrintWriter printWriter, String prefix, Long parentTotal) {
+		long total = getTotal();
+		printWriter.print(prefix);
+		printWriter.print(name);
+		printWriter.print(' ');
+		if (parentTotal != null && parentTotal != 0L) {
+			printWriter.print(total * 100 / parentTotal);
+			printWriter.print("%, ");
+		}
+		printWriter.print(SimonUtils.presentNanoTime(total));
+		printWriter.print(", self ");
+		printWriter.print(SimonUtils.presentNanoTime(getSelfTotal()));
+		printWriter.print(", max ");
+		printWriter.print(SimonUtils.presentNanoTime(getMax()));
+		printWriter.print(", ");
+		printWriter.print(getCount());
+		printWriter.println();
+		for (AggregatedCallTreeNode child : getChildren()) {
+			child.print(printWriter, prefix + "\t", total);
+		}
+	}
+
+	/**
+	 * Recursively prints this tree node to given print writer.
+	 *
+	 * @param printWriter Output print writer
+	 */
+	public void print(PrintWriter printWriter) {
+		print(printWriter, "", null);
+	}
+
+	/**
+	 * Recursively prints this tree node in collapsed stack format: one line per node with the
+	 * semicolon separated call path followed by the self time in ns.
+	 *
+	 * @param printWriter Output print writer
+	 * @param parentPath Call path of the parent node, {@code null} for root node
+	 */
+	void printFolded(PrintWriter printWriter, String parentPath) {
+		String path = parentPath == null ? name : parentPath + ';' + name;
+		long selfTotal = getSelfTotal();
+		if (selfTotal > 0L) {
+			printWriter.print(path);
+			printWriter.print(' ');
+			printWriter.print(selfTotal);
+			printWriter.print('\n');
+		}
+		for (AggregatedCallTreeNode child : getChildren()) {
+			child.printFolded(printWriter, path);
+		}
+	}
+
+	/**
+	 * Returns a string representing the tree from this tree node, visiting recursively this tree branch.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		StringWriter stringWriter = new StringWriter();
+		PrintWriter printWriter = new PrintWriter(stringWriter);
+		print(printWriter);
+		return stringWriter.toString();
+	}
+}
@@ -1,6 +1,7 @@
 package org.javasimon.callback.calltree;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.javasimon.Split;
 import org.javasimon.callback.logging.LogMessageSource;
@@ -18,7 +19,7 @@ public class CallTree implements LogMessageSource<Split> {
 	private final Long logThreshold;
 
 	/** Call stack is the path (made of tree nodes) from root tree node to the current tree node. */
-	private final LinkedList<CallTreeNode> callStack = new LinkedList<>();
+	private final Deque<CallTreeNode> callStack = new ArrayDeque<>();
 
 	/** Root call tree node. */
 	private CallTreeNode rootNode;
@@ -3,10 +3,14 @@ package org.javasimon.callback.calltree;
 import static org.javasimon.callback.logging.LogTemplates.toSLF4J;
 import static org.javasimon.callback.logging.LogTemplates.whenSplitLongerThanMilliseconds;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 import org.javasimon.callback.logging.LogTemplate;
 import org.javasimon.callback.logging.SplitThresholdLogTemplate;
 
@@ -24,15 +28,33 @@ import org.javasimon.callback.logging.SplitThresholdLogTemplate;
  * 		org.javasimon.data.SecondDAO.findByRelation 20ms, 10%, 3
  * 	org.javasimon.business.SecondService.do 10ms, 5%
  * </pre>
+ * In aggregating mode ({@link #setAggregate(boolean)}), per-request call trees are neither built nor logged.
+ * Instead all calls started by the same root stopwatch are merged into one {@link AggregatedCallTree}
+ * stored in the root stopwatch attribute {@link #ATTR_NAME_AGGREGATED}. Nodes keep counters only and the number
+ * of nodes is bounded ({@link #setMaxNodes(int)}), so memory does not grow with the traffic.
+ * <p/>
+ * Call trees can be sampled to make the callback affordable in production: with {@link #setSampleRate(int)}
+ * set to N, only one root call out of N is captured, either randomly or every Nth root call of the thread
+ * ({@link #setSampling(Sampling)}). Root calls of a stopwatch having the attribute named by
+ * {@link #setForceSampleAttribute(String)} are always captured. The decision is made when the root stopwatch
+ * starts, nested calls of skipped root calls only update a per-thread depth. Properties can be set in
+ * the {@link org.javasimon.ManagerConfiguration} XML:
+ * <pre>
+ * &lt;callback class="org.javasimon.callback.calltree.CallTreeCallback"&gt;
+ * 	&lt;set property="sampleRate" value="100"/&gt;
+ * 	&lt;set property="sampling" value="COUNTER"/&gt;
+ * 	&lt;set property="forceSampleAttribute" value="profile"/&gt;
+ * &lt;/callback&gt;
+ * </pre>
  *
  * @author gquintana
  * @see CallTree
  * @since 3.2
  */
-public class CallTreeCallback extends CallbackSkeleton {
+public class CallTreeCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 
-	/** Call tree of current thread. */
-	private final ThreadLocal<CallTree> threadCallTree = new ThreadLocal<>();
+	/** Call state of current thread, removed when the root call finishes (see {@link #releaseThreadState}). */
+	private final ThreadLocal<ThreadState> threadState = new ThreadLocal<>();
 
 	/** Log template used for printing call tree. */
 	private LogTemplate<Split> callTreeLogTemplate;
@@ -40,6 +62,50 @@ public class CallTreeCallback extends CallbackSkeleton {
 	/** Simon attribute name used to store last significant call tree. */
 	public static final String ATTR_NAME_LAST = "lastCallTree";
 
+	/** Simon attribute name used to store aggregated call tree of root stopwatch. */
+	public static final String ATTR_NAME_AGGREGATED = "aggregatedCallTree";
+
+	/** Whether calls are merged into aggregated call trees instead of per-request call trees. */
+	private boolean aggregate;
+
+	/** Maximum number of nodes of each aggregated call tree. */
+	private int maxNodes = AggregatedCallTree.DEFAULT_MAX_NODES;
+
+	/** One root call out of this number is captured. */
+	private int sampleRate = 1;
+
+	/** How root calls are sampled. */
+	private Sampling sampling = Sampling.RANDOM;
+
+	/** Name of the stopwatch attribute forcing capture of its root calls, {@code null} if disabled. */
+	private String forceSampleAttribute;
+
+	/** Number of captured root calls. */
+	private final AtomicLong sampledCount = new AtomicLong();
+
+	/** Number of skipped root calls. */
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	/** Sampling strategies of root calls. */
+	public enum Sampling {
+		/** Root call is captured with probability 1/N using thread-local random generator. */
+		RANDOM,
+		/** Every Nth root call of each thread is captured, the count is kept in the thread-local state for good. */
+		COUNTER
+	}
+
+	/** Call state of the thread, there is only one thread-local lookup per stopwatch start or stop. */
+	private static final class ThreadState {
+		/** Call tree of the current root call, {@code null} if there is none. */
+		private CallTree callTree;
+		/** Call stack in aggregating mode. */
+		private AggregatedCallStack aggregatedCallStack;
+		/** Depth of calls in the current skipped root call, 0 if the current root call is not skipped. */
+		private int skippedDepth;
+		/** Number of root calls of the thread, used by {@link Sampling#COUNTER}. */
+		private long rootCount;
+	}
+
 	/** Duration threshold used to trigger logging and remembering. */
 	private Long logThreshold;
 
@@ -90,13 +156,128 @@ public class CallTreeCallback extends CallbackSkeleton {
 		initLogThreshold(logThreshold);
 	}
 
+	/** Returns {@code true} if calls are merged into aggregated call trees. */
+	public boolean isAggregate() {
+		return aggregate;
+	}
+
+	/**
+	 * Enables or disables aggregating mode, should be set before the callback is registered.
+	 *
+	 * @param aggregate {@code true} to merge calls into aggregated call trees instead of building call tree per request
+	 * @since 4.2
+	 */
+	public void setAggregate(boolean aggregate) {
+		this.aggregate = aggregate;
+	}
+
+	/** Returns maximum number of nodes of each aggregated call tree. */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Sets maximum number of nodes of aggregated call trees created afterwards.
+	 *
+	 * @param maxNodes maximum number of nodes including root node
+	 * @since 4.2
+	 */
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	/** Returns N when one root call out of N is captured. */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Sets sampling rate of root calls.
+	 *
+	 * @param sampleRate one root call out of this number is captured, 1 captures all root calls
+	 * @since 4.2
+	 */
+	public void setSampleRate(int sampleRate) {
+		if (sampleRate < 1) {
+			throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+		}
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Returns how root calls are sampled.
+	 *
+	 * @return sampling strategy
+	 * @since 4.2
+	 */
+	public Sampling getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * Sets how root calls are sampled, random by default.
+	 *
+	 * @param sampling sampling strategy
+	 * @since 4.2
+	 */
+	public void setSampling(Sampling sampling) {
+		this.sampling = sampling;
+	}
+
+	/**
+	 * Returns name of the marker attribute forcing the capture of root calls.
+	 *
+	 * @return attribute name or {@code null} if forcing is disabled
+	 * @since 4.2
+	 */
+	public String getForceSampleAttribute() {
+		return forceSampleAttribute;
+	}
+
+	/**
+	 * Sets name of the marker attribute: root calls of stopwatches having this attribute (with value other
+	 * than {@link Boolean#FALSE}) are always captured.
+	 *
+	 * @param forceSampleAttribute attribute name or {@code null} to disable forcing
+	 * @since 4.2
+	 */
+	public void setForceSampleAttribute(String forceSampleAttribute) {
+		this.forceSampleAttribute = forceSampleAttribute;
+	}
+
 	/**
-	 * Returns call tree for current thread.
+	 * Returns number of captured root calls.
 	 *
-	 * @return Thread call tree
+	 * @return sampled count
+	 * @since 4.2
 	 */
-	private CallTree getCallTree() {
-		return threadCallTree.get();
+	public long getSampledCount() {
+		return sampledCount.get();
+	}
+
+	/**
+	 * Returns number of root calls skipped by sampling.
+	 *
+	 * @return skipped count
+	 * @since 4.2
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	/** Returns true if there is a call state of current thread, used by tests. */
+	boolean hasThreadState() {
+		return threadState.get() != null;
+	}
+
+	/** Returns call state of current thread, creates it if needed. */
+	private ThreadState getThreadState() {
+		ThreadState state = threadState.get();
+		if (state == null) {
+			state = new ThreadState();
+			threadState.set(state);
+		}
+		return state;
 	}
 
 	/**
@@ -105,34 +286,143 @@ public class CallTreeCallback extends CallbackSkeleton {
 	 * @return Created call tree
 	 */
 	private CallTree initCallTree() {
-		final CallTree callTree = new CallTree(logThreshold) {
+		return new CallTree(logThreshold) {
 			@Override
 			protected void onRootStopwatchStop(CallTreeNode rootNode, Split split) {
 				CallTreeCallback.this.onRootStopwatchStop(this, split);
 			}
 		};
-		threadCallTree.set(callTree);
-		return callTree;
 	}
 
 	/** Removes call tree for current thread. */
 	private void removeCallTree() {
-		threadCallTree.remove();
+		ThreadState state = threadState.get();
+		if (state != null) {
+			state.callTree = null;
+			releaseThreadState();
+		}
+	}
+
+	/**
+	 * Removes the call state of current thread when the root call is finished, so that nothing is left
+	 * in the thread-local of pooled threads (and their class loader is not leaked on redeploy). The state stays
+	 * only for {@link Sampling#COUNTER} sampling which needs the number of root calls of the thread.
+	 */
+	private void releaseThreadState() {
+		if (sampling != Sampling.COUNTER || sampleRate == 1) {
+			threadState.remove();
+		}
+	}
+
+	/**
+	 * Decides whether the root call is captured, skipped root call is marked in the thread state.
+	 *
+	 * @return {@code true} if the root call is captured
+	 */
+	private boolean sampleRoot(ThreadState state, Split split) {
+		if (sampleRate > 1 && !isSampled(state, split)) {
+			state.skippedDepth = 1;
+			skippedCount.incrementAndGet();
+			return false;
+		}
+		sampledCount.incrementAndGet();
+		return true;
+	}
+
+	private boolean isSampled(ThreadState state, Split split) {
+		if (forceSampleAttribute != null) {
+			Object force = split.getStopwatch().getAttribute(forceSampleAttribute);
+			if (force != null && !Boolean.FALSE.equals(force)) {
+				return true;
+			}
+		}
+		if (sampling == Sampling.COUNTER) {
+			return state.rootCount++ % sampleRate == 0;
+		}
+		return ThreadLocalRandom.current().nextInt(sampleRate) == 0;
 	}
 
 	@Override
 	public void onStopwatchStart(Split split) {
-		CallTree callTree = getCallTree();
-		if (callTree == null) {
+		ThreadState state = getThreadState();
+		if (state.skippedDepth > 0) {
+			state.skippedDepth++;
+			return;
+		}
+		if (aggregate) {
+			onAggregatedStopwatchStart(state, split);
+			return;
+		}
+		if (state.callTree == null) {
 			// New tree root
-			callTree = initCallTree();
+			if (!sampleRoot(state, split)) {
+				return;
+			}
+			state.callTree = initCallTree();
 		}
-		callTree.onStopwatchStart(split);
+		state.callTree.onStopwatchStart(split);
 	}
 
 	@Override
 	public void onStopwatchStop(Split split, StopwatchSample sample) {
-		getCallTree().onStopwatchStop(split);
+		ThreadState state = threadState.get();
+		if (state == null) {
+			return;
+		}
+		if (state.skippedDepth > 0) {
+			state.skippedDepth--;
+			if (state.skippedDepth == 0) {
+				releaseThreadState();
+			}
+			return;
+		}
+		if (aggregate) {
+			onAggregatedStopwatchStop(state, split);
+		} else if (state.callTree != null) {
+			state.callTree.onStopwatchStop(split);
+		}
+	}
+
+	/** Pushes the call on the call stack of current thread, root call selects the aggregated call tree. */
+	private void onAggregatedStopwatchStart(ThreadState state, Split split) {
+		AggregatedCallStack callStack = state.aggregatedCallStack;
+		if (callStack == null) {
+			callStack = new AggregatedCallStack();
+			state.aggregatedCallStack = callStack;
+		}
+		if (callStack.isEmpty()) {
+			if (sampleRoot(state, split)) {
+				callStack.pushRoot(getOrCreateAggregatedCallTree(split.getStopwatch()));
+			}
+		} else {
+			callStack.pushChild(split.getStopwatch().getName());
+		}
+	}
+
+	/** Pops the call from the call stack of current thread and adds it to the aggregated call tree. */
+	private void onAggregatedStopwatchStop(ThreadState state, Split split) {
+		AggregatedCallStack callStack = state.aggregatedCallStack;
+		if (callStack != null && !callStack.isEmpty()) {
+			callStack.pop(split.runningFor());
+			if (callStack.isEmpty()) {
+				releaseThreadState();
+			}
+		}
+	}
+
+	/** Returns aggregated call tree of the root stopwatch, creates it if needed. */
+	private AggregatedCallTree getOrCreateAggregatedCallTree(Stopwatch stopwatch) {
+		AggregatedCallTree callTree = getAggregatedCallTree(stopwatch);
+		if (callTree == null) {
+			synchronized (this) {
+				callTree = getAggregatedCallTree(stopwatch);
+				if (callTree == null) {
+					callTree = new AggregatedCallTree(stopwatch.getName(), maxNodes);
+					stopwatch.setAttribute(ATTR_NAME_AGGREGATED, callTree);
+				}
+			}
+		}
+		return callTree;
 	}
 
 	/**
@@ -159,4 +449,15 @@ public class CallTreeCallback extends CallbackSkeleton {
 	public static CallTree getLastCallTree(Stopwatch stopwatch) {
 		return (CallTree) stopwatch.getAttribute(ATTR_NAME_LAST);
 	}
+
+	/**
+	 * Returns aggregated call tree stored in stopwatch attributes.
+	 *
+	 * @param stopwatch Root stopwatch
+	 * @return Aggregated call tree or {@code null} if stopwatch was never root call in aggregating mode
+	 * @since 4.2
+	 */
+	public static AggregatedCallTree getAggregatedCallTree(Stopwatch stopwatch) {
+		return (AggregatedCallTree) stopwatch.getAttribute(ATTR_NAME_AGGREGATED);
+	}
 }
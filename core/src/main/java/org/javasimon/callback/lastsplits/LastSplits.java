@@ -3,23 +3,47 @@ package org.javasimon.callback.lastsplits;
 import static org.javasimon.callback.logging.LogTemplates.disabled;
 import static org.javasimon.utils.SimonUtils.presentNanoTime;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import org.javasimon.Split;
 import org.javasimon.callback.logging.LogMessageSource;
 import org.javasimon.callback.logging.LogTemplate;
 
 /**
  * Object stored among Stopwatch's attributes in charge of <ul>
- * <li>Managing concurrent access to the inner ring buffer through synchronized blocks</li>
+ * <li>Retaining start and duration of the last splits in a ring buffer</li>
  * <li>Computing som statistics (min, max, mean, trend) based on retained values</li>
  * <li>Log retained values and statistics
  * </ul>
+ * Split objects are not retained, only their start and duration are stored in two parallel atomic {@code long}
+ * arrays. Writer claims the sequence number atomically, marks the slot as being written by its stamp and stamps
+ * the slot again when both values are written, so adding split does not lock. Writer of a newer split waits
+ * for the writer of the split stored one ring ago to finish, writer of an older split gives up. Statistics are
+ * computed over a snapshot copy of the buffer - slots overwritten while the snapshot is taken are skipped.
  *
  * @author gquintana
  * @since 3.2
  */
 public class LastSplits implements LogMessageSource<Split> {
-	/** Ring buffer containing splits. */
-	private final CircularList<Split> splits;
+
+	/** Start (nano timer value) of the splits. */
+	private final AtomicLongArray starts;
+
+	/** Duration of the splits in ns. */
+	private final AtomicLongArray durations;
+
+	/**
+	 * Sequence number + 1 of the split stored in the slot, negative while the slot is being written
+	 * by the writer of the split.
+	 */
+	private final AtomicLongArray stamps;
+
+	/** Sequence number of the next split. */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	/** Splits with lower sequence number were cleared. */
+	private volatile long clearedSequence;
 
 	/** Log template used to log this list of splits. */
 	private LogTemplate<Split> logTemplate = disabled();
@@ -30,7 +54,9 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @param capacity Buffer size
 	 */
 	public LastSplits(int capacity) {
-		this.splits = new CircularList<>(capacity);
+		this.starts = new AtomicLongArray(capacity);
+		this.durations = new AtomicLongArray(capacity);
+		this.stamps = new AtomicLongArray(capacity);
 	}
 
 	/**
@@ -39,16 +65,41 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @param split Split
 	 */
 	public void add(Split split) {
-		synchronized (splits) {
-			splits.add(split);
+		add(split.getStart(), split.runningFor());
+	}
+
+	/**
+	 * Adds split start and duration to the buffer.
+	 *
+	 * @param start split start (nano timer value)
+	 * @param duration split duration in ns
+	 * @since 4.2
+	 */
+	public void add(long start, long duration) {
+		long sequence = nextSequence.getAndIncrement();
+		int index = (int) (sequence % starts.length());
+		long stamp = sequence + 1;
+		while (true) {
+			long current = stamps.get(index);
+			if (Math.abs(current) > stamp) {
+				// newer split is already in the slot
+				return;
+			}
+			if (current < 0) {
+				// writer of the split one ring ago has not finished yet
+				Thread.yield();
+			} else if (stamps.compareAndSet(index, current, -stamp)) {
+				break;
+			}
 		}
+		starts.lazySet(index, start);
+		durations.lazySet(index, duration);
+		stamps.set(index, stamp);
 	}
 
 	/** Removes all splits from buffer. */
 	public void clear() {
-		synchronized (splits) {
-			splits.clear();
-		}
+		clearedSequence = nextSequence.get();
 	}
 
 	public LogTemplate<Split> getLogTemplate() {
@@ -65,84 +116,43 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Split number
 	 */
 	public int getCount() {
-		synchronized (splits) {
-			return splits.size();
-		}
+		long next = nextSequence.get();
+		return (int) Math.min(next - Math.min(clearedSequence, next), starts.length());
 	}
 
 	/**
-	 * Evaluate a function over the list of splits.
+	 * Copies retained splits from the oldest to the newest.
 	 *
-	 * @param <T> Function result type
-	 * @param function Function to evaluate
-	 * @return Function result, null if no splits
+	 * @return snapshot of the buffer
 	 */
-	private <T> T processFunction(SplitFunction<T> function) {
-		synchronized (splits) {
-			if (splits.isEmpty()) {
-				return null;
-			}
-			for (Split split : splits) {
-				function.evaluate(split);
+	Snapshot snapshot() {
+		long next = nextSequence.get();
+		long first = Math.max(Math.min(clearedSequence, next), next - starts.length());
+		Snapshot snapshot = new Snapshot((int) (next - first));
+		for (long sequence = first; sequence < next; sequence++) {
+			int index = (int) (sequence % starts.length());
+			if (stamps.get(index) == sequence + 1) {
+				long start = starts.get(index);
+				long duration = durations.get(index);
+				if (stamps.get(index) == sequence + 1) {
+					snapshot.starts[snapshot.size] = start;
+					snapshot.durations[snapshot.size] = duration;
+					snapshot.size++;
+				}
 			}
-			return function.result();
 		}
+		return snapshot;
 	}
 
-	/**
-	 * Function.
-	 *
-	 * @param <T> Result type
-	 */
-	private static interface SplitFunction<T> {
-		/**
-		 * Called for each split.
-		 *
-		 * @param split Current split
-		 */
-		void evaluate(Split split);
-
-		/**
-		 * Called after all splits.
-		 *
-		 * @return Function result
-		 */
-		T result();
-	}
-
-	/**
-	 * Base implementation of functions.
-	 *
-	 * @param <T> Function return type
-	 */
-	private static abstract class AbstractSplitFunction<T> implements SplitFunction<T> {
-		/** Function result. */
-		protected T result;
-
-		/** Initial function result. */
-		public AbstractSplitFunction(T result) {
-			this.result = result;
-		}
-
-		/**
-		 * Running for duration of the split.
-		 *
-		 * @param runningFor Running for
-		 */
-		public abstract void evaluate(long runningFor);
-
-		/**
-		 * Calls evaluate with split running for duration.
-		 *
-		 * @param split Current split
-		 */
-		public final void evaluate(Split split) {
-			evaluate(split.runningFor());
-		}
+	/** Copy of the retained splits. */
+	static final class Snapshot {
+		final long[] starts;
+		final long[] durations;
+		int size;
 
-		/** Final result. */
-		public T result() {
-			return result;
+		private Snapshot(int capacity) {
+			starts = new long[capacity];
+			durations = new long[capacity];
 		}
 	}
 
@@ -152,18 +162,18 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Mean or average
 	 */
 	public Double getMean() {
-		return processFunction(new AbstractSplitFunction<Double>(0.0D) {
-			@Override
-			public void evaluate(long runningFor) {
-				result += (double) runningFor;
-			}
-
-			@Override
-			public Double result() {
-				return result / (double) splits.size();
-			}
+		return mean(snapshot());
+	}
 
-		});
+	private static Double mean(Snapshot snapshot) {
+		if (snapshot.size == 0) {
+			return null;
+		}
+		double total = 0.0D;
+		for (int i = 0; i < snapshot.size; i++) {
+			total += (double) snapshot.durations[i];
+		}
+		return total / (double) snapshot.size;
 	}
 
 	/**
@@ -172,14 +182,20 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Minimum
 	 */
 	public Long getMin() {
-		return processFunction(new AbstractSplitFunction<Long>(Long.MAX_VALUE) {
-			@Override
-			public void evaluate(long runningFor) {
-				if (runningFor < result) {
-					result = runningFor;
-				}
+		return min(snapshot());
+	}
+
+	private static Long min(Snapshot snapshot) {
+		if (snapshot.size == 0) {
+			return null;
+		}
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < snapshot.size; i++) {
+			if (snapshot.durations[i] < min) {
+				min = snapshot.durations[i];
 			}
-		});
+		}
+		return min;
 	}
 
 	/**
@@ -188,14 +204,20 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Maximum
 	 */
 	public Long getMax() {
-		return processFunction(new AbstractSplitFunction<Long>(Long.MIN_VALUE) {
-			@Override
-			public void evaluate(long runningFor) {
-				if (runningFor > result) {
-					result = runningFor;
-				}
+		return max(snapshot());
+	}
+
+	private static Long max(Snapshot snapshot) {
+		if (snapshot.size == 0) {
+			return null;
+		}
+		long max = Long.MIN_VALUE;
+		for (int i = 0; i < snapshot.size; i++) {
+			if (snapshot.durations[i] > max) {
+				max = snapshot.durations[i];
 			}
-		});
+		}
+		return max;
 	}
 
 	/**
@@ -219,30 +241,26 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @param timeDeltaThreshold Accepted splits space
 	 * @return Trend, average delta of splits
 	 */
-	public Double getTrend(final long timeDeltaThreshold) {
-		return processFunction(new SplitFunction<Double>() {
-			Split lastSplit;
-			long result;
-			int count;
-
-			public void evaluate(Split split) {
-				if (lastSplit == null) {
-					lastSplit = split;
-				} else {
-					long timeDelta = split.getStart() - lastSplit.getStart();
-					if (timeDelta > timeDeltaThreshold) {
-						long durationDelta = split.runningFor() - lastSplit.runningFor();
-						result += durationDelta;
-						count++;
-						lastSplit = split;
-					}
-				}
-			}
+	public Double getTrend(long timeDeltaThreshold) {
+		return trend(snapshot(), timeDeltaThreshold);
+	}
 
-			public Double result() {
-				return count > 0 ? (result / ((double) count)) : null;
+	private static Double trend(Snapshot snapshot, long timeDeltaThreshold) {
+		if (snapshot.size == 0) {
+			return null;
+		}
+		long result = 0;
+		int count = 0;
+		int last = 0;
+		for (int i = 1; i < snapshot.size; i++) {
+			long timeDelta = snapshot.starts[i] - snapshot.starts[last];
+			if (timeDelta > timeDeltaThreshold) {
+				result += snapshot.durations[i] - snapshot.durations[last];
+				count++;
+				last = i;
 			}
-		});
+		}
+		return count > 0 ? (result / ((double) count)) : null;
 	}
 
 	/**
@@ -250,56 +268,37 @@ public class LastSplits implements LogMessageSource<Split> {
 	 *
 	 * @return Splits presented in a String
 	 */
-	private String getSplitsAsString() {
-		return processFunction(new AbstractSplitFunction<StringBuilder>(new StringBuilder()) {
-			private boolean first = true;
-
-			@Override
-			public void evaluate(long runningFor) {
-				if (first) {
-					first = false;
-				} else {
-					result.append(',');
-				}
-				result.append(presentNanoTime(runningFor));
+	private static String getSplitsAsString(Snapshot snapshot) {
+		StringBuilder stringBuilder = new StringBuilder();
+		for (int i = 0; i < snapshot.size; i++) {
+			if (i > 0) {
+				stringBuilder.append(',');
 			}
-		}).toString();
+			stringBuilder.append(presentNanoTime(snapshot.durations[i]));
+		}
+		return stringBuilder.toString();
 	}
 
 	/**
 	 * String containing: count, min, mean, max and trend(1ms).
-	 * This method can be expensive, because many computations are done.
+	 * All values are computed from one snapshot of the buffer.
 	 *
 	 * @return String
 	 */
 	@Override
 	public String toString() {
-		int count;
-		long min = 0, mean = 0, max = 0, trend = 0;
-		String values = null;
-		// First extract data
-		synchronized (splits) {
-			count = getCount();
-			if (count > 0) {
-				min = getMin();
-				mean = getMean().longValue();
-				max = getMax();
-				values = getSplitsAsString();
-				if (count > 1) {
-					trend = getTrend().longValue();
-				}
-			}
-		}
-		// Then free lock, and format data
+		Snapshot snapshot = snapshot();
+		int count = snapshot.size;
 		StringBuilder stringBuilder = new StringBuilder("LastSplits[size=");
 		stringBuilder.append(count);
 		if (count > 0) {
-			stringBuilder.append(",values=[").append(values).append("]")
-				.append(",min=").append(presentNanoTime(min))
-				.append(",mean=").append(presentNanoTime(mean))
-				.append(",max=").append(presentNanoTime(max));
+			stringBuilder.append(",values=[").append(getSplitsAsString(snapshot)).append("]")
+				.append(",min=").append(presentNanoTime(min(snapshot)))
+				.append(",mean=").append(presentNanoTime(mean(snapshot).longValue()))
+				.append(",max=").append(presentNanoTime(max(snapshot)));
 			if (count > 1) {
-				stringBuilder.append(",trend=").append(presentNanoTime(trend));
+				Double trend = trend(snapshot, 1000);
+				stringBuilder.append(",trend=").append(presentNanoTime(trend != null ? trend.longValue() : 0));
 			}
 		}
 		stringBuilder.append("]");
@@ -5,6 +5,7 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 import org.javasimon.callback.logging.LogTemplate;
 
 import static org.javasimon.callback.logging.LogTemplates.disabled;
@@ -19,7 +20,7 @@ import static org.javasimon.callback.logging.LogTemplates.toSLF4J;
  * @see LastSplits
  * @since 3.2
  */
-public class LastSplitsCallback extends CallbackSkeleton {
+public class LastSplitsCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 	/**
 	 * Simon attribute name of the LastSplit object stored in Simons.
 	 */
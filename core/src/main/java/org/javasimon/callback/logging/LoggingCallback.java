@@ -7,6 +7,7 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 import org.javasimon.utils.SimonUtils;
 
 /**
@@ -18,7 +19,7 @@ import org.javasimon.utils.SimonUtils;
  * <li>One split every N milliseconds</li>
  * </li>
  */
-public class LoggingCallback extends CallbackSkeleton {
+public class LoggingCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 
 	/** Log template used for Stopwatch splits. */
 	private final LogTemplate<Split> stopwatchLogTemplate;
@@ -11,7 +11,8 @@ import java.util.List;
 /**
  * Callback which stores data in buckets to compute quantiles.
  * Quantiles can only be obtained after warmup period, after which buckets are
- * initialized.
+ * initialized. Buckets of types not requiring the range ({@link BucketsType#LOG_LINEAR})
+ * are created immediately without warmup.
  * For each Simon the following lifecycle occurs:<ol>
  * <li><em>Warm up</em>:<ul>
  * <li>Buckets do not exist</li>
@@ -122,10 +123,16 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 
 	/** When warmup ends, buckets are create and retained splits are sorted in the buckets. */
 	protected final Buckets createBuckets(Stopwatch stopwatch) {
+		if (!getBucketsType().isRangeRequired()) {
+			return createBuckets(stopwatch, 0, 0, bucketNb);
+		}
 		if (stopwatch.getCounter() > warmupCounter) {
 			Buckets buckets = createBucketsAfterWarmup(stopwatch);
 			// Add retained splits to buckets
-			buckets.addValues(getBucketsValues(stopwatch));
+			List<Long> values = getBucketsValues(stopwatch);
+			if (values != null) {
+				buckets.addValues(values);
+			}
 			removeBucketsValues(stopwatch);
 			return buckets;
 		} else {
@@ -136,7 +143,7 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 	/** When simon is created, the list containing Split values is added to stopwatch attributes. */
 	@Override
 	public void onSimonCreated(Simon simon) {
-		if (simon instanceof Stopwatch) {
+		if (simon instanceof Stopwatch && getBucketsType().isRangeRequired()) {
 			Stopwatch stopwatch = (Stopwatch) simon;
 			getOrCreateBucketsValues(stopwatch);
 		}
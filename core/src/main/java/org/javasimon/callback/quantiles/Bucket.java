@@ -26,6 +26,19 @@ public final class Bucket {
 		this.max = max;
 	}
 
+	/**
+	 * Constructor with min/max value and initial count.
+	 *
+	 * @param min min value
+	 * @param max max value
+	 * @param count number of values in the range
+	 */
+	Bucket(long min, long max, int count) {
+		this.min = min;
+		this.max = max;
+		this.count = count;
+	}
+
 	/**
 	 * Get number of values in the range.
 	 *
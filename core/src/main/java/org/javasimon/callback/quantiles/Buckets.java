@@ -70,6 +70,21 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		buckets[bucketNb + 1] = new Bucket(max, Long.MAX_VALUE);
 	}
 
+	/**
+	 * Constructor for buckets that keep their counts on their own instead of the {@link #buckets} array
+	 * (the array is empty) - such subclasses must override all methods accessing the array.
+	 *
+	 * @param min Min of all values
+	 * @param max Max of all values
+	 * @since 4.2
+	 */
+	protected Buckets(long min, long max) {
+		this.min = min;
+		this.max = max;
+		this.bucketNb = 0;
+		this.buckets = new Bucket[0];
+	}
+
 	/** Computes expected count and check used buckets number. */
 	private int checkAndGetTotalCount() throws IllegalStateException {
 		int usedBuckets = 0;
@@ -239,8 +254,8 @@ public abstract class Buckets implements LogMessageSource<Split> {
 			for (int i = 0; i < buckets.length; i++) {
 				bucketSamples[i] = buckets[i].sample();
 			}
-			Double[] quantiles = getQuantiles(0.50D, 0.90D);
-			return new BucketsSample(bucketSamples, quantiles[0], quantiles[1]);
+			Double[] quantiles = getQuantiles(0.50D, 0.90D, 0.99D, 0.999D);
+			return new BucketsSample(bucketSamples, quantiles[0], quantiles[1], quantiles[2], quantiles[3]);
 		}
 	}
 
@@ -257,7 +272,7 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		StringBuilder stringBuilder = new StringBuilder("Buckets[");
 		stringBuilder.append("min=").append(presentNanoTime(min))
 			.append(",max=").append(presentNanoTime(max))
-			.append(",nb=").append(bucketNb)
+			.append(",nb=").append(getBucketNb())
 //			.append(",width=").append(presentNanoTime(width)) // i don't know how important this information in that String.
 			.append("] Quantiles[");
 		final String eol = System.getProperty("line.separator");
@@ -269,6 +284,12 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		if (bucketsSample.getPercentile90() != null) {
 			stringBuilder.append(",90%=").append(presentNanoTime(bucketsSample.getPercentile90()));
 		}
+		if (bucketsSample.getPercentile99() != null) {
+			stringBuilder.append(",99%=").append(presentNanoTime(bucketsSample.getPercentile99()));
+		}
+		if (bucketsSample.getPercentile999() != null) {
+			stringBuilder.append(",99.9%=").append(presentNanoTime(bucketsSample.getPercentile999()));
+		}
 		stringBuilder.append("]");
 		if (bars) {
 			stringBuilder.append(eol);
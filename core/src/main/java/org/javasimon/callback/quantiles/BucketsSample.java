@@ -15,11 +15,25 @@ public class BucketsSample {
 	 * 90% percentile
 	 */
 	private final Double percentile90;
+	/**
+	 * 99% percentile
+	 */
+	private final Double percentile99;
+	/**
+	 * 99.9% percentile
+	 */
+	private final Double percentile999;
 
 	public BucketsSample(BucketSample[] buckets, Double median, Double quantile90) {
+		this(buckets, median, quantile90, null, null);
+	}
+
+	public BucketsSample(BucketSample[] buckets, Double median, Double quantile90, Double quantile99, Double quantile999) {
 		this.buckets = buckets;
 		this.median = median;
 		this.percentile90 = quantile90;
+		this.percentile99 = quantile99;
+		this.percentile999 = quantile999;
 	}
 
 	public BucketSample[] getBuckets() {
@@ -34,6 +48,14 @@ public class BucketsSample {
 		return percentile90;
 	}
 
+	public Double getPercentile99() {
+		return percentile99;
+	}
+
+	public Double getPercentile999() {
+		return percentile999;
+	}
+
 	private boolean hasNoBuckets() {
 		return buckets == null || buckets.length == 0;
 	}
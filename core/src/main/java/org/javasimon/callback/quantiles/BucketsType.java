@@ -13,8 +13,69 @@ public enum BucketsType {
 		public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb) {
 			return new ExponentialBuckets(min, max, bucketNb);
 		}
+	},
+	/**
+	 * Log-linear buckets ({@link LogLinearBuckets}) covering 1 ns - 1 hour with constant relative precision,
+	 * min, max and number of buckets are ignored and no warm-up is needed.
+	 *
+	 * @since 4.2
+	 */
+	LOG_LINEAR() {
+		public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb) {
+			return createBuckets(stopwatch, min, max, bucketNb, LogLinearBuckets.DEFAULT_SIGNIFICANT_DIGITS);
+		}
+
+		@Override
+		public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb, int significantDigits) {
+			return new LogLinearBuckets(significantDigits);
+		}
+
+		@Override
+		public boolean isRangeRequired() {
+			return false;
+		}
+	},
+	/**
+	 * Compact mergeable quantile sketch ({@link QuantileSketch}) with relative accuracy {@code 10^-digits}
+	 * (1 % for the default 2 significant digits), min, max and number of buckets are ignored and no warm-up is needed.
+	 *
+	 * @since 4.2
+	 */
+	SKETCH() {
+		public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb) {
+			return createBuckets(stopwatch, min, max, bucketNb, LogLinearBuckets.DEFAULT_SIGNIFICANT_DIGITS);
+		}
+
+		@Override
+		public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb, int significantDigits) {
+			return new QuantileSketch(Math.pow(10, -significantDigits), QuantileSketch.DEFAULT_MAX_BINS);
+		}
+
+		@Override
+		public boolean isRangeRequired() {
+			return false;
+		}
 	};
 
 	/** Factory method to create {@link Buckets}. */
 	public abstract Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb);
+
+	/**
+	 * Factory method to create {@link Buckets} with the precision given by the number of significant digits,
+	 * only {@link #LOG_LINEAR} buckets and {@link #SKETCH} use the significant digits.
+	 *
+	 * @since 4.2
+	 */
+	public Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb, int significantDigits) {
+		return createBuckets(stopwatch, min, max, bucketNb);
+	}
+
+	/**
+	 * Returns true if buckets of this type need min and max configured up front (or determined by warm-up).
+	 *
+	 * @since 4.2
+	 */
+	public boolean isRangeRequired() {
+		return true;
+	}
 }
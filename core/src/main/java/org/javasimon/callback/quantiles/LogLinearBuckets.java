@@ -0,0 +1,318 @@
+package org.javasimon.callback.quantiles;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear (HdrHistogram-like) {@link Buckets} with constant relative precision over the whole range.
+ * Range of values is split into power-of-two buckets and each of them is split linearly into sub-buckets,
+ * number of sub-buckets is given by the required number of significant digits. Values are tracked from
+ * 1 ns to 1 hour by default, no min/max/bucket count must be configured up front and no warm-up is needed.
+ * <br/>
+ * Index of the counter for the value is computed in constant time and counters are incremented atomically,
+ * hence adding the value is lock-free. Buckets can be copied ({@link #snapshot()}) and merged ({@link #merge(LogLinearBuckets)}),
+ * e.g. to compute quantiles over more Stopwatches. Values out of range are counted in the first or the last counter.
+ * <br/>
+ * Memory needed for the counters grows with the significant digits, for the default range it is about 5 KB
+ * for 1 digit and about 36 KB for 2 digits (default).
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see BucketsType#LOG_LINEAR
+ * @since 4.2
+ */
+public class LogLinearBuckets extends Buckets {
+
+	/** Default number of significant digits. */
+	public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+	/** Default lowest discernible value - 1 ns. */
+	public static final long DEFAULT_LOWEST_VALUE = 1L;
+
+	/** Default highest trackable value - 1 hour in ns. */
+	public static final long DEFAULT_HIGHEST_VALUE = TimeUnit.HOURS.toNanos(1);
+
+	private final int significantDigits;
+	private final int unitMagnitude;
+	private final int subBucketHalfCountMagnitude;
+	private final int subBucketHalfCount;
+	private final long subBucketMask;
+	private final int leadingZeroCountBase;
+
+	private final AtomicLongArray counts;
+
+	/**
+	 * Constructor with default range (1 ns - 1 hour).
+	 *
+	 * @param significantDigits number of significant digits (1 to 5)
+	 */
+	public LogLinearBuckets(int significantDigits) {
+		this(DEFAULT_LOWEST_VALUE, DEFAULT_HIGHEST_VALUE, significantDigits);
+	}
+
+	/**
+	 * Constructor with custom range.
+	 *
+	 * @param lowest lowest discernible value, at least 1
+	 * @param highest highest trackable value, at least twice the lowest value
+	 * @param significantDigits number of significant digits (1 to 5)
+	 */
+	public LogLinearBuckets(long lowest, long highest, int significantDigits) {
+		super(lowest, highest);
+		if (lowest < 1) {
+			throw new IllegalArgumentException("Expected lowest value at least 1: " + lowest);
+		}
+		if (highest < 2 * lowest) {
+			throw new IllegalArgumentException("Expected highest value at least twice the lowest: " + lowest + "/" + highest);
+		}
+		if (significantDigits < 1 || significantDigits > 5) {
+			throw new IllegalArgumentException("Expected 1 to 5 significant digits: " + significantDigits);
+		}
+		this.significantDigits = significantDigits;
+		long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+		int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestValueWithSingleUnitResolution - 1);
+		subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+		subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+		unitMagnitude = 63 - Long.numberOfLeadingZeros(lowest);
+		subBucketMask = ((long) (1 << subBucketCountMagnitude) - 1) << unitMagnitude;
+		leadingZeroCountBase = 64 - unitMagnitude - subBucketHalfCountMagnitude - 1;
+
+		long smallestUntrackableValue = (1L << subBucketCountMagnitude) << unitMagnitude;
+		int bucketCount = 1;
+		while (smallestUntrackableValue <= highest) {
+			if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+				bucketCount++;
+				break;
+			}
+			smallestUntrackableValue <<= 1;
+			bucketCount++;
+		}
+		counts = new AtomicLongArray((bucketCount + 1) << subBucketHalfCountMagnitude);
+	}
+
+	/**
+	 * Returns index of the counter for the value.
+	 *
+	 * @param value value
+	 * @return counter index
+	 */
+	private int countsIndex(long value) {
+		if (value < min) {
+			return 0;
+		}
+		if (value > max) {
+			return counts.length() - 1;
+		}
+		int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+		int subBucketIndex = (int) (value >>> (bucketIndex + unitMagnitude));
+		int index = ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+		return Math.min(index, counts.length() - 1);
+	}
+
+	/** Returns the lowest value counted by the counter with the index. */
+	private long lowestValueAt(int index) {
+		int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+		int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+		if (bucketIndex < 0) {
+			subBucketIndex -= subBucketHalfCount;
+			bucketIndex = 0;
+		}
+		return ((long) subBucketIndex) << (bucketIndex + unitMagnitude);
+	}
+
+	/** Returns the width of the counter with the index (range of values counted by the counter). */
+	private long widthAt(int index) {
+		int bucketIndex = Math.max((index >> subBucketHalfCountMagnitude) - 1, 0);
+		return 1L << (bucketIndex + unitMagnitude);
+	}
+
+	/** Adds the value by incrementing its counter, does not lock. */
+	@Override
+	public void addValue(long value) {
+		counts.incrementAndGet(countsIndex(value));
+	}
+
+	@Override
+	public void addValues(Collection<Long> values) {
+		for (Long value : values) {
+			addValue(value);
+		}
+	}
+
+	/** Returns copy of the counters, counters are read one by one and the copy is not atomic. */
+	private long[] copyCounts() {
+		long[] copy = new long[counts.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = counts.get(i);
+		}
+		return copy;
+	}
+
+	private static long totalCount(long[] counts) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Computes quantile from the copy of counters, value is interpolated linearly within the counter range.
+	 *
+	 * @param counts copy of the counters
+	 * @param totalCount total count of the values
+	 * @param ratio Nth quantile: 0.5 is median
+	 * @return quantile
+	 */
+	private double computeQuantile(long[] counts, long totalCount, double ratio) {
+		if (ratio <= 0.0D || ratio >= 1.0D) {
+			throw new IllegalArgumentException("Expected ratio between 0 and 1 excluded: " + ratio);
+		}
+		if (totalCount == 0) {
+			throw new IllegalStateException("No values, quantile can not be computed");
+		}
+		double expectedCount = ratio * totalCount;
+		long lastCount = 0;
+		for (int i = 0; i < counts.length; i++) {
+			long count = counts[i];
+			if (count > 0 && expectedCount < lastCount + count) {
+				return lowestValueAt(i) + (expectedCount - lastCount) * widthAt(i) / count;
+			}
+			lastCount += count;
+		}
+		int last = counts.length - 1;
+		return lowestValueAt(last) + widthAt(last);
+	}
+
+	@Override
+	public double getQuantile(double ratio) {
+		long[] copy = copyCounts();
+		return computeQuantile(copy, totalCount(copy), ratio);
+	}
+
+	@Override
+	@SuppressWarnings("EmptyCatchBlock")
+	public Double[] getQuantiles(double... ratios) {
+		long[] copy = copyCounts();
+		long totalCount = totalCount(copy);
+		Double[] quantiles = new Double[ratios.length];
+		if (totalCount > 0) {
+			for (int i = 0; i < ratios.length; i++) {
+				try {
+					quantiles[i] = computeQuantile(copy, totalCount, ratios[i]);
+				} catch (IllegalArgumentException e) {
+				}
+			}
+		}
+		return quantiles;
+	}
+
+	/** Samples non-empty buckets and quantiles. */
+	@Override
+	public BucketsSample sample() {
+		long[] copy = copyCounts();
+		long totalCount = totalCount(copy);
+		List<BucketSample> bucketSamples = new ArrayList<>();
+		for (int i = 0; i < copy.length; i++) {
+			if (copy[i] > 0) {
+				long low = lowestValueAt(i);
+				bucketSamples.add(new BucketSample(low, low + widthAt(i) - 1, (int) Math.min(copy[i], Integer.MAX_VALUE)));
+			}
+		}
+		Double[] quantiles = new Double[4];
+		if (totalCount > 0) {
+			double[] ratios = {0.50D, 0.90D, 0.99D, 0.999D};
+			for (int i = 0; i < ratios.length; i++) {
+				quantiles[i] = computeQuantile(copy, totalCount, ratios[i]);
+			}
+		}
+		return new BucketsSample(bucketSamples.toArray(new BucketSample[bucketSamples.size()]),
+			quantiles[0], quantiles[1], quantiles[2], quantiles[3]);
+	}
+
+	/** Resets all counters, values added concurrently may or may not be cleared. */
+	@Override
+	public void clear() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * Returns non-empty buckets - bucket objects are created on each call.
+	 *
+	 * @return list of non-empty buckets
+	 */
+	@Override
+	public List<Bucket> getBuckets() {
+		List<Bucket> buckets = new ArrayList<>();
+		for (int i = 0; i < counts.length(); i++) {
+			long count = counts.get(i);
+			if (count > 0) {
+				long low = lowestValueAt(i);
+				buckets.add(new Bucket(low, low + widthAt(i) - 1, (int) Math.min(count, Integer.MAX_VALUE)));
+			}
+		}
+		return Collections.unmodifiableList(buckets);
+	}
+
+	/**
+	 * Returns number of counters.
+	 *
+	 * @return number of counters
+	 */
+	@Override
+	public int getBucketNb() {
+		return counts.length();
+	}
+
+	/**
+	 * Returns number of significant digits.
+	 *
+	 * @return significant digits
+	 */
+	public int getSignificantDigits() {
+		return significantDigits;
+	}
+
+	/**
+	 * Returns total number of added values.
+	 *
+	 * @return total count
+	 */
+	public long getTotalCount() {
+		return totalCount(copyCounts());
+	}
+
+	/**
+	 * Returns independent copy of these buckets, copy is not atomic if values are added concurrently.
+	 *
+	 * @return copy of the buckets
+	 */
+	public LogLinearBuckets snapshot() {
+		LogLinearBuckets copy = new LogLinearBuckets(min, max, significantDigits);
+		copy.merge(this);
+		return copy;
+	}
+
+	/**
+	 * Adds all values counted by other buckets into these buckets.
+	 *
+	 * @param other other buckets with the same range and significant digits
+	 * @throws IllegalArgumentException if the other buckets have different configuration
+	 */
+	public void merge(LogLinearBuckets other) {
+		if (other.min != min || other.max != max || other.significantDigits != significantDigits) {
+			throw new IllegalArgumentException("Only buckets with the same range and significant digits can be merged");
+		}
+		for (int i = 0; i < counts.length(); i++) {
+			long count = other.counts.get(i);
+			if (count != 0) {
+				counts.addAndGet(i, count);
+			}
+		}
+	}
+}
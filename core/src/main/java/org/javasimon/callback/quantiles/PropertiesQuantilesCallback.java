@@ -24,6 +24,10 @@ import java.util.Properties;
  *
  * # Can use Exponential buckets for some Stopwatches
  * org.javasimon.special.type=EXPONENTIAL
+ *
+ * # Log-linear buckets and sketches (type SKETCH) need only the number of significant digits (default 2)
+ * org.javasimon.web.type=LOG_LINEAR
+ * org.javasimon.web.digits=3
  * </pre>
  *
  * @author gquintana
@@ -55,8 +59,11 @@ public class PropertiesQuantilesCallback extends QuantilesCallback {
 		Long min = longPropertyType.get(stopwatch, "min");
 		Long max = longPropertyType.get(stopwatch, "max");
 		Integer nb = integerPropertyType.get(stopwatch, "nb");
+		Integer digits = integerPropertyType.get(stopwatch, "digits");
 		// Build buckets
-		Buckets buckets = type.createBuckets(stopwatch, min, max, nb);
+		Buckets buckets = type.isRangeRequired()
+			? type.createBuckets(stopwatch, min, max, nb)
+			: type.createBuckets(stopwatch, 0, 0, 0, digits != null ? digits : getSignificantDigits());
 		buckets.setLogTemplate(createLogTemplate(stopwatch));
 		return buckets;
 	}
@@ -0,0 +1,433 @@
+package org.javasimon.callback.quantiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact mergeable quantile sketch with guaranteed relative accuracy (based on DDSketch). Value is mapped
+ * to the logarithmic bin {@code ceil(log(value) / log(gamma))} where {@code gamma = (1 + a) / (1 - a)} for the relative
+ * accuracy {@code a} - quantile estimated from the bin is within {@code a} of the real value. Only the range of bins
+ * actually used is allocated (starting with {@value #INITIAL_BINS} bins) and the number of bins is bounded, when
+ * the limit is reached the lowest bins are collapsed (accuracy of the highest quantiles is preserved). Typical
+ * Stopwatch with values spanning one or two orders of magnitude needs a few hundred bytes.
+ * <br/>
+ * Sketches with the same accuracy can be merged - e.g. across Stopwatches or levels of the hierarchy
+ * (see {@link QuantilesCallback#mergeSketches(org.javasimon.Simon)}). Values are added into striped stores - there
+ * is only one store at the beginning, more stores are added (up to the number of processors) when a thread finds
+ * the store locked by another thread. Stores are merged when quantiles are computed.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see BucketsType#SKETCH
+ * @since 4.2
+ */
+public class QuantileSketch extends Buckets {
+
+	/** Default relative accuracy - 1 %. */
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01D;
+
+	/** Default maximal number of bins per store. */
+	public static final int DEFAULT_MAX_BINS = 256;
+
+	/** Number of bins allocated for the first value. */
+	static final int INITIAL_BINS = 16;
+
+	private static final int MAX_STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double multiplier;
+	private final int maxBins;
+
+	private volatile Stripe[] stripes;
+	private final AtomicBoolean stripesBusy = new AtomicBoolean();
+
+	/** Creates sketch with default relative accuracy and maximal number of bins. */
+	public QuantileSketch() {
+		this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+	}
+
+	/**
+	 * Creates sketch with the specified accuracy.
+	 *
+	 * @param relativeAccuracy relative accuracy of the quantiles, e.g. 0.01 for 1 %
+	 * @param maxBins maximal number of bins of one store, lowest bins are collapsed when exceeded
+	 */
+	public QuantileSketch(double relativeAccuracy, int maxBins) {
+		super(0, Long.MAX_VALUE);
+		if (relativeAccuracy <= 0D || relativeAccuracy >= 1D) {
+			throw new IllegalArgumentException("Expected relative accuracy between 0 and 1 excluded: " + relativeAccuracy);
+		}
+		if (maxBins < INITIAL_BINS) {
+			throw new IllegalArgumentException("Expected at least " + INITIAL_BINS + " bins: " + maxBins);
+		}
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.multiplier = 1 / Math.log(gamma);
+		this.maxBins = maxBins;
+		this.stripes = new Stripe[] {new Stripe(maxBins)};
+	}
+
+	/** Adds the value into the store of the current thread. */
+	@Override
+	public void addValue(long value) {
+		Stripe stripe = lockStripe();
+		try {
+			if (value <= 0) {
+				stripe.store.zeroCount++;
+			} else {
+				stripe.store.add(key(value), 1);
+			}
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	@Override
+	public void addValues(Collection<Long> values) {
+		for (Long value : values) {
+			addValue(value);
+		}
+	}
+
+	private int key(long value) {
+		return (int) Math.ceil(Math.log(value) * multiplier);
+	}
+
+	/** Returns the value representing the bin - it is within relative accuracy of all values in the bin. */
+	private double valueOf(int key) {
+		return 2 * Math.pow(gamma, key) / (gamma + 1);
+	}
+
+	private Stripe lockStripe() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 16));
+		Stripe[] ss = stripes;
+		Stripe stripe = ss[hash & (ss.length - 1)];
+		if (stripe.tryLock()) {
+			return stripe;
+		}
+		if (ss.length < MAX_STRIPES) {
+			expandStripes(ss);
+		}
+		while (true) {
+			ss = stripes;
+			for (int i = 0; i < ss.length; i++) {
+				stripe = ss[(hash + i) & (ss.length - 1)];
+				if (stripe.tryLock()) {
+					return stripe;
+				}
+			}
+			Thread.yield();
+		}
+	}
+
+	private void expandStripes(Stripe[] current) {
+		if (stripesBusy.compareAndSet(false, true)) {
+			try {
+				if (stripes == current) {
+					Stripe[] expanded = Arrays.copyOf(current, current.length << 1);
+					for (int i = current.length; i < expanded.length; i++) {
+						expanded[i] = new Stripe(maxBins);
+					}
+					stripes = expanded;
+				}
+			} finally {
+				stripesBusy.set(false);
+			}
+		}
+	}
+
+	/** Merges all stripes into a new store. */
+	private Store mergeStripes() {
+		Store result = new Store(maxBins);
+		for (Stripe stripe : stripes) {
+			stripe.lock();
+			try {
+				result.merge(stripe.store);
+			} finally {
+				stripe.unlock();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes quantile from the merged store.
+	 *
+	 * @param store merged store
+	 * @param ratio Nth quantile: 0.5 is median
+	 * @return quantile
+	 */
+	private double computeQuantile(Store store, double ratio) {
+		if (ratio <= 0.0D || ratio >= 1.0D) {
+			throw new IllegalArgumentException("Expected ratio between 0 and 1 excluded: " + ratio);
+		}
+		long count = store.count();
+		if (count == 0) {
+			throw new IllegalStateException("No values, quantile can not be computed");
+		}
+		double rank = ratio * (count - 1);
+		long cumulated = store.zeroCount;
+		if (rank < cumulated) {
+			return 0D;
+		}
+		for (int i = 0; i < store.length; i++) {
+			cumulated += store.counts[i];
+			if (cumulated > rank) {
+				return valueOf(store.offset + i);
+			}
+		}
+		return valueOf(store.offset + store.length - 1);
+	}
+
+	@Override
+	public double getQuantile(double ratio) {
+		return computeQuantile(mergeStripes(), ratio);
+	}
+
+	@Override
+	@SuppressWarnings("EmptyCatchBlock")
+	public Double[] getQuantiles(double... ratios) {
+		Store store = mergeStripes();
+		Double[] quantiles = new Double[ratios.length];
+		if (store.count() > 0) {
+			for (int i = 0; i < ratios.length; i++) {
+				try {
+					quantiles[i] = computeQuantile(store, ratios[i]);
+				} catch (IllegalArgumentException e) {
+				}
+			}
+		}
+		return quantiles;
+	}
+
+	/** Samples non-empty bins and quantiles. */
+	@Override
+	public BucketsSample sample() {
+		Store store = mergeStripes();
+		List<Bucket> bins = bins(store);
+		BucketSample[] bucketSamples = new BucketSample[bins.size()];
+		for (int i = 0; i < bucketSamples.length; i++) {
+			bucketSamples[i] = bins.get(i).sample();
+		}
+		Double[] quantiles = new Double[4];
+		if (store.count() > 0) {
+			double[] ratios = {0.50D, 0.90D, 0.99D, 0.999D};
+			for (int i = 0; i < ratios.length; i++) {
+				quantiles[i] = computeQuantile(store, ratios[i]);
+			}
+		}
+		return new BucketsSample(bucketSamples, quantiles[0], quantiles[1], quantiles[2], quantiles[3]);
+	}
+
+	private List<Bucket> bins(Store store) {
+		List<Bucket> bins = new ArrayList<>();
+		if (store.zeroCount > 0) {
+			bins.add(new Bucket(Long.MIN_VALUE, 0, (int) Math.min(store.zeroCount, Integer.MAX_VALUE)));
+		}
+		for (int i = 0; i < store.length; i++) {
+			long count = store.counts[i];
+			if (count > 0) {
+				int key = store.offset + i;
+				bins.add(new Bucket((long) Math.floor(Math.pow(gamma, key - 1)) + 1, (long) Math.floor(Math.pow(gamma, key)),
+					(int) Math.min(count, Integer.MAX_VALUE)));
+			}
+		}
+		return bins;
+	}
+
+	/** Clears all stores, memory of the stores is released. */
+	@Override
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			stripe.lock();
+			try {
+				stripe.store = new Store(maxBins);
+			} finally {
+				stripe.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns non-empty bins - bucket objects are created on each call.
+	 *
+	 * @return list of non-empty bins
+	 */
+	@Override
+	public List<Bucket> getBuckets() {
+		return Collections.unmodifiableList(bins(mergeStripes()));
+	}
+
+	/**
+	 * Returns number of allocated bins of all stores.
+	 *
+	 * @return number of allocated bins
+	 */
+	@Override
+	public int getBucketNb() {
+		int bins = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock();
+			try {
+				bins += stripe.store.length;
+			} finally {
+				stripe.unlock();
+			}
+		}
+		return bins;
+	}
+
+	/**
+	 * Returns relative accuracy of the quantiles.
+	 *
+	 * @return relative accuracy
+	 */
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	/**
+	 * Returns maximal number of bins of one store.
+	 *
+	 * @return maximal number of bins
+	 */
+	public int getMaxBins() {
+		return maxBins;
+	}
+
+	/**
+	 * Returns total number of added values.
+	 *
+	 * @return total count
+	 */
+	public long getCount() {
+		return mergeStripes().count();
+	}
+
+	/**
+	 * Returns independent copy of this sketch with a single store.
+	 *
+	 * @return copy of the sketch
+	 */
+	public QuantileSketch snapshot() {
+		QuantileSketch copy = new QuantileSketch(relativeAccuracy, maxBins);
+		copy.stripes[0].store = mergeStripes();
+		return copy;
+	}
+
+	/**
+	 * Adds all values of the other sketch into this sketch.
+	 *
+	 * @param other other sketch with the same relative accuracy
+	 * @throws IllegalArgumentException if the other sketch has different accuracy
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.gamma != gamma) {
+			throw new IllegalArgumentException("Only sketches with the same relative accuracy can be merged");
+		}
+		Store otherStore = other.mergeStripes();
+		Stripe stripe = lockStripe();
+		try {
+			stripe.store.merge(otherStore);
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	/** Stripe holding one store, locked by CAS on the inherited int value (1 means locked). */
+	@SuppressWarnings("serial")
+	private static final class Stripe extends AtomicInteger {
+
+		private Store store;
+
+		Stripe(int maxBins) {
+			store = new Store(maxBins);
+		}
+
+		boolean tryLock() {
+			return get() == 0 && compareAndSet(0, 1);
+		}
+
+		void lock() {
+			while (!tryLock()) {
+				Thread.yield();
+			}
+		}
+
+		void unlock() {
+			set(0);
+		}
+	}
+
+	/** Counts of contiguous range of bins, allocated lazily. */
+	private static final class Store {
+
+		private final int maxBins;
+		private long[] counts;
+		private int offset;
+		private int length;
+		private long zeroCount;
+
+		Store(int maxBins) {
+			this.maxBins = maxBins;
+		}
+
+		long count() {
+			long count = zeroCount;
+			for (int i = 0; i < length; i++) {
+				count += counts[i];
+			}
+			return count;
+		}
+
+		void add(int key, long count) {
+			if (counts == null) {
+				counts = new long[INITIAL_BINS];
+				length = INITIAL_BINS;
+				offset = key - INITIAL_BINS / 2;
+			}
+			if (key < offset) {
+				int needed = offset + length - key;
+				if (needed <= maxBins) {
+					int newLength = Math.min(maxBins, Math.max(needed, length * 2));
+					reshape(offset + length - newLength, newLength);
+				} else {
+					reshape(offset + length - maxBins, maxBins);
+					key = offset;
+				}
+			} else if (key >= offset + length) {
+				int newLength = Math.min(maxBins, Math.max(key - offset + 1, length * 2));
+				reshape(Math.max(offset, key - newLength + 1), newLength);
+			}
+			counts[key - offset] += count;
+		}
+
+		/** Moves the bins to the new range, bins below the new range are collapsed into its lowest bin. */
+		private void reshape(int newOffset, int newLength) {
+			long[] newCounts = new long[newLength];
+			for (int i = 0; i < length; i++) {
+				if (counts[i] != 0) {
+					newCounts[Math.max(offset + i, newOffset) - newOffset] += counts[i];
+				}
+			}
+			counts = newCounts;
+			offset = newOffset;
+			length = newLength;
+		}
+
+		void merge(Store other) {
+			zeroCount += other.zeroCount;
+			for (int i = 0; i < other.length; i++) {
+				if (other.counts[i] != 0) {
+					add(other.offset + i, other.counts[i]);
+				}
+			}
+		}
+	}
+}
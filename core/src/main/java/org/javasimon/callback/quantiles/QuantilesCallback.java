@@ -4,11 +4,17 @@ import static org.javasimon.callback.logging.LogTemplates.disabled;
 import static org.javasimon.callback.logging.LogTemplates.everyNSeconds;
 import static org.javasimon.callback.logging.LogTemplates.toSLF4J;
 
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.Manager;
+import org.javasimon.Simon;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 import org.javasimon.callback.logging.LogTemplate;
+import org.javasimon.clock.SimonClock;
 
 /**
  * Callback which stores data in buckets to compute quantiles.
@@ -20,24 +26,39 @@ import org.javasimon.callback.logging.LogTemplate;
  * <li>{@link AutoQuantilesCallback} tries to determine the best configuration for each Stopwatch.</li>
  * <li>{@link FixedQuantilesCallback} uses a fixed configuration for all Stopwatches.</li>
  * </ul>
+ * With {@link BucketsType#LOG_LINEAR} buckets or {@link BucketsType#SKETCH} no range configuration or warm-up is needed,
+ * sketches are also small enough to be used for all Stopwatches and they can be merged ({@link #mergeSketches(Simon)}).
+ * <p/>
+ * Buckets collect values since their creation. With {@link #setSlidingWindow(long, TimeUnit)} the callback additionally
+ * keeps {@link SlidingWindowBuckets} for each Stopwatch (see {@link #sampleSlidingWindow(Stopwatch, long)}) to get
+ * quantiles of the recent values only, e.g. for the last 1, 5 and 15 minutes.
  *
  * @author gquintana
  * @see Buckets
  * @since 3.2
  */
 @SuppressWarnings("UnusedDeclaration")
-public abstract class QuantilesCallback extends CallbackSkeleton {
+public abstract class QuantilesCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 
 	/** Simon attribute name of the buckets stored in Simons after warmup time. */
 	public static final String ATTR_NAME_BUCKETS = "buckets";
 
+	/** Simon attribute name of the sliding window buckets, stored only if the sliding window is enabled. */
+	public static final String ATTR_NAME_SLIDING_WINDOW_BUCKETS = "slidingWindowBuckets";
+
 	/** SLF4J log template shared by all stopwatches. */
 	private final LogTemplate<Split> enabledStopwatchLogTemplate = toSLF4J(getClass().getName(), "debug");
 
 	/** Global flag indicating whether last splits should be logged once in a while. */
 	private boolean logEnabled = false;
-	/** Type of the buckets: linear or exponential. */
+	/** Type of the buckets: linear, exponential or log-linear. */
 	private BucketsType bucketsType;
+	/** Number of significant digits of {@link BucketsType#LOG_LINEAR} buckets. */
+	private int significantDigits = LogLinearBuckets.DEFAULT_SIGNIFICANT_DIGITS;
+	/** Length of the sliding window in ms, 0 if disabled. */
+	private long slidingWindow;
+	/** Clock rotating the sliding windows, replaced by the Manager when the callback is initialized. */
+	private SimonClock clock = SimonClock.SYSTEM;
 
 	/** Default constructor. */
 	protected QuantilesCallback() {
@@ -62,6 +83,57 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 		return bucketsType;
 	}
 
+	/**
+	 * Returns number of significant digits used by {@link BucketsType#LOG_LINEAR} buckets.
+	 *
+	 * @return significant digits
+	 * @since 4.2
+	 */
+	public int getSignificantDigits() {
+		return significantDigits;
+	}
+
+	/**
+	 * Sets number of significant digits used by {@link BucketsType#LOG_LINEAR} buckets (1 to 5, default 2),
+	 * must be set before any buckets are created.
+	 *
+	 * @param significantDigits significant digits
+	 * @since 4.2
+	 */
+	public void setSignificantDigits(int significantDigits) {
+		this.significantDigits = significantDigits;
+	}
+
+	/**
+	 * Returns length of the sliding window in ms.
+	 *
+	 * @return sliding window in ms, 0 if disabled
+	 * @since 4.2
+	 */
+	public long getSlidingWindow() {
+		return slidingWindow;
+	}
+
+	/**
+	 * Enables sliding window quantiles, must be set before any buckets are created. Window is split into
+	 * {@link SlidingWindowBuckets#DEFAULT_SLOT_NB} slots, relative accuracy of the windowed quantiles is given by
+	 * the {@link #setSignificantDigits(int) significant digits}.
+	 *
+	 * @param window length of the longest window, e.g. 15 minutes, 0 disables sliding windows
+	 * @param unit time unit of the window
+	 * @since 4.2
+	 */
+	public void setSlidingWindow(long window, TimeUnit unit) {
+		long windowMillis = unit.toMillis(window);
+		this.slidingWindow = windowMillis - windowMillis % SlidingWindowBuckets.DEFAULT_SLOT_NB;
+	}
+
+	/** Uses Manager as the clock of sliding windows. */
+	@Override
+	public void initialize(Manager manager) {
+		clock = manager;
+	}
+
 	public boolean isLogEnabled() {
 		return logEnabled;
 	}
@@ -94,6 +166,36 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 		return (Buckets) stopwatch.getAttribute(ATTR_NAME_BUCKETS);
 	}
 
+	/**
+	 * Merges quantile sketches of all Stopwatches in the hierarchy under the Simon (including the Simon itself),
+	 * e.g. to get quantiles for the whole group of Stopwatches. Buckets of other types are ignored.
+	 *
+	 * @param simon root of the merged hierarchy
+	 * @return merged sketch or {@code null} if there is no sketch in the hierarchy
+	 * @throws IllegalArgumentException if the sketches have different relative accuracy
+	 * @since 4.2
+	 */
+	public static QuantileSketch mergeSketches(Simon simon) {
+		QuantileSketch merged = null;
+		if (simon instanceof Stopwatch) {
+			Buckets buckets = getBuckets((Stopwatch) simon);
+			if (buckets instanceof QuantileSketch) {
+				merged = ((QuantileSketch) buckets).snapshot();
+			}
+		}
+		for (Simon child : simon.getChildren()) {
+			QuantileSketch childSketch = mergeSketches(child);
+			if (childSketch != null) {
+				if (merged == null) {
+					merged = childSketch;
+				} else {
+					merged.merge(childSketch);
+				}
+			}
+		}
+		return merged;
+	}
+
 	/**
 	 * Factory method to create a Buckets object using given configuration.
 	 *
@@ -104,7 +206,7 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	 * @return Buckets
 	 */
 	protected final Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb) {
-		Buckets buckets = bucketsType.createBuckets(stopwatch, min, max, bucketNb);
+		Buckets buckets = bucketsType.createBuckets(stopwatch, min, max, bucketNb, significantDigits);
 		buckets.setLogTemplate(createLogTemplate(stopwatch));
 		return buckets;
 	}
@@ -121,14 +223,61 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	/** Returns the buckets attribute or create it if it does not exist. */
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
 	protected final Buckets getOrCreateBuckets(Stopwatch stopwatch) {
-		synchronized (stopwatch) {
-			Buckets buckets = getBuckets(stopwatch);
-			if (buckets == null) {
-				buckets = createBuckets(stopwatch);
-				stopwatch.setAttribute(ATTR_NAME_BUCKETS, buckets);
+		Buckets buckets = getBuckets(stopwatch);
+		if (buckets == null) {
+			synchronized (stopwatch) {
+				buckets = getBuckets(stopwatch);
+				if (buckets == null) {
+					buckets = createBuckets(stopwatch);
+					stopwatch.setAttribute(ATTR_NAME_BUCKETS, buckets);
+				}
 			}
-			return buckets;
 		}
+		return buckets;
+	}
+
+	/**
+	 * Returns the sliding window buckets attribute.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @return sliding window buckets or {@code null} if sliding window is not enabled
+	 * @since 4.2
+	 */
+	public static SlidingWindowBuckets getSlidingWindowBuckets(Stopwatch stopwatch) {
+		return (SlidingWindowBuckets) stopwatch.getAttribute(ATTR_NAME_SLIDING_WINDOW_BUCKETS);
+	}
+
+	/**
+	 * Samples quantiles of the values added during the last part of the sliding window.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param windowMillis length of the window in ms, e.g. 60000 for the last minute
+	 * @return sample or {@code null} if sliding window is not enabled
+	 * @since 4.2
+	 */
+	public static BucketsSample sampleSlidingWindow(Stopwatch stopwatch, long windowMillis) {
+		SlidingWindowBuckets buckets = getSlidingWindowBuckets(stopwatch);
+		return buckets == null ? null : buckets.sample(windowMillis);
+	}
+
+	/** Adds the split into the sliding window buckets (created if needed) if the sliding window is enabled. */
+	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+	private void addToSlidingWindow(Stopwatch stopwatch, Split split) {
+		if (slidingWindow == 0) {
+			return;
+		}
+		SlidingWindowBuckets buckets = getSlidingWindowBuckets(stopwatch);
+		if (buckets == null) {
+			synchronized (stopwatch) {
+				buckets = getSlidingWindowBuckets(stopwatch);
+				if (buckets == null) {
+					buckets = new SlidingWindowBuckets(slidingWindow, SlidingWindowBuckets.DEFAULT_SLOT_NB,
+						Math.pow(10, -significantDigits), clock);
+					stopwatch.setAttribute(ATTR_NAME_SLIDING_WINDOW_BUCKETS, buckets);
+				}
+			}
+		}
+		buckets.addValue(split.runningFor());
 	}
 
 	/** Returns the buckets attribute and sample them. */
@@ -156,12 +305,14 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	 */
 	@Override
 	public void onStopwatchStop(Split split, StopwatchSample sample) {
+		addToSlidingWindow(split.getStopwatch(), split);
 		onStopwatchSplit(split.getStopwatch(), split);
 	}
 
 	/** When a split is added, if buckets have been initialized, the value is added to appropriate bucket. */
 	@Override
 	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
-		onStopwatchSplit(split.getStopwatch(), split);
+		addToSlidingWindow(stopwatch, split);
+		onStopwatchSplit(stopwatch, split);
 	}
 }
@@ -0,0 +1,269 @@
+package org.javasimon.callback.quantiles;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Time-windowed {@link Buckets} - quantiles are computed only from the values added during the last minutes
+ * and not since the creation of the Stopwatch. Window is split into slots (ring of {@link QuantileSketch}es),
+ * each value is added into the sketch of the current slot and sketch of the slot is replaced when the clock
+ * moves past the slot - no background thread is needed. Quantiles are computed from the merged sketches
+ * of the slots that are still in the window, hence the same buckets answer quantiles for any window up to
+ * the configured one, e.g. for the last 1, 5 and 15 minutes ({@link #sample(long)}).
+ * <br/>
+ * Slot is replaced with CAS and the value is added into the striped sketch, so writers do not wait for each other
+ * nor for the readers. Sketch of the slot is allocated once by the first writer after the slot is installed,
+ * value added into a slot replaced in the meantime is added again into the current slot. Current slot is not
+ * complete, window covers between {@code window - slot} and {@code window} milliseconds of the most recent values.
+ * Sketch is allocated only for slots with some values, idle Stopwatch holds only the ring of references.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see QuantilesCallback#setSlidingWindow(long, java.util.concurrent.TimeUnit)
+ * @since 4.2
+ */
+public class SlidingWindowBuckets extends Buckets {
+
+	/** Default window - 15 minutes. */
+	public static final long DEFAULT_WINDOW = TimeUnit.MINUTES.toMillis(15);
+
+	/** Default number of slots in the window - 15 s slots for the default window. */
+	public static final int DEFAULT_SLOT_NB = 60;
+
+	private final long window;
+	private final long slotMillis;
+	private final double relativeAccuracy;
+	private final int maxBins;
+	private final SimonClock clock;
+
+	private final AtomicReferenceArray<Slot> slots;
+
+	/**
+	 * Creates buckets with the default window, number of slots and sketch accuracy.
+	 *
+	 * @param clock clock used to rotate the slots
+	 */
+	public SlidingWindowBuckets(SimonClock clock) {
+		this(DEFAULT_WINDOW, DEFAULT_SLOT_NB, QuantileSketch.DEFAULT_RELATIVE_ACCURACY, clock);
+	}
+
+	/**
+	 * Creates buckets with the specified window.
+	 *
+	 * @param window window length in ms
+	 * @param slotNb number of slots in the window, window must be divisible by the number of slots
+	 * @param relativeAccuracy relative accuracy of the slot sketches, e.g. 0.01 for 1 %
+	 * @param clock clock used to rotate the slots
+	 */
+	public SlidingWindowBuckets(long window, int slotNb, double relativeAccuracy, SimonClock clock) {
+		super(0, Long.MAX_VALUE);
+		if (slotNb < 1 || window < slotNb || window % slotNb != 0) {
+			throw new IllegalArgumentException("Expected window divisible by the positive number of slots: " + window + "/" + slotNb);
+		}
+		if (relativeAccuracy <= 0D || relativeAccuracy >= 1D) {
+			throw new IllegalArgumentException("Expected relative accuracy between 0 and 1 excluded: " + relativeAccuracy);
+		}
+		this.window = window;
+		this.slotMillis = window / slotNb;
+		this.relativeAccuracy = relativeAccuracy;
+		this.maxBins = QuantileSketch.DEFAULT_MAX_BINS;
+		this.clock = clock;
+		this.slots = new AtomicReferenceArray<>(slotNb);
+	}
+
+	/** Returns index of the slot in the ring, slot numbers before the epoch are negative. */
+	private int index(long number) {
+		int index = (int) (number % slots.length());
+		return index < 0 ? index + slots.length() : index;
+	}
+
+	/** Returns the slot for the slot number, replaces the old slot if needed - sketch is not allocated yet. */
+	private Slot currentSlot(long number) {
+		int index = index(number);
+		Slot newSlot = null;
+		while (true) {
+			Slot slot = slots.get(index);
+			// clock going back is tolerated, value is added to the newer slot
+			if (slot != null && slot.number >= number) {
+				return slot;
+			}
+			if (newSlot == null) {
+				newSlot = new Slot(number);
+			}
+			if (slots.compareAndSet(index, slot, newSlot)) {
+				return newSlot;
+			}
+		}
+	}
+
+	/** Returns true if the slot was not replaced by a newer one. */
+	private boolean isCurrent(Slot slot) {
+		return slots.get(index(slot.number)) == slot;
+	}
+
+	/** Adds the value into the sketch of the current slot. */
+	@Override
+	public void addValue(long value) {
+		Slot slot;
+		do {
+			slot = currentSlot(clock.milliTime() / slotMillis);
+			slot.sketch(relativeAccuracy, maxBins).addValue(value);
+		} while (!isCurrent(slot));
+	}
+
+	@Override
+	public void addValues(Collection<Long> values) {
+		Slot slot;
+		do {
+			slot = currentSlot(clock.milliTime() / slotMillis);
+			QuantileSketch sketch = slot.sketch(relativeAccuracy, maxBins);
+			for (Long value : values) {
+				sketch.addValue(value);
+			}
+		} while (!isCurrent(slot));
+	}
+
+	/**
+	 * Merges sketches of the slots in the last part of the window.
+	 *
+	 * @param windowMillis length of the window in ms, rounded up to whole slots and limited to the whole window
+	 * @return new sketch with the values of the window
+	 */
+	public QuantileSketch merge(long windowMillis) {
+		long current = clock.milliTime() / slotMillis;
+		long slotNb = Math.max(1, Math.min(slots.length(), (windowMillis + slotMillis - 1) / slotMillis));
+		QuantileSketch merged = new QuantileSketch(relativeAccuracy, maxBins);
+		for (long number = current - slotNb + 1; number <= current; number++) {
+			Slot slot = slots.get(index(number));
+			QuantileSketch sketch = slot != null && slot.number == number ? slot.sketch : null;
+			if (sketch != null) {
+				merged.merge(sketch);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Samples quantiles of the last part of the window.
+	 *
+	 * @param windowMillis length of the window in ms, rounded up to whole slots and limited to the whole window
+	 * @return buckets sample
+	 */
+	public BucketsSample sample(long windowMillis) {
+		return merge(windowMillis).sample();
+	}
+
+	/** Samples quantiles of the whole window. */
+	@Override
+	public BucketsSample sample() {
+		return sample(window);
+	}
+
+	@Override
+	public double getQuantile(double ratio) {
+		return merge(window).getQuantile(ratio);
+	}
+
+	@Override
+	public Double[] getQuantiles(double... ratios) {
+		return merge(window).getQuantiles(ratios);
+	}
+
+	/** Drops all slots. */
+	@Override
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+	}
+
+	/**
+	 * Returns non-empty bins of the whole window - bucket objects are created on each call.
+	 *
+	 * @return list of non-empty bins
+	 */
+	@Override
+	public List<Bucket> getBuckets() {
+		return merge(window).getBuckets();
+	}
+
+	/**
+	 * Returns number of bins allocated by the merged sketch of the whole window.
+	 *
+	 * @return number of bins
+	 */
+	@Override
+	public int getBucketNb() {
+		return merge(window).getBucketNb();
+	}
+
+	/**
+	 * Returns number of values added during the last part of the window.
+	 *
+	 * @param windowMillis length of the window in ms
+	 * @return count of values
+	 */
+	public long getCount(long windowMillis) {
+		return merge(windowMillis).getCount();
+	}
+
+	/**
+	 * Returns length of the whole window in ms.
+	 *
+	 * @return window in ms
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Returns length of one slot in ms.
+	 *
+	 * @return slot length in ms
+	 */
+	public long getSlotMillis() {
+		return slotMillis;
+	}
+
+	/**
+	 * Returns relative accuracy of the slot sketches.
+	 *
+	 * @return relative accuracy
+	 */
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	/**
+	 * Sketch of one slot, slot number is ms timestamp divided by the slot length. Slot is installed without
+	 * the sketch, so threads losing the CAS for the slot do not allocate sketches only to throw them away.
+	 */
+	private static final class Slot {
+
+		private final long number;
+		/** Sketch of the slot, {@code null} until the first value is added. */
+		private volatile QuantileSketch sketch;
+
+		private Slot(long number) {
+			this.number = number;
+		}
+
+		/** Returns the sketch of the slot, creates it if needed. */
+		private QuantileSketch sketch(double relativeAccuracy, int maxBins) {
+			QuantileSketch result = sketch;
+			if (result == null) {
+				synchronized (this) {
+					result = sketch;
+					if (result == null) {
+						result = new QuantileSketch(relativeAccuracy, maxBins);
+						sketch = result;
+					}
+				}
+			}
+			return result;
+		}
+	}
+}
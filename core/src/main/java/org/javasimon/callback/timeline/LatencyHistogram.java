@@ -0,0 +1,150 @@
+package org.javasimon.callback.timeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact histogram of split durations kept for each time range of the timeline. Each power of two
+ * is split into {@value #SUB_BUCKET_NB} linear buckets, bucket upper bound is at most 25 % above its lower bound.
+ * All histograms share the same buckets, hence they can be merged and put side by side, e.g. as a heatmap
+ * (see {@link TimelineSample#getLatencyMatrix()}). Adding value is lock-free and costs one atomic increment,
+ * counters take about 2 KB.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class LatencyHistogram {
+
+	/** Number of linear sub-buckets of each power of two. */
+	public static final int SUB_BUCKET_NB = 4;
+
+	/** Number of buckets - values up to {@link Long#MAX_VALUE} are covered. */
+	public static final int BUCKET_NB = 62 * SUB_BUCKET_NB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_NB);
+
+	/**
+	 * Returns index of the bucket for the value, values lower than 1 go to the first bucket.
+	 *
+	 * @param value value in ns
+	 * @return bucket index
+	 */
+	public static int getBucketIndex(long value) {
+		if (value < SUB_BUCKET_NB) {
+			return value < 0 ? 0 : (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKET_NB - 1);
+		return (exponent - 1) * SUB_BUCKET_NB + subBucket;
+	}
+
+	/**
+	 * Returns the lowest value counted in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return lower bound in ns
+	 */
+	public static long getBucketMin(int index) {
+		if (index < SUB_BUCKET_NB) {
+			return index;
+		}
+		return (long) (SUB_BUCKET_NB + index % SUB_BUCKET_NB) << (index / SUB_BUCKET_NB - 1);
+	}
+
+	/**
+	 * Returns the highest value counted in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return upper bound in ns
+	 */
+	public static long getBucketMax(int index) {
+		return index == BUCKET_NB - 1 ? Long.MAX_VALUE : getBucketMin(index + 1) - 1;
+	}
+
+	/**
+	 * Adds the value.
+	 *
+	 * @param value value in ns
+	 */
+	public void addValue(long value) {
+		counts.incrementAndGet(getBucketIndex(value));
+	}
+
+	/**
+	 * Returns count of values in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return count
+	 */
+	public long getCount(int index) {
+		return counts.get(index);
+	}
+
+	/**
+	 * Returns total count of the values.
+	 *
+	 * @return total count
+	 */
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_NB; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Estimates quantile, value is interpolated linearly within the bucket.
+	 *
+	 * @param ratio Nth quantile: 0.5 is median, 0.99 is 99th percentile
+	 * @return quantile in ns or {@code null} if there is no value
+	 */
+	public Double getQuantile(double ratio) {
+		if (ratio <= 0.0D || ratio >= 1.0D) {
+			throw new IllegalArgumentException("Expected ratio between 0 and 1 excluded: " + ratio);
+		}
+		long[] copy = new long[BUCKET_NB];
+		long total = 0;
+		for (int i = 0; i < BUCKET_NB; i++) {
+			copy[i] = counts.get(i);
+			total += copy[i];
+		}
+		if (total == 0) {
+			return null;
+		}
+		double expectedCount = ratio * total;
+		long lastCount = 0;
+		for (int i = 0; i < BUCKET_NB; i++) {
+			if (copy[i] > 0 && expectedCount < lastCount + copy[i]) {
+				double width = (double) getBucketMax(i) - getBucketMin(i) + 1;
+				return getBucketMin(i) + (expectedCount - lastCount) * width / copy[i];
+			}
+			lastCount += copy[i];
+		}
+		return (double) getBucketMax(BUCKET_NB - 1);
+	}
+
+	/**
+	 * Adds all values of the other histogram into this histogram.
+	 *
+	 * @param other other histogram
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < BUCKET_NB; i++) {
+			long count = other.counts.get(i);
+			if (count != 0) {
+				counts.addAndGet(i, count);
+			}
+		}
+	}
+
+	/**
+	 * Returns independent copy of the histogram, copy is not atomic if values are added concurrently.
+	 *
+	 * @return copy of the histogram
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.merge(this);
+		return copy;
+	}
+}
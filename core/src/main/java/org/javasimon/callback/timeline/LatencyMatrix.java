@@ -0,0 +1,106 @@
+package org.javasimon.callback.timeline;
+
+/**
+ * Latency distribution over time - matrix of split counts where rows are time ranges and columns are
+ * {@link LatencyHistogram} buckets. Only buckets between the lowest and the highest non-empty bucket are included.
+ * Matrix can be displayed as a heatmap to see when the tail latency went up even if the mean did not move.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @see TimelineSample#getLatencyMatrix()
+ * @since 4.2
+ */
+public final class LatencyMatrix {
+
+	private final long[] timestamps;
+	private final long[] bucketMins;
+	private final long[] bucketMaxs;
+	private final long[][] counts;
+	private final long maxCount;
+
+	/**
+	 * Builds the matrix from the time ranges, time ranges without histogram have all counts 0.
+	 *
+	 * @param timeRanges time ranges (rows)
+	 */
+	LatencyMatrix(TimeRange[] timeRanges) {
+		int minIndex = LatencyHistogram.BUCKET_NB;
+		int maxIndex = -1;
+		for (TimeRange timeRange : timeRanges) {
+			LatencyHistogram histogram = timeRange.getLatencyHistogram();
+			if (histogram != null) {
+				for (int i = 0; i < LatencyHistogram.BUCKET_NB; i++) {
+					if (histogram.getCount(i) > 0) {
+						minIndex = Math.min(minIndex, i);
+						maxIndex = Math.max(maxIndex, i);
+					}
+				}
+			}
+		}
+		int columns = Math.max(0, maxIndex - minIndex + 1);
+		bucketMins = new long[columns];
+		bucketMaxs = new long[columns];
+		for (int c = 0; c < columns; c++) {
+			bucketMins[c] = LatencyHistogram.getBucketMin(minIndex + c);
+			bucketMaxs[c] = LatencyHistogram.getBucketMax(minIndex + c);
+		}
+		timestamps = new long[timeRanges.length];
+		counts = new long[timeRanges.length][columns];
+		long max = 0;
+		for (int r = 0; r < timeRanges.length; r++) {
+			timestamps[r] = timeRanges[r].getStartTimestamp();
+			LatencyHistogram histogram = timeRanges[r].getLatencyHistogram();
+			if (histogram != null) {
+				for (int c = 0; c < columns; c++) {
+					counts[r][c] = histogram.getCount(minIndex + c);
+					max = Math.max(max, counts[r][c]);
+				}
+			}
+		}
+		maxCount = max;
+	}
+
+	/**
+	 * Returns start timestamps of the time ranges (rows).
+	 *
+	 * @return ms timestamps
+	 */
+	public long[] getTimestamps() {
+		return timestamps;
+	}
+
+	/**
+	 * Returns lower bounds of the buckets (columns).
+	 *
+	 * @return lower bounds in ns
+	 */
+	public long[] getBucketMins() {
+		return bucketMins;
+	}
+
+	/**
+	 * Returns upper bounds of the buckets (columns).
+	 *
+	 * @return upper bounds in ns
+	 */
+	public long[] getBucketMaxs() {
+		return bucketMaxs;
+	}
+
+	/**
+	 * Returns split counts indexed by time range and bucket.
+	 *
+	 * @return matrix of counts {@code [timeRange][bucket]}
+	 */
+	public long[][] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Returns the highest count in the matrix, useful to scale the heatmap colors.
+	 *
+	 * @return max count
+	 */
+	public long getMaxCount() {
+		return maxCount;
+	}
+}
@@ -1,36 +1,85 @@
 package org.javasimon.callback.timeline;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import org.javasimon.utils.SimonUtils;
 
 /**
  * Stopwatch statistics gathered for a specific time range.
- * This class is not intended to be thread safe.
+ * Splits can be added concurrently without locking, counters are updated atomically. Time ranges
+ * returned in {@link TimelineSample} are immutable copies ({@link #copy()}). Optionally the time range
+ * keeps also {@link LatencyHistogram} of the split durations.
  *
  * @author gerald
  */
 public class StopwatchTimeRange extends TimeRange {
 
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> MIN =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "min");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> MAX =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "max");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> TOTAL =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "total");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> SQUARE_TOTAL =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "squareTotal");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> COUNTER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "counter");
+
 	/** Last value. */
-	private long last;
+	private volatile long last;
 
 	/** Minimum value. */
-	private long min = Long.MAX_VALUE;
+	private volatile long min = Long.MAX_VALUE;
 
 	/** Maximum value. */
-	private long max = Long.MIN_VALUE;
+	private volatile long max = Long.MIN_VALUE;
 
 	/** Total sum of all values. */
-	private long total;
+	private volatile long total;
 
-	/** Sum of squares. */
-	private long squareTotal;
+	/** Sum of squares, double bits - square of a long split (over 3 s) would overflow long. */
+	private volatile long squareTotal;
 
 	/** Counter - number of values. */
-	private long counter;
+	private volatile long counter;
+
+	/** Distribution of the values, {@code null} if not collected. */
+	private final LatencyHistogram latencyHistogram;
+
+	/** Whether this is an immutable copy. */
+	private final boolean immutable;
 
 	/** Main constructor. */
 	public StopwatchTimeRange(long startTimestamp, long endTimestamp) {
+		this(startTimestamp, endTimestamp, false);
+	}
+
+	/**
+	 * Constructor with optional latency histogram.
+	 *
+	 * @param startTimestamp Beginning of the time range
+	 * @param endTimestamp Ending of the time range
+	 * @param latencyHistogram whether the {@link LatencyHistogram} should be collected
+	 * @since 4.2
+	 */
+	public StopwatchTimeRange(long startTimestamp, long endTimestamp, boolean latencyHistogram) {
 		super(startTimestamp, endTimestamp);
+		this.latencyHistogram = latencyHistogram ? new LatencyHistogram() : null;
+		this.immutable = false;
+	}
+
+	/** Copy constructor, counter is read first - other values may already include concurrently added splits. */
+	private StopwatchTimeRange(StopwatchTimeRange timeRange) {
+		super(timeRange.getStartTimestamp(), timeRange.getEndTimestamp());
+		counter = timeRange.counter;
+		total = timeRange.total;
+		squareTotal = timeRange.squareTotal;
+		min = timeRange.min;
+		max = timeRange.max;
+		last = timeRange.last;
+		lastTimestamp = timeRange.lastTimestamp;
+		latencyHistogram = timeRange.latencyHistogram != null ? timeRange.latencyHistogram.copy() : null;
+		immutable = true;
 	}
 
 	/**
@@ -40,19 +89,55 @@ public class StopwatchTimeRange extends TimeRange {
 	 * @param durationInNs how long the split was, expressed in nanoseconds
 	 */
 	public void addSplit(long timestampInMs, long durationInNs) {
-		last = durationInNs;
-		total += durationInNs;
-		squareTotal += durationInNs * durationInNs;
-		if (durationInNs > max) {
-			max = durationInNs;
+		if (immutable) {
+			throw new UnsupportedOperationException("Time range sample is immutable");
 		}
-		if (durationInNs < min) {
-			min = durationInNs;
+		last = durationInNs;
+		TOTAL.addAndGet(this, durationInNs);
+		addSquare((double) durationInNs * durationInNs);
+		updateMax(durationInNs);
+		updateMin(durationInNs);
+		if (latencyHistogram != null) {
+			latencyHistogram.addValue(durationInNs);
 		}
-		counter++;
+		COUNTER.incrementAndGet(this);
 		lastTimestamp = timestampInMs;
 	}
 
+	private void addSquare(double square) {
+		long current;
+		do {
+			current = squareTotal;
+		} while (!SQUARE_TOTAL.compareAndSet(this, current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + square)));
+	}
+
+	private void updateMax(long value) {
+		long current;
+		while (value > (current = max)) {
+			if (MAX.compareAndSet(this, current, value)) {
+				return;
+			}
+		}
+	}
+
+	private void updateMin(long value) {
+		long current;
+		while (value < (current = min)) {
+			if (MIN.compareAndSet(this, current, value)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns immutable copy of this time range, values added concurrently may or may not be included.
+	 *
+	 * @return copy of the time range
+	 */
+	public StopwatchTimeRange copy() {
+		return immutable ? this : new StopwatchTimeRange(this);
+	}
+
 	public long getLast() {
 		return last;
 	}
@@ -73,6 +158,21 @@ public class StopwatchTimeRange extends TimeRange {
 		return counter;
 	}
 
+	@Override
+	public LatencyHistogram getLatencyHistogram() {
+		return latencyHistogram;
+	}
+
+	/**
+	 * Estimates 99th percentile from the latency histogram.
+	 *
+	 * @return 99th percentile or {@code null} if the histogram is not collected or empty
+	 * @since 4.2
+	 */
+	public Double getPercentile99() {
+		return latencyHistogram != null ? latencyHistogram.getQuantile(0.99D) : null;
+	}
+
 	/** Computes mean (average) using total and non-zero counter. */
 	private double computeMean() {
 		return ((double) total) / counter;
@@ -98,7 +198,7 @@ public class StopwatchTimeRange extends TimeRange {
 		} else {
 			final double mean = computeMean();
 			final double meanSquare = mean * mean;
-			final double squareMean = ((double) squareTotal) / counter;
+			final double squareMean = Double.longBitsToDouble(squareTotal) / counter;
 			return squareMean - meanSquare;
 		}
 	}
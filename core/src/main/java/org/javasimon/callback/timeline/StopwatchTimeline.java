@@ -1,5 +1,7 @@
 package org.javasimon.callback.timeline;
 
+import java.util.List;
+
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.clock.SimonClock;
@@ -11,6 +13,9 @@ import org.javasimon.clock.SimonClock;
  */
 public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 
+	/** Whether time ranges collect latency histograms. */
+	private final boolean latencyHistograms;
+
 	/**
 	 * Main constructor.
 	 *
@@ -18,7 +23,20 @@ public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 	 * @param timeRangeWidth Width of each time range
 	 */
 	public StopwatchTimeline(int capacity, long timeRangeWidth) {
+		this(capacity, timeRangeWidth, false);
+	}
+
+	/**
+	 * Constructor for timeline with latency distribution for each time range.
+	 *
+	 * @param capacity Number of time range.
+	 * @param timeRangeWidth Width of each time range
+	 * @param latencyHistograms whether time ranges collect {@link LatencyHistogram}s
+	 * @since 4.2
+	 */
+	public StopwatchTimeline(int capacity, long timeRangeWidth, boolean latencyHistograms) {
 		super(capacity, timeRangeWidth);
+		this.latencyHistograms = latencyHistograms;
 	}
 
 	/**
@@ -30,7 +48,7 @@ public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 	 */
 	@Override
 	protected StopwatchTimeRange createTimeRange(long startTimestamp, long endTimestamp) {
-		return new StopwatchTimeRange(startTimestamp, endTimestamp);
+		return new StopwatchTimeRange(startTimestamp, endTimestamp, latencyHistograms);
 	}
 
 	/**
@@ -38,36 +56,30 @@ public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 	 * <li>Split start is used to determine in which time-range it should be split. A new time range may be created if needed.</li>
 	 * <li>Split duration is added to time range statistics.
 	 * </ol>
-	 * The split might be drop if it's too old.
+	 * The split might be drop if it's too old. Neither of the steps locks.
 	 *
 	 * @param split Split
 	 */
 	public void addSplit(Split split) {
 		final long timestamp = split.getStartMillis();
-		StopwatchTimeRange timeRange;
-		synchronized (this) {
-			timeRange = getOrCreateTimeRange(timestamp);
-		}
+		StopwatchTimeRange timeRange = getOrCreateTimeRange(timestamp);
 		if (timeRange != null) {
-			//noinspection SynchronizationOnLocalVariableOrMethodParameter
-			synchronized (timeRange) {
-				timeRange.addSplit(timestamp, split.runningFor());
-			}
+			timeRange.addSplit(timestamp, split.runningFor());
 		}
 	}
 
 	/**
-	 * Take a snapshot of the timeline.
+	 * Take a snapshot of the timeline, time ranges are immutable copies sorted by their start.
 	 *
 	 * @return Timeline sample
 	 */
 	@Override
 	public TimelineSample<StopwatchTimeRange> sample() {
-		StopwatchTimeRange[] timeRangesCopy;
-		synchronized (this) {
-			timeRangesCopy = timeRanges.toArray(new StopwatchTimeRange[timeRanges.size()]);
+		List<StopwatchTimeRange> liveTimeRanges = getTimeRanges();
+		StopwatchTimeRange[] timeRangesCopy = new StopwatchTimeRange[liveTimeRanges.size()];
+		for (int i = 0; i < timeRangesCopy.length; i++) {
+			timeRangesCopy[i] = liveTimeRanges.get(i).copy();
 		}
-		// TODO sample each time-range by making a copy of it
-		return new TimelineSample<>(timeRanges.getCapacity(), timeRangeWidth * SimonClock.NANOS_IN_MILLIS, timeRangesCopy);
+		return new TimelineSample<>(getCapacity(), timeRangeWidth * SimonClock.NANOS_IN_MILLIS, timeRangesCopy);
 	}
 }
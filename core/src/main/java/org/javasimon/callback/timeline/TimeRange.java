@@ -21,7 +21,7 @@ public class TimeRange {
 	/**
 	 * Timestamp of last change
 	 */
-	protected long lastTimestamp;
+	protected volatile long lastTimestamp;
 
 	/**
 	 * Main constructor.
@@ -42,6 +42,16 @@ public class TimeRange {
 		return endTimestamp;
 	}
 
+	/**
+	 * Returns distribution of values in this time range, by default it is not collected.
+	 *
+	 * @return latency histogram or {@code null} if not collected
+	 * @since 4.2
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return null;
+	}
+
 	/**
 	 * Indicates whether this time range contains given timestamp.
 	 *
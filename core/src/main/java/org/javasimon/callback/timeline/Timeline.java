@@ -1,21 +1,32 @@
 package org.javasimon.callback.timeline;
 
-import org.javasimon.callback.lastsplits.CircularList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Collection of values sorted on a time line.
+ * <p/>
+ * Time ranges are stored in a fixed array, the time range for the timestamp is found at index
+ * {@code (timestamp / width) % capacity} and its start timestamp tells whether it is the current time range
+ * or an older one that should be replaced. Finding the time range is done in constant time without locking,
+ * new time range replaces the old one using CAS. New time ranges are created only for timestamps not older
+ * than the newest time range, late values are added only if their time range still exists.
  *
  * @author gerald
  */
 public abstract class Timeline<TR extends TimeRange> {
 
-	/** List of time ranges. */
-	protected final CircularList<TR> timeRanges;
+	/** Array of time ranges indexed by timestamp divided by the time range width. */
+	protected final AtomicReferenceArray<TR> timeRanges;
 	/** Time range width in milliseconds. */
 	protected final long timeRangeWidth;
 
-	/** Last used time range. */
-	private TR lastTimeRange;
+	/** Start timestamp of the newest time range, {@link Long#MIN_VALUE} if there is no time range. */
+	private final AtomicLong lastStartTimestamp = new AtomicLong(Long.MIN_VALUE);
 
 	/**
 	 * Main constructor.
@@ -24,7 +35,7 @@ public abstract class Timeline<TR extends TimeRange> {
 	 * @param timeRangeWidth Width of each time range
 	 */
 	protected Timeline(int capacity, long timeRangeWidth) {
-		this.timeRanges = new CircularList<>(capacity);
+		this.timeRanges = new AtomicReferenceArray<>(capacity);
 		this.timeRangeWidth = timeRangeWidth;
 	}
 
@@ -37,34 +48,77 @@ public abstract class Timeline<TR extends TimeRange> {
 	 */
 	protected abstract TR createTimeRange(long startTimestamp, long endTimestamp);
 
+	/** Returns index of the time range starting at the timestamp. */
+	private int index(long startTimestamp) {
+		int index = (int) ((startTimestamp / timeRangeWidth) % timeRanges.length());
+		return index < 0 ? index + timeRanges.length() : index;
+	}
+
 	/**
-	 * Returns existing time range if it already exists or create a new one.
+	 * Returns existing time range if it already exists or create a new one, does not lock.
+	 *
+	 * @param timestamp timestamp in ms
+	 * @return time range or {@code null} if the timestamp is too old
 	 */
 	protected final TR getOrCreateTimeRange(long timestamp) {
-		TR timeRange;
-		if (lastTimeRange == null || timestamp > lastTimeRange.getEndTimestamp()) {
-			// New time range
-			long roundedTimestamp = timestamp - timestamp % timeRangeWidth;
-			timeRange = createTimeRange(roundedTimestamp, roundedTimestamp + timeRangeWidth);
-			timeRanges.add(timeRange);
-			lastTimeRange = timeRange;
-		} else if (timestamp >= lastTimeRange.getStartTimestamp()) {
-			// Current time range
-			timeRange = lastTimeRange;
-		} else {
-			// Old time range
-			timeRange = null;
-			// Not very good from performance point of view
-			// iterating from end till start would be a better solution
-			for (TR oldTimeRange : timeRanges) {
-				if (oldTimeRange.containsTimestamp(timestamp)) {
-					timeRange = oldTimeRange;
-					break;
+		long startTimestamp = timestamp - timestamp % timeRangeWidth;
+		int index = index(startTimestamp);
+		while (true) {
+			TR timeRange = timeRanges.get(index);
+			if (timeRange != null && timeRange.getStartTimestamp() == startTimestamp) {
+				// Current time range (or a late split for an existing one)
+				return timeRange;
+			}
+			long lastStart = lastStartTimestamp.get();
+			if (startTimestamp < lastStart
+				|| timeRange != null && timeRange.getStartTimestamp() > startTimestamp) {
+				// Old time range that does not exist anymore
+				return null;
+			}
+			TR newTimeRange = createTimeRange(startTimestamp, startTimestamp + timeRangeWidth);
+			if (timeRanges.compareAndSet(index, timeRange, newTimeRange)) {
+				while (lastStart < startTimestamp && !lastStartTimestamp.compareAndSet(lastStart, startTimestamp)) {
+					lastStart = lastStartTimestamp.get();
 				}
+				return newTimeRange;
+			}
+		}
+	}
+
+	/**
+	 * Returns time ranges that are still on the timeline sorted by their start, time ranges are not copied.
+	 *
+	 * @return list of time ranges
+	 */
+	protected final List<TR> getTimeRanges() {
+		List<TR> list = new ArrayList<>(timeRanges.length());
+		long lastStart = lastStartTimestamp.get();
+		if (lastStart == Long.MIN_VALUE) {
+			return list;
+		}
+		long oldestStart = lastStart - (timeRanges.length() - 1) * timeRangeWidth;
+		for (int i = 0; i < timeRanges.length(); i++) {
+			TR timeRange = timeRanges.get(i);
+			if (timeRange != null && timeRange.getStartTimestamp() >= oldestStart) {
+				list.add(timeRange);
 			}
 		}
+		Collections.sort(list, new Comparator<TR>() {
+			@Override
+			public int compare(TR timeRange1, TR timeRange2) {
+				return Long.compare(timeRange1.getStartTimestamp(), timeRange2.getStartTimestamp());
+			}
+		});
+		return list;
+	}
 
-		return timeRange;
+	/**
+	 * Returns number of time ranges.
+	 *
+	 * @return capacity
+	 */
+	public int getCapacity() {
+		return timeRanges.length();
 	}
 
 	public abstract TimelineSample<TR> sample();
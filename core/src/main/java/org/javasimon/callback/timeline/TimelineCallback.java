@@ -5,6 +5,7 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 
 /**
  * Timeline callback aims at keeping simon data for the last N minutes.
@@ -13,10 +14,13 @@ import org.javasimon.callback.CallbackSkeleton;
  * <p/>
  * Example: a timeline containing 6 time ranges of 10 minutes each can be used to
  * see evolution for an hour.
+ * <p/>
+ * Optionally each time range collects also {@link LatencyHistogram} of the split durations, latency distribution
+ * over time is then available as {@link TimelineSample#getLatencyMatrix()}.
  *
  * @author gerald
  */
-public class TimelineCallback extends CallbackSkeleton {
+public class TimelineCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 
 	/** Default attribute name for storing timelines. */
 	public static final String TIMELINE_ATTRIBUTE_NAME = "timeline";
@@ -27,18 +31,34 @@ public class TimelineCallback extends CallbackSkeleton {
 	private final int timelineCapacity;
 	/** Width in milliseconds of the time ranges. */
 	private final long timeRangeWidth;
+	/** Whether time ranges collect latency histograms. */
+	private final boolean latencyHistograms;
 
 	/**
-	 * Main constructor.
+	 * Constructor with latency histograms option.
 	 *
 	 * @param timelineAttributeName Simon attribute name used for storing Timeline
 	 * @param timelineCapacity Timeline capacity (number of time ranges)
 	 * @param timeRangeWidth Time range width (in milliseconds)
+	 * @param latencyHistograms whether time ranges collect {@link LatencyHistogram}s
+	 * @since 4.2
 	 */
-	public TimelineCallback(String timelineAttributeName, int timelineCapacity, long timeRangeWidth) {
+	public TimelineCallback(String timelineAttributeName, int timelineCapacity, long timeRangeWidth, boolean latencyHistograms) {
 		this.timelineAttributeName = timelineAttributeName;
 		this.timelineCapacity = timelineCapacity;
 		this.timeRangeWidth = timeRangeWidth;
+		this.latencyHistograms = latencyHistograms;
+	}
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param timelineAttributeName Simon attribute name used for storing Timeline
+	 * @param timelineCapacity Timeline capacity (number of time ranges)
+	 * @param timeRangeWidth Time range width (in milliseconds)
+	 */
+	public TimelineCallback(String timelineAttributeName, int timelineCapacity, long timeRangeWidth) {
+		this(timelineAttributeName, timelineCapacity, timeRangeWidth, false);
 	}
 
 	/**
@@ -77,7 +97,7 @@ public class TimelineCallback extends CallbackSkeleton {
 	@Override
 	public void onSimonCreated(Simon simon) {
 		if (simon instanceof Stopwatch) {
-			simon.setAttribute(timelineAttributeName, new StopwatchTimeline(timelineCapacity, timeRangeWidth));
+			simon.setAttribute(timelineAttributeName, new StopwatchTimeline(timelineCapacity, timeRangeWidth, latencyHistograms));
 		}
 	}
 
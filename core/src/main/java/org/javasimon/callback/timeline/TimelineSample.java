@@ -1,7 +1,8 @@
 package org.javasimon.callback.timeline;
 
 /**
- * Snapshot of timeline state
+ * Snapshot of timeline state, time ranges are sorted by their start and they are copies
+ * not changed by splits added to the timeline later.
  *
  * @author gerald
  */
@@ -28,4 +29,19 @@ public class TimelineSample<TR extends TimeRange> {
 		return timeRanges;
 	}
 
+	/**
+	 * Returns latency distribution of the time ranges as a time range x latency bucket matrix.
+	 *
+	 * @return latency matrix or {@code null} if time ranges do not collect {@link LatencyHistogram}
+	 * @since 4.2
+	 */
+	public LatencyMatrix getLatencyMatrix() {
+		for (TR timeRange : timeRanges) {
+			if (timeRange.getLatencyHistogram() != null) {
+				return new LatencyMatrix(timeRanges);
+			}
+		}
+		return null;
+	}
+
 }
@@ -5,6 +5,7 @@ import org.javasimon.Manager;
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.SampleIgnoringCallback;
 
 import java.lang.management.ManagementFactory;
 import java.util.HashSet;
@@ -23,7 +24,7 @@ import javax.management.ObjectName;
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
-public class JmxRegisterCallback extends CallbackSkeleton {
+public class JmxRegisterCallback extends CallbackSkeleton implements SampleIgnoringCallback {
 
 	/** Domain part of the JMX object name - protected for subclasses. */
 	protected String domain;
@@ -18,6 +18,15 @@ public interface StopwatchMXBean extends SimonSuperMXBean {
 	 */
 	long getTotal();
 
+	/**
+	 * Returns total sum of self (exclusive) split times in nanoseconds.
+	 *
+	 * @return self time of the stopwatch in nanoseconds
+	 * @see org.javasimon.Stopwatch#getSelfTotal()
+	 * @since 4.2
+	 */
+	long getSelfTotal();
+
 	/**
 	 * Returns value of the last added split - whether it was added directly or with stop method.
 	 *
@@ -142,6 +151,19 @@ public interface StopwatchMXBean extends SimonSuperMXBean {
 	 */
 	double getVarianceN();
 
+	/**
+	 * Returns median, 90th, 99th and 99.9th percentile of the splits measured during the last minutes.
+	 * Sliding window must be enabled on the quantiles callback, see
+	 * {@link org.javasimon.callback.quantiles.QuantilesCallback#setSlidingWindow(long, java.util.concurrent.TimeUnit)}.
+	 *
+	 * @param windowMinutes length of the window in minutes, e.g. 1, 5 or 15
+	 * @return percentiles in nanoseconds ({@code NaN} if there was no split in the window)
+	 * or {@code null} if sliding window is not enabled
+	 * @see org.javasimon.callback.quantiles.QuantilesCallback#sampleSlidingWindow(org.javasimon.Stopwatch, long)
+	 * @since 4.2
+	 */
+	double[] getWindowPercentiles(int windowMinutes);
+
 	@Override
 	StopwatchSample sample();
 
@@ -1,7 +1,11 @@
 package org.javasimon.jmx;
 
+import java.util.concurrent.TimeUnit;
+
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
+import org.javasimon.callback.quantiles.BucketsSample;
+import org.javasimon.callback.quantiles.QuantilesCallback;
 import org.javasimon.utils.SimonUtils;
 
 /**
@@ -32,6 +36,11 @@ public class StopwatchMXBeanImpl extends AbstractSimonMXBeanImpl implements Stop
 		return stopwatch.getTotal();
 	}
 
+	@Override
+	public long getSelfTotal() {
+		return stopwatch.getSelfTotal();
+	}
+
 	@Override
 	public final long getLast() {
 		return stopwatch.getLast();
@@ -102,6 +111,21 @@ public class StopwatchMXBeanImpl extends AbstractSimonMXBeanImpl implements Stop
 		return stopwatch.getVarianceN();
 	}
 
+	@Override
+	public double[] getWindowPercentiles(int windowMinutes) {
+		BucketsSample sample = QuantilesCallback.sampleSlidingWindow(stopwatch, TimeUnit.MINUTES.toMillis(windowMinutes));
+		if (sample == null) {
+			return null;
+		}
+		return new double[] {
+			toDouble(sample.getMedian()), toDouble(sample.getPercentile90()),
+			toDouble(sample.getPercentile99()), toDouble(sample.getPercentile999())};
+	}
+
+	private static double toDouble(Double value) {
+		return value != null ? value : Double.NaN;
+	}
+
 	@Override
 	public final StopwatchSample sample() {
 		return new StopwatchSample(stopwatch.sample());
@@ -50,6 +50,42 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 	public StopwatchSample(String name, double mean, double stdDev, double var, double varN, String note, long firstUsage,
 		long lastUsage, long total, long counter, long min, long max, long minTimestamp,
 		long maxTimestamp, long active, long maxActive, long maxActiveTimestamp, long last)
+	{
+		this(name, mean, stdDev, var, varN, note, firstUsage, lastUsage, total, counter, min, max, minTimestamp,
+			maxTimestamp, active, maxActive, maxActiveTimestamp, last, 0);
+	}
+
+	/**
+	 * JMX constructor with self time. Constructor used by JMX client code to initialize all properties of object
+	 * from composite data object.
+	 *
+	 * @param name Simon's name
+	 * @param mean mean value (provided optionally)
+	 * @param stdDev standard deviation (provided optionally)
+	 * @param var variance (provided optionally)
+	 * @param varN variance N (provided optionally)
+	 * @param firstUsage first usage ms timestamp
+	 * @param lastUsage last usage ms timestamp
+	 * @param total sum of all measured times
+	 * @param note note (provided optionally)
+	 * @param counter count of measures
+	 * @param min minimal measured time
+	 * @param max maximal measured time
+	 * @param minTimestamp ms timestamp when minimal time was measured
+	 * @param maxTimestamp ms timestamp when maximal time was measured
+	 * @param active count of actual running measures
+	 * @param maxActive maximum parallel measures
+	 * @param maxActiveTimestamp ms timestamp time when maximum parallel measures happened
+	 * @param last last split value in ns
+	 * @param selfTotal sum of self times
+	 * @since 4.2
+	 */
+	@ConstructorProperties({"name", "mean", "standardDeviation", "variance", "varianceN", "note", "firstUsage", "lastUsage",
+		"total", "counter", "min", "max", "minTimestamp", "maxTimestamp", "active", "maxActive",
+		"maxActiveTimestamp", "last", "selfTotal"})
+	public StopwatchSample(String name, double mean, double stdDev, double var, double varN, String note, long firstUsage,
+		long lastUsage, long total, long counter, long min, long max, long minTimestamp,
+		long maxTimestamp, long active, long maxActive, long maxActiveTimestamp, long last, long selfTotal)
 	{
 		setName(name);
 		setMean(mean);
@@ -70,6 +106,7 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setMaxActive(maxActive);
 		setMaxActiveTimestamp(maxActiveTimestamp);
 		setLast(last);
+		setSelfTotal(selfTotal);
 	}
 
 	/**
@@ -98,6 +135,7 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setMaxActive(sample.getMaxActive());
 		setMaxActiveTimestamp(sample.getMaxActiveTimestamp());
 		setLast(sample.getLast());
+		setSelfTotal(sample.getSelfTotal());
 	}
 
 	/**
@@ -118,6 +156,16 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		return SimonUtils.presentNanoTime(getTotal());
 	}
 
+	/**
+	 * Returns the total sum of self split times in nanoseconds as a formatted string.
+	 *
+	 * @return self time of the stopwatch in nanoseconds as string
+	 * @since 4.2
+	 */
+	public final String getSelfTotalAsString() {
+		return SimonUtils.presentNanoTime(getSelfTotal());
+	}
+
 	/**
 	 * Returns minimal time split value in nanoseconds as a formatted string.
 	 *
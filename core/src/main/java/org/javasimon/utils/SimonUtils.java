@@ -5,6 +5,8 @@ import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
@@ -16,6 +18,7 @@ import org.javasimon.SimonFilter;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
+import org.javasimon.Tags;
 
 /**
  * SimonUtils provides static utility methods.
@@ -30,7 +33,10 @@ import org.javasimon.Stopwatch;
  * <h3>Aggregation utilities</h3>
  * It is possible to sum up (aggregate) values for a subtree for a particular Simon type using
  * {@link #calculateCounterAggregate(org.javasimon.Simon)} or {@link #calculateStopwatchAggregate(org.javasimon.Simon)}.
- * Methods come also in versions allowing to filter by {@link org.javasimon.SimonFilter}.
+ * Methods come also in versions allowing to filter by {@link org.javasimon.SimonFilter}. Tagged Simons
+ * (see {@link org.javasimon.Tags}) can be aggregated by the tag value with
+ * {@link #calculateStopwatchAggregateByTag(org.javasimon.Simon, String)} or
+ * {@link #calculateCounterAggregateByTag(org.javasimon.Simon, String)} without traversing the whole subtree.
  * <p/>
  * <h3>Simon tree operations</h3>
  * For various debug purposes there is a method that creates string displaying the whole Simon sub-tree.
@@ -76,6 +82,15 @@ public final class SimonUtils {
 	 */
 	public static final String ALLOWED_CHARS = "-_[]ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,@$%()<>";
 
+	/** Lookup table of {@link #ALLOWED_CHARS} indexed by the character, used to check names without regex. */
+	private static final boolean[] ALLOWED_CHARS_TABLE = new boolean[128];
+
+	static {
+		for (int i = 0; i < ALLOWED_CHARS.length(); i++) {
+			ALLOWED_CHARS_TABLE[ALLOWED_CHARS.charAt(i)] = true;
+		}
+	}
+
 	/**
 	 * Name of the attribute where manager is searched for in an appropriate context - used for Spring/JavaEE/console integration.
 	 * While the name can be used in any context supporting named attributes, it is primarily aimed for ServletContext. Manager can
@@ -260,14 +275,24 @@ public final class SimonUtils {
 	}
 
 	/**
-	 * Checks if the input string is correct Simon name. Simon name is checked against
-	 * public {@link #NAME_PATTERN}.
+	 * Checks if the input string is correct Simon name. Simon name must match
+	 * public {@link #NAME_PATTERN}, check itself uses lookup table of {@link #ALLOWED_CHARS} instead of the regex.
 	 *
 	 * @param name checked Simon name
 	 * @return true if the string is proper Simon name
 	 */
 	public static boolean checkName(String name) {
-		return NAME_PATTERN.matcher(name).matches();
+		int length = name.length();
+		if (length == 0) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if (c >= ALLOWED_CHARS_TABLE.length || !ALLOWED_CHARS_TABLE[c]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -465,4 +490,104 @@ public final class SimonUtils {
 			}
 		}
 	}
+
+	/**
+	 * Aggregates statistics of the tagged Stopwatches of the base Simon grouped by the value of the specified tag.
+	 * Only the direct children of the base Simon are examined as the tagged Simons are always direct children
+	 * of their base. Tagged Stopwatches without the tag are skipped.
+	 *
+	 * @param base base Simon of the tagged Stopwatches
+	 * @param tagKey tag key
+	 * @return aggregated statistics per tag value sorted by the value
+	 * @see Stopwatch#tagged(Tags)
+	 * @since 4.2
+	 */
+	public static Map<String, StopwatchAggregate> calculateStopwatchAggregateByTag(Simon base, String tagKey) {
+		Map<String, StopwatchAggregate> aggregates = new TreeMap<>();
+		for (Simon child : base.getChildren()) {
+			Tags tags = tagsOf(child);
+			String value = tags != null ? tags.get(tagKey) : null;
+			if (value != null && child instanceof Stopwatch) {
+				StopwatchAggregate aggregate = aggregates.get(value);
+				if (aggregate == null) {
+					aggregate = new StopwatchAggregate();
+					aggregates.put(value, aggregate);
+				}
+				aggregate.addSample(((Stopwatch) child).sample());
+			}
+		}
+		return aggregates;
+	}
+
+	/**
+	 * Aggregates statistics of the tagged Stopwatches of the base Simon that have all the specified tags.
+	 *
+	 * @param base base Simon of the tagged Stopwatches
+	 * @param tags required tags, empty tags aggregate all tagged Stopwatches
+	 * @return aggregated statistics
+	 * @see Stopwatch#tagged(Tags)
+	 * @since 4.2
+	 */
+	public static StopwatchAggregate calculateStopwatchAggregateWithTags(Simon base, Tags tags) {
+		StopwatchAggregate aggregate = new StopwatchAggregate();
+		for (Simon child : base.getChildren()) {
+			Tags childTags = tagsOf(child);
+			if (childTags != null && childTags.containsAll(tags) && child instanceof Stopwatch) {
+				aggregate.addSample(((Stopwatch) child).sample());
+			}
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Aggregates statistics of the tagged Counters of the base Simon grouped by the value of the specified tag.
+	 * Only the direct children of the base Simon are examined as the tagged Simons are always direct children
+	 * of their base. Tagged Counters without the tag are skipped.
+	 *
+	 * @param base base Simon of the tagged Counters
+	 * @param tagKey tag key
+	 * @return aggregated statistics per tag value sorted by the value
+	 * @see Counter#tagged(Tags)
+	 * @since 4.2
+	 */
+	public static Map<String, CounterAggregate> calculateCounterAggregateByTag(Simon base, String tagKey) {
+		Map<String, CounterAggregate> aggregates = new TreeMap<>();
+		for (Simon child : base.getChildren()) {
+			Tags tags = tagsOf(child);
+			String value = tags != null ? tags.get(tagKey) : null;
+			if (value != null && child instanceof Counter) {
+				CounterAggregate aggregate = aggregates.get(value);
+				if (aggregate == null) {
+					aggregate = new CounterAggregate();
+					aggregates.put(value, aggregate);
+				}
+				aggregate.addSample(((Counter) child).sample());
+			}
+		}
+		return aggregates;
+	}
+
+	/**
+	 * Aggregates statistics of the tagged Counters of the base Simon that have all the specified tags.
+	 *
+	 * @param base base Simon of the tagged Counters
+	 * @param tags required tags, empty tags aggregate all tagged Counters
+	 * @return aggregated statistics
+	 * @see Counter#tagged(Tags)
+	 * @since 4.2
+	 */
+	public static CounterAggregate calculateCounterAggregateWithTags(Simon base, Tags tags) {
+		CounterAggregate aggregate = new CounterAggregate();
+		for (Simon child : base.getChildren()) {
+			Tags childTags = tagsOf(child);
+			if (childTags != null && childTags.containsAll(tags) && child instanceof Counter) {
+				aggregate.addSample(((Counter) child).sample());
+			}
+		}
+		return aggregate;
+	}
+
+	private static Tags tagsOf(Simon simon) {
+		return Tags.fromLocalName(localName(simon.getName()));
+	}
 }
@@ -22,6 +22,7 @@ public class SimonBeanUtils {
 	private static final SimonBeanUtils INSTANCE = new SimonBeanUtils();
 
 	private final Map<Class<?>, Converter> converters = new ConcurrentHashMap<>();
+	private final Converter enumConverter = new ToEnumConverter();
 
 	public SimonBeanUtils() {
 		converters.put(String.class, new ToStringConverter());
@@ -114,7 +115,11 @@ public class SimonBeanUtils {
 	}
 
 	private Converter getConverterTo(Class<?> setterType) {
-		return converters.get(setterType);
+		Converter converter = converters.get(setterType);
+		if (converter == null && setterType.isEnum()) {
+			converter = enumConverter;
+		}
+		return converter;
 	}
 
 	private void setObjectValue(Object target, String property, Object value) {
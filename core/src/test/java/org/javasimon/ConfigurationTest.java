@@ -11,6 +11,7 @@ import org.javasimon.callback.CallbackSkeleton;
 import org.javasimon.callback.CompositeCallback;
 import org.javasimon.callback.CompositeFilterCallback;
 import org.javasimon.callback.FilterRule;
+import org.javasimon.callback.calltree.CallTreeCallback;
 import org.javasimon.clock.SimonClock;
 import org.javasimon.utils.LoggingCallback;
 import org.javasimon.utils.SystemDebugCallback;
@@ -52,6 +53,24 @@ public final class ConfigurationTest extends SimonUnitTest {
 		Assert.assertTrue(manager.configuration().getConfig("org.javasimon.test.debug").getState().equals(SimonState.DISABLED));
 	}
 
+	@Test
+	public void testCallbackProperties() throws IOException {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <callback class='org.javasimon.callback.calltree.CallTreeCallback'>\n" +
+			"    <set property='aggregate' value='true'/>\n" +
+			"    <set property='sampleRate' value='100'/>\n" +
+			"    <set property='sampling' value='COUNTER'/>\n" +
+			"    <set property='forceSampleAttribute' value='profile'/>\n" +
+			"  </callback>\n" +
+			"</simon-configuration>"));
+		CallTreeCallback callback = (CallTreeCallback) manager.callback().callbacks().get(0);
+		Assert.assertTrue(callback.isAggregate());
+		Assert.assertEquals(callback.getSampleRate(), 100);
+		Assert.assertEquals(callback.getSampling(), CallTreeCallback.Sampling.COUNTER);
+		Assert.assertEquals(callback.getForceSampleAttribute(), "profile");
+	}
+
 	@Test
 	public void testConditions() throws ScriptException {
 		Split split = new EnabledManager().getStopwatch(null).start();
@@ -70,6 +89,8 @@ public final class ConfigurationTest extends SimonUnitTest {
 		Assert.assertTrue(new FilterRule(null, "value == 1ms", null).checkCondition(split.getStopwatch(), SimonClock.NANOS_IN_MILLIS));
 		Assert.assertTrue(new FilterRule(null, "value == 1us", null).checkCondition(split.getStopwatch(), 1000L));
 		Assert.assertTrue(new FilterRule(null, "value == 1", null).checkCondition(split.getStopwatch(), 1L));
+		Assert.assertTrue(new FilterRule(null, "value == 1", null).isConditionSatisfied(split.getStopwatch(), 1L));
+		Assert.assertFalse(new FilterRule(null, "value == 1", null).isConditionSatisfied(split.getStopwatch(), 2L));
 	}
 
 	@Test(expectedExceptions = SimonException.class, expectedExceptionsMessageRegExp = "Expression 'split' does not return boolean\\.")
@@ -8,6 +8,8 @@ import org.testng.annotations.Test;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests SimonManager behavior.
@@ -198,4 +200,91 @@ public final class ManagerTest extends SimonUnitTest {
 		boolean incrementalSimonExisted = stopwatch.stopIncrementalSampling(key);
 		Assert.assertFalse(incrementalSimonExisted);
 	}
+
+	@Test
+	public void concurrentCreationKeepsHierarchyConsistent() throws InterruptedException {
+		final EnabledManager manager = new EnabledManager();
+		final AtomicInteger created = new AtomicInteger();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				created.incrementAndGet();
+			}
+		});
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			final int thread = t;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < 500; i++) {
+							// parents are created as stopwatches by some threads while others create their children
+							manager.getStopwatch("a." + (i % 10) + ".b" + (i % 7) + (thread % 2 == 0 ? ".sw" + (i % 13) : ""));
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+
+		int concrete = 0;
+		for (Simon simon : manager.getSimons(null)) {
+			if (simon != manager.getRootSimon()) {
+				Assert.assertSame(manager.getSimon(simon.getParent().getName()), simon.getParent(), simon.getName());
+				Assert.assertEquals(countSame(simon.getParent(), simon), 1, simon.getName());
+			}
+			for (Simon child : simon.getChildren()) {
+				Assert.assertSame(child.getParent(), simon, child.getName());
+				Assert.assertSame(manager.getSimon(child.getName()), child, child.getName());
+			}
+			if (simon instanceof Stopwatch) {
+				concrete++;
+			}
+		}
+		Assert.assertEquals(created.get(), concrete);
+	}
+
+	private int countSame(Simon parent, Simon simon) {
+		int count = 0;
+		for (Simon child : parent.getChildren()) {
+			if (child == simon) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test(timeOut = 10000)
+	public void callbacksAreNotifiedWithoutManagerLock() {
+		final EnabledManager manager = new EnabledManager();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(final Simon simon) {
+				if (simon.getName().equals("first")) {
+					// would dead-lock if the creation of the other Simon waited for the Manager lock
+					Thread thread = new Thread() {
+						@Override
+						public void run() {
+							manager.getCounter("second");
+						}
+					};
+					thread.start();
+					try {
+						thread.join();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+		manager.getStopwatch("first");
+		Assert.assertTrue(manager.getSimon("second") instanceof Counter);
+	}
 }
@@ -0,0 +1,192 @@
+package org.javasimon;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests self time tracking of Stopwatches ({@link SelfTimeTracker}).
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class SelfTimeTest extends SimonUnitTest {
+
+	private TestClock clock;
+	private EnabledManager manager;
+
+	@BeforeMethod
+	public void setUp() {
+		clock = new TestClock();
+		clock.setMillisNanosFollow(1000);
+		manager = new EnabledManager(clock);
+		manager.configuration().setSelfTimeTracking(true);
+	}
+
+	@DataProvider(name = "striped")
+	public Object[][] striped() {
+		return new Object[][] {{false}, {true}};
+	}
+
+	private void elapse(long nanos) {
+		clock.setNanos(clock.nanoTime() + nanos);
+	}
+
+	@Test(dataProvider = "striped")
+	public void testNestedSplits(boolean striped) {
+		manager.configuration().setStripedByDefault(striped);
+		Stopwatch service = manager.getStopwatch("service");
+		Stopwatch dao = manager.getStopwatch("dao");
+		Stopwatch jdbc = manager.getStopwatch("jdbc");
+
+		Split serviceSplit = service.start();
+		elapse(10);
+		for (int i = 0; i < 2; i++) {
+			Split daoSplit = dao.start();
+			elapse(5);
+			long jdbcStart = jdbc.startNanos();
+			elapse(20);
+			jdbc.stopNanos(jdbcStart);
+			daoSplit.stop();
+		}
+		elapse(3);
+		serviceSplit.stop();
+
+		Assert.assertEquals(service.getTotal(), 63);
+		Assert.assertEquals(service.getSelfTotal(), 13);
+		Assert.assertEquals(dao.getTotal(), 50);
+		Assert.assertEquals(dao.getSelfTotal(), 10);
+		Assert.assertEquals(jdbc.getSelfTotal(), 40);
+		Assert.assertEquals(service.sample().getSelfTotal(), 13);
+	}
+
+	@Test
+	public void testSubSimon() {
+		Stopwatch stopwatch = manager.getStopwatch("request");
+		Split split = stopwatch.start();
+		Split child = manager.getStopwatch("child").start();
+		elapse(7);
+		child.stop();
+		elapse(3);
+		split.stop("ok");
+
+		Assert.assertEquals(stopwatch.getSelfTotal(), 0);
+		Assert.assertEquals(manager.getStopwatch("request.ok").getTotal(), 10);
+		Assert.assertEquals(manager.getStopwatch("request.ok").getSelfTotal(), 3);
+	}
+
+	@Test
+	public void testUnstoppedSplitIsDropped() {
+		Stopwatch outer = manager.getStopwatch("outer");
+		Split outerSplit = outer.start();
+		manager.getStopwatch("leaked").start();
+		Split inner = manager.getStopwatch("inner").start();
+		elapse(4);
+		inner.stop();
+		elapse(6);
+		outerSplit.stop();
+
+		Assert.assertEquals(outer.getSelfTotal(), 6);
+		// next root split has no parent
+		Stopwatch next = manager.getStopwatch("next");
+		Split nextSplit = next.start();
+		elapse(1);
+		nextSplit.stop();
+		Assert.assertEquals(next.getSelfTotal(), 1);
+	}
+
+	@Test
+	public void testSplitStoppedOnOtherThread() throws InterruptedException {
+		final Stopwatch stopwatch = manager.getStopwatch("async");
+		final Split split = stopwatch.start();
+		elapse(8);
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				split.stop();
+			}
+		};
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(stopwatch.getSelfTotal(), 8);
+	}
+
+	@Test
+	public void testStartingThreadNestsAfterSplitStoppedOnOtherThread() throws InterruptedException {
+		final Split asyncSplit = manager.getStopwatch("async").start();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				asyncSplit.stop();
+			}
+		};
+		thread.start();
+		thread.join();
+
+		Stopwatch outer = manager.getStopwatch("outer");
+		Split outerSplit = outer.start();
+		Assert.assertEquals(manager.configuration().selfTimeTracker().depth(), 1, "split stopped elsewhere was removed");
+		Split innerSplit = manager.getStopwatch("inner").start();
+		elapse(4);
+		innerSplit.stop();
+		elapse(6);
+		outerSplit.stop();
+
+		Assert.assertEquals(outer.getSelfTotal(), 6);
+		Assert.assertEquals(manager.configuration().selfTimeTracker().depth(), 0);
+	}
+
+	@Test
+	public void testFullStackStartsOver() {
+		for (int i = 0; i < SelfTimeTracker.MAX_DEPTH; i++) {
+			manager.getStopwatch("leaked").start();
+		}
+		Stopwatch stopwatch = manager.getStopwatch("next");
+		Split split = stopwatch.start();
+		Assert.assertEquals(manager.configuration().selfTimeTracker().depth(), 1);
+		elapse(2);
+		split.stop();
+		Assert.assertEquals(stopwatch.getSelfTotal(), 2);
+		Assert.assertEquals(manager.configuration().selfTimeTracker().depth(), 0);
+	}
+
+	@Test
+	public void testTrackingDisabled() {
+		manager.configuration().setSelfTimeTracking(false);
+		Stopwatch stopwatch = manager.getStopwatch("stopwatch");
+		Split split = stopwatch.start();
+		elapse(8);
+		split.stop();
+		stopwatch.addSplit(Split.create(5));
+
+		Assert.assertEquals(stopwatch.getTotal(), 13);
+		Assert.assertEquals(stopwatch.getSelfTotal(), 0);
+	}
+
+	@Test
+	public void testSampleIncrement() {
+		Stopwatch stopwatch = manager.getStopwatch("stopwatch");
+		stopwatch.sampleIncrement("key");
+		Split split = stopwatch.start();
+		elapse(8);
+		split.stop();
+		Assert.assertEquals(stopwatch.sampleIncrement("key").getSelfTotal(), 8);
+		split = stopwatch.start();
+		elapse(2);
+		split.stop();
+		Assert.assertEquals(stopwatch.sampleIncrement("key").getSelfTotal(), 2);
+	}
+
+	@Test
+	public void testConfiguration() throws IOException {
+		Manager manager = new EnabledManager();
+		Assert.assertFalse(manager.configuration().isSelfTimeTracking());
+		manager.configuration().readConfig(new StringReader("<simon-configuration self-time='true'/>"));
+		Assert.assertTrue(manager.configuration().isSelfTimeTracking());
+	}
+}
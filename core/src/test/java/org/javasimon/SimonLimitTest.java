@@ -0,0 +1,213 @@
+package org.javasimon;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SimonLimit} - bounded number of Simons in the subtree.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class SimonLimitTest {
+
+	@Test
+	public void leastRecentlyUsedSimonIsEvicted() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		DestroyedCollector destroyed = new DestroyedCollector();
+		manager.callback().addCallback(destroyed);
+		manager.configuration().setLimit("app.sql", 10, SimonLimit.Policy.EVICT);
+
+		for (int i = 0; i < 10; i++) {
+			clock.setMillisNanosFollow(100 + i);
+			manager.getStopwatch("app.sql.q" + i).addSplit(Split.create(1));
+		}
+		clock.setMillisNanosFollow(200);
+		manager.getStopwatch("app.sql.q0").addSplit(Split.create(1));
+
+		manager.getStopwatch("app.sql.q10");
+		Assert.assertNull(manager.getSimon("app.sql.q1"));
+		Assert.assertNotNull(manager.getSimon("app.sql.q0"));
+		Assert.assertNotNull(manager.getSimon("app.sql.q10"));
+		Assert.assertEquals(destroyed.names.toString(), "[app.sql.q1]");
+		Assert.assertEquals(manager.getSimon("app.sql").getChildren().size(), 10);
+
+		// other subtrees are not limited
+		for (int i = 0; i < 20; i++) {
+			manager.getCounter("app.other.c" + i);
+		}
+		Assert.assertEquals(manager.getSimon("app.other").getChildren().size(), 20);
+	}
+
+	@Test
+	public void childHandleOfEvictedSimonIsNotKept() throws InterruptedException {
+		final EnabledManager manager = new EnabledManager();
+		manager.configuration().setLimit("app.sql", 1, SimonLimit.Policy.EVICT);
+		final Stopwatch parent = manager.getStopwatch("app.sql");
+		final String[] localNames = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+		Thread[] threads = new Thread[localNames.length];
+		for (int t = 0; t < threads.length; t++) {
+			final String localName = localNames[t];
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					// each resolution evicts the child resolved by other threads
+					for (int i = 0; i < 10000; i++) {
+						parent.child(localName);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (String localName : localNames) {
+			Stopwatch child = parent.child(localName);
+			if (child.getName().equals("app.sql." + localName)) {
+				Assert.assertSame(manager.getSimon(child.getName()), child);
+			}
+		}
+	}
+
+	@Test
+	public void unusedSimonCountsAsUsedWhenCreated() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		manager.configuration().setLimit("app.sql", 2, SimonLimit.Policy.EVICT);
+
+		clock.setMillisNanosFollow(100);
+		manager.getStopwatch("app.sql.used").addSplit(Split.create(1));
+		clock.setMillisNanosFollow(200);
+		manager.getStopwatch("app.sql.unused");
+		clock.setMillisNanosFollow(300);
+		manager.getStopwatch("app.sql.new");
+
+		Assert.assertNull(manager.getSimon("app.sql.used"));
+		Assert.assertNotNull(manager.getSimon("app.sql.unused"));
+		Assert.assertNotNull(manager.getSimon("app.sql.new"));
+	}
+
+	@Test
+	public void simonIsNotEvictedBeforeCallbacksKnowIt() {
+		TestClock clock = new TestClock();
+		final EnabledManager manager = new EnabledManager(clock);
+		DestroyedCollector destroyed = new DestroyedCollector();
+		manager.callback().addCallback(destroyed);
+		final List<String> createdFromCallback = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				if (simon.getName().equals("app.sql.first")) {
+					// creation of other Simon from the callback would evict the first one
+					createdFromCallback.add(manager.getStopwatch("app.sql.second").getName());
+				}
+			}
+		});
+		manager.configuration().setLimit("app.sql", 1, SimonLimit.Policy.EVICT);
+
+		clock.setMillisNanosFollow(100);
+		manager.getStopwatch("app.sql.first");
+		Assert.assertNotNull(manager.getSimon("app.sql.first"));
+		Assert.assertTrue(destroyed.names.isEmpty());
+		Assert.assertEquals(createdFromCallback.toString(), "[app.sql." + SimonLimit.OVERFLOW_STOPWATCH_NAME + "]");
+	}
+
+	@Test
+	public void evictedLeafTakesEmptyUnknownParentsAlong() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setLimit("app.url", 5, null);
+
+		for (int i = 0; i < 100; i++) {
+			manager.getStopwatch("app.url.id" + i + ".get").addSplit(Split.create(1));
+		}
+		Assert.assertEquals(manager.getSimon("app.url").getChildren().size(), 5);
+		Assert.assertEquals(manager.getSimonNames().size(), 1 + 2 + 5 * 2);
+	}
+
+	@Test
+	public void overflowSimonIsUsedWhenLimitIsReached() {
+		EnabledManager manager = new EnabledManager();
+		DestroyedCollector destroyed = new DestroyedCollector();
+		manager.callback().addCallback(destroyed);
+		manager.configuration().setLimit("app.sql", 3, SimonLimit.Policy.OVERFLOW);
+
+		for (int i = 0; i < 5; i++) {
+			manager.getStopwatch("app.sql.q" + i).addSplit(Split.create(1));
+		}
+		manager.getCounter("app.sql.c").increase();
+
+		Stopwatch other = manager.getStopwatch("app.sql.q3");
+		Assert.assertEquals(other.getName(), "app.sql." + SimonLimit.OVERFLOW_STOPWATCH_NAME);
+		Assert.assertEquals(other.getCounter(), 2);
+		Assert.assertEquals(manager.getCounter("app.sql.c").getName(), "app.sql." + SimonLimit.OVERFLOW_COUNTER_NAME);
+		Assert.assertNull(manager.getSimon("app.sql.q4"));
+		Assert.assertTrue(destroyed.names.isEmpty());
+
+		// destroyed Simon makes room for a new one
+		manager.destroySimon("app.sql.q0");
+		Assert.assertEquals(manager.getStopwatch("app.sql.q4").getName(), "app.sql.q4");
+	}
+
+	@Test
+	public void deepestLimitApplies() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setLimit("app", 2, SimonLimit.Policy.OVERFLOW);
+		manager.configuration().setLimit("app.sql", 100, SimonLimit.Policy.OVERFLOW);
+
+		for (int i = 0; i < 50; i++) {
+			manager.getStopwatch("app.sql.q" + i);
+		}
+		Assert.assertEquals(manager.getSimon("app.sql").getChildren().size(), 50);
+		manager.getStopwatch("app.a");
+		manager.getStopwatch("app.b");
+		Assert.assertEquals(manager.getStopwatch("app.c").getName(), "app._other");
+	}
+
+	@Test
+	public void existingSimonsAreCountedAndClearResetsCounts() {
+		EnabledManager manager = new EnabledManager();
+		for (int i = 0; i < 5; i++) {
+			manager.getStopwatch("app.sql.q" + i);
+		}
+		manager.configuration().setLimit("app.sql", 5, SimonLimit.Policy.OVERFLOW);
+		Assert.assertEquals(manager.getStopwatch("app.sql.q5").getName(), "app.sql._other");
+
+		manager.clear();
+		Assert.assertEquals(manager.getStopwatch("app.sql.q5").getName(), "app.sql.q5");
+	}
+
+	@Test
+	public void limitIsReadFromConfiguration() throws Exception {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"<limit subtree=\"app.sql\" max=\"2\" policy=\"overflow\"/>\n" +
+			"<limit subtree=\"app.url\" max=\"1\"/>\n" +
+			"</simon-configuration>"));
+
+		SimonLimit limit = manager.configuration().getLimit("app.sql.select.x");
+		Assert.assertEquals(limit.getSubtree(), "app.sql");
+		Assert.assertEquals(limit.getMaxSimons(), 2);
+		Assert.assertEquals(limit.getPolicy(), SimonLimit.Policy.OVERFLOW);
+		Assert.assertEquals(manager.configuration().getLimit("app.url.x").getPolicy(), SimonLimit.Policy.EVICT);
+		Assert.assertNull(manager.configuration().getLimit("app.sql"));
+		Assert.assertNull(manager.configuration().getLimit("app"));
+	}
+
+	private static class DestroyedCollector extends CallbackSkeleton {
+		private final List<String> names = new ArrayList<>();
+
+		@Override
+		public void onSimonDestroyed(Simon simon) {
+			names.add(simon.getName());
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package org.javasimon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SimonPatternIndex}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class SimonPatternIndexTest extends SimonUnitTest {
+
+	private static final String[] PATTERNS = {
+		"*", "org.javasimon.test", "org.*", "org.javasimon.*", "*.test", "*test", "*simon*", "*.sql.*",
+		"org*test", "org.javasimon.*.test", "com.*", "*x", "*abcd*", "org.javasimon.test", "*javasimon.t*"
+	};
+
+	private static final String[] NAMES = {
+		"", "org", "org.javasimon", "org.javasimon.test", "org.javasimon.sql.select", "com.test", "test",
+		"org.javasimon.x.test", "abcdef", "xabcdx", "javasimon.test.x", "org.javasimon.tests"
+	};
+
+	@Test
+	public void indexMatchesLikePatterns() {
+		SimonPatternIndex<String> index = new SimonPatternIndex<>();
+		for (String pattern : PATTERNS) {
+			index.add(new SimonPattern(pattern), pattern);
+		}
+		for (String name : NAMES) {
+			Assert.assertEquals(index.get(name), linearMatch(PATTERNS, name), name);
+			// second call is served from the cache
+			Assert.assertEquals(index.get(name), linearMatch(PATTERNS, name), name);
+		}
+		Assert.assertEquals(index.get((String) null), linearMatch(PATTERNS, null));
+		Assert.assertEquals(index.values(), Arrays.asList(PATTERNS));
+	}
+
+	@Test
+	public void randomPatternsMatchLikeLinearSearch() {
+		Random random = new Random(47);
+		String alphabet = "ab.";
+		String[] patterns = new String[200];
+		for (int i = 0; i < patterns.length; i++) {
+			String base = randomString(random, alphabet, 1 + random.nextInt(4));
+			switch (random.nextInt(5)) {
+				case 0:
+					patterns[i] = base;
+					break;
+				case 1:
+					patterns[i] = base + "*";
+					break;
+				case 2:
+					patterns[i] = "*" + base;
+					break;
+				case 3:
+					patterns[i] = "*" + base + randomString(random, alphabet, 1) + "*";
+					break;
+				default:
+					patterns[i] = base + "*" + randomString(random, alphabet, 1 + random.nextInt(3));
+			}
+		}
+		SimonPatternIndex<String> index = new SimonPatternIndex<>();
+		SimonPatternIndex<String> cachingIndex = new SimonPatternIndex<>(true);
+		for (String pattern : patterns) {
+			index.add(new SimonPattern(pattern), pattern);
+			cachingIndex.add(new SimonPattern(pattern), pattern);
+		}
+		for (int i = 0; i < 1000; i++) {
+			String name = randomString(random, alphabet, random.nextInt(10));
+			Assert.assertEquals(index.get(name), linearMatch(patterns, name), name);
+			Assert.assertEquals(cachingIndex.get(name), linearMatch(patterns, name), name);
+			Assert.assertEquals(cachingIndex.get(name), linearMatch(patterns, name), name);
+		}
+	}
+
+	@Test
+	public void snapshotIsNotAffectedByAddedValues() {
+		SimonPatternIndex<String> index = new SimonPatternIndex<>(true);
+		index.add(SimonPattern.create("a.*"), "first");
+		SimonPatternIndex.Snapshot<String> snapshot = index.snapshot();
+		Assert.assertEquals(snapshot.get("a.b"), Arrays.asList("first"));
+
+		index.add(SimonPattern.create("a.*"), "second");
+		Assert.assertEquals(snapshot.values(), Arrays.asList("first"));
+		Assert.assertEquals(snapshot.get("a.b"), Arrays.asList("first"));
+		Assert.assertEquals(index.get("a.b"), Arrays.asList("first", "second"));
+	}
+
+	@Test
+	public void valuesWithoutPatternAndTypedPatterns() {
+		EnabledManager manager = new EnabledManager();
+		SimonPatternIndex<String> index = new SimonPatternIndex<>();
+		index.add(null, "always");
+		index.add(SimonPattern.createForStopwatch("a.*"), "stopwatch");
+		index.add(SimonPattern.createForCounter("a.*"), "counter");
+		index.add(SimonPattern.create("a.*"), "simon");
+
+		Assert.assertEquals(index.get(manager.getStopwatch("a.b")), Arrays.asList("always", "stopwatch", "simon"));
+		Assert.assertEquals(index.get(manager.getCounter("a.c")), Arrays.asList("always", "counter", "simon"));
+		Assert.assertEquals(index.get(manager.getCounter("b.c")), Arrays.asList("always"));
+
+		index.clear();
+		Assert.assertTrue(index.isEmpty());
+		Assert.assertTrue(index.get("a.b").isEmpty());
+	}
+
+	private List<String> linearMatch(String[] patterns, String name) {
+		List<String> result = new ArrayList<>();
+		for (String pattern : patterns) {
+			if (new SimonPattern(pattern).matches(name)) {
+				result.add(pattern);
+			}
+		}
+		return result;
+	}
+
+	private String randomString(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+}
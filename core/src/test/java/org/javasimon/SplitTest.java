@@ -142,4 +142,34 @@ public final class SplitTest extends SimonUnitTest {
 		Assert.assertEquals(stopwatch.getCounter(), 0);
 		Assert.assertEquals(effectiveStopwatch.getCounter(), 0);
 	}
+
+	@Test
+	public void attributesWithoutAnyAttributeSet() {
+		Split split = Split.start();
+		Assert.assertNull(split.getAttribute("none"));
+		Assert.assertNull(split.getAttribute("none", String.class));
+		Assert.assertFalse(split.getAttributeNames().hasNext());
+		Assert.assertTrue(split.getCopyAsSortedMap().isEmpty());
+		split.removeAttribute("none");
+
+		split.setAttribute("attr", "value");
+		Assert.assertEquals(split.getAttribute("attr", String.class), "value");
+		Assert.assertEquals(split.getCopyAsSortedMap().size(), 1);
+	}
+
+	@Test
+	public void disabledStopwatchSplitsAreNotShared() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(STOPWATCH_NAME);
+		stopwatch.setState(SimonState.DISABLED, false);
+		Split split = stopwatch.start();
+		Assert.assertFalse(split.isEnabled());
+		Assert.assertSame(split.getStopwatch(), stopwatch);
+		split.setAttribute("attr", "value");
+		split.stop("sub");
+
+		Split nextSplit = stopwatch.start();
+		Assert.assertNotSame(nextSplit, split);
+		Assert.assertNull(nextSplit.getAttribute("attr"));
+		Assert.assertNull(nextSplit.getAttribute(Split.ATTR_EFFECTIVE_STOPWATCH));
+	}
 }
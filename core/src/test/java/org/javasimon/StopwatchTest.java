@@ -1,9 +1,14 @@
 package org.javasimon;
 
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.clock.SimonClock;
 import org.javasimon.clock.TestClock;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests for {@link Stopwatch}.
  *
@@ -45,6 +50,52 @@ public final class StopwatchTest extends SimonUnitTest {
 		assertStopwatchAndSampleAreEqual(stopwatch);
 	}
 
+	@Test
+	public void childHandles() {
+		EnabledManager manager = new EnabledManager();
+		Stopwatch parent = manager.getStopwatch("parent");
+		Stopwatch child = parent.child("child");
+		Assert.assertEquals(child.getName(), "parent.child");
+		Assert.assertSame(child.getParent(), parent);
+		Assert.assertSame(parent.child("child"), child);
+		Assert.assertSame(manager.getStopwatch("parent.child"), child);
+		Assert.assertEquals(manager.getCounter("parent.counter").child("x").getName(), "parent.counter.x");
+
+		parent.start().stop("child");
+		Assert.assertEquals(child.getCounter(), 1);
+
+		manager.destroySimon("parent.child");
+		Stopwatch newChild = parent.child("child");
+		Assert.assertNotSame(newChild, child);
+		Assert.assertSame(manager.getSimon("parent.child"), newChild);
+
+		manager.clear();
+		Assert.assertSame(parent.child("child"), manager.getSimon("parent.child"));
+		Assert.assertNotSame(parent.child("child"), newChild);
+
+		Stopwatch anonymous = manager.getStopwatch(null);
+		Assert.assertNull(anonymous.child("x").getName());
+	}
+
+	@Test
+	public void childHandleOfSimonDestroyedDuringResolution() {
+		final EnabledManager manager = new EnabledManager();
+		Stopwatch parent = manager.getStopwatch("parent");
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				if (simon.getName().equals("parent.child")) {
+					// destroyed after the Manager created it, but before the parent stores the handle
+					manager.destroySimon(simon.getName());
+				}
+			}
+		});
+
+		Stopwatch destroyed = parent.child("child");
+		Assert.assertNull(manager.getSimon("parent.child"));
+		Assert.assertNotSame(parent.child("child"), destroyed);
+	}
+
 	@Test
 	public void disableEnableInsideSplit() throws Exception {
 		Stopwatch stopwatch = SimonManager.getStopwatch(null);
@@ -100,6 +151,102 @@ public final class StopwatchTest extends SimonUnitTest {
 		Assert.assertFalse(stopwatch.stopIncrementalSampling("nonexistent"));
 	}
 
+	@Test
+	public void incrementalSamplingWithMoreKeys() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(null);
+		stopwatch.addSplit(Split.create(10));
+		stopwatch.sampleIncrement("a");
+		stopwatch.sampleIncrement("b");
+
+		stopwatch.addSplit(Split.create(30));
+		stopwatch.addSplit(Split.create(20));
+		StopwatchSample a = stopwatch.sampleIncrement("a");
+		Assert.assertEquals(a.getCounter(), 2);
+		Assert.assertEquals(a.getMax(), 30);
+		Assert.assertEquals(a.getMin(), 20);
+		Assert.assertEquals(a.getMean(), 25d);
+		Assert.assertEquals(a.getVariance(), 50d, 0.0001);
+
+		stopwatch.addSplit(Split.create(5));
+		StopwatchSample b = stopwatch.sampleIncrement("b");
+		Assert.assertEquals(b.getCounter(), 3);
+		Assert.assertEquals(b.getTotal(), 55);
+		Assert.assertEquals(b.getMax(), 30);
+		Assert.assertEquals(b.getMin(), 5);
+		Assert.assertEquals(stopwatch.sampleIncrement("a").getMax(), 5);
+
+		// interval of b is longer than retained epochs, cumulative max is used
+		stopwatch.addSplit(Split.create(1000));
+		for (int i = 0; i < EpochCells.SIZE * 2; i++) {
+			stopwatch.sampleIncrement("a");
+		}
+		Assert.assertEquals(stopwatch.sampleIncrement("b").getMax(), 1000);
+	}
+
+	@Test
+	public void startStopNanos() {
+		TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(10);
+		EnabledManager manager = new EnabledManager(clock);
+		Stopwatch stopwatch = manager.getStopwatch("nanos");
+
+		long start = stopwatch.startNanos();
+		Assert.assertEquals(start, clock.nanoTime());
+		Assert.assertEquals(stopwatch.getActive(), 1);
+		clock.setMillisNanosFollow(15);
+		Assert.assertEquals(stopwatch.stopNanos(start), 5 * SimonClock.NANOS_IN_MILLIS);
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+		Assert.assertEquals(stopwatch.getTotal(), 5 * SimonClock.NANOS_IN_MILLIS);
+		Assert.assertEquals(stopwatch.getLastUsage(), 15);
+		assertStopwatchAndSampleAreEqual(stopwatch);
+
+		stopwatch.setState(SimonState.DISABLED, false);
+		Assert.assertEquals(stopwatch.startNanos(), 0);
+		Assert.assertEquals(stopwatch.stopNanos(0), 0);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+	}
+
+	@Test
+	public void startStopNanosWithCallback() {
+		EnabledManager manager = new EnabledManager();
+		final List<Split> splits = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStart(Split split) {
+				split.setAttribute("marker", true);
+				splits.add(split);
+			}
+
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+				splits.add(split);
+				Assert.assertEquals(sample.getCounter(), 1);
+			}
+		});
+		Stopwatch stopwatch = manager.getStopwatch("nanos");
+		long start = stopwatch.startNanos();
+		long split = stopwatch.stopNanos(start);
+
+		Assert.assertEquals(splits.size(), 2);
+		Split startSplit = splits.get(0);
+		Assert.assertTrue(startSplit.isDetached());
+		Assert.assertFalse(startSplit.isRunning());
+		Assert.assertEquals(startSplit.getStart(), start);
+		Assert.assertEquals(startSplit.runningFor(), 0);
+		startSplit.stop();
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+
+		// start and stop Splits differ for the nanos API, attributes are not carried over
+		Split stopSplit = splits.get(1);
+		Assert.assertNotSame(stopSplit, startSplit);
+		Assert.assertTrue(stopSplit.isDetached());
+		Assert.assertNull(stopSplit.getAttribute("marker"));
+		Assert.assertFalse(splits.get(1).isRunning());
+		Assert.assertSame(splits.get(1).getStopwatch(), stopwatch);
+		Assert.assertEquals(splits.get(1).runningFor(), split);
+	}
+
 	private void assertIncrementalSampleAfterIncrease(StopwatchSample sample) {
 		Assert.assertEquals(sample.getTotal(), 10);
 		Assert.assertEquals(sample.getCounter(), 1);
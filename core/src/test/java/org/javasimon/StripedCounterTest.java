@@ -0,0 +1,145 @@
+package org.javasimon;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link StripedCounterImpl}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class StripedCounterTest extends SimonUnitTest {
+
+	private static final int THREADS = 8;
+	private static final int LOOP = 10000;
+
+	@Test
+	public void configurationSelectsStripedImplementation() throws IOException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration striped='true'>\n" +
+			"  <simon pattern='plain.*' striped='false'/>\n" +
+			"</simon-configuration>"));
+		Assert.assertTrue(manager.configuration().isStripedByDefault());
+		Assert.assertEquals(manager.getCounter("striped.counter").getClass(), StripedCounterImpl.class);
+		Assert.assertEquals(manager.getStopwatch("striped.stopwatch").getClass(), StripedStopwatchImpl.class);
+		Assert.assertEquals(manager.getCounter("plain.counter").getClass(), CounterImpl.class);
+
+		manager.configuration().clear();
+		Assert.assertEquals(manager.getCounter("other.counter").getClass(), CounterImpl.class);
+	}
+
+	@Test
+	public void increaseDecrease() {
+		TestClock testClock = new TestClock();
+		EnabledManager manager = new EnabledManager(testClock);
+		manager.configuration().setStripedByDefault(true);
+		Counter counter = manager.getCounter("counter");
+
+		testClock.setMillisNanosFollow(10);
+		counter.increase();
+		// min/max are updated when the value is read
+		Assert.assertEquals(counter.getCounter(), 1);
+
+		testClock.setMillisNanosFollow(30);
+		counter.decrease();
+
+		Assert.assertEquals(counter.getCounter(), 0);
+		Assert.assertEquals(counter.getIncrementSum(), 1);
+		Assert.assertEquals(counter.getDecrementSum(), 1);
+		Assert.assertEquals(counter.getMax(), 1);
+		Assert.assertEquals(counter.getMin(), 0);
+		Assert.assertEquals(counter.getMaxTimestamp(), 10);
+		Assert.assertEquals(counter.getMinTimestamp(), 30);
+		Assert.assertEquals(counter.getFirstUsage(), 10);
+		Assert.assertEquals(counter.getLastUsage(), 30);
+
+		counter.set(-5);
+		CounterSample sample = counter.sample();
+		Assert.assertEquals(sample.getCounter(), -5);
+		Assert.assertEquals(sample.getMin(), -5);
+		Assert.assertEquals(sample.getMax(), 1);
+		Assert.assertEquals(sample.getIncrementSum(), 1);
+		Assert.assertEquals(sample.getDecrementSum(), 1);
+		Assert.assertEquals(sample.getLastUsage(), 30);
+
+		counter.increase(10);
+		counter.decrease(10);
+		// value between the changes was never read
+		Assert.assertEquals(counter.getMax(), 1);
+		Assert.assertEquals(counter.getCounter(), -5);
+	}
+
+	@Test
+	public void concurrentChangesAreMerged() throws Exception {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setStripedByDefault(true);
+		final Counter counter = manager.getCounter("concurrent");
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP; i++) {
+						counter.increase(2);
+						counter.decrease();
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+
+		CounterSample sample = counter.sample();
+		Assert.assertEquals(sample.getCounter(), THREADS * LOOP);
+		Assert.assertEquals(sample.getIncrementSum(), 2 * THREADS * LOOP);
+		Assert.assertEquals(sample.getDecrementSum(), THREADS * LOOP);
+		Assert.assertTrue(sample.getMax() >= THREADS * LOOP);
+	}
+
+	@Test
+	public void setOverridesConcurrentCells() throws Exception {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setStripedByDefault(true);
+		final Counter counter = manager.getCounter("set");
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP; i++) {
+						counter.increase();
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+
+		counter.set(7);
+		Assert.assertEquals(counter.getCounter(), 7);
+		counter.decrease(2);
+		Assert.assertEquals(counter.getCounter(), 5);
+		// value replaced by set is taken into account, values between unread changes are not
+		Assert.assertEquals(counter.getMax(), THREADS * LOOP);
+		Assert.assertEquals(counter.getMin(), 5);
+		Assert.assertEquals(counter.getIncrementSum(), THREADS * LOOP);
+	}
+
+	@Test
+	public void incrementalSampling() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setStripedByDefault(true);
+		Counter counter = manager.getCounter("incremental");
+		counter.increase(5);
+		Assert.assertEquals(counter.sampleIncrement("key").getIncrementSum(), 5);
+		counter.increase(3);
+		CounterSample increment = counter.sampleIncrement("key");
+		Assert.assertEquals(increment.getIncrementSum(), 3);
+		Assert.assertEquals(increment.getCounter(), 3);
+	}
+}
@@ -0,0 +1,100 @@
+package org.javasimon;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link StripedStopwatchImpl}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class StripedStopwatchTest extends SimonUnitTest {
+
+	private static final int THREADS = 8;
+	private static final int LOOP = 10000;
+
+	private EnabledManager createManager() throws IOException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='striped.*' striped='true'/>\n" +
+			"</simon-configuration>"));
+		return manager;
+	}
+
+	@Test
+	public void configurationSelectsStripedImplementation() throws IOException {
+		EnabledManager manager = createManager();
+		Assert.assertEquals(manager.getStopwatch("striped.sw").getClass(), StripedStopwatchImpl.class);
+		Assert.assertEquals(manager.getStopwatch("other.sw").getClass(), StopwatchImpl.class);
+		Assert.assertTrue(manager.configuration().getConfig("striped.sw").isStriped());
+		Assert.assertFalse(manager.configuration().getConfig("other.sw").isStriped());
+	}
+
+	@Test
+	public void statisticsEqualToSynchronizedStopwatch() throws IOException {
+		EnabledManager manager = createManager();
+		Stopwatch striped = manager.getStopwatch("striped.sw");
+		Stopwatch plain = manager.getStopwatch("plain.sw");
+		for (long split : new long[]{10, 30, 20, 50, 5}) {
+			striped.addSplit(Split.create(split));
+			plain.addSplit(Split.create(split));
+		}
+
+		StopwatchSample sample = striped.sample();
+		Assert.assertEquals(sample.getTotal(), plain.getTotal());
+		Assert.assertEquals(sample.getCounter(), plain.getCounter());
+		Assert.assertEquals(sample.getMax(), 50);
+		Assert.assertEquals(sample.getMin(), 5);
+		Assert.assertEquals(sample.getLast(), 5);
+		Assert.assertEquals(sample.getMean(), plain.getMean(), 0.0001);
+		Assert.assertEquals(sample.getVariance(), plain.getVariance(), 0.0001);
+		Assert.assertEquals(sample.getVarianceN(), plain.getVarianceN(), 0.0001);
+		Assert.assertEquals(striped.getStandardDeviation(), plain.getStandardDeviation(), 0.0001);
+		Assert.assertTrue(striped.getFirstUsage() > 0);
+		Assert.assertEquals(sample.getLastUsage(), striped.getLastUsage());
+	}
+
+	@Test
+	public void concurrentSplitsAreMerged() throws Exception {
+		final Stopwatch stopwatch = createManager().getStopwatch("striped.concurrent");
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			final long value = t + 1;
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP; i++) {
+						stopwatch.addSplit(Split.create(value));
+						stopwatch.start().stop();
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertEquals(sample.getCounter(), 2 * THREADS * LOOP);
+		Assert.assertEquals(sample.getActive(), 0);
+		Assert.assertTrue(sample.getMaxActive() >= 1);
+		Assert.assertTrue(sample.getMax() >= THREADS);
+		Assert.assertTrue(sample.getTotal() >= LOOP * (THREADS * (THREADS + 1) / 2));
+		Assert.assertEquals(sample.getMean(), (double) sample.getTotal() / sample.getCounter(), 0.0001);
+	}
+
+	@Test
+	public void subSimonStop() throws IOException {
+		EnabledManager manager = createManager();
+		Stopwatch stopwatch = manager.getStopwatch("striped.parent");
+		Split split = stopwatch.start();
+		Assert.assertEquals(stopwatch.getActive(), 1);
+		split.stop("child");
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getCounter(), 0);
+		Assert.assertEquals(manager.getStopwatch("striped.parent.child").getCounter(), 1);
+	}
+}
@@ -0,0 +1,100 @@
+package org.javasimon;
+
+import java.util.Arrays;
+import java.util.Map;
+import javax.management.ObjectName;
+
+import org.javasimon.utils.CounterAggregate;
+import org.javasimon.utils.SimonUtils;
+import org.javasimon.utils.StopwatchAggregate;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link Tags} and tagged Simons.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class TagsTest extends SimonUnitTest {
+
+	@Test
+	public void tagsAreSortedAndInterned() {
+		Tags tags = Tags.of("status", "200", "method", "GET");
+		Assert.assertEquals(tags.getLocalName(), "[method-GET][status-200]");
+		Assert.assertEquals(tags.getKeys(), Arrays.asList("method", "status"));
+		Assert.assertSame(Tags.of("method", "GET", "status", "200"), tags);
+		Assert.assertSame(Tags.of("method", "GET").with("status", "200"), tags);
+		Assert.assertSame(tags.with("status", "404").with("status", "200"), tags);
+		Assert.assertEquals(tags.get("status"), "200");
+		Assert.assertNull(tags.get("tenant"));
+		Assert.assertTrue(tags.containsAll(Tags.of("status", "200")));
+		Assert.assertFalse(tags.containsAll(Tags.of("status", "404")));
+		Assert.assertSame(Tags.of(), Tags.EMPTY);
+	}
+
+	@Test
+	public void invalidCharactersAreReplaced() {
+		Tags tags = Tags.of("http-path", "/api/v1.0/x-y", "q", "[a]");
+		Assert.assertEquals(tags.getLocalName(), "[http_path-_api_v1_0_x-y][q-_a_]");
+		Assert.assertTrue(SimonUtils.checkName(tags.getLocalName()));
+		Assert.assertSame(Tags.fromLocalName(tags.getLocalName()), tags);
+	}
+
+	@Test(expectedExceptions = SimonException.class)
+	public void duplicateKeysAreRejected() {
+		Tags.of("a", "1", "a", "2");
+	}
+
+	@Test
+	public void localNameParsing() {
+		Assert.assertEquals(Tags.fromLocalName("[b-2][a-1]"), null); // not canonical
+		Assert.assertEquals(Tags.fromLocalName("[a-1][b-x-y]"), Tags.of("a", "1", "b", "x-y"));
+		Assert.assertNull(Tags.fromLocalName("plain"));
+		Assert.assertNull(Tags.fromLocalName("[a]"));
+		Assert.assertNull(Tags.fromLocalName(""));
+	}
+
+	@Test
+	public void taggedSimonsAreChildrenOfTheBase() throws Exception {
+		Stopwatch requests = SimonManager.getStopwatch("app.requests");
+		Tags getOk = Tags.of("method", "GET", "status", "200");
+		Stopwatch tagged = requests.tagged(getOk);
+		Assert.assertEquals(tagged.getName(), "app.requests.[method-GET][status-200]");
+		Assert.assertSame(tagged.getParent(), requests);
+		Assert.assertSame(requests.tagged(getOk), tagged);
+		Assert.assertSame(SimonManager.getSimon(tagged.getName()), tagged);
+		Assert.assertSame(requests.tagged(Tags.EMPTY), requests);
+		new ObjectName("org.javasimon:type=Stopwatch,name=" + tagged.getName());
+
+		Counter errors = SimonManager.getCounter("app.errors");
+		Assert.assertSame(errors.tagged(Tags.of("tenant", "t1")).getParent(), errors);
+	}
+
+	@Test
+	public void rollUpByTag() {
+		Stopwatch requests = SimonManager.getStopwatch("app.requests");
+		requests.tagged(Tags.of("method", "GET", "status", "200")).addSplit(Split.create(10));
+		requests.tagged(Tags.of("method", "POST", "status", "200")).addSplit(Split.create(20));
+		requests.tagged(Tags.of("method", "GET", "status", "500")).addSplit(Split.create(30));
+		requests.tagged(Tags.of("tenant", "x")).addSplit(Split.create(40));
+		requests.child("untagged").addSplit(Split.create(50));
+
+		Map<String, StopwatchAggregate> byStatus = SimonUtils.calculateStopwatchAggregateByTag(requests, "status");
+		Assert.assertEquals(byStatus.keySet().toString(), "[200, 500]");
+		Assert.assertEquals(byStatus.get("200").getTotal(), 30);
+		Assert.assertEquals(byStatus.get("200").getCounter(), 2);
+		Assert.assertEquals(byStatus.get("500").getTotal(), 30);
+
+		StopwatchAggregate gets = SimonUtils.calculateStopwatchAggregateWithTags(requests, Tags.of("method", "GET"));
+		Assert.assertEquals(gets.getTotal(), 40);
+		Assert.assertEquals(SimonUtils.calculateStopwatchAggregateWithTags(requests, Tags.EMPTY).getTotal(), 100);
+
+		Counter errors = SimonManager.getCounter("app.errors");
+		errors.tagged(Tags.of("tenant", "a")).increase(2);
+		errors.tagged(Tags.of("tenant", "b")).increase(3);
+		Map<String, CounterAggregate> byTenant = SimonUtils.calculateCounterAggregateByTag(errors, "tenant");
+		Assert.assertEquals(byTenant.get("a").getCounter(), 2);
+		Assert.assertEquals(byTenant.get("b").getCounter(), 3);
+		Assert.assertEquals(SimonUtils.calculateCounterAggregateWithTags(errors, Tags.of("tenant", "b")).getCounter(), 3);
+	}
+}
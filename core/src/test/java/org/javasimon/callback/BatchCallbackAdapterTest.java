@@ -0,0 +1,162 @@
+package org.javasimon.callback;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for {@link BatchCallbackAdapter}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class BatchCallbackAdapterTest {
+
+	@Test
+	public void batchIsFlushedWhenFull() {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		manager.callback().addCallback(new BatchCallbackAdapter(batchCallback, BatchCallbackAdapter.Buffering.PER_THREAD, 3, 0));
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(manager.callback()));
+
+		Stopwatch stopwatch = manager.getStopwatch("sw");
+		for (long split : new long[]{10, 20, 30, 40}) {
+			stopwatch.addSplit(Split.create(split));
+		}
+		Assert.assertEquals(batchCallback.batches, 1);
+		Assert.assertEquals(batchCallback.durations.toString(), "[10, 20, 30]");
+		Assert.assertSame(batchCallback.stopwatch, stopwatch);
+	}
+
+	@Test
+	public void explicitFlushAndCleanup() {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		BatchCallbackAdapter adapter = new BatchCallbackAdapter(batchCallback);
+		manager.callback().addCallback(adapter);
+
+		manager.getStopwatch("sw").start().stop();
+		Assert.assertEquals(batchCallback.batches, 0);
+		adapter.flush();
+		Assert.assertEquals(batchCallback.batches, 1);
+		Assert.assertEquals(batchCallback.durations.size(), 1);
+
+		manager.getStopwatch("sw").addSplit(Split.create(5));
+		manager.callback().removeCallback(adapter);
+		Assert.assertEquals(batchCallback.batches, 2);
+		Assert.assertEquals(batchCallback.durations.get(1), Long.valueOf(5));
+	}
+
+	@Test
+	public void perStopwatchBufferingSharesBatchAcrossThreads() throws InterruptedException {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		BatchCallbackAdapter adapter = new BatchCallbackAdapter(batchCallback, BatchCallbackAdapter.Buffering.PER_STOPWATCH, 1000, 0);
+		manager.callback().addCallback(adapter);
+
+		final Stopwatch stopwatch = manager.getStopwatch("sw");
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 250; i++) {
+						stopwatch.addSplit(Split.create(1));
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+		Assert.assertEquals(batchCallback.batches, 1);
+		Assert.assertEquals(batchCallback.durations.size(), 1000);
+	}
+
+	@Test
+	public void managerClearFlushesBatches() {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		manager.callback().addCallback(new BatchCallbackAdapter(batchCallback));
+
+		manager.getStopwatch("sw").addSplit(Split.create(7));
+		manager.clear();
+		Assert.assertEquals(batchCallback.batches, 1);
+
+		manager.getStopwatch("sw").addSplit(Split.create(8));
+		manager.clear();
+		Assert.assertEquals(batchCallback.durations.toString(), "[7, 8]");
+	}
+
+	@Test
+	public void destroyedStopwatchFlushesOnlyItsBatch() {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		BatchCallbackAdapter adapter = new BatchCallbackAdapter(batchCallback, BatchCallbackAdapter.Buffering.PER_THREAD, 10, 0);
+		manager.callback().addCallback(adapter);
+
+		manager.getStopwatch("sw1").addSplit(Split.create(1));
+		Stopwatch stopwatch2 = manager.getStopwatch("sw2");
+		stopwatch2.addSplit(Split.create(2));
+		manager.destroySimon("sw1");
+		Assert.assertEquals(batchCallback.durations.toString(), "[1]");
+
+		// batch of the other Stopwatch is kept, new split of the destroyed Stopwatch goes to a new batch
+		stopwatch2.addSplit(Split.create(3));
+		manager.getStopwatch("sw1").addSplit(Split.create(4));
+		Assert.assertEquals(batchCallback.batches, 1);
+		adapter.flush();
+		Assert.assertEquals(batchCallback.batches, 3);
+		Assert.assertEquals(batchCallback.durations.toString(), "[1, 2, 3, 4]");
+	}
+
+	@Test
+	public void idleBatchesOfFinishedThreadsAreRemoved() throws InterruptedException {
+		Manager manager = new EnabledManager();
+		CollectingBatchCallback batchCallback = new CollectingBatchCallback();
+		BatchCallbackAdapter adapter = new BatchCallbackAdapter(batchCallback, BatchCallbackAdapter.Buffering.PER_THREAD, 10, 0);
+		manager.callback().addCallback(adapter);
+
+		final Stopwatch stopwatch = manager.getStopwatch("sw");
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				stopwatch.addSplit(Split.create(1));
+			}
+		};
+		thread.start();
+		thread.join();
+		stopwatch.addSplit(Split.create(2));
+		Assert.assertEquals(adapter.getBatchCount(), 2);
+
+		adapter.flush();
+		Assert.assertEquals(batchCallback.durations.size(), 2);
+		stopwatch.addSplit(Split.create(3));
+		adapter.flush();
+		Assert.assertEquals(adapter.getBatchCount(), 2, "batch found empty once is kept");
+		stopwatch.addSplit(Split.create(4));
+		adapter.flush();
+		Assert.assertEquals(adapter.getBatchCount(), 1, "empty batch of the finished thread is removed");
+		Assert.assertEquals(batchCallback.durations.toString(), "[1, 2, 3, 4]");
+	}
+
+	private static class CollectingBatchCallback implements BatchCallback {
+		private int batches;
+		private Stopwatch stopwatch;
+		private final List<Long> durations = new ArrayList<>();
+
+		@Override
+		public synchronized void onStopwatchStops(Stopwatch stopwatch, long[] durations, int count) {
+			batches++;
+			this.stopwatch = stopwatch;
+			for (int i = 0; i < count; i++) {
+				this.durations.add(durations[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.javasimon.callback;
+
+import org.javasimon.Counter;
+import org.javasimon.CounterSample;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Simon;
+import org.javasimon.Split;
+import org.javasimon.StopwatchSample;
+import org.javasimon.callback.async.AsyncCallback;
+import org.javasimon.callback.timeline.TimelineCallback;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link CompositeCallbackImpl}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class CompositeCallbackImplTest {
+
+	@Test
+	public void sampleIsNotCreatedForSampleIgnoringCallbacks() {
+		Manager manager = new EnabledManager();
+		SampleCatchingCallback callback = new SampleCatchingCallback();
+		manager.callback().addCallback(callback);
+		manager.callback().addCallback(new TimelineCallback());
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(manager.callback()));
+
+		manager.getStopwatch("sw").start().stop();
+		manager.getCounter("cnt").increase();
+		Assert.assertTrue(callback.stopCalled);
+		Assert.assertNull(callback.stopwatchSample);
+		Assert.assertNull(callback.counterSample);
+	}
+
+	@Test
+	public void sampleIsCreatedIfAnyCallbackRequiresIt() {
+		Manager manager = new EnabledManager();
+		SampleCatchingCallback callback = new SampleCatchingCallback();
+		manager.callback().addCallback(callback);
+		CompositeFilterCallback filter = new CompositeFilterCallback();
+		manager.callback().addCallback(filter);
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(manager.callback()));
+
+		filter.addCallback(new CallbackSkeleton());
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(manager.callback()), "skeleton does not use any sample");
+		filter.addCallback(new CallbackSkeleton() {
+			@Override
+			public void onCounterSet(Counter counter, long val, CounterSample sample) {
+			}
+		});
+		Assert.assertTrue(CompositeCallbackImpl.isSampleRequired(manager.callback()));
+
+		manager.getStopwatch("sw").start().stop();
+		manager.getCounter("cnt").increase();
+		Assert.assertEquals(callback.stopwatchSample.getCounter(), 1);
+		Assert.assertEquals(callback.counterSample.getCounter(), 1);
+	}
+
+	@Test
+	public void nestedCompositeChangesUpdateSampleRequirement() {
+		CompositeCallbackImpl root = new CompositeCallbackImpl();
+		CompositeFilterCallback filter = new CompositeFilterCallback();
+		CompositeCallbackImpl nested = new CompositeCallbackImpl();
+		root.addCallback(filter);
+		filter.addCallback(nested);
+		Assert.assertFalse(root.isSampleRequired());
+
+		Callback callback = new CallbackSkeleton() {
+			@Override
+			public void onCounterSet(Counter counter, long val, CounterSample sample) {
+			}
+		};
+		nested.addCallback(callback);
+		Assert.assertTrue(root.isSampleRequired());
+		nested.removeCallback(callback);
+		Assert.assertFalse(root.isSampleRequired());
+
+		root.removeCallback(filter);
+		nested.addCallback(callback);
+		Assert.assertTrue(filter.isSampleRequired());
+		Assert.assertFalse(root.isSampleRequired(), "removed composite does not affect former parent");
+	}
+
+	@Test
+	public void compositeHandlesEventsOfItsChildren() {
+		CompositeCallbackImpl root = new CompositeCallbackImpl();
+		CompositeFilterCallback filter = new CompositeFilterCallback();
+		root.addCallback(filter);
+		root.addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+			}
+		});
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(root, Callback.Event.CREATED));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(root, Callback.Event.STOPWATCH_START));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(filter, Callback.Event.STOPWATCH_STOP));
+
+		filter.addCallback(new SampleCatchingCallback());
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(root, Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(root, Callback.Event.STOPWATCH_START));
+	}
+
+	@Test
+	public void subclassOverridingSampleEventRequiresSample() {
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(new TimelineCallback()));
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(new TimelineCallback() {
+		}));
+		Assert.assertTrue(CompositeCallbackImpl.isSampleRequired(new TimelineCallback() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+			}
+		}));
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(new SampleIgnoringTimelineCallback()));
+	}
+
+	@Test
+	public void eventsAreDispatchedOnlyToOverridingCallbacks() {
+		SampleCatchingCallback skeletonCallback = new SampleCatchingCallback();
+		Callback plainCallback = Mockito.mock(Callback.class);
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(skeletonCallback, Callback.Event.STOPWATCH_STOP));
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(skeletonCallback, Callback.Event.COUNTER_INCREASE));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(skeletonCallback, Callback.Event.STOPWATCH_START));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(skeletonCallback, Callback.Event.WARNING));
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(plainCallback, Callback.Event.STOPWATCH_START));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(new CompositeCallbackImpl(), Callback.Event.STOPWATCH_START));
+
+		AsyncCallback asyncCallback = new AsyncCallback(skeletonCallback);
+		Assert.assertTrue(CompositeCallbackImpl.handlesEvent(asyncCallback, Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(CompositeCallbackImpl.handlesEvent(asyncCallback, Callback.Event.STOPWATCH_START));
+	}
+
+	@Test
+	public void dispatchTableFollowsCallbackChanges() {
+		Manager manager = new EnabledManager();
+		SampleCatchingCallback callback = new SampleCatchingCallback();
+		manager.callback().addCallback(callback);
+		manager.getStopwatch("sw").start().stop();
+		Assert.assertTrue(callback.stopCalled);
+
+		callback.stopCalled = false;
+		manager.callback().removeCallback(callback);
+		Assert.assertTrue(manager.callback().callbacks().isEmpty());
+		manager.getStopwatch("sw").start().stop();
+		Assert.assertFalse(callback.stopCalled);
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void callbackListIsUnmodifiable() {
+		new CompositeCallbackImpl().callbacks().add(new CallbackSkeleton());
+	}
+
+	private static class SampleIgnoringTimelineCallback extends TimelineCallback implements SampleIgnoringCallback {
+		@Override
+		public void onStopwatchStop(Split split, StopwatchSample sample) {
+			super.onStopwatchStop(split, sample);
+		}
+	}
+
+	private static class SampleCatchingCallback extends CallbackSkeleton implements SampleIgnoringCallback {
+		private boolean stopCalled;
+		private StopwatchSample stopwatchSample;
+		private CounterSample counterSample;
+
+		@Override
+		public void onStopwatchStop(Split split, StopwatchSample sample) {
+			stopCalled = true;
+			stopwatchSample = sample;
+		}
+
+		@Override
+		public void onCounterIncrease(Counter counter, long inc, CounterSample sample) {
+			counterSample = sample;
+		}
+	}
+}
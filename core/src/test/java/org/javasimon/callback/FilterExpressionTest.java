@@ -0,0 +1,113 @@
+package org.javasimon.callback;
+
+import org.javasimon.Counter;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonException;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link FilterExpression}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public final class FilterExpressionTest {
+
+	@DataProvider(name = "expressions")
+	public Object[][] expressionsDataProvider() {
+		return new Object[][]{
+			{"value == 7", true},
+			{"value eq 7 and not value ne 7", true},
+			{"value + 3 == 10", true},
+			{"value * 2 - 4 == 10", true},
+			{"value / 2 == 3.5", true},
+			{"value % 4 == 3", true},
+			{"-value < 0", true},
+			{"(value > 5) == (value > 6)", true},
+			{"value > 10 || value < 8", true},
+			{"value > 10 or value < 5", false},
+			{"!(value > 5)", false},
+			{"value ge 7 && value le 7", true},
+			{"value gt 7", false},
+			{"value lt 7", false},
+			{"value * 1000 == 7us", true},
+			{"value * 1000000 == 7ms", true},
+			{"value == 7ns", true},
+			{"1.5s == 1500ms", true},
+			{"VALUE EQ 7 AND TRUE", true},
+			{"true and false", false},
+			{"counter == 0 and split == 0", true},
+		};
+	}
+
+	@Test(dataProvider = "expressions")
+	public void expressionIsEvaluated(String condition, boolean expected) {
+		Assert.assertEquals(FilterExpression.compile(condition).test(null, null, 7L), expected, condition);
+	}
+
+	@DataProvider(name = "invalidExpressions")
+	public Object[][] invalidExpressionsDataProvider() {
+		return new Object[][]{
+			{"split"},
+			{"split +"},
+			{"split > 5 and 3"},
+			{"unknown > 5"},
+			{"split > 5s5"},
+			{"split > 5min"},
+			{"(split > 5"},
+			{"split > 5)"},
+			{"split < 5 < 6"},
+			{"true < 5"},
+		};
+	}
+
+	@Test(dataProvider = "invalidExpressions", expectedExceptions = SimonException.class)
+	public void invalidExpressionThrowsException(String condition) {
+		FilterExpression.compile(condition);
+	}
+
+	@Test
+	public void simonValues() {
+		Manager manager = new EnabledManager();
+		Stopwatch stopwatch = manager.getStopwatch("sw");
+		stopwatch.addSplit(Split.create(100));
+		Split running = stopwatch.start();
+		Assert.assertTrue(FilterExpression.compile("active == 1 and maxactive == 1 and counter == 1").test(stopwatch, null, 0));
+		Assert.assertTrue(FilterExpression.compile("total == 100 and max == 100 and min == 100").test(stopwatch, null, 0));
+		Assert.assertTrue(FilterExpression.compile("split >= 0").test(stopwatch, running, 0));
+
+		Counter counter = manager.getCounter("cnt");
+		counter.set(5).increase(2);
+		Assert.assertTrue(FilterExpression.compile("counter == 7 and max == 7 and min == 5 and value == 2").test(counter, null, 2));
+		Assert.assertTrue(FilterExpression.compile("active == 0 and total == 0").test(counter, null, 2));
+	}
+
+	@Test
+	public void concurrentEvaluation() throws InterruptedException {
+		final FilterExpression expression = FilterExpression.compile("value % 2 == 0");
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (long i = 0; i < 100000; i++) {
+						if (expression.test(null, null, i) != (i % 2 == 0)) {
+							failures.incrementAndGet();
+						}
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+		Assert.assertEquals(failures.get(), 0);
+	}
+}
@@ -0,0 +1,234 @@
+package org.javasimon.callback.async;
+
+import org.javasimon.Counter;
+import org.javasimon.CounterSample;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Split;
+import org.javasimon.StopwatchSample;
+import org.javasimon.callback.Callback;
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.CompositeCallbackImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit test for {@link AsyncCallback}.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public class AsyncCallbackTest {
+
+	private static final int THREADS = 4;
+	private static final int LOOP = 10000;
+
+	@Test
+	public void eventsAreDispatchedInOrder() {
+		final List<String> events = new ArrayList<>();
+		Manager manager = new EnabledManager();
+		AsyncCallback callback = new AsyncCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+				events.add("stop " + split.getStopwatch().getName() + " " + sample.getCounter());
+			}
+
+			@Override
+			public void onCounterIncrease(Counter counter, long inc, CounterSample sample) {
+				events.add("inc " + counter.getName() + " " + inc);
+			}
+
+			@Override
+			public void onManagerMessage(String message) {
+				events.add(message);
+			}
+		});
+		manager.callback().addCallback(callback);
+
+		manager.getStopwatch("sw").start().stop();
+		manager.getCounter("cnt").increase(3);
+		manager.message("msg");
+		callback.flush();
+
+		Assert.assertEquals(events.toString(), "[stop sw 1, inc cnt 3, msg]");
+		Assert.assertEquals(callback.getPendingCount(), 0);
+		Assert.assertEquals(callback.getDroppedCount(), 0);
+		manager.callback().removeCallback(callback);
+	}
+
+	@Test
+	public void failingDelegateDoesNotStopDispatching() {
+		final List<String> messages = new ArrayList<>();
+		Manager manager = new EnabledManager();
+		AsyncCallback callback = new AsyncCallback(new CallbackSkeleton() {
+			@Override
+			public void onManagerMessage(String message) {
+				if (message.equals("fail")) {
+					throw new IllegalStateException(message);
+				}
+				messages.add(message);
+			}
+		});
+		manager.callback().addCallback(callback);
+
+		manager.message("fail");
+		manager.message("msg");
+		callback.flush();
+
+		Assert.assertEquals(messages.toString(), "[msg]");
+		manager.callback().removeCallback(callback);
+	}
+
+	@Test
+	public void sampleRequirementIsDerivedFromDelegate() {
+		AsyncCallback skeleton = new AsyncCallback(new CallbackSkeleton());
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(skeleton));
+
+		AsyncCallback sampling = new AsyncCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+			}
+		});
+		Assert.assertTrue(CompositeCallbackImpl.isSampleRequired(sampling));
+
+		CompositeCallbackImpl composite = new CompositeCallbackImpl();
+		AsyncCallback wrappedComposite = new AsyncCallback(composite);
+		Assert.assertFalse(CompositeCallbackImpl.isSampleRequired(wrappedComposite));
+		composite.addCallback(new CallbackSkeleton() {
+			@Override
+			public void onCounterSet(Counter counter, long val, CounterSample sample) {
+			}
+		});
+		Assert.assertTrue(CompositeCallbackImpl.isSampleRequired(wrappedComposite));
+	}
+
+	@Test
+	public void eventsBeforeInitializationAreDropped() {
+		AsyncCallback callback = new AsyncCallback(new CallbackSkeleton());
+		callback.onManagerMessage("dropped");
+		callback.onManagerClear();
+		Assert.assertEquals(callback.getDroppedCount(), 2);
+		Assert.assertEquals(callback.getDroppedCount(Callback.Event.MESSAGE), 1);
+		Assert.assertEquals(callback.getDroppedCount(Callback.Event.MANAGER_CLEAR), 1);
+		Assert.assertEquals(callback.getDroppedCount(Callback.Event.ALL), 2);
+	}
+
+	@Test
+	public void capacityIsRoundedToPowerOfTwo() {
+		Assert.assertEquals(new AsyncCallback(new CallbackSkeleton(), 100, AsyncCallback.OverflowPolicy.DROP).getCapacity(), 128);
+		Assert.assertEquals(new AsyncCallback(new CallbackSkeleton(), 64, AsyncCallback.OverflowPolicy.DROP).getCapacity(), 64);
+	}
+
+	@Test
+	public void fullBufferDropsEvents() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger dispatched = new AtomicInteger();
+		AsyncCallback callback = new AsyncCallback(new BlockingCallback(release, dispatched), 4, AsyncCallback.OverflowPolicy.DROP);
+		callback.initialize(null);
+
+		for (int i = 0; i < 20; i++) {
+			callback.onManagerMessage("msg");
+		}
+		// the first event may be taken by the dispatcher already, the rest fills the buffer
+		Assert.assertTrue(callback.getDroppedCount(Callback.Event.MESSAGE) >= 15);
+		release.countDown();
+		callback.flush();
+		Assert.assertEquals(dispatched.get() + callback.getDroppedCount(), 20);
+		callback.cleanup();
+	}
+
+	@Test
+	public void blockingPolicyDispatchesAllEvents() throws InterruptedException {
+		final AtomicInteger dispatched = new AtomicInteger();
+		final AsyncCallback callback = new AsyncCallback(new BlockingCallback(new CountDownLatch(0), dispatched),
+			16, AsyncCallback.OverflowPolicy.BLOCK);
+		callback.initialize(null);
+		publishConcurrently(callback);
+		callback.cleanup();
+
+		Assert.assertEquals(dispatched.get(), THREADS * LOOP);
+		Assert.assertEquals(callback.getDroppedCount(), 0);
+	}
+
+	@Test
+	public void samplingPolicyKeepsSomeEvents() throws InterruptedException {
+		final AtomicInteger dispatched = new AtomicInteger();
+		final AsyncCallback callback = new AsyncCallback(new BlockingCallback(new CountDownLatch(0), dispatched),
+			16, AsyncCallback.OverflowPolicy.SAMPLE);
+		callback.setSampleRate(4);
+		callback.initialize(null);
+		publishConcurrently(callback);
+		callback.cleanup();
+
+		Assert.assertEquals(dispatched.get() + callback.getDroppedCount(), THREADS * LOOP);
+	}
+
+	@Test
+	public void eventsPublishedDuringCleanupAreDispatchedOrDropped() throws InterruptedException {
+		for (int round = 0; round < 50; round++) {
+			final AtomicInteger dispatched = new AtomicInteger();
+			final AsyncCallback callback = new AsyncCallback(new BlockingCallback(new CountDownLatch(0), dispatched),
+				1024, AsyncCallback.OverflowPolicy.DROP);
+			callback.initialize(null);
+			final CountDownLatch started = new CountDownLatch(THREADS);
+			final CountDownLatch latch = new CountDownLatch(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				new Thread() {
+					@Override
+					public void run() {
+						started.countDown();
+						for (int i = 0; i < 1000; i++) {
+							callback.onManagerMessage("msg");
+						}
+						latch.countDown();
+					}
+				}.start();
+			}
+			started.await();
+			callback.cleanup();
+			latch.await();
+
+			Assert.assertEquals(dispatched.get() + callback.getDroppedCount(), THREADS * 1000);
+		}
+	}
+
+	private void publishConcurrently(final AsyncCallback callback) throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < LOOP; i++) {
+						callback.onManagerMessage("msg");
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+	}
+
+	private static class BlockingCallback extends CallbackSkeleton {
+		private final CountDownLatch release;
+		private final AtomicInteger dispatched;
+
+		BlockingCallback(CountDownLatch release, AtomicInteger dispatched) {
+			this.release = release;
+			this.dispatched = dispatched;
+		}
+
+		@Override
+		public void onManagerMessage(String message) {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			dispatched.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.javasimon.callback.calltree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.TestClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link AggregatedCallTree} and {@link CallTreeCallback} in aggregating mode.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public class AggregatedCallTreeTest extends SimonUnitTest {
+
+	private static final String NAME_PREFIX = "org.javasimon.test.";
+
+	private TestClock clock;
+	private Manager manager;
+	private CallTreeCallback callback;
+
+	@BeforeMethod
+	public void setUp() {
+		clock = new TestClock();
+		clock.setMillisNanosFollow(1000);
+		manager = new EnabledManager(clock);
+		callback = new CallTreeCallback();
+		callback.setAggregate(true);
+		manager.callback().addCallback(callback);
+	}
+
+	private Split start(String name) {
+		return manager.getStopwatch(NAME_PREFIX + name).start();
+	}
+
+	/** Lets given nanoseconds elapse. */
+	private void elapse(long nanos) {
+		clock.setNanos(clock.nanoTime() + nanos);
+	}
+
+	/** One request: root(10) calls child1(20) calling m1(30) and child2(5) twice. */
+	private void request() {
+		Split root = AggregatedCallTreeTest.this.start("root");
+		elapse(10);
+		Split child1 = start("child1");
+		Split m1 = start("child1.m1");
+		elapse(30);
+		m1.stop();
+		elapse(20);
+		child1.stop();
+		for (int i = 0; i < 2; i++) {
+			Split child2 = start("child2");
+			elapse(5);
+			child2.stop();
+		}
+		root.stop();
+	}
+
+	@Test
+	public void testAggregatedTree() {
+		request();
+		request();
+
+		Stopwatch rootStopwatch = manager.getStopwatch(NAME_PREFIX + "root");
+		assertNull(CallTreeCallback.getLastCallTree(rootStopwatch));
+		AggregatedCallTree callTree = CallTreeCallback.getAggregatedCallTree(rootStopwatch);
+		assertNotNull(callTree);
+		assertEquals(callTree.getNodeCount(), 4);
+		assertEquals(callTree.getDroppedCount(), 0L);
+
+		AggregatedCallTreeNode rootNode = callTree.getRootNode();
+		assertEquals(rootNode.getCount(), 2L);
+		assertEquals(rootNode.getTotal(), 140L);
+		assertEquals(rootNode.getSelfTotal(), 20L);
+		assertEquals(rootNode.getMax(), 70L);
+		AggregatedCallTreeNode child1Node = rootNode.getChild(NAME_PREFIX + "child1");
+		assertEquals(child1Node.getCount(), 2L);
+		assertEquals(child1Node.getTotal(), 100L);
+		assertEquals(child1Node.getSelfTotal(), 40L);
+		assertEquals((int) child1Node.getPercent(), 71);
+		AggregatedCallTreeNode m1Node = child1Node.getChild(NAME_PREFIX + "child1.m1");
+		assertEquals(m1Node.getSelfTotal(), 60L);
+		AggregatedCallTreeNode child2Node = rootNode.getChild(NAME_PREFIX + "child2");
+		assertEquals(child2Node.getCount(), 4L);
+		assertEquals(child2Node.getTotal(), 20L);
+		assertEquals(child2Node.getMax(), 5L);
+		// Non root stopwatches do not get their own tree
+		assertNull(CallTreeCallback.getAggregatedCallTree(manager.getStopwatch(NAME_PREFIX + "child1")));
+	}
+
+	@Test
+	public void testFolded() {
+		request();
+
+		String folded = CallTreeCallback.getAggregatedCallTree(manager.getStopwatch(NAME_PREFIX + "root")).toFoldedString();
+		String root = NAME_PREFIX + "root";
+		String child1 = root + ";" + NAME_PREFIX + "child1";
+		assertTrue(folded.contains(root + " 10\n"), folded);
+		assertTrue(folded.contains(child1 + " 20\n"), folded);
+		assertTrue(folded.contains(child1 + ";" + NAME_PREFIX + "child1.m1 30\n"), folded);
+		assertTrue(folded.contains(root + ";" + NAME_PREFIX + "child2 10\n"), folded);
+		assertEquals(folded.split("\n").length, 4);
+	}
+
+	@Test
+	public void testMaxNodes() {
+		callback.setMaxNodes(2);
+		request();
+
+		AggregatedCallTree callTree = CallTreeCallback.getAggregatedCallTree(manager.getStopwatch(NAME_PREFIX + "root"));
+		assertEquals(callTree.getNodeCount(), 2);
+		// child1.m1 and both child2 calls are dropped
+		assertEquals(callTree.getDroppedCount(), 3L);
+		AggregatedCallTreeNode rootNode = callTree.getRootNode();
+		assertEquals(rootNode.getChildren().size(), 1);
+		assertEquals(rootNode.getTotal(), 70L);
+		// Dropped child2 calls do not count as root self time
+		assertEquals(rootNode.getSelfTotal(), 10L);
+		// Dropped child1.m1 call does not count as child1 self time
+		assertEquals(rootNode.getChild(NAME_PREFIX + "child1").getTotal(), 50L);
+		assertEquals(rootNode.getChild(NAME_PREFIX + "child1").getSelfTotal(), 20L);
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						Split root = AggregatedCallTreeTest.this.start("root");
+						AggregatedCallTreeTest.this.start("child").stop();
+						root.stop();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		AggregatedCallTreeNode rootNode = CallTreeCallback.getAggregatedCallTree(manager.getStopwatch(NAME_PREFIX + "root")).getRootNode();
+		assertEquals(rootNode.getCount(), 4000L);
+		assertEquals(rootNode.getChildren().size(), 1);
+		assertEquals(rootNode.getChild(NAME_PREFIX + "child").getCount(), 4000L);
+	}
+}
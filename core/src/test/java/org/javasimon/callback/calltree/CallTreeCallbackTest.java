@@ -0,0 +1,149 @@
+package org.javasimon.callback.calltree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link CallTreeCallback} sampling.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public class CallTreeCallbackTest extends SimonUnitTest {
+
+	private static final String NAME_PREFIX = "org.javasimon.test.";
+
+	private Manager manager;
+	private CallTreeCallback callback;
+
+	@BeforeMethod
+	public void setUp() {
+		manager = new EnabledManager();
+		callback = new CallTreeCallback(0L);
+		callback.setAggregate(true);
+		manager.callback().addCallback(callback);
+	}
+
+	private void request(String rootName) {
+		Split root = manager.getStopwatch(NAME_PREFIX + rootName).start();
+		Split child = manager.getStopwatch(NAME_PREFIX + "child").start();
+		manager.getStopwatch(NAME_PREFIX + "child.leaf").start().stop();
+		child.stop();
+		root.stop();
+	}
+
+	private AggregatedCallTree getAggregatedCallTree(String rootName) {
+		return CallTreeCallback.getAggregatedCallTree(manager.getStopwatch(NAME_PREFIX + rootName));
+	}
+
+	@Test
+	public void testNoSampling() {
+		for (int i = 0; i < 10; i++) {
+			request("root");
+		}
+
+		assertEquals(callback.getSampledCount(), 10L);
+		assertEquals(callback.getSkippedCount(), 0L);
+		assertEquals(getAggregatedCallTree("root").getRootNode().getCount(), 10L);
+	}
+
+	@Test
+	public void testCounterSampling() {
+		callback.setSampleRate(4);
+		callback.setSampling(CallTreeCallback.Sampling.COUNTER);
+		for (int i = 0; i < 10; i++) {
+			request("root");
+		}
+
+		assertEquals(callback.getSampledCount(), 3L);
+		assertEquals(callback.getSkippedCount(), 7L);
+		AggregatedCallTreeNode rootNode = getAggregatedCallTree("root").getRootNode();
+		assertEquals(rootNode.getCount(), 3L);
+		AggregatedCallTreeNode childNode = rootNode.getChild(NAME_PREFIX + "child");
+		assertEquals(childNode.getCount(), 3L);
+		assertEquals(childNode.getChild(NAME_PREFIX + "child.leaf").getCount(), 3L);
+		// Nested calls of skipped requests are not taken as roots
+		assertNull(getAggregatedCallTree("child"));
+	}
+
+	@Test
+	public void testRandomSampling() {
+		callback.setSampleRate(10);
+		for (int i = 0; i < 10000; i++) {
+			request("root");
+		}
+
+		long sampledCount = callback.getSampledCount();
+		assertEquals(sampledCount + callback.getSkippedCount(), 10000L);
+		assertTrue(sampledCount > 700 && sampledCount < 1300, "Sampled " + sampledCount);
+		assertEquals(getAggregatedCallTree("root").getRootNode().getCount(), sampledCount);
+	}
+
+	@Test
+	public void testForceSampleAttribute() {
+		callback.setSampleRate(1000);
+		callback.setSampling(CallTreeCallback.Sampling.COUNTER);
+		callback.setForceSampleAttribute("profile");
+		manager.getStopwatch(NAME_PREFIX + "forced").setAttribute("profile", true);
+		for (int i = 0; i < 5; i++) {
+			request("forced");
+			request("root");
+		}
+
+		assertEquals(getAggregatedCallTree("forced").getRootNode().getCount(), 5L);
+		// Only first request of the thread
+		assertEquals(getAggregatedCallTree("root").getRootNode().getCount(), 1L);
+		assertEquals(callback.getSkippedCount(), 4L);
+	}
+
+	@Test
+	public void testCallTreeSampling() {
+		callback.setAggregate(false);
+		callback.setSampleRate(2);
+		callback.setSampling(CallTreeCallback.Sampling.COUNTER);
+		Stopwatch root = manager.getStopwatch(NAME_PREFIX + "root");
+
+		request("root");
+		CallTree callTree = CallTreeCallback.getLastCallTree(root);
+		assertNotNull(callTree);
+		assertEquals(callTree.getRootNode().getChild(NAME_PREFIX + "child").getChildren().size(), 1);
+		root.removeAttribute(CallTreeCallback.ATTR_NAME_LAST);
+		request("root");
+		assertNull(CallTreeCallback.getLastCallTree(root));
+		request("root");
+		assertNotNull(CallTreeCallback.getLastCallTree(root));
+		assertEquals(callback.getSampledCount(), 2L);
+		assertEquals(callback.getSkippedCount(), 1L);
+	}
+
+	@Test
+	public void testThreadStateIsRemovedAfterRootCall() {
+		request("root");
+		assertFalse(callback.hasThreadState());
+
+		callback.setSampleRate(2);
+		request("root");
+		request("root");
+		assertFalse(callback.hasThreadState(), "random sampling, skipped root call");
+
+		callback.setAggregate(false);
+		callback.setSampleRate(1);
+		request("root");
+		assertFalse(callback.hasThreadState(), "call tree mode");
+
+		callback.setSampleRate(2);
+		callback.setSampling(CallTreeCallback.Sampling.COUNTER);
+		request("root");
+		assertTrue(callback.hasThreadState(), "counter sampling keeps the root call count");
+	}
+}
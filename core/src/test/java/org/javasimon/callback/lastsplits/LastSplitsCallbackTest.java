@@ -1,8 +1,11 @@
 package org.javasimon.callback.lastsplits;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.javasimon.EnabledManager;
 import org.javasimon.Manager;
 import org.javasimon.SimonUnitTest;
@@ -16,11 +19,12 @@ import org.testng.annotations.Test;
  */
 public class LastSplitsCallbackTest extends SimonUnitTest {
 
-	private Manager manager = new EnabledManager();
+	private Manager manager;
 
 	@BeforeMethod
 	public void resetManager() {
-		manager.clear();
+		// new manager, callbacks are not removed by clear
+		manager = new EnabledManager();
 		manager.callback().addCallback(new LastSplitsCallback(5));
 	}
 
@@ -51,6 +55,82 @@ public class LastSplitsCallbackTest extends SimonUnitTest {
 		assertTrue(lastSplits.getTrend() < 0, "Negative trend");
 	}
 
+	@Test
+	public void testRingBufferRevolves() {
+		for (long i = 1; i <= 7; i++) {
+			addSplit(i * 100L);
+		}
+		LastSplits lastSplits = getLastSplits();
+		assertEquals(lastSplits.getCount(), 5);
+		assertEquals(lastSplits.getMin().longValue(), 300L);
+		assertEquals(lastSplits.getMax().longValue(), 700L);
+		assertEquals(lastSplits.getMean(), 500D, 0.1D);
+		assertTrue(lastSplits.toString().startsWith("LastSplits[size=5,values=[300 ns,400 ns,500 ns,600 ns,700 ns]"), lastSplits.toString());
+		lastSplits.clear();
+		assertEquals(lastSplits.getCount(), 0);
+		assertNull(lastSplits.getMin());
+		addSplit(100L);
+		assertEquals(lastSplits.getCount(), 1);
+		assertEquals(lastSplits.getMax().longValue(), 100L);
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		final LastSplits lastSplits = new LastSplits(100);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						lastSplits.add(i, 10L);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(lastSplits.getCount(), 100);
+		assertEquals(lastSplits.getMin().longValue(), 10L);
+		assertEquals(lastSplits.getMax().longValue(), 10L);
+	}
+
+	@Test
+	public void testConcurrentAddIsNotTorn() throws InterruptedException {
+		final LastSplits lastSplits = new LastSplits(2);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final long base = t * 1000000L;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (long i = 0; running.get(); i++) {
+						// start and duration of one split are always the same
+						lastSplits.add(base + i, base + i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		try {
+			for (int i = 0; i < 100000; i++) {
+				LastSplits.Snapshot snapshot = lastSplits.snapshot();
+				for (int j = 0; j < snapshot.size; j++) {
+					assertEquals(snapshot.durations[j], snapshot.starts[j]);
+				}
+			}
+		} finally {
+			running.set(false);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+		assertEquals(lastSplits.getCount(), 2);
+	}
+
 	private Stopwatch getStopwatch() {
 		return manager.getStopwatch(getClass().getName() + ".stopwatch");
 	}
@@ -0,0 +1,108 @@
+package org.javasimon.callback.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.Test;
+
+/** Unit test for {@link LogLinearBuckets}. */
+public class LogLinearBucketsTest extends SimonUnitTest {
+
+	@Test
+	public void testQuantilesHaveRelativePrecision() {
+		LogLinearBuckets buckets = new LogLinearBuckets(2);
+		for (long i = 1; i <= 10000; i++) {
+			buckets.addValue(i * 1000);
+		}
+		assertEquals(buckets.getTotalCount(), 10000);
+		assertEquals(buckets.getMedian(), 5000000D, 5000000D * 0.01D);
+		BucketsSample sample = buckets.sample();
+		assertEquals(sample.getPercentile90(), 9000000D, 9000000D * 0.01D);
+		assertEquals(sample.getPercentile99(), 9900000D, 9900000D * 0.01D);
+		assertEquals(sample.getPercentile999(), 9990000D, 9990000D * 0.01D);
+		assertEquals((int) sample.getTotalCount(), 10000);
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LogLinearBuckets buckets = new LogLinearBuckets(1);
+		buckets.addValue(3);
+		buckets.addValue(5);
+		buckets.addValue(7);
+		assertEquals(buckets.getBuckets().size(), 3);
+		assertEquals(buckets.getBuckets().get(1).getMin(), 5);
+		assertEquals(buckets.getBuckets().get(1).getMax(), 5);
+		assertEquals(buckets.getMedian(), 5.5D, 0.01D);
+	}
+
+	@Test
+	public void testOutOfRangeValuesAreCounted() {
+		LogLinearBuckets buckets = new LogLinearBuckets(1000, 1000000, 2);
+		buckets.addValue(0);
+		buckets.addValue(-5);
+		buckets.addValue(Long.MAX_VALUE);
+		assertEquals(buckets.getTotalCount(), 3);
+	}
+
+	@Test
+	public void testEmptyBuckets() {
+		LogLinearBuckets buckets = new LogLinearBuckets(2);
+		BucketsSample sample = buckets.sample();
+		assertNull(sample.getMedian());
+		assertNull(sample.getPercentile999());
+		assertEquals(sample.getBuckets().length, 0);
+		assertNull(buckets.getQuantiles(0.5D)[0]);
+	}
+
+	@Test
+	public void testToStringShowsBucketNumber() {
+		LogLinearBuckets buckets = new LogLinearBuckets(2);
+		buckets.addValue(1000);
+		assertTrue(buckets.getBucketNb() > 0);
+		assertTrue(buckets.toString().contains(",nb=" + buckets.getBucketNb() + "]"));
+	}
+
+	@Test
+	public void testSnapshotAndMerge() {
+		LogLinearBuckets first = new LogLinearBuckets(2);
+		LogLinearBuckets second = new LogLinearBuckets(2);
+		for (int i = 0; i < 100; i++) {
+			first.addValue(1000);
+			second.addValue(3000);
+		}
+		LogLinearBuckets merged = first.snapshot();
+		merged.merge(second);
+		first.clear();
+		assertEquals(first.getTotalCount(), 0);
+		assertEquals(merged.getTotalCount(), 200);
+		assertEquals(merged.getQuantile(0.25D), 1000D, 10D);
+		assertEquals(merged.getQuantile(0.75D), 3000D, 30D);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMergeRequiresSameConfiguration() {
+		new LogLinearBuckets(2).merge(new LogLinearBuckets(3));
+	}
+
+	@Test
+	public void testCallbackWithoutWarmup() {
+		EnabledManager manager = new EnabledManager();
+		AutoQuantilesCallback callback = new AutoQuantilesCallback(BucketsType.LOG_LINEAR, 10, 8);
+		callback.setSignificantDigits(3);
+		manager.callback().addCallback(callback);
+		Stopwatch stopwatch = manager.getStopwatch("loglinear");
+		stopwatch.addSplit(Split.create(2000));
+		stopwatch.addSplit(Split.create(4000));
+
+		Buckets buckets = QuantilesCallback.getBuckets(stopwatch);
+		assertTrue(buckets instanceof LogLinearBuckets);
+		assertEquals(((LogLinearBuckets) buckets).getSignificantDigits(), 3);
+		assertEquals(((LogLinearBuckets) buckets).getTotalCount(), 2);
+		assertEquals(QuantilesCallback.sampleBuckets(stopwatch).getMedian(), 4000D, 40D);
+	}
+}
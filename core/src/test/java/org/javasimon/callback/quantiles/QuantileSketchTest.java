@@ -0,0 +1,105 @@
+package org.javasimon.callback.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/** Unit test for {@link QuantileSketch}. */
+public class QuantileSketchTest extends SimonUnitTest {
+
+	@Test
+	public void testRelativeAccuracy() {
+		QuantileSketch sketch = new QuantileSketch(0.01D, QuantileSketch.DEFAULT_MAX_BINS);
+		for (long i = 1; i <= 10000; i++) {
+			sketch.addValue(i * 1000);
+		}
+		assertEquals(sketch.getCount(), 10000);
+		assertEquals(sketch.getMedian(), 5000000D, 5000000D * 0.01D);
+		BucketsSample sample = sketch.sample();
+		assertEquals(sample.getPercentile90(), 9000000D, 9000000D * 0.01D);
+		assertEquals(sample.getPercentile99(), 9900000D, 9900000D * 0.01D);
+		assertEquals(sample.getPercentile999(), 9990000D, 9990000D * 0.01D);
+		assertEquals((int) sample.getTotalCount(), 10000);
+		// four orders of magnitude with 1 % accuracy fit into the bin limit
+		assertTrue(sketch.getBucketNb() <= QuantileSketch.DEFAULT_MAX_BINS);
+	}
+
+	@Test
+	public void testLowestBinsAreCollapsed() {
+		QuantileSketch sketch = new QuantileSketch(0.01D, 64);
+		for (long value = 1; value < 1000000000L; value *= 10) {
+			sketch.addValue(value);
+		}
+		assertEquals(sketch.getBucketNb(), 64);
+		assertEquals(sketch.getCount(), 9);
+		// all values but the highest one collapsed into the lowest bin
+		assertEquals(sketch.getBuckets().size(), 2);
+		Bucket highest = sketch.getBuckets().get(1);
+		assertEquals(highest.getCount(), 1);
+		assertTrue(highest.contains(100000000L));
+	}
+
+	@Test
+	public void testZeroAndEmpty() {
+		QuantileSketch sketch = new QuantileSketch();
+		assertNull(sketch.sample().getMedian());
+		assertEquals(sketch.sample().getBuckets().length, 0);
+		sketch.addValue(0);
+		sketch.addValue(0);
+		sketch.addValue(100);
+		assertEquals(sketch.getMedian(), 0D);
+		assertEquals(sketch.getBuckets().size(), 2);
+		sketch.clear();
+		assertEquals(sketch.getCount(), 0);
+	}
+
+	@Test
+	public void testMergeAcrossHierarchy() {
+		EnabledManager manager = new EnabledManager();
+		manager.callback().addCallback(new FixedQuantilesCallback(BucketsType.SKETCH, 0, 0, 0));
+		for (int i = 1; i <= 100; i++) {
+			manager.getStopwatch("app.a").addSplit(Split.create(i * 1000));
+			manager.getStopwatch("app.b.c").addSplit(Split.create(i * 1000 + 100000));
+		}
+		assertTrue(QuantilesCallback.getBuckets(manager.getStopwatch("app.a")) instanceof QuantileSketch);
+
+		QuantileSketch merged = QuantilesCallback.mergeSketches(manager.getSimon("app"));
+		assertEquals(merged.getCount(), 200);
+		assertEquals(merged.getQuantile(0.25D), 50000D, 500D);
+		assertEquals(merged.getQuantile(0.75D), 150000D, 1500D);
+		assertEquals(QuantilesCallback.mergeSketches(manager.getSimon("app.b")).getCount(), 100);
+	}
+
+	@Test
+	public void testConcurrentInsertsAreNotLost() throws InterruptedException {
+		final QuantileSketch sketch = new QuantileSketch();
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random();
+					for (int i = 0; i < 10000; i++) {
+						sketch.addValue(1 + random.nextInt(1000000));
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		done.await();
+		assertEquals(sketch.getCount(), 40000);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMergeRequiresSameAccuracy() {
+		new QuantileSketch(0.01D, 64).merge(new QuantileSketch(0.02D, 64));
+	}
+}
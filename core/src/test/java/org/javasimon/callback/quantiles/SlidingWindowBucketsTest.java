@@ -0,0 +1,123 @@
+package org.javasimon.callback.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.TestClock;
+import org.javasimon.jmx.StopwatchMXBeanImpl;
+import org.testng.annotations.Test;
+
+/** Unit test for {@link SlidingWindowBuckets}. */
+public class SlidingWindowBucketsTest extends SimonUnitTest {
+
+	private static final long MINUTE = 60000L;
+
+	@Test
+	public void testOldSlotsLeaveTheWindow() {
+		TestClock clock = new TestClock();
+		clock.setMillis(10 * MINUTE);
+		SlidingWindowBuckets buckets = new SlidingWindowBuckets(15 * MINUTE, 15, 0.01D, clock);
+		for (int i = 0; i < 100; i++) {
+			buckets.addValue(1000);
+		}
+		clock.setMillis(14 * MINUTE);
+		for (int i = 0; i < 100; i++) {
+			buckets.addValue(5000);
+		}
+
+		assertEquals(buckets.getCount(MINUTE), 100);
+		assertEquals(buckets.sample(MINUTE).getMedian(), 5000D, 50D);
+		assertEquals(buckets.getCount(5 * MINUTE), 200);
+		assertEquals(buckets.getQuantile(0.25D), 1000D, 10D);
+		assertEquals(buckets.getQuantile(0.75D), 5000D, 50D);
+
+		clock.setMillis(25 * MINUTE);
+		assertEquals(buckets.getCount(15 * MINUTE), 100);
+		clock.setMillis(29 * MINUTE);
+		assertEquals(buckets.getCount(15 * MINUTE), 0);
+		assertNull(buckets.sample().getMedian());
+	}
+
+	@Test
+	public void testSlotIsReusedAfterRotation() {
+		TestClock clock = new TestClock();
+		SlidingWindowBuckets buckets = new SlidingWindowBuckets(3 * MINUTE, 3, 0.01D, clock);
+		buckets.addValue(1000);
+		clock.setMillis(3 * MINUTE);
+		buckets.addValue(2000);
+		assertEquals(buckets.getCount(3 * MINUTE), 1);
+		assertEquals(buckets.getQuantile(0.5D), 2000D, 20D);
+		buckets.clear();
+		assertEquals(buckets.getCount(3 * MINUTE), 0);
+	}
+
+	@Test
+	public void testConcurrentWritersOfNewSlotKeepAllValues() throws InterruptedException {
+		final TestClock clock = new TestClock();
+		final SlidingWindowBuckets buckets = new SlidingWindowBuckets(3 * MINUTE, 3, 0.01D, clock);
+		for (int round = 0; round < 20; round++) {
+			// every round starts with the slot replacing the one from the previous rotation
+			clock.setMillis(round * 3 * MINUTE);
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						for (int i = 0; i < 1000; i++) {
+							buckets.addValue(1000);
+						}
+					}
+				};
+				threads[t].start();
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(buckets.getCount(MINUTE), 4000);
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testWindowMustBeDivisibleBySlots() {
+		new SlidingWindowBuckets(1000, 7, 0.01D, new TestClock());
+	}
+
+	@Test
+	public void testCallbackAndJmx() {
+		TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(MINUTE);
+		EnabledManager manager = new EnabledManager(clock);
+		AutoQuantilesCallback callback = new AutoQuantilesCallback(BucketsType.SKETCH, 10, 8);
+		callback.setSlidingWindow(15, TimeUnit.MINUTES);
+		manager.callback().addCallback(callback);
+		Stopwatch stopwatch = manager.getStopwatch("window");
+		stopwatch.addSplit(Split.create(2000));
+		clock.setMillisNanosFollow(10 * MINUTE);
+		stopwatch.addSplit(Split.create(4000));
+
+		assertEquals(QuantilesCallback.getSlidingWindowBuckets(stopwatch).getWindow(), 15 * MINUTE);
+		assertEquals(QuantilesCallback.sampleSlidingWindow(stopwatch, MINUTE).getMedian(), 4000D, 40D);
+		assertEquals((int) QuantilesCallback.sampleSlidingWindow(stopwatch, 15 * MINUTE).getTotalCount(), 2);
+		double[] percentiles = new StopwatchMXBeanImpl(stopwatch).getWindowPercentiles(1);
+		assertEquals(percentiles.length, 4);
+		assertEquals(percentiles[0], 4000D, 40D);
+
+		Stopwatch noWindow = new EnabledManager().getStopwatch("noWindow");
+		assertNull(QuantilesCallback.sampleSlidingWindow(noWindow, MINUTE));
+		assertNull(new StopwatchMXBeanImpl(noWindow).getWindowPercentiles(1));
+	}
+}
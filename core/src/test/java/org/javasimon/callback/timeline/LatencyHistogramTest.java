@@ -0,0 +1,49 @@
+package org.javasimon.callback.timeline;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.SimonUnitTest;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link LatencyHistogram}
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ */
+public class LatencyHistogramTest extends SimonUnitTest {
+
+	@Test
+	public void testBucketsCoverAllValues() {
+		assertEquals(LatencyHistogram.getBucketIndex(-1), 0);
+		assertEquals(LatencyHistogram.getBucketIndex(3), 3);
+		assertEquals(LatencyHistogram.getBucketIndex(Long.MAX_VALUE), LatencyHistogram.BUCKET_NB - 1);
+		assertEquals(LatencyHistogram.getBucketMax(LatencyHistogram.BUCKET_NB - 1), Long.MAX_VALUE);
+		for (int i = 1; i < LatencyHistogram.BUCKET_NB; i++) {
+			long min = LatencyHistogram.getBucketMin(i);
+			assertEquals(LatencyHistogram.getBucketMax(i - 1), min - 1);
+			assertEquals(LatencyHistogram.getBucketIndex(min), i);
+			assertEquals(LatencyHistogram.getBucketIndex(LatencyHistogram.getBucketMax(i)), i);
+			assertTrue(LatencyHistogram.getBucketMax(i) <= min * 1.25d);
+		}
+	}
+
+	@Test
+	public void testMergeAndQuantile() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertNull(histogram.getQuantile(0.5d));
+		for (int i = 0; i < 50; i++) {
+			histogram.addValue(1000);
+		}
+		LatencyHistogram other = new LatencyHistogram();
+		for (int i = 0; i < 50; i++) {
+			other.addValue(8000);
+		}
+		histogram.merge(other);
+		assertEquals(histogram.getTotalCount(), 100);
+		assertEquals(histogram.getQuantile(0.25d), 1000d, 250d);
+		assertEquals(histogram.getQuantile(0.75d), 8000d, 2000d);
+		assertEquals(other.copy().getTotalCount(), 50);
+	}
+}
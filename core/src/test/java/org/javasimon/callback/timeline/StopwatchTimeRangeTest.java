@@ -4,6 +4,7 @@ import static org.javasimon.callback.timeline.TimeUtil.addSplit;
 import static org.javasimon.callback.timeline.TimeUtil.createTimestamp;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import org.javasimon.SimonUnitTest;
@@ -50,4 +51,29 @@ public class StopwatchTimeRangeTest extends SimonUnitTest {
 		assertEquals(timeRange.getLast(), 300);
 		assertEquals(timeRange.getStandardDeviation(), 81.65d, 0.01d);
 	}
+
+	/**
+	 * Square of splits over ~3 s overflowed long sum of squares
+	 */
+	@Test
+	public void testLongSplitsVariance() {
+		StopwatchTimeRange timeRange = createStopwatchTimeRange();
+		addSplit(timeRange, createTimestamp(2012, 7, 12, 21, 6, 0), 10000000000L);
+		addSplit(timeRange, createTimestamp(2012, 7, 12, 21, 7, 0), 20000000000L);
+		assertEquals(timeRange.getStandardDeviation(), 5000000000d, 1000d);
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		StopwatchTimeRange timeRange = new StopwatchTimeRange(createTimestamp(2012, 7, 12, 21, 5, 0), createTimestamp(2012, 7, 12, 21, 10, 0), true);
+		for (int i = 0; i < 99; i++) {
+			addSplit(timeRange, createTimestamp(2012, 7, 12, 21, 6, 0), 1000);
+		}
+		addSplit(timeRange, createTimestamp(2012, 7, 12, 21, 6, 0), 1000000);
+		assertEquals(timeRange.getLatencyHistogram().getTotalCount(), 100);
+		assertEquals(timeRange.getLatencyHistogram().getQuantile(0.5d), 1000d, 250d);
+		assertEquals(timeRange.getPercentile99(), 1000000d, 250000d);
+		assertEquals(timeRange.copy().getLatencyHistogram().getTotalCount(), 100);
+		assertNull(createStopwatchTimeRange().getPercentile99());
+	}
 }
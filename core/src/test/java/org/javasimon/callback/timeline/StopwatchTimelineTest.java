@@ -51,6 +51,88 @@ public class StopwatchTimelineTest extends SimonUnitTest {
 		assertEquals(timeRanges[2].getCounter(), 3);
 	}
 
+	@Test
+	public void testOldTimeRangesAreReplaced() {
+		// 3 ranges of 1 minute
+		StopwatchTimeline timeline = new StopwatchTimeline(3, 60 * 1000);
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 10), 100));
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 1, 10), 200));
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 2, 10), 300));
+		TimelineSample<StopwatchTimeRange> before = timeline.sample();
+		// Replaces 21:00 range
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 3, 10), 400));
+		// Range does not exist anymore
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 20), 500));
+		// Existing range
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 1, 20), 600));
+
+		StopwatchTimeRange[] timeRanges = timeline.sample().getTimeRanges();
+		assertEquals(timeRanges.length, 3);
+		assertEquals(timeRanges[0].getStartTimestamp(), createTimestamp(2012, 7, 12, 21, 1, 0));
+		assertEquals(timeRanges[0].getTotal(), 800);
+		assertEquals(timeRanges[2].getLast(), 400);
+		// Sample is not changed by later splits
+		assertEquals(before.getTimeRanges()[1].getTotal(), 200);
+		assertEquals(before.getTimeRanges()[0].getStartTimestamp(), createTimestamp(2012, 7, 12, 21, 0, 0));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testSampledTimeRangeIsImmutable() {
+		StopwatchTimeline timeline = new StopwatchTimeline(3, 60 * 1000);
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 10), 100));
+		timeline.sample().getTimeRanges()[0].addSplit(createTimestamp(2012, 7, 12, 21, 0, 20), 100);
+	}
+
+	@Test
+	public void testConcurrentSplits() throws InterruptedException {
+		final StopwatchTimeline timeline = new StopwatchTimeline(10, 60 * 1000);
+		final long start = createTimestamp(2012, 7, 12, 21, 0, 0);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						timeline.addSplit(createSplit(start + (i % 5) * 60 * 1000, 10));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long counter = 0;
+		for (StopwatchTimeRange timeRange : timeline.sample().getTimeRanges()) {
+			counter += timeRange.getCounter();
+			assertEquals(timeRange.getTotal(), timeRange.getCounter() * 10);
+		}
+		// splits for ranges older than the newest one may be dropped
+		Assert.assertTrue(counter > 0 && counter <= 4000);
+	}
+
+	@Test
+	public void testLatencyMatrix() {
+		StopwatchTimeline timeline = new StopwatchTimeline(3, 60 * 1000, true);
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 10), 100));
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 20), 100));
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 1, 10), 1000));
+		LatencyMatrix matrix = timeline.sample().getLatencyMatrix();
+		assertEquals(matrix.getTimestamps().length, 2);
+		assertEquals(matrix.getTimestamps()[1], createTimestamp(2012, 7, 12, 21, 1, 0));
+		int columns = matrix.getBucketMins().length;
+		Assert.assertTrue(matrix.getBucketMins()[0] <= 100 && matrix.getBucketMaxs()[0] >= 100);
+		Assert.assertTrue(matrix.getBucketMins()[columns - 1] <= 1000 && matrix.getBucketMaxs()[columns - 1] >= 1000);
+		assertEquals(matrix.getCounts()[0][0], 2);
+		assertEquals(matrix.getCounts()[0][columns - 1], 0);
+		assertEquals(matrix.getCounts()[1][columns - 1], 1);
+		assertEquals(matrix.getMaxCount(), 2);
+
+		StopwatchTimeline plainTimeline = new StopwatchTimeline(3, 60 * 1000);
+		plainTimeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 0, 10), 100));
+		Assert.assertNull(plainTimeline.sample().getLatencyMatrix());
+	}
+
 	@Test
 	public void issue113() {
 		Manager manager = new EnabledManager();
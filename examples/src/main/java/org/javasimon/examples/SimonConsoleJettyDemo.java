@@ -6,7 +6,7 @@ import org.eclipse.jetty.servlet.ServletHolder;
 import org.javasimon.SimonManager;
 import org.javasimon.callback.CompositeCallback;
 import org.javasimon.callback.CompositeCallbackImpl;
-import org.javasimon.callback.async.AsyncCallbackProxyFactory;
+import org.javasimon.callback.async.AsyncCallback;
 import org.javasimon.callback.calltree.CallTreeCallback;
 import org.javasimon.callback.quantiles.AutoQuantilesCallback;
 import org.javasimon.callback.timeline.TimelineCallback;
@@ -52,9 +52,9 @@ public class SimonConsoleJettyDemo {
 		compositeCallback.addCallback(new AutoQuantilesCallback(5, 5));
 		// QuantilesCallback manually configured 5 duration buckets 200ms wide each
 		// compositeCallback.addCallback(new FixedQuantilesCallback(0L, 200L, 5));
-		// TimelineCallback 10 time range buckets of 1 minute each
-		compositeCallback.addCallback(new TimelineCallback(10, 60000L));
-		SimonManager.callback().addCallback(new AsyncCallbackProxyFactory(compositeCallback).newProxy());
+		// TimelineCallback 10 time range buckets of 1 minute each, with latency heatmap
+		compositeCallback.addCallback(new TimelineCallback(TimelineCallback.TIMELINE_ATTRIBUTE_NAME, 10, 60000L, true));
+		SimonManager.callback().addCallback(new AsyncCallback(compositeCallback));
 		// CallTreeCallback doesn't support asynchronous operation
 		SimonManager.callback().addCallback(new CallTreeCallback(50));
 		// Simon Servlet
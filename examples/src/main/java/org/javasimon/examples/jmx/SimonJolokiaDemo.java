@@ -3,7 +3,7 @@ package org.javasimon.examples.jmx;
 import org.javasimon.SimonManager;
 import org.javasimon.callback.CompositeCallback;
 import org.javasimon.callback.CompositeCallbackImpl;
-import org.javasimon.callback.async.AsyncCallbackProxyFactory;
+import org.javasimon.callback.async.AsyncCallback;
 import org.javasimon.callback.calltree.CallTreeCallback;
 import org.javasimon.callback.quantiles.AutoQuantilesCallback;
 import org.javasimon.callback.timeline.TimelineCallback;
@@ -75,7 +75,7 @@ public class SimonJolokiaDemo {
 		// TimelineCallback 10 time range buckets of 1 minute each
 		compositeCallback.addCallback(new TimelineCallback(10, 60000L));
 		compositeCallback.addCallback(new JmxRegisterCallback(beanServer, "org.javasimon"));
-		SimonManager.callback().addCallback(new AsyncCallbackProxyFactory(compositeCallback).newProxy());
+		SimonManager.callback().addCallback(new AsyncCallback(compositeCallback));
 		// CallTreeCallback doesn't support asynchronous operation
 		SimonManager.callback().addCallback(new CallTreeCallback(50));
 	}
@@ -10,6 +10,9 @@ import org.javasimon.jmx.SimonSuperMXBean;
 /**
  * Customized JMX register callback.
  * Register CustomStopwatchMXBeanImpl instead of usual StopwatchMXBeanImpl.
+ * <p/>
+ * {@link JmxRegisterCallback} ignores samples - if this class overrode stop or counter event methods it would get
+ * samples again, unless it declared {@link org.javasimon.callback.SampleIgnoringCallback} too.
  *
  * @author <a href="mailto:gerald.quintana@gmail.com">Gerald Quintana</a>
  */
@@ -2,6 +2,7 @@ package org.javasimon.examples.perf;
 
 import org.javasimon.callback.Callback;
 import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.callback.async.AsyncCallback;
 import org.javasimon.callback.async.AsyncCallbackProxyFactory;
 import org.javasimon.callback.async.Executors;
 import org.javasimon.utils.SimonUtils;
@@ -37,6 +38,8 @@ public class AsyncCallbackPerformance {
 			}
 		};
 		final Callback callbackAsync = new AsyncCallbackProxyFactory(callbackReal).newProxy();
+		final AsyncCallback callbackRing = new AsyncCallback(callbackReal, AsyncCallback.DEFAULT_CAPACITY, AsyncCallback.OverflowPolicy.BLOCK);
+		callbackRing.initialize(null);
 		// Prepare injectors
 		ExecutorService executorService = java.util.concurrent.Executors.newFixedThreadPool(THREADS_NUMBER, new ThreadFactory() {
 			final String threadName = getClass().getName() + ".testPerformance";
@@ -52,14 +55,17 @@ public class AsyncCallbackPerformance {
 			}
 		});
 		// Run performance test
-		long timeAsync = 0, timeNormal = 0;
+		long timeAsync = 0, timeRing = 0, timeNormal = 0;
 		for (int i = 0; i < 3; i++) {
 			timeAsync += runPerformance(THREADS_NUMBER, executorService, ITERATIONS_NUMBER, callbackAsync);
+			timeRing += runPerformance(THREADS_NUMBER, executorService, ITERATIONS_NUMBER, callbackRing);
 			timeNormal += runPerformance(THREADS_NUMBER, executorService, ITERATIONS_NUMBER, callbackReal);
 		}
-		System.out.println("Performance, async=" + SimonUtils.presentNanoTime(timeAsync) + ", normal=" + SimonUtils.presentNanoTime(timeNormal));
+		System.out.println("Performance, async=" + SimonUtils.presentNanoTime(timeAsync) + ", ring=" + SimonUtils.presentNanoTime(timeRing)
+			+ ", normal=" + SimonUtils.presentNanoTime(timeNormal));
 		executorService.shutdown();
 		Executors.shutdownAsync();
+		callbackRing.cleanup();
 	}
 
 	private static long runPerformance(final int threadNb, ExecutorService executorService, final int iterationNb, Callback callback) throws ExecutionException, InterruptedException {
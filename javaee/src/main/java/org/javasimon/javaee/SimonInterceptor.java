@@ -1,5 +1,8 @@
 package org.javasimon.javaee;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.InvocationContext;
 
@@ -25,6 +28,12 @@ public class SimonInterceptor {
 	 */
 	protected String prefix = DEFAULT_INTERCEPTOR_PREFIX;
 
+	/** True if {@link #getSimonName(InvocationContext)} is not overridden and the names can be cached per method. */
+	private final boolean defaultSimonNames = !isSimonNameOverridden(getClass());
+
+	/** Cached Simon names per method for the current prefix. */
+	private volatile SimonNames simonNames = new SimonNames(prefix);
+
 	/**
 	 * Returns Simon name for the specified Invocation context.
 	 * By default it contains the prefix + method name.
@@ -62,7 +71,7 @@ public class SimonInterceptor {
 	@AroundInvoke
 	public Object monitor(InvocationContext context) throws Exception {
 		if (isMonitored(context)) {
-			String simonName = getSimonName(context);
+			String simonName = resolveSimonName(context);
 			try (Split ignored = SimonManager.getStopwatch(simonName).start()) {
 				return context.proceed();
 			}
@@ -70,4 +79,48 @@ public class SimonInterceptor {
 			return context.proceed();
 		}
 	}
+
+	/**
+	 * Returns Simon name for the invocation - names are cached per method (so they are not concatenated
+	 * for every call) unless {@link #getSimonName(InvocationContext)} is overridden.
+	 */
+	private String resolveSimonName(InvocationContext context) {
+		if (!defaultSimonNames) {
+			return getSimonName(context);
+		}
+		SimonNames names = simonNames;
+		if (names.prefix != prefix) {
+			names = new SimonNames(prefix);
+			simonNames = names;
+		}
+		Method method = context.getMethod();
+		String simonName = names.byMethod.get(method);
+		if (simonName == null) {
+			simonName = getSimonName(context);
+			names.byMethod.put(method, simonName);
+		}
+		return simonName;
+	}
+
+	private static boolean isSimonNameOverridden(Class<?> type) {
+		for (Class<?> c = type; c != SimonInterceptor.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getSimonName", InvocationContext.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared on this level
+			}
+		}
+		return false;
+	}
+
+	/** Simon names per method valid for the prefix. */
+	private static final class SimonNames {
+		private final String prefix;
+		private final ConcurrentMap<Method, String> byMethod = new ConcurrentHashMap<>();
+
+		SimonNames(String prefix) {
+			this.prefix = prefix;
+		}
+	}
 }
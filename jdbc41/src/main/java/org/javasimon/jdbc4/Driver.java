@@ -20,7 +20,7 @@ import java.util.logging.Logger;
  * Simon driver has following format of JDBC connection string:
  * <pre>{@code
  * jdbc:simon:<real driver conn string>;<param1>=<value1>;...}</pre>
- * Simon driver recognizes two parameters:
+ * Simon driver recognizes following parameters:
  * <ul>
  * <li>
  * {@code SIMON_REAL_DRV} - if you don't want or can't register real driver for any
@@ -36,6 +36,12 @@ import java.util.logging.Logger;
  * <code>com.foo.select</code>, etc. If no prefix is set, default {@code org.javasimon.jdbc} prefix
  * is used.
  * </li>
+ * <li>
+ * {@code SIMON_PER_ROW_SPLITS} - setting this parameter to {@code true} measures every
+ * {@code ResultSet.next()} call by its own Split of the {@code next} Stopwatch. By default rows
+ * and fetch time are only accumulated and reported once when the result set is closed
+ * (see {@link SimonResultSet}).
+ * </li>
  * </ul>                                `
  *
  * By default, there is no need to load any driver explicitly, because drivers are loaded automatically
@@ -103,7 +109,7 @@ public final class Driver implements java.sql.Driver {
 		SimonConnectionConfiguration url = new SimonConnectionConfiguration(simonUrl);
         driver = getRealDriver(url, info);
 
-        return new SimonConnection(driver.connect(url.getRealUrl(), info), url.getPrefix());
+        return new SimonConnection(driver.connect(url.getRealUrl(), info), url.getPrefix(), url.isPerRowSplits());
 	}
 
 	/**
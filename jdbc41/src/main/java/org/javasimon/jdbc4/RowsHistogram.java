@@ -0,0 +1,114 @@
+package org.javasimon.jdbc4;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of rows fetched per result set, kept as the {@value SimonResultSet#ATTR_NAME_ROWS_HISTOGRAM} attribute
+ * of the {@code <statement>.rows} Counter. Buckets are powers of two - the first bucket counts empty result sets,
+ * bucket {@code i} counts result sets with {@code 2^(i-1)} to {@code 2^i - 1} rows. Adding value is lock-free
+ * and costs one atomic increment.
+ * <p/>
+ * Histogram can be obtained from the Counter like this:
+ * <pre>
+ * Counter rows = SimonManager.getCounter(stmtStopwatchName + ".rows");
+ * RowsHistogram histogram = (RowsHistogram) rows.getAttribute(SimonResultSet.ATTR_NAME_ROWS_HISTOGRAM);</pre>
+ * {@link #toString()} lists all non-empty buckets, hence the histogram is readable also when the attributes
+ * of the Counter are printed.
+ *
+ * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
+ * @since 4.2
+ */
+public final class RowsHistogram {
+
+	/** Number of buckets - values up to {@link Long#MAX_VALUE} are covered. */
+	public static final int BUCKET_NB = 64;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_NB);
+
+	/**
+	 * Returns index of the bucket for the number of rows, negative values go to the first bucket.
+	 *
+	 * @param rows number of rows
+	 * @return bucket index
+	 */
+	public static int getBucketIndex(long rows) {
+		return rows <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(rows);
+	}
+
+	/**
+	 * Returns the lowest number of rows counted in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return lower bound of the bucket
+	 */
+	public static long getBucketMin(int index) {
+		return index == 0 ? 0 : 1L << (index - 1);
+	}
+
+	/**
+	 * Returns the highest number of rows counted in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return upper bound of the bucket
+	 */
+	public static long getBucketMax(int index) {
+		return index == BUCKET_NB - 1 ? Long.MAX_VALUE : getBucketMin(index + 1) - 1;
+	}
+
+	/**
+	 * Adds the number of rows of one result set.
+	 *
+	 * @param rows number of rows
+	 */
+	public void addValue(long rows) {
+		counts.incrementAndGet(getBucketIndex(rows));
+	}
+
+	/**
+	 * Returns count of result sets in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return count
+	 */
+	public long getCount(int index) {
+		return counts.get(index);
+	}
+
+	/**
+	 * Returns total count of the result sets.
+	 *
+	 * @return total count
+	 */
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_NB; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns non-empty buckets with their counts, e.g. {@code RowsHistogram{0: 2, 1: 10, 2-3: 4}}.
+	 *
+	 * @return non-empty buckets
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("RowsHistogram{");
+		String separator = "";
+		for (int i = 0; i < BUCKET_NB; i++) {
+			long count = counts.get(i);
+			if (count != 0) {
+				long min = getBucketMin(i);
+				long max = getBucketMax(i);
+				sb.append(separator).append(min);
+				if (max != min) {
+					sb.append('-').append(max);
+				}
+				sb.append(": ").append(count);
+				separator = ", ";
+			}
+		}
+		return sb.append('}').toString();
+	}
+}
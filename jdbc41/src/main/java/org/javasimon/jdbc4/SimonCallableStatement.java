@@ -38,9 +38,10 @@ public final class SimonCallableStatement extends SimonPreparedStatement impleme
 	 * @param stmt real callable statement
 	 * @param sql sql command
 	 * @param prefix hierarchy prefix for statement Simons
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
 	 */
-	SimonCallableStatement(Connection conn, CallableStatement stmt, String sql, String prefix) {
-		super(conn, stmt, sql, prefix);
+	SimonCallableStatement(Connection conn, CallableStatement stmt, String sql, String prefix, boolean perRowSplits) {
+		super(conn, stmt, sql, prefix, perRowSplits);
 
 		this.stmt = stmt;
 	}
@@ -51,6 +51,7 @@ public final class SimonConnection implements Connection {
 	private final Connection conn;
 	private final WrapperSupport<Connection> wrapperSupport;
 	private String suffix;
+	private final boolean perRowSplits;
 
 	private Split life;
 	private Counter commits;
@@ -64,9 +65,23 @@ public final class SimonConnection implements Connection {
 	 * @param prefix hierarchy prefix for connection Simons
 	 */
 	public SimonConnection(Connection conn, String prefix) {
+		this(conn, prefix, false);
+	}
+
+	/**
+	 * Class constructor, initializes Simons (lifespan, active, commits
+	 * and rollbacks) related to the DB connection.
+	 *
+	 * @param conn real DB connection
+	 * @param prefix hierarchy prefix for connection Simons
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
+	 * @since 4.2
+	 */
+	public SimonConnection(Connection conn, String prefix, boolean perRowSplits) {
 		this.conn = conn;
 		this.wrapperSupport = new WrapperSupport<>(this.conn, Connection.class);
 		this.suffix = prefix;
+		this.perRowSplits = perRowSplits;
 
 		commits = SimonManager.getCounter(prefix + ".conn.commits");
 		rollbacks = SimonManager.getCounter(prefix + ".conn.rollbacks");
@@ -130,7 +145,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public Statement createStatement() throws SQLException {
-		return new SimonStatement(this, conn.createStatement(), suffix);
+		return new SimonStatement(this, conn.createStatement(), suffix, perRowSplits);
 	}
 
 	/**
@@ -143,7 +158,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public Statement createStatement(int rsType, int rsConcurrency) throws SQLException {
-		return new SimonStatement(this, conn.createStatement(rsType, rsConcurrency), suffix);
+		return new SimonStatement(this, conn.createStatement(rsType, rsConcurrency), suffix, perRowSplits);
 	}
 
 	/**
@@ -157,7 +172,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public Statement createStatement(int rsType, int rsConcurrency, int rsHoldability) throws SQLException {
-		return new SimonStatement(this, conn.createStatement(rsType, rsConcurrency, rsHoldability), suffix);
+		return new SimonStatement(this, conn.createStatement(rsType, rsConcurrency, rsHoldability), suffix, perRowSplits);
 	}
 
 	/**
@@ -169,7 +184,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -182,7 +197,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql, autoGeneratedKeys), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql, autoGeneratedKeys), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -196,7 +211,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql, int rsType, int rsConcurrency) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql, rsType, rsConcurrency), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql, rsType, rsConcurrency), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -211,7 +226,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql, int rsType, int rsConcurrency, int rsHoldability) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql, rsType, rsConcurrency, rsHoldability), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql, rsType, rsConcurrency, rsHoldability), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -225,7 +240,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql, columnIndexes), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql, columnIndexes), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -239,7 +254,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-		return new SimonPreparedStatement(this, conn.prepareStatement(sql, columnNames), sql, suffix);
+		return new SimonPreparedStatement(this, conn.prepareStatement(sql, columnNames), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -251,7 +266,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public CallableStatement prepareCall(String sql) throws SQLException {
-		return new SimonCallableStatement(conn, conn.prepareCall(sql), sql, suffix);
+		return new SimonCallableStatement(conn, conn.prepareCall(sql), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -265,7 +280,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public CallableStatement prepareCall(String sql, int rsType, int rsConcurrency) throws SQLException {
-		return new SimonCallableStatement(conn, conn.prepareCall(sql, rsType, rsConcurrency), sql, suffix);
+		return new SimonCallableStatement(conn, conn.prepareCall(sql, rsType, rsConcurrency), sql, suffix, perRowSplits);
 	}
 
 	/**
@@ -280,7 +295,7 @@ public final class SimonConnection implements Connection {
 	 */
 	@Override
 	public CallableStatement prepareCall(String sql, int rsType, int rsConcurrency, int rsHoldability) throws SQLException {
-		return new SimonCallableStatement(conn, conn.prepareCall(sql, rsType, rsConcurrency, rsHoldability), sql, suffix);
+		return new SimonCallableStatement(conn, conn.prepareCall(sql, rsType, rsConcurrency, rsHoldability), sql, suffix, perRowSplits);
 	}
 
 	//// NOT MONITORED
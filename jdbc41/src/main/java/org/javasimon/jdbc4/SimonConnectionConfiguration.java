@@ -44,6 +44,10 @@ public class SimonConnectionConfiguration {
 	 * Name for the driver property holding the hierarchy prefix given to JDBC Simons.
 	 */
 	public static final String PREFIX = "simon_prefix";
+	/**
+	 * Name for the driver property switching on the Split for every {@link java.sql.ResultSet#next()} call.
+	 */
+	public static final String PER_ROW_SPLITS = "simon_per_row_splits";
 
 	private static final Properties PROPERTIES = initProperties();
 
@@ -72,6 +76,11 @@ public class SimonConnectionConfiguration {
 	 */
 	private final String prefix;
 
+	/**
+	 * Whether each {@code next} call on the result set is measured by its own Split.
+	 */
+	private final boolean perRowSplits;
+
 	/**
 	 * Loads {@code driver.properties} file.
 	 */
@@ -115,12 +124,14 @@ public class SimonConnectionConfiguration {
 			realUrl = url;
 			realDriver = getProperty(driverId, "driver");
 			prefix = DEFAULT_PREFIX;
+			perRowSplits = false;
 		} else {
 			//java:simon:oracle
 			simonUrl = url;
 			StringTokenizer st = new StringTokenizer(url, ";");
 			String lRealDriver = getProperty(driverId, "driver"),
 				lPrefix = DEFAULT_PREFIX;
+			boolean lPerRowSplits = false;
 			StringBuilder realUrlBuilder = new StringBuilder();
 			while (st.hasMoreTokens()) {
 				String tokenPairStr = st.nextToken().trim();
@@ -135,6 +146,8 @@ public class SimonConnectionConfiguration {
 						lRealDriver = tokenValue;
 					} else if (token.equalsIgnoreCase(PREFIX)) {
 						lPrefix = tokenValue;
+					} else if (token.equalsIgnoreCase(PER_ROW_SPLITS)) {
+						lPerRowSplits = Boolean.parseBoolean(tokenValue);
 					} else {
 						realUrlBuilder.append(';').append(tokenPairStr);
 					}
@@ -143,6 +156,7 @@ public class SimonConnectionConfiguration {
 			realUrl = realUrlBuilder.toString();
 			realDriver = lRealDriver;
 			prefix = lPrefix;
+			perRowSplits = lPerRowSplits;
 		}
 	}
 
@@ -200,6 +214,17 @@ public class SimonConnectionConfiguration {
 		return prefix;
 	}
 
+	/**
+	 * Returns whether each {@code next} call on the result set is measured by its own Split.
+	 *
+	 * @return true if per-row Splits are switched on
+	 * @see SimonResultSet
+	 * @since 4.2
+	 */
+	public boolean isPerRowSplits() {
+		return perRowSplits;
+	}
+
 	/**
 	 * Simon JDBC connection URL prefixed with {@code jdbc:simon:}.
 	 *
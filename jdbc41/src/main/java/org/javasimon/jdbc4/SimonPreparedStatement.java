@@ -41,6 +41,9 @@ public class SimonPreparedStatement extends SimonStatement implements PreparedSt
 
 	private PreparedStatement stmt;
 
+	/** Normalizer of the prepared SQL, obtained with the first execution. */
+	private SqlNormalizer preparedSqlNormalizer;
+
 	/**
 	 * Class constructor, initializes Simons (lifespan, active) related to statement.
 	 *
@@ -48,9 +51,10 @@ public class SimonPreparedStatement extends SimonStatement implements PreparedSt
 	 * @param stmt real prepared statement
 	 * @param sql sql command
 	 * @param prefix hierarchy prefix for statement Simons
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
 	 */
-	SimonPreparedStatement(Connection conn, PreparedStatement stmt, String sql, String prefix) {
-		super(conn, stmt, prefix);
+	SimonPreparedStatement(Connection conn, PreparedStatement stmt, String sql, String prefix, boolean perRowSplits) {
+		super(conn, stmt, prefix, perRowSplits);
 
 		this.stmt = stmt;
 		this.sql = sql;
@@ -64,8 +68,11 @@ public class SimonPreparedStatement extends SimonStatement implements PreparedSt
 	 */
 	private Split prepare() {
 		if (sql != null && !sql.equals("")) {
-			sqlNormalizer = new SqlNormalizer(sql);
-			sqlCmdLabel = prefix + ".sql." + sqlNormalizer.getType();
+			if (preparedSqlNormalizer == null) {
+				// prepared SQL does not change, it is normalized only once
+				preparedSqlNormalizer = SQL_NORMALIZER_CACHE.get(sql);
+			}
+			sqlNormalizer = preparedSqlNormalizer;
 			return startSplit();
 		} else {
 			return null;
@@ -82,7 +89,7 @@ public class SimonPreparedStatement extends SimonStatement implements PreparedSt
 	public final ResultSet executeQuery() throws SQLException {
 		Split split = prepare();
 		try {
-			return new SimonResultSet(stmt.executeQuery(), this, prefix, split.getStopwatch().getName());
+			return wrapResultSet(stmt.executeQuery(), split);
 		} finally {
 			finish(split);
 		}
@@ -22,11 +22,26 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Map;
 
+import org.javasimon.Counter;
+import org.javasimon.Manager;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.SimonClock;
 
 /**
  * Simon JDBC proxy result set implementation class.
+ * <p/>
+ * By default fetched rows and time spent in {@link #next()} are only accumulated in plain fields and reported
+ * once when {@code next} returns {@code false} or when the result set (or its statement) is closed,
+ * whichever comes first:
+ * <ul>
+ * <li>{@code <statement>.fetch} (stopwatch) - one Split per result set with the total fetch time</li>
+ * <li>{@code <statement>.rows} (counter) - fetched rows, its attribute {@value #ATTR_NAME_ROWS_HISTOGRAM}
+ * holds {@link RowsHistogram} of rows per result set (see its documentation how to read it)</li>
+ * </ul>
+ * With per-row Splits switched on (see {@link SimonConnectionConfiguration#PER_ROW_SPLITS}) each {@code next}
+ * call is measured by its own Split of {@code <statement>.next} stopwatch instead of the {@code fetch} one.
  *
  * @author Radovan Sninsky
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
@@ -34,6 +49,11 @@ import org.javasimon.Split;
  */
 @SuppressWarnings("deprecation")
 public final class SimonResultSet implements ResultSet {
+	/**
+	 * Name of the attribute of the rows Counter holding {@link RowsHistogram} of rows per result set.
+	 */
+	public static final String ATTR_NAME_ROWS_HISTOGRAM = "rowsHistogram";
+
 	/**
 	 * Stopwatch split measuring the lifespan of the statement until it is closed.
 	 */
@@ -41,8 +61,17 @@ public final class SimonResultSet implements ResultSet {
 
 	private final ResultSet rset;
 	private final WrapperSupport<ResultSet> wrapperSupport;
+
 	private SimonStatement stmt;
-	private String stmtPrefix;
+	private final Stopwatch fetchStopwatch;
+	private final Stopwatch nextStopwatch;
+	private final Counter rowsCounter;
+	private final SimonClock clock;
+
+	private long rows;
+	private long fetchNanos;
+	/** Whether the fetched rows and fetch time were already reported. */
+	private boolean fetchReported;
 
 	/**
 	 * Class constructor, initializes Simons (lifespan) related to result set.
@@ -53,36 +82,155 @@ public final class SimonResultSet implements ResultSet {
 	 * @param stmtPrefix statement prefix
 	 */
 	public SimonResultSet(ResultSet rset, SimonStatement stmt, String prefix, String stmtPrefix) {
+		this(rset, stmt, prefix, SimonManager.getStopwatch(stmtPrefix));
+	}
+
+	/**
+	 * Class constructor, initializes Simons (lifespan) related to result set.
+	 *
+	 * @param rset real resultset
+	 * @param stmt Simon statement
+	 * @param prefix hierarchy prefix for JDBC Simons
+	 * @param stmtStopwatch stopwatch of the statement, {@code next} operations are measured by its children
+	 * @since 4.2
+	 */
+	public SimonResultSet(ResultSet rset, SimonStatement stmt, String prefix, Stopwatch stmtStopwatch) {
+		this(rset, stmt, prefix, stmtStopwatch, false);
+	}
+
+	/**
+	 * Class constructor, initializes Simons (lifespan) related to result set.
+	 *
+	 * @param rset real resultset
+	 * @param stmt Simon statement
+	 * @param prefix hierarchy prefix for JDBC Simons
+	 * @param stmtStopwatch stopwatch of the statement, {@code next} operations are measured by its children
+	 * @param perRowSplits whether each {@code next} call is measured by its own Split
+	 * @since 4.2
+	 */
+	public SimonResultSet(ResultSet rset, SimonStatement stmt, String prefix, Stopwatch stmtStopwatch, boolean perRowSplits) {
+		this(rset, stmt, prefix, stmtStopwatch, rowsCounter(stmtStopwatch), perRowSplits);
+	}
+
+	/**
+	 * Class constructor used by the statement that resolves the rows Counter only once for all its result sets.
+	 *
+	 * @param rset real resultset
+	 * @param stmt Simon statement
+	 * @param prefix hierarchy prefix for JDBC Simons
+	 * @param stmtStopwatch stopwatch of the statement, {@code next} operations are measured by its children
+	 * @param rowsCounter Counter of the fetched rows, {@code null} if rows are not counted
+	 * @param perRowSplits whether each {@code next} call is measured by its own Split
+	 * @see #rowsCounter(Stopwatch)
+	 */
+	SimonResultSet(ResultSet rset, SimonStatement stmt, String prefix, Stopwatch stmtStopwatch, Counter rowsCounter, boolean perRowSplits) {
 		this.rset = rset;
 		this.wrapperSupport = new WrapperSupport<>(rset, ResultSet.class);
 		this.stmt = stmt;
-		this.stmtPrefix = stmtPrefix;
+		this.fetchStopwatch = perRowSplits ? null : stmtStopwatch.child("fetch");
+		this.nextStopwatch = perRowSplits ? stmtStopwatch.child("next") : null;
+		this.rowsCounter = rowsCounter;
+		this.clock = SimonManager.manager();
 
 		split = SimonManager.getStopwatch(prefix + ".rset").start();
 	}
 
 	/**
-	 * Measure next operation.
+	 * Measure next operation - either accumulates the fetch time or measures the call by its own Split
+	 * if per-row Splits are switched on.
 	 *
 	 * @return {@code true} if the new current row is valid; {@code false} if there are no more rows
 	 * @throws java.sql.SQLException if real next operation fails
 	 */
 	@Override
 	public boolean next() throws SQLException {
-		try (Split ignored = SimonManager.getStopwatch(stmtPrefix + ".next").start()) {
-			return rset.next();
+		boolean hasRow;
+		if (nextStopwatch != null) {
+			try (Split ignored = nextStopwatch.start()) {
+				hasRow = rset.next();
+			}
+		} else {
+			long start = clock.nanoTime();
+			try {
+				hasRow = rset.next();
+			} finally {
+				fetchNanos += clock.nanoTime() - start;
+			}
+		}
+		if (hasRow) {
+			rows++;
+		} else {
+			finishFetch();
 		}
+		return hasRow;
 	}
 
 	/**
-	 * Closes real result set, stops lifespan Simon.
+	 * Closes real result set, stops lifespan Simon and reports fetched rows and fetch time.
 	 *
 	 * @throws java.sql.SQLException if real close operation fails
 	 */
 	@Override
 	public void close() throws SQLException {
-		rset.close();
-		split.stop();
+		try {
+			rset.close();
+		} finally {
+			split.stop();
+			finishFetch();
+		}
+	}
+
+	/**
+	 * Returns the Counter of the rows fetched by the statement - child of the statement Stopwatch named {@code rows}.
+	 *
+	 * @param stmtStopwatch stopwatch of the statement
+	 * @return rows Counter or {@code null} for the disabled manager or anonymous stopwatch
+	 */
+	static Counter rowsCounter(Stopwatch stmtStopwatch) {
+		String stmtName = stmtStopwatch.getName();
+		if (stmtName == null) {
+			return null;
+		}
+		return SimonManager.getCounter(stmtName + Manager.HIERARCHY_DELIMITER + "rows");
+	}
+
+	/** Reports fetched rows and fetch time unless they were reported already. */
+	private void finishFetch() {
+		if (!fetchReported) {
+			fetchReported = true;
+			reportFetch();
+		}
+	}
+
+	private void reportFetch() {
+		if (fetchStopwatch != null) {
+			fetchStopwatch.addSplit(Split.create(fetchNanos, clock));
+		}
+		if (rowsCounter == null) {
+			return;
+		}
+		rowsCounter.increase(rows);
+		RowsHistogram histogram = (RowsHistogram) rowsCounter.getAttribute(ATTR_NAME_ROWS_HISTOGRAM);
+		if (histogram == null) {
+			synchronized (rowsCounter) {
+				histogram = (RowsHistogram) rowsCounter.getAttribute(ATTR_NAME_ROWS_HISTOGRAM);
+				if (histogram == null) {
+					histogram = new RowsHistogram();
+					rowsCounter.setAttribute(ATTR_NAME_ROWS_HISTOGRAM, histogram);
+				}
+			}
+		}
+		histogram.addValue(rows);
+	}
+
+	/**
+	 * Returns number of rows fetched so far by {@link #next()}.
+	 *
+	 * @return number of fetched rows
+	 * @since 4.2
+	 */
+	public long getRowCount() {
+		return rows;
 	}
 
 	//// NOT MONITORED
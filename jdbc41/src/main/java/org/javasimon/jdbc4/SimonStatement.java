@@ -8,7 +8,7 @@ import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.javasimon.Manager;
+import org.javasimon.Counter;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
@@ -22,6 +22,11 @@ import org.javasimon.Stopwatch;
  * @since 2.4
  */
 public class SimonStatement implements Statement {
+	/**
+	 * Cache of normalized SQL statements shared by all statements.
+	 */
+	static final SqlNormalizerCache SQL_NORMALIZER_CACHE = new SqlNormalizerCache(SqlNormalizerCache.DEFAULT_CAPACITY);
+
 	/**
 	 * List of batched SQL statements.
 	 */
@@ -42,6 +47,12 @@ public class SimonStatement implements Statement {
 	 */
 	protected String sqlCmdLabel;
 
+	/** Stopwatch for {@link #sqlCmdLabel}, resolved again only when the SQL command type changes. */
+	private Stopwatch sqlCmdStopwatch;
+
+	/** SQL command type of {@link #sqlCmdStopwatch}. */
+	private String sqlCmdType;
+
 	/**
 	 * SQL normalizer helper object.
 	 */
@@ -52,37 +63,87 @@ public class SimonStatement implements Statement {
 	 */
 	protected Split split;
 
+	/**
+	 * Whether each {@code next} call on result sets is measured by its own Split.
+	 */
+	protected final boolean perRowSplits;
+
 	private final Statement stmt;
 
 	private final WrapperSupport<Statement> wrapperSupport;
 
+	/**
+	 * Result set returned by the last query, closed when the statement is closed or executes another query.
+	 */
+	private SimonResultSet resultSet;
+
+	/** Stopwatch of the SQL the {@link #rowsCounter} belongs to. */
+	private Stopwatch rowsCounterStopwatch;
+
+	/** Counter of the rows fetched by the result sets, resolved again only when the SQL Stopwatch changes. */
+	private Counter rowsCounter;
+
 	/**
 	 * Class constructor, initializes Simons (lifespan, active) related to statement.
 	 *
 	 * @param conn database connection (simon impl.)
 	 * @param stmt real statement
 	 * @param prefix hierarchy preffix for JDBC Simons
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
 	 */
-	SimonStatement(Connection conn, Statement stmt, String prefix) {
+	SimonStatement(Connection conn, Statement stmt, String prefix, boolean perRowSplits) {
 		this.conn = conn;
 		this.stmt = stmt;
 		this.prefix = prefix;
+		this.perRowSplits = perRowSplits;
 		this.wrapperSupport = new WrapperSupport<>(stmt, Statement.class);
 		split = SimonManager.getStopwatch(prefix + ".stmt").start();
 	}
 
 	/**
-	 * Closes real statement, stops lifespan Simon and decrease active Simon.
+	 * Closes the last result set and real statement, stops lifespan Simon and decrease active Simon.
 	 *
 	 * @throws java.sql.SQLException if real operation fails
 	 */
 	@Override
 	public final void close() throws SQLException {
-		stmt.close();
+		try {
+			closeResultSet();
+		} finally {
+			stmt.close();
+		}
 
 		split.stop();
 	}
 
+	/**
+	 * Wraps the result set of the executed query, the result set of the previous query is closed as the real
+	 * statement closes it implicitly.
+	 *
+	 * @param rset real result set
+	 * @param split split measuring the query execution
+	 * @return Simon result set
+	 * @throws java.sql.SQLException if closing the previous result set fails
+	 */
+	protected final ResultSet wrapResultSet(ResultSet rset, Split split) throws SQLException {
+		closeResultSet();
+		Stopwatch stopwatch = split.getStopwatch();
+		if (stopwatch != rowsCounterStopwatch) {
+			rowsCounter = SimonResultSet.rowsCounter(stopwatch);
+			rowsCounterStopwatch = stopwatch;
+		}
+		resultSet = new SimonResultSet(rset, this, prefix, stopwatch, rowsCounter, perRowSplits);
+		return resultSet;
+	}
+
+	private void closeResultSet() throws SQLException {
+		if (resultSet != null) {
+			SimonResultSet last = resultSet;
+			resultSet = null;
+			last.close();
+		}
+	}
+
 	/**
 	 * Returns a connection object (simon impl.).
 	 *
@@ -102,8 +163,7 @@ public class SimonStatement implements Statement {
 	 */
 	protected final Split prepare(String sql) {
 		if (sql != null && !sql.equals("")) {
-			sqlNormalizer = new SqlNormalizer(sql);
-			sqlCmdLabel = prefix + ".sql." + sqlNormalizer.getType();
+			sqlNormalizer = SQL_NORMALIZER_CACHE.get(sql);
 			return startSplit();
 		} else {
 			return null;
@@ -119,8 +179,7 @@ public class SimonStatement implements Statement {
 	 */
 	protected final Split prepare(List<String> sqls) {
 		if (!sqls.isEmpty()) {
-			sqlNormalizer = sqls.size() == 1 ? new SqlNormalizer(sqls.get(0)) : new SqlNormalizer(sqls);
-			sqlCmdLabel = prefix + ".sql." + sqlNormalizer.getType();
+			sqlNormalizer = sqls.size() == 1 ? SQL_NORMALIZER_CACHE.get(sqls.get(0)) : new SqlNormalizer(sqls);
 			return startSplit();
 		} else {
 			return null;
@@ -130,17 +189,34 @@ public class SimonStatement implements Statement {
 	/**
 	 * Starts the split for the SQL specific stopwatch, sets the note and returns the split.
 	 * Used in the statment and prepared statement classes to measure runs of "execute" methods.
+	 * SQL command type Stopwatch is kept while the type does not change and the SQL specific Stopwatch
+	 * is its child resolved via the child handle, so repeated executions do not look up the Manager.
 	 *
 	 * @return split for the execution of the specific SQL command
 	 */
 	protected Split startSplit() {
-		Stopwatch stopwatch = SimonManager.getStopwatch(sqlCmdLabel + Manager.HIERARCHY_DELIMITER + sqlNormalizer.getNormalizedSql().hashCode());
+		String type = sqlNormalizer.getType();
+		if (sqlCmdStopwatch == null || !type.equals(sqlCmdType)) {
+			resolveSqlCmdStopwatch(type);
+		}
+		Stopwatch stopwatch = sqlCmdStopwatch.child(sqlNormalizer.getNormalizedSqlHashHex());
+		if (stopwatch.getParent() != sqlCmdStopwatch) {
+			// type Stopwatch was destroyed or the Manager was cleared, new one is resolved
+			resolveSqlCmdStopwatch(type);
+			stopwatch = sqlCmdStopwatch.child(sqlNormalizer.getNormalizedSqlHashHex());
+		}
 		if (stopwatch.getNote() == null) {
 			stopwatch.setNote(sqlNormalizer.getNormalizedSql());
 		}
 		return stopwatch.start();
 	}
 
+	private void resolveSqlCmdStopwatch(String type) {
+		sqlCmdLabel = prefix + ".sql." + type;
+		sqlCmdStopwatch = SimonManager.getStopwatch(sqlCmdLabel);
+		sqlCmdType = type;
+	}
+
 	/**
 	 * Called after each SQL command execution. Stops concrete SQL stopwatch (started in {@link #prepare(String)}),
 	 * also adds time to SQL command type Simon and sets human readable SQL cmd as note.
@@ -149,7 +225,7 @@ public class SimonStatement implements Statement {
 	 */
 	protected final void finish(Split split) {
 		if (split != null) {
-			SimonManager.getStopwatch(sqlCmdLabel).addSplit(split.stop());
+			sqlCmdStopwatch.addSplit(split.stop());
 		}
 	}
 
@@ -165,7 +241,7 @@ public class SimonStatement implements Statement {
 	public final ResultSet executeQuery(String sql) throws SQLException {
 		Split s = prepare(sql);
 		try {
-			return new SimonResultSet(stmt.executeQuery(sql), this, prefix, s.getStopwatch().getName());
+			return wrapResultSet(stmt.executeQuery(sql), s);
 		} finally {
 			finish(s);
 		}
@@ -2,8 +2,6 @@ package org.javasimon.jdbc4;
 
 import java.util.List;
 
-import org.javasimon.utils.Replacer;
-
 /**
  * SqlNormalizer takes SQL statement and replaces parameters with question marks. It is
  * important to realize, that normalizer IS NOT SQL analyzer. It makes as simple replacement
@@ -14,43 +12,25 @@ import org.javasimon.utils.Replacer;
  * <p/>
  * Usage is simple, you create normalizer with SQL statement and than you can ask the
  * object for normalizedSql and type via respective getters.
+ * <p/>
+ * Normalization is performed by a hand-written scanner instead of a chain of regular expressions.
+ * White spaces and operators are normalized in a single pass over the statement, the remaining rules
+ * (arguments, {@code like}, {@code between}, {@code in}, functions, DDL shrinking) are simple linear
+ * scans over the result. The output is the same as the output of the former regex based implementation.
  *
  * @author Radovan Sninsky
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @since 2.4
  */
 public final class SqlNormalizer {
-	private static final Replacer[] FIRST_REPLACERS;
-	private static final Replacer[] SECOND_REPLACERS;
-
-	private static final Replacer FUNCTION_REPLACER = new Replacer("([-(=<>!+*/,]+\\s?)\\w+\\([^()]*\\)", "$1?", Replacer.Modificator.REPEAT_UNTIL_UNCHANGED);
-
-	private static final Replacer TYPE_SELECTOR = new Replacer("^\\W*(\\w+)\\W.*", "$1");
-
-	static {
-		FIRST_REPLACERS = new Replacer[]{
-			new Replacer("''", "?"), // replace empty strings and '' inside other strings
-			new Replacer(" *([-=<>!+*/,]+) *", "$1"), // remove spaces around various operators and commas
-			new Replacer("([-=<>!+*/]+)", " $1 "), // put spaces back (results in one space everywhere
-			new Replacer("\\s+", " "), // normalize white spaces
-			new Replacer("(create|alter|drop) (\\S+) ([^ (]+).*$", "$1 $2 $3"), // shrink DLL to first three tokens
-			new Replacer("([-=<>!+*/,.(]+\\s?)(?:(?:'[^']+')|(?:[0-9.]+))", "$1?"), // replace arguments after =, ( and , with ?
-			new Replacer("like '[^']+'", "like ?"), // replace like arguments
-			new Replacer("between \\S+ and \\S+", "between ? and ?"), // replace between arguments
-			new Replacer(" in\\(", " in ("), // put space before ( in "in("
-			new Replacer("^\\{|\\}$", ""), // remove { and } at the start/end
-			new Replacer("^\\s*begin", "call"), // replace begin with call
-			new Replacer(";?\\s*end;?$", ""), // remove final end
-		};
-		SECOND_REPLACERS = new Replacer[]{
-			new Replacer(",", ", "), // put spaces after ,
-			new Replacer(" in \\(\\?(?:, \\?)*\\)", " in (?)"), // shrink more ? in "in" to one
-		};
-	}
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
 
 	private final String sql;
 	private String normalizedSql;
 	private String type;
+	private long normalizedSqlHash;
+	private String normalizedSqlHashHex;
 
 	/**
 	 * Creates SQL normalizer and performs the normalization.
@@ -61,6 +41,7 @@ public final class SqlNormalizer {
 		this.sql = sql;
 		if (sql != null) {
 			normalize(sql);
+			setNormalizedSqlHash(hash(normalizedSql));
 		}
 	}
 
@@ -90,31 +71,451 @@ public final class SqlNormalizer {
 		sqlBuilder.append(stmtCounter == 1 ? "" : stmtCounter + "x ").append(lastStmt);
 		type = "batch";
 		this.normalizedSql = sqlBuilder.toString();
+		setNormalizedSqlHash(hash(normalizedSql));
+	}
+
+	private void setNormalizedSqlHash(long hash) {
+		normalizedSqlHash = hash;
+		normalizedSqlHashHex = Long.toHexString(hash);
 	}
 
 	private void normalize(String sql) {
-		normalizedSql = sql.toLowerCase().trim();
-		applyReplacers(FIRST_REPLACERS);
-		type = TYPE_SELECTOR.process(normalizedSql);
+		String s = normalizeSpacing(sql.toLowerCase().trim());
+		s = shrinkDdl(s);
+		s = replaceArguments(s);
+		s = replaceLikeArguments(s);
+		s = replaceBetweenArguments(s);
+		s = replace(s, " in(", " in (");
+		s = removeBraces(s);
+		s = replaceBegin(s);
+		s = removeEnd(s);
+		type = selectType(s);
 
 		// phase two - complications ;-)
 		if (type.equals("select")) {
-			String[] sa = normalizedSql.split(" from ", 2);
-			if (sa.length == 2) {
-				normalizedSql = sa[0] + " from " + FUNCTION_REPLACER.process(sa[1]);
+			int fromIndex = s.indexOf(" from ");
+			if (fromIndex != -1) {
+				s = s.substring(0, fromIndex + 6) + replaceFunctions(s.substring(fromIndex + 6));
 			}
 		} else {
-			normalizedSql = FUNCTION_REPLACER.process(normalizedSql);
+			s = replaceFunctions(s);
+		}
+		s = replace(s, ",", ", ");
+		normalizedSql = shrinkInArguments(s);
+	}
+
+	/**
+	 * Replaces {@code ''} with {@code ?}, removes spaces around operators and commas, surrounds operators
+	 * with single space and normalizes all white spaces to single space - all in a single pass.
+	 */
+	private static String normalizeSpacing(String s) {
+		int len = s.length();
+		StringBuilder sb = new StringBuilder(len + 16);
+		boolean inOperator = false;
+		boolean afterOperatorOrComma = false;
+		int i = 0;
+		while (i < len) {
+			char c = s.charAt(i);
+			if (isWhitespace(c)) {
+				int end = i + 1;
+				while (end < len && isWhitespace(s.charAt(end))) {
+					end++;
+				}
+				// only plain spaces adjacent to operators and commas are dropped, other white spaces remain
+				int from = i;
+				int to = end;
+				if (afterOperatorOrComma) {
+					while (from < to && s.charAt(from) == ' ') {
+						from++;
+					}
+				}
+				if (end < len && isOperatorOrComma(s.charAt(end))) {
+					while (to > from && s.charAt(to - 1) == ' ') {
+						to--;
+					}
+				}
+				if (from < to) {
+					inOperator = false;
+					appendSpace(sb);
+				}
+				i = end;
+				continue;
+			}
+			if (c == '\'' && i + 1 < len && s.charAt(i + 1) == '\'') {
+				c = '?';
+				i++;
+			}
+			if (isOperator(c)) {
+				if (!inOperator) {
+					appendSpace(sb);
+					inOperator = true;
+				}
+			} else if (inOperator) {
+				appendSpace(sb);
+				inOperator = false;
+			}
+			sb.append(c);
+			afterOperatorOrComma = isOperatorOrComma(c);
+			i++;
+		}
+		if (inOperator) {
+			appendSpace(sb);
+		}
+		return sb.toString();
+	}
+
+	private static void appendSpace(StringBuilder sb) {
+		int length = sb.length();
+		if (length == 0 || sb.charAt(length - 1) != ' ') {
+			sb.append(' ');
+		}
+	}
+
+	/** Shrinks DDL to first three tokens, e.g. {@code create table foo}. */
+	private static String shrinkDdl(String s) {
+		int len = s.length();
+		for (int p = 0; p < len; p++) {
+			int q = ddlObjectStart(s, p);
+			if (q == -1 || q >= len || s.charAt(q) == ' ') {
+				continue;
+			}
+			int r = s.indexOf(' ', q);
+			if (r == -1 || r + 1 >= len || s.charAt(r + 1) == ' ' || s.charAt(r + 1) == '(') {
+				continue;
+			}
+			int t = r + 1;
+			while (t < len && s.charAt(t) != ' ' && s.charAt(t) != '(') {
+				t++;
+			}
+			return s.substring(0, t);
 		}
-		applyReplacers(SECOND_REPLACERS);
+		return s;
 	}
 
-	private void applyReplacers(Replacer[] replacers) {
-		for (Replacer replacer : replacers) {
-			normalizedSql = replacer.process(normalizedSql);
+	private static int ddlObjectStart(String s, int p) {
+		switch (s.charAt(p)) {
+			case 'c':
+				return s.startsWith("create ", p) ? p + 7 : -1;
+			case 'a':
+				return s.startsWith("alter ", p) ? p + 6 : -1;
+			case 'd':
+				return s.startsWith("drop ", p) ? p + 5 : -1;
+			default:
+				return -1;
 		}
 	}
 
+	/** Replaces string and number arguments after operators, commas, dots and parenthesis with {@code ?}. */
+	private static String replaceArguments(String s) {
+		int len = s.length();
+		StringBuilder sb = new StringBuilder(len);
+		int i = 0;
+		while (i < len) {
+			char c = s.charAt(i);
+			if (!isArgumentPrefix(c)) {
+				sb.append(c);
+				i++;
+				continue;
+			}
+			int runEnd = i + 1;
+			while (runEnd < len && isArgumentPrefix(s.charAt(runEnd))) {
+				runEnd++;
+			}
+			int argStart = runEnd < len && s.charAt(runEnd) == ' ' ? runEnd + 1 : runEnd;
+			int argEnd = argumentEnd(s, argStart);
+			if (argEnd == -1) {
+				// shorter prefix may still be followed by a "number" starting with a dot
+				for (int k = runEnd - 1; k > i; k--) {
+					if (s.charAt(k) == '.') {
+						argStart = k;
+						argEnd = argumentEnd(s, k);
+						break;
+					}
+				}
+			}
+			if (argEnd != -1) {
+				sb.append(s, i, argStart).append('?');
+				i = argEnd;
+			} else {
+				sb.append(s, i, runEnd);
+				i = runEnd;
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int argumentEnd(String s, int start) {
+		int len = s.length();
+		if (start >= len) {
+			return -1;
+		}
+		char c = s.charAt(start);
+		if (c == '\'') {
+			int close = s.indexOf('\'', start + 1);
+			return close > start + 1 ? close + 1 : -1;
+		}
+		if (!isDigitOrDot(c)) {
+			return -1;
+		}
+		int end = start + 1;
+		while (end < len && isDigitOrDot(s.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private static String replaceLikeArguments(String s) {
+		StringBuilder sb = null;
+		int copied = 0;
+		int from = 0;
+		int index;
+		while ((index = s.indexOf("like '", from)) != -1) {
+			int close = s.indexOf('\'', index + 6);
+			if (close > index + 6) {
+				if (sb == null) {
+					sb = new StringBuilder(s.length());
+				}
+				sb.append(s, copied, index).append("like ?");
+				copied = close + 1;
+				from = copied;
+			} else {
+				from = index + 1;
+			}
+		}
+		return finish(s, sb, copied);
+	}
+
+	private static String replaceBetweenArguments(String s) {
+		int len = s.length();
+		StringBuilder sb = null;
+		int copied = 0;
+		int from = 0;
+		int index;
+		while ((index = s.indexOf("between ", from)) != -1) {
+			int lowStart = index + 8;
+			int lowEnd = s.indexOf(' ', lowStart);
+			int highStart = lowEnd + 5;
+			if (lowStart < len && s.charAt(lowStart) != ' ' && lowEnd != -1 && s.startsWith(" and ", lowEnd)
+				&& highStart < len && s.charAt(highStart) != ' ')
+			{
+				int highEnd = s.indexOf(' ', highStart);
+				if (highEnd == -1) {
+					highEnd = len;
+				}
+				if (sb == null) {
+					sb = new StringBuilder(len);
+				}
+				sb.append(s, copied, index).append("between ? and ?");
+				copied = highEnd;
+				from = highEnd;
+			} else {
+				from = index + 1;
+			}
+		}
+		return finish(s, sb, copied);
+	}
+
+	/** Removes { and } at the start/end of the statement (JDBC escape syntax). */
+	private static String removeBraces(String s) {
+		int start = s.startsWith("{") ? 1 : 0;
+		int end = s.length() > start && s.endsWith("}") ? s.length() - 1 : s.length();
+		return s.substring(start, end);
+	}
+
+	private static String replaceBegin(String s) {
+		int i = 0;
+		while (i < s.length() && s.charAt(i) == ' ') {
+			i++;
+		}
+		return s.startsWith("begin", i) ? "call" + s.substring(i + 5) : s;
+	}
+
+	private static String removeEnd(String s) {
+		int endIndex;
+		if (s.endsWith("end")) {
+			endIndex = s.length() - 3;
+		} else if (s.endsWith("end;")) {
+			endIndex = s.length() - 4;
+		} else {
+			return s;
+		}
+		while (endIndex > 0 && s.charAt(endIndex - 1) == ' ') {
+			endIndex--;
+		}
+		if (endIndex > 0 && s.charAt(endIndex - 1) == ';') {
+			endIndex--;
+		}
+		return s.substring(0, endIndex);
+	}
+
+	/** Returns the first word if it is followed by some non-word character, otherwise the whole statement. */
+	private static String selectType(String s) {
+		int len = s.length();
+		int start = 0;
+		while (start < len && !isWordChar(s.charAt(start))) {
+			start++;
+		}
+		int end = start;
+		while (end < len && isWordChar(s.charAt(end))) {
+			end++;
+		}
+		return end > start && end < len ? s.substring(start, end) : s;
+	}
+
+	/** Replaces function calls without nested parenthesis with {@code ?} until there is nothing to replace. */
+	private static String replaceFunctions(String s) {
+		String replaced = replaceFunctionsOnce(s);
+		while (!replaced.equals(s)) {
+			s = replaced;
+			replaced = replaceFunctionsOnce(s);
+		}
+		return replaced;
+	}
+
+	private static String replaceFunctionsOnce(String s) {
+		int len = s.length();
+		StringBuilder sb = null;
+		int copied = 0;
+		int i = 0;
+		while (i < len) {
+			if (!isFunctionPrefix(s.charAt(i))) {
+				i++;
+				continue;
+			}
+			int runEnd = i + 1;
+			while (runEnd < len && isFunctionPrefix(s.charAt(runEnd))) {
+				runEnd++;
+			}
+			int nameStart = runEnd < len && s.charAt(runEnd) == ' ' ? runEnd + 1 : runEnd;
+			int nameEnd = nameStart;
+			while (nameEnd < len && isWordChar(s.charAt(nameEnd))) {
+				nameEnd++;
+			}
+			if (nameEnd > nameStart && nameEnd < len && s.charAt(nameEnd) == '(') {
+				int close = nameEnd + 1;
+				while (close < len && s.charAt(close) != '(' && s.charAt(close) != ')') {
+					close++;
+				}
+				if (close < len && s.charAt(close) == ')') {
+					if (sb == null) {
+						sb = new StringBuilder(len);
+					}
+					sb.append(s, copied, nameStart).append('?');
+					copied = close + 1;
+					i = copied;
+					continue;
+				}
+			}
+			i = runEnd;
+		}
+		return finish(s, sb, copied);
+	}
+
+	/** Shrinks more ? in "in" to one. */
+	private static String shrinkInArguments(String s) {
+		StringBuilder sb = null;
+		int copied = 0;
+		int from = 0;
+		int index;
+		while ((index = s.indexOf(" in (?", from)) != -1) {
+			int end = index + 6;
+			while (s.startsWith(", ?", end)) {
+				end += 3;
+			}
+			if (end < s.length() && s.charAt(end) == ')') {
+				if (sb == null) {
+					sb = new StringBuilder(s.length());
+				}
+				sb.append(s, copied, index).append(" in (?)");
+				copied = end + 1;
+				from = copied;
+			} else {
+				from = index + 1;
+			}
+		}
+		return finish(s, sb, copied);
+	}
+
+	private static String replace(String s, String target, String replacement) {
+		StringBuilder sb = null;
+		int copied = 0;
+		int index;
+		while ((index = s.indexOf(target, copied)) != -1) {
+			if (sb == null) {
+				sb = new StringBuilder(s.length() + 16);
+			}
+			sb.append(s, copied, index).append(replacement);
+			copied = index + target.length();
+		}
+		return finish(s, sb, copied);
+	}
+
+	private static String finish(String s, StringBuilder sb, int copied) {
+		if (sb == null) {
+			return s;
+		}
+		return sb.append(s, copied, s.length()).toString();
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isOperator(char c) {
+		switch (c) {
+			case '-':
+			case '=':
+			case '<':
+			case '>':
+			case '!':
+			case '+':
+			case '*':
+			case '/':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isOperatorOrComma(char c) {
+		return c == ',' || isOperator(c);
+	}
+
+	private static boolean isArgumentPrefix(char c) {
+		return c == '.' || c == '(' || isOperatorOrComma(c);
+	}
+
+	private static boolean isFunctionPrefix(char c) {
+		return c == '(' || isOperatorOrComma(c);
+	}
+
+	private static boolean isDigitOrDot(char c) {
+		return c == '.' || (c >= '0' && c <= '9');
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * Computes stable 64-bit FNV-1a hash of the string (over its UTF-16 chars). Unlike {@link String#hashCode()}
+	 * distinct normalized statements practically never collide.
+	 *
+	 * @param s string to hash
+	 * @return 64-bit hash of the string, 0 for null
+	 */
+	static long hash(String s) {
+		if (s == null) {
+			return 0;
+		}
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < s.length(); i++) {
+			hash ^= s.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
 	/**
 	 * Returns the original SQL.
 	 *
@@ -142,6 +543,26 @@ public final class SqlNormalizer {
 		return type;
 	}
 
+	/**
+	 * Returns stable 64-bit hash of the normalized SQL used as a name of the per-statement Simon.
+	 *
+	 * @return hash of the normalized SQL
+	 * @since 4.2
+	 */
+	public long getNormalizedSqlHash() {
+		return normalizedSqlHash;
+	}
+
+	/**
+	 * Returns hexadecimal form of {@link #getNormalizedSqlHash()} - local name of the per-statement Simon,
+	 * created only once for the cached normalizer.
+	 *
+	 * @return hash of the normalized SQL as hex string, {@code null} if there is no SQL
+	 */
+	String getNormalizedSqlHashHex() {
+		return normalizedSqlHashHex;
+	}
+
 	/**
 	 * Returns human readable string describing this SQL normalizer.
 	 *
@@ -0,0 +1,92 @@
+package org.javasimon.jdbc4;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded concurrent cache of {@link SqlNormalizer}s (normalized SQL and type) for raw SQL statements.
+ * Statements are normalized on cache miss. Cache consists of two segments - new statements are put into
+ * the current segment and when it is full it replaces the previous segment that is dropped. Statements found
+ * in the previous segment are moved to the current one, hence hot statements stay in the cache while statements
+ * with inlined literal arguments are evicted gradually, never flushing the whole cache at once.
+ *
+ * @since 4.2
+ */
+final class SqlNormalizerCache {
+	/** Default maximal number of cached statements. */
+	static final int DEFAULT_CAPACITY = 1000;
+
+	/** Recently used statements. */
+	private volatile ConcurrentMap<String, SqlNormalizer> current = new ConcurrentHashMap<>();
+
+	/** Statements used before the last rotation, dropped with the next rotation unless they are used again. */
+	private volatile ConcurrentMap<String, SqlNormalizer> previous = new ConcurrentHashMap<>();
+
+	private final AtomicInteger currentSize = new AtomicInteger();
+
+	private final int capacity;
+
+	private final int segmentCapacity;
+
+	/**
+	 * Creates the cache with the specified capacity.
+	 *
+	 * @param capacity maximal number of cached statements (at least two statements are cached)
+	 */
+	SqlNormalizerCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.segmentCapacity = Math.max(1, capacity / 2);
+	}
+
+	/**
+	 * Returns normalizer for the SQL - either cached one or newly created.
+	 *
+	 * @param sql SQL statement
+	 * @return normalizer with normalized SQL and type of the statement
+	 */
+	SqlNormalizer get(String sql) {
+		ConcurrentMap<String, SqlNormalizer> current = this.current;
+		SqlNormalizer normalizer = current.get(sql);
+		if (normalizer == null) {
+			normalizer = previous.remove(sql);
+			if (normalizer == null) {
+				normalizer = new SqlNormalizer(sql);
+			}
+			if (current.putIfAbsent(sql, normalizer) == null && currentSize.incrementAndGet() >= segmentCapacity) {
+				rotate(current);
+			}
+		}
+		return normalizer;
+	}
+
+	/** Full current segment becomes the previous one, unless other thread rotated the segments already. */
+	private synchronized void rotate(ConcurrentMap<String, SqlNormalizer> full) {
+		if (current == full) {
+			previous = full;
+			current = new ConcurrentHashMap<>();
+			currentSize.set(0);
+		}
+	}
+
+	/**
+	 * Returns the number of cached statements.
+	 *
+	 * @return number of cached statements
+	 */
+	int size() {
+		return current.size() + previous.size();
+	}
+
+	/**
+	 * Returns maximal number of cached statements.
+	 *
+	 * @return capacity of the cache
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+}
@@ -110,7 +110,12 @@
  * |
  * +-> .sql
  * |     +-> .<sql type (select, insert, ...)>
- * |           +-> .<sql hash>}</pre>
+ * |           +-> .<sql hash>
+ * |                 +-> .fetch (or .next with per-row splits)
+ * |                 +-> .rows}</pre>
+ *
+ * Counter {@code rows} holds {@link org.javasimon.jdbc4.RowsHistogram} of rows per result set as its attribute
+ * {@value org.javasimon.jdbc4.SimonResultSet#ATTR_NAME_ROWS_HISTOGRAM}, see {@link org.javasimon.jdbc4.SimonResultSet}.
  *
  * For choosing Simon's name is used prefix. If non is defined, default is {@code org.javasimon.jdbc}.
  * If default prefix value is not sufficient or you need to differentiate between two different drivers
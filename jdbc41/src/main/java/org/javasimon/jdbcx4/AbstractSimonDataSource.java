@@ -26,6 +26,7 @@ public abstract class AbstractSimonDataSource {
 
 	private String realDataSourceClassName;
 	private String prefix;
+	private Boolean perRowSplits;
 	/**
 	 * Properties specific to the real datasource
 	 */
@@ -245,6 +246,31 @@ public abstract class AbstractSimonDataSource {
 		this.prefix = prefix;
 	}
 
+	/**
+	 * Returns whether each {@code next} call on result sets is measured by its own Split.
+	 * If not set explicitly, the value is taken from the URL.
+	 *
+	 * @return true if per-row Splits are switched on
+	 * @see org.javasimon.jdbc4.SimonResultSet
+	 * @since 4.2
+	 */
+	public final boolean isPerRowSplits() {
+		if (perRowSplits == null) {
+			return configuration != null && configuration.isPerRowSplits();
+		}
+		return perRowSplits;
+	}
+
+	/**
+	 * Sets whether each {@code next} call on result sets is measured by its own Split.
+	 *
+	 * @param perRowSplits true to switch per-row Splits on
+	 * @since 4.2
+	 */
+	public final void setPerRowSplits(boolean perRowSplits) {
+		this.perRowSplits = perRowSplits;
+	}
+
 	/**
 	 * Get properties specific to the real datasource.
 	 *
@@ -24,6 +24,7 @@ import org.javasimon.jdbc4.WrapperSupport;
  * <b>MAY</b> properties are:
  * <ul>
  * <li><code>prefix</code> - Simon prefix (default: <code>org.javasimon.jdbcx4</code></li>
+ * <li><code>perRowSplits</code> - measures each {@code ResultSet.next()} by its own Split (default: <code>false</code>)</li>
  * </ul>
  * <p/>
  * As mentioned in package description all <code>getConnection</code> methods
@@ -60,7 +61,7 @@ public final class SimonDataSource extends AbstractSimonDataSource implements Da
 	 */
 	@Override
 	public Connection getConnection() throws SQLException {
-		return new SimonConnection(datasource().getConnection(), getPrefix());
+		return new SimonConnection(datasource().getConnection(), getPrefix(), isPerRowSplits());
 	}
 
 	/**
@@ -73,7 +74,7 @@ public final class SimonDataSource extends AbstractSimonDataSource implements Da
 	 */
 	@Override
 	public Connection getConnection(String user, String password) throws SQLException {
-		return new SimonConnection(datasource().getConnection(user, password), getPrefix());
+		return new SimonConnection(datasource().getConnection(user, password), getPrefix(), isPerRowSplits());
 	}
 
 	@Override
@@ -24,6 +24,7 @@ import org.javasimon.jdbc4.SimonConnection;
 public class SimonPooledConnection implements PooledConnection {
 	private final PooledConnection pooledConn;
 	private final String prefix;
+	private final boolean perRowSplits;
 
 	/**
 	 * Class constructor.
@@ -32,13 +33,26 @@ public class SimonPooledConnection implements PooledConnection {
 	 * @param prefix Simon prefix
 	 */
 	public SimonPooledConnection(PooledConnection connection, String prefix) {
+		this(connection, prefix, false);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param connection real pooled connection
+	 * @param prefix Simon prefix
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
+	 * @since 4.2
+	 */
+	public SimonPooledConnection(PooledConnection connection, String prefix, boolean perRowSplits) {
 		this.pooledConn = connection;
 		this.prefix = prefix;
+		this.perRowSplits = perRowSplits;
 	}
 
 	@Override
 	public final Connection getConnection() throws SQLException {
-		return new SimonConnection(pooledConn.getConnection(), prefix);
+		return new SimonConnection(pooledConn.getConnection(), prefix, perRowSplits);
 	}
 
 	@Override
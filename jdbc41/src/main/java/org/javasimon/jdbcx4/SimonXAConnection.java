@@ -28,7 +28,19 @@ public final class SimonXAConnection extends SimonPooledConnection implements XA
 	 * @param prefix Simon prefix
 	 */
 	public SimonXAConnection(XAConnection connection, String prefix) {
-		super(connection, prefix);
+		this(connection, prefix, false);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param connection real xa connection
+	 * @param prefix Simon prefix
+	 * @param perRowSplits whether each {@code next} call on result sets is measured by its own Split
+	 * @since 4.2
+	 */
+	public SimonXAConnection(XAConnection connection, String prefix, boolean perRowSplits) {
+		super(connection, prefix, perRowSplits);
 
 		this.realConn = connection;
 	}
@@ -28,12 +28,12 @@ public final class SimonXADataSource extends AbstractSimonDataSource implements
 
 	@Override
 	public XAConnection getXAConnection() throws SQLException {
-		return new SimonXAConnection(datasource().getXAConnection(), getPrefix());
+		return new SimonXAConnection(datasource().getXAConnection(), getPrefix(), isPerRowSplits());
 	}
 
 	@Override
 	public XAConnection getXAConnection(String user, String password) throws SQLException {
-		return new SimonXAConnection(datasource().getXAConnection(user, password), getPrefix());
+		return new SimonXAConnection(datasource().getXAConnection(user, password), getPrefix(), isPerRowSplits());
 	}
 
 	@Override
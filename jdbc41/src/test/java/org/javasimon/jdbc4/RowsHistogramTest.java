@@ -0,0 +1,37 @@
+package org.javasimon.jdbc4;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+/** Unit test for {@link RowsHistogram} class. */
+public class RowsHistogramTest {
+
+	@Test
+	public void testBucketsCoverAllValues() {
+		assertEquals(RowsHistogram.getBucketIndex(-1), 0);
+		assertEquals(RowsHistogram.getBucketIndex(0), 0);
+		assertEquals(RowsHistogram.getBucketIndex(1), 1);
+		assertEquals(RowsHistogram.getBucketIndex(3), 2);
+		assertEquals(RowsHistogram.getBucketIndex(Long.MAX_VALUE), RowsHistogram.BUCKET_NB - 1);
+		assertEquals(RowsHistogram.getBucketMax(RowsHistogram.BUCKET_NB - 1), Long.MAX_VALUE);
+		for (int i = 1; i < RowsHistogram.BUCKET_NB; i++) {
+			long min = RowsHistogram.getBucketMin(i);
+			assertEquals(RowsHistogram.getBucketMax(i - 1), min - 1);
+			assertEquals(RowsHistogram.getBucketIndex(min), i);
+			assertEquals(RowsHistogram.getBucketIndex(RowsHistogram.getBucketMax(i)), i);
+		}
+	}
+
+	@Test
+	public void testToStringListsNonEmptyBuckets() {
+		RowsHistogram histogram = new RowsHistogram();
+		assertEquals(histogram.toString(), "RowsHistogram{}");
+		histogram.addValue(0);
+		histogram.addValue(1);
+		histogram.addValue(5);
+		histogram.addValue(7);
+		assertEquals(histogram.getTotalCount(), 4);
+		assertEquals(histogram.toString(), "RowsHistogram{0: 1, 1: 1, 4-7: 2}");
+	}
+}
@@ -1,6 +1,8 @@
 package org.javasimon.jdbc4;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -86,6 +88,14 @@ public class SimonConnectionConfigurationTest {
 		assertEquals(configuration.getRealDriver(), realDriver);
 		assertEquals(configuration.getRealUrl(), realUrl);
 		assertEquals(configuration.getPrefix(), prefix);
+		assertFalse(configuration.isPerRowSplits());
+	}
+
+	@Test
+	public void testPerRowSplitsOption() {
+		SimonConnectionConfiguration configuration = new SimonConnectionConfiguration("jdbc:simon:h2:mem:testdb;simon_per_row_splits=true");
+		assertTrue(configuration.isPerRowSplits());
+		assertEquals(configuration.getRealUrl(), "jdbc:h2:mem:testdb");
 	}
 
 	/**
@@ -0,0 +1,126 @@
+package org.javasimon.jdbc4;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Unit test for {@link SimonResultSet} class. */
+public class SimonResultSetTest {
+	private static final String PREFIX = "org.javasimon.jdbc4.test";
+
+	private Stopwatch stmtStopwatch;
+
+	@BeforeMethod
+	public void setUpMethod() {
+		SimonManager.clear();
+		stmtStopwatch = SimonManager.getStopwatch(PREFIX + ".sql.select.1");
+	}
+
+	@Test
+	public void testRowsReportedOnClose() throws SQLException {
+		fetch(mockResultSet(3), false);
+		fetch(mockResultSet(0), false);
+		SimonResultSet resultSet = fetch(mockResultSet(5), false);
+		resultSet.close();
+
+		Stopwatch fetch = SimonManager.getStopwatch(PREFIX + ".sql.select.1.fetch");
+		assertEquals(fetch.getCounter(), 3);
+		assertNull(SimonManager.getSimon(PREFIX + ".sql.select.1.next"));
+
+		Counter rows = SimonManager.getCounter(PREFIX + ".sql.select.1.rows");
+		assertEquals(rows.getCounter(), 8);
+		RowsHistogram histogram = (RowsHistogram) rows.getAttribute(SimonResultSet.ATTR_NAME_ROWS_HISTOGRAM);
+		assertEquals(histogram.getTotalCount(), 3);
+		assertEquals(histogram.getCount(RowsHistogram.getBucketIndex(3)), 1);
+		assertEquals(histogram.getCount(RowsHistogram.getBucketIndex(5)), 1);
+		assertEquals(histogram.toString(), "RowsHistogram{0: 1, 2-3: 1, 4-7: 1}");
+	}
+
+	@Test
+	public void testPerRowSplits() throws SQLException {
+		fetch(mockResultSet(3), true);
+
+		Stopwatch next = SimonManager.getStopwatch(PREFIX + ".sql.select.1.next");
+		assertEquals(next.getCounter(), 4);
+		assertNull(SimonManager.getSimon(PREFIX + ".sql.select.1.fetch"));
+		assertEquals(SimonManager.getCounter(PREFIX + ".sql.select.1.rows").getCounter(), 3);
+	}
+
+	@Test
+	public void testRowsReportedWhenExhausted() throws SQLException {
+		SimonResultSet resultSet = new SimonResultSet(mockResultSet(2), null, PREFIX, stmtStopwatch, false);
+		// rows Counter is resolved with the result set, but rows are reported only when exhausted
+		Counter rows = SimonManager.getCounter(PREFIX + ".sql.select.1.rows");
+		while (resultSet.next()) {
+			assertEquals(rows.getCounter(), 0);
+		}
+		assertEquals(rows.getCounter(), 2);
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.select.1.fetch").getCounter(), 1);
+
+		// closing later does not report the same result set again
+		resultSet.close();
+		assertEquals(rows.getCounter(), 2);
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.select.1.fetch").getCounter(), 1);
+	}
+
+	@Test
+	public void testRowsReportedOnStatementClose() throws SQLException {
+		ResultSet first = mockResultSet(3);
+		ResultSet second = mockResultSet(3);
+		Statement realStatement = mock(Statement.class);
+		when(realStatement.executeQuery("select 1")).thenReturn(first, second);
+		SimonStatement statement = new SimonStatement(null, realStatement, PREFIX, false);
+		SqlNormalizer normalizer = new SqlNormalizer("select 1");
+		String stmtName = PREFIX + ".sql." + normalizer.getType() + "." + normalizer.getNormalizedSqlHashHex();
+
+		// result set of the previous query is closed by the next query
+		ResultSet resultSet = statement.executeQuery("select 1");
+		resultSet.next();
+		resultSet = statement.executeQuery("select 1");
+		Counter rows = SimonManager.getCounter(stmtName + ".rows");
+		assertEquals(rows.getCounter(), 1);
+
+		resultSet.next();
+		resultSet.next();
+		statement.close();
+		assertEquals(rows.getCounter(), 3);
+		assertEquals(SimonManager.getStopwatch(stmtName + ".fetch").getCounter(), 2);
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".rset").getActive(), 0);
+	}
+
+	private SimonResultSet fetch(ResultSet realResultSet, boolean perRowSplits) throws SQLException {
+		SimonResultSet resultSet = new SimonResultSet(realResultSet, null, PREFIX, stmtStopwatch, perRowSplits);
+		int rows = 0;
+		while (resultSet.next()) {
+			rows++;
+		}
+		assertEquals(resultSet.getRowCount(), rows);
+		resultSet.close();
+		return resultSet;
+	}
+
+	private ResultSet mockResultSet(int rows) throws SQLException {
+		ResultSet resultSet = mock(ResultSet.class);
+		// first call returns the first value, further calls the rest - rows times true, then false
+		Boolean[] next = new Boolean[rows];
+		for (int i = 0; i < rows - 1; i++) {
+			next[i] = true;
+		}
+		if (rows > 0) {
+			next[rows - 1] = false;
+		}
+		when(resultSet.next()).thenReturn(rows > 0, next);
+		return resultSet;
+	}
+}
@@ -0,0 +1,66 @@
+package org.javasimon.jdbc4;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Unit test for {@link SimonStatement} class. */
+public class SimonStatementTest {
+	private static final String PREFIX = "org.javasimon.jdbc4.test";
+
+	private SimonStatement statement;
+
+	@BeforeMethod
+	public void setUpMethod() {
+		SimonManager.clear();
+		statement = new SimonStatement(null, mock(Statement.class), PREFIX, false);
+	}
+
+	@Test
+	public void testStopwatchesAreReusedForRepeatedExecutions() throws SQLException {
+		statement.executeUpdate("update t set x = 1");
+		Stopwatch sqlStopwatch = sqlStopwatch("update t set x = 2");
+		statement.executeUpdate("update t set x = 2");
+		statement.executeUpdate("delete from t");
+		statement.executeUpdate("update t set x = 3");
+
+		assertEquals(sqlStopwatch.getCounter(), 3);
+		assertEquals(sqlStopwatch.getNote(), "update t set x = ?");
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.update").getCounter(), 3);
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.delete").getCounter(), 1);
+		assertEquals(sqlStopwatch("delete from t").getCounter(), 1);
+	}
+
+	@Test
+	public void testStopwatchesAreResolvedAgainAfterClear() throws SQLException {
+		statement.executeUpdate("update t set x = 1");
+		Stopwatch oldStopwatch = sqlStopwatch("update t set x = 1");
+
+		SimonManager.clear();
+		statement.executeUpdate("update t set x = 1");
+		Stopwatch newStopwatch = sqlStopwatch("update t set x = 1");
+		assertNotSame(newStopwatch, oldStopwatch);
+		assertEquals(newStopwatch.getCounter(), 1);
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.update").getCounter(), 1);
+
+		SimonManager.destroySimon(newStopwatch.getName());
+		statement.executeUpdate("update t set x = 1");
+		assertEquals(sqlStopwatch("update t set x = 1").getCounter(), 1);
+		assertSame(sqlStopwatch("update t set x = 1").getParent(), SimonManager.getStopwatch(PREFIX + ".sql.update"));
+		assertEquals(SimonManager.getStopwatch(PREFIX + ".sql.update").getCounter(), 2);
+	}
+
+	private Stopwatch sqlStopwatch(String sql) {
+		SqlNormalizer normalizer = new SqlNormalizer(sql);
+		return SimonManager.getStopwatch(PREFIX + ".sql." + normalizer.getType() + "." + normalizer.getNormalizedSqlHashHex());
+	}
+}
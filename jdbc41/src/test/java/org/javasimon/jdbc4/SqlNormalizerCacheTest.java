@@ -0,0 +1,47 @@
+package org.javasimon.jdbc4;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for SqlNormalizerCache class.
+ */
+public final class SqlNormalizerCacheTest {
+	@Test
+	public void cachedNormalizerTest() {
+		SqlNormalizerCache cache = new SqlNormalizerCache(10);
+		SqlNormalizer normalizer = cache.get("select * from foo where id=1");
+
+		Assert.assertEquals(normalizer.getType(), "select");
+		Assert.assertEquals(normalizer.getNormalizedSql(), "select * from foo where id = ?");
+		Assert.assertSame(cache.get("select * from foo where id=1"), normalizer);
+		Assert.assertEquals(cache.size(), 1);
+	}
+
+	@Test
+	public void capacityTest() {
+		SqlNormalizerCache cache = new SqlNormalizerCache(4);
+		SqlNormalizer hot = cache.get("select * from foo where id=0");
+		SqlNormalizer cold = cache.get("select * from foo where id=1");
+		Assert.assertEquals(cache.size(), 2);
+
+		// used statement survives the eviction, unused one is dropped
+		Assert.assertSame(cache.get("select * from foo where id=0"), hot);
+		for (int i = 2; i < 4; i++) {
+			cache.get("select * from foo where id=" + i);
+		}
+		Assert.assertEquals(cache.size(), 3);
+		Assert.assertSame(cache.get("select * from foo where id=0"), hot);
+		Assert.assertNotSame(cache.get("select * from foo where id=1"), cold);
+
+		for (int i = 0; i < 100; i++) {
+			cache.get("select * from foo where id=" + i);
+			Assert.assertTrue(cache.size() <= cache.getCapacity());
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void invalidCapacityTest() {
+		new SqlNormalizerCache(0);
+	}
+}
@@ -1,7 +1,9 @@
 package org.javasimon.jdbc4;
 
 import java.util.Arrays;
+import java.util.Random;
 
+import org.javasimon.utils.Replacer;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -65,6 +67,61 @@ public final class SqlNormalizerTest {
 		Assert.assertEquals(sn.getNormalizedSql(), normSql);
 	}
 
+	@Test(dataProvider = "dp1")
+	public void regexEquivalenceTest(String sql, String type, String normSql) {
+		assertSameAsRegex(sql);
+	}
+
+	@Test
+	public void randomRegexEquivalenceTest() {
+		String[] tokens = {
+			"select", "SELECT", "from", "FROM", "where", "and", "or", "in", "in(", "like", "between", "create", "alter", "drop", "table",
+			"begin", "end", "end;", "call", "insert", "into", "values", "update", "set", "delete", "append",
+			"foo", "t1.col", "sys.dual", "to_date(", "sum(", "f(", "x", "_id",
+			"'a'", "'Mark''s'", "''", "'", "'a b'", "'1,2'", "45.8", ".5", "1.", "3", "..",
+			"=", "!=", "<=", ">", "-", "+", "*", "/", ",", ", ", ".", "(", ")", "((", "))", "{", "}", "?", ";",
+			" ", " ", " ", "  ", "\t", "\n", " \t ", "\r\n",
+		};
+		Random random = new Random(47);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sql = new StringBuilder();
+			int count = 1 + random.nextInt(16);
+			for (int j = 0; j < count; j++) {
+				sql.append(tokens[random.nextInt(tokens.length)]);
+				if (random.nextInt(3) > 0) {
+					sql.append(' ');
+				}
+			}
+			assertSameAsRegex(sql.toString());
+		}
+	}
+
+	private void assertSameAsRegex(String sql) {
+		if (sql == null) {
+			return;
+		}
+		SqlNormalizer sn = new SqlNormalizer(sql);
+		RegexSqlNormalizer regex = new RegexSqlNormalizer(sql);
+		Assert.assertEquals(sn.getType(), regex.type, "type for SQL: " + sql);
+		Assert.assertEquals(sn.getNormalizedSql(), regex.normalizedSql, "normalized SQL for SQL: " + sql);
+	}
+
+	@Test
+	public void normalizedSqlHashTest() {
+		SqlNormalizer sn1 = new SqlNormalizer("select * from foo where id = 1");
+		SqlNormalizer sn2 = new SqlNormalizer("SELECT * FROM foo WHERE id=2");
+		SqlNormalizer sn3 = new SqlNormalizer("select * from foo where id = 1 and x = 2");
+
+		Assert.assertEquals(sn1.getNormalizedSqlHash(), sn2.getNormalizedSqlHash());
+		Assert.assertNotEquals(sn1.getNormalizedSqlHash(), sn3.getNormalizedSqlHash());
+		// FNV-1a reference values
+		Assert.assertEquals(SqlNormalizer.hash(""), 0xcbf29ce484222325L);
+		Assert.assertEquals(SqlNormalizer.hash("a"), 0xaf63dc4c8601ec8cL);
+		// String.hashCode collides for these
+		Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+		Assert.assertNotEquals(SqlNormalizer.hash("Aa"), SqlNormalizer.hash("BB"));
+	}
+
 	@Test
 	public void batchNormalizationTest() {
 		SqlNormalizer sn = new SqlNormalizer(Arrays.asList("update trn set amount=50.6,type='bubu' where id=4", "insert into foo ('bufo', 4.47)"));
@@ -87,4 +144,52 @@ public final class SqlNormalizerTest {
 		Assert.assertEquals(sn.getSql(), "batch");
 		Assert.assertEquals(sn.getNormalizedSql(), "4x insert into fuu values (?, ?, ?, ?, ?); 2x delete from fuu where id = ?; insert into fuu2 values (?, ?)");
 	}
+
+	/** Former regex based implementation of the normalization used as a reference. */
+	private static final class RegexSqlNormalizer {
+		private static final Replacer[] FIRST_REPLACERS = new Replacer[]{
+			new Replacer("''", "?"),
+			new Replacer(" *([-=<>!+*/,]+) *", "$1"),
+			new Replacer("([-=<>!+*/]+)", " $1 "),
+			new Replacer("\\s+", " "),
+			new Replacer("(create|alter|drop) (\\S+) ([^ (]+).*$", "$1 $2 $3"),
+			new Replacer("([-=<>!+*/,.(]+\\s?)(?:(?:'[^']+')|(?:[0-9.]+))", "$1?"),
+			new Replacer("like '[^']+'", "like ?"),
+			new Replacer("between \\S+ and \\S+", "between ? and ?"),
+			new Replacer(" in\\(", " in ("),
+			new Replacer("^\\{|\\}$", ""),
+			new Replacer("^\\s*begin", "call"),
+			new Replacer(";?\\s*end;?$", ""),
+		};
+		private static final Replacer[] SECOND_REPLACERS = new Replacer[]{
+			new Replacer(",", ", "),
+			new Replacer(" in \\(\\?(?:, \\?)*\\)", " in (?)"),
+		};
+		private static final Replacer FUNCTION_REPLACER = new Replacer("([-(=<>!+*/,]+\\s?)\\w+\\([^()]*\\)", "$1?", Replacer.Modificator.REPEAT_UNTIL_UNCHANGED);
+		private static final Replacer TYPE_SELECTOR = new Replacer("^\\W*(\\w+)\\W.*", "$1");
+
+		private String normalizedSql;
+		private String type;
+
+		private RegexSqlNormalizer(String sql) {
+			normalizedSql = sql.toLowerCase().trim();
+			applyReplacers(FIRST_REPLACERS);
+			type = TYPE_SELECTOR.process(normalizedSql);
+			if (type.equals("select")) {
+				String[] sa = normalizedSql.split(" from ", 2);
+				if (sa.length == 2) {
+					normalizedSql = sa[0] + " from " + FUNCTION_REPLACER.process(sa[1]);
+				}
+			} else {
+				normalizedSql = FUNCTION_REPLACER.process(normalizedSql);
+			}
+			applyReplacers(SECOND_REPLACERS);
+		}
+
+		private void applyReplacers(Replacer[] replacers) {
+			for (Replacer replacer : replacers) {
+				normalizedSql = replacer.process(normalizedSql);
+			}
+		}
+	}
 }